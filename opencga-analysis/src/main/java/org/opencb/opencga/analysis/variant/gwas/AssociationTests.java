@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.analysis.variant.gwas;
+
+/**
+ * Case/control association tests computed from allele and genotype counts.
+ *
+ * All the statistics have one degree of freedom. Invalid tables (e.g. with an empty row or column) return NaN.
+ */
+public final class AssociationTests {
+
+    private AssociationTests() {
+    }
+
+    /**
+     * Pearson's chi-square of the allelic 2x2 table.
+     *
+     * @param a case #REF
+     * @param b control #REF
+     * @param c case #ALT
+     * @param d control #ALT
+     * @return chi-square statistic
+     */
+    public static double chiSquare(int a, int b, int c, int d) {
+        double n = (double) a + b + c + d;
+        double denominator = ((double) a + b) * ((double) c + d) * ((double) a + c) * ((double) b + d);
+        if (denominator == 0) {
+            return Double.NaN;
+        }
+        double diff = (double) a * d - (double) b * c;
+        return n * diff * diff / denominator;
+    }
+
+    /**
+     * Sample odds ratio of the allelic 2x2 table, (a * d) / (b * c).
+     *
+     * @param a case #REF
+     * @param b control #REF
+     * @param c case #ALT
+     * @param d control #ALT
+     * @return odds ratio
+     */
+    public static double oddsRatio(int a, int b, int c, int d) {
+        return ((double) a * d) / ((double) b * c);
+    }
+
+    /**
+     * Cochran-Armitage trend test, with additive weights (0, 1, 2).
+     *
+     * @param caseGenotypes    Case genotype counts, by number of ALT alleles
+     * @param controlGenotypes Control genotype counts, by number of ALT alleles
+     * @return chi-square statistic of the trend test
+     */
+    public static double trendChiSquare(int[] caseGenotypes, int[] controlGenotypes) {
+        double cases = 0;
+        double controls = 0;
+        for (int i = 0; i < 3; i++) {
+            cases += caseGenotypes[i];
+            controls += controlGenotypes[i];
+        }
+        double total = cases + controls;
+
+        double t = 0;
+        double sumSquares = 0;
+        double sumProducts = 0;
+        for (int i = 0; i < 3; i++) {
+            double n = caseGenotypes[i] + controlGenotypes[i];
+            t += i * (caseGenotypes[i] * controls - controlGenotypes[i] * cases);
+            sumSquares += i * i * n * (total - n);
+            for (int j = i + 1; j < 3; j++) {
+                sumProducts += i * j * n * (caseGenotypes[j] + controlGenotypes[j]);
+            }
+        }
+        double variance = cases * controls / total * (sumSquares - 2 * sumProducts);
+        if (!(variance > 0)) {
+            return Double.NaN;
+        }
+        return t * t / variance;
+    }
+
+    /**
+     * Upper tail probability of a chi-square distribution with one degree of freedom.
+     *
+     * @param chiSquare chi-square statistic
+     * @return p-value
+     */
+    public static double chiSquarePValue(double chiSquare) {
+        if (Double.isNaN(chiSquare)) {
+            return Double.NaN;
+        }
+        return erfc(Math.sqrt(chiSquare / 2));
+    }
+
+    /**
+     * Complementary error function, with fractional error below 1.2e-7.
+     * Chebyshev approximation from "Numerical Recipes in C", 2nd edition, section 6.2.
+     *
+     * @param x value
+     * @return erfc(x)
+     */
+    static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1.0 / (1.0 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+}
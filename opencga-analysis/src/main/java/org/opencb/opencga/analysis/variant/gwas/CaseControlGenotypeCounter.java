@@ -0,0 +1,286 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.opencb.biodata.models.variant.Genotype;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.avro.SampleEntry;
+
+import java.util.*;
+
+/**
+ * Counts the alleles and genotypes of a case and a control cohort.
+ *
+ * The genotypes of each variant are encoded into a few bitmaps, with one bit per sample (e.g. "has at least one ALT allele",
+ * "has two ALT alleles"). The case and control masks are built once from the sample positions, so the counts of each cohort
+ * are obtained with bit operations, without looking up the samples by name.
+ *
+ * Not thread safe. Each thread should use its own instance.
+ */
+public class CaseControlGenotypeCounter {
+
+    private static final String GT = "GT";
+    private static final int MAX_CACHED_GENOTYPES = 1000;
+
+    // Bitmap ids. Alleles are counted up to two per sample
+    private static final int ALLELE_1 = 0; // At least one called allele
+    private static final int ALLELE_2 = 1; // At least two called alleles
+    private static final int REF_1 = 2;
+    private static final int REF_2 = 3;
+    private static final int ALT_1 = 4;
+    private static final int ALT_2 = 5;
+    // Genotype classes. Only fully called diploid genotypes made of REF and main ALT alleles
+    private static final int HOM_REF = 6;  // 0/0
+    private static final int HET = 7;      // 0/1
+    private static final int HOM_ALT = 8;  // 1/1
+    private static final int NUM_BITMAPS = 9;
+
+    private final List<String> caseSamples;
+    private final List<String> controlSamples;
+    // Genotype string to bitmap flags
+    private final Map<String, Integer> genotypeFlags = new HashMap<>();
+
+    private Map<String, Integer> samplesPosition;
+    private int[] cohortPositions;
+    private long[] caseMask;
+    private long[] controlMask;
+    private long[][] bitmaps;
+
+    public CaseControlGenotypeCounter(List<String> caseSamples, List<String> controlSamples) {
+        this.caseSamples = caseSamples;
+        this.controlSamples = controlSamples;
+    }
+
+    /**
+     * Count the alleles and genotypes of both cohorts for the main alternate of the given study entry.
+     *
+     * @param study Study entry with the GT of the samples
+     * @return      Case and control counts
+     */
+    public Counts count(StudyEntry study) {
+        updateMasks(study.getSamplesPosition());
+        for (long[] bitmap : bitmaps) {
+            Arrays.fill(bitmap, 0);
+        }
+
+        Integer gtIdx = study.getSampleDataKeyPosition(GT);
+        if (gtIdx != null) {
+            List<SampleEntry> samples = study.getSamples();
+            for (int position : cohortPositions) {
+                if (position >= samples.size()) {
+                    continue;
+                }
+                List<String> data = samples.get(position).getData();
+                if (data == null || gtIdx >= data.size()) {
+                    continue;
+                }
+                int flags = getGenotypeFlags(data.get(gtIdx));
+                if (flags != 0) {
+                    int word = position >>> 6;
+                    long bit = 1L << position;
+                    for (int i = 0; i < NUM_BITMAPS; i++) {
+                        if ((flags & (1 << i)) != 0) {
+                            bitmaps[i][word] |= bit;
+                        }
+                    }
+                }
+            }
+        }
+        return new Counts(count(caseMask), count(controlMask));
+    }
+
+    private CohortCounts count(long[] mask) {
+        int alleles = 0;
+        int ref = 0;
+        int alt = 0;
+        int homRef = 0;
+        int het = 0;
+        int homAlt = 0;
+        for (int w = 0; w < mask.length; w++) {
+            long m = mask[w];
+            if (m == 0) {
+                continue;
+            }
+            alleles += Long.bitCount(bitmaps[ALLELE_1][w] & m) + Long.bitCount(bitmaps[ALLELE_2][w] & m);
+            ref += Long.bitCount(bitmaps[REF_1][w] & m) + Long.bitCount(bitmaps[REF_2][w] & m);
+            alt += Long.bitCount(bitmaps[ALT_1][w] & m) + Long.bitCount(bitmaps[ALT_2][w] & m);
+            homRef += Long.bitCount(bitmaps[HOM_REF][w] & m);
+            het += Long.bitCount(bitmaps[HET][w] & m);
+            homAlt += Long.bitCount(bitmaps[HOM_ALT][w] & m);
+        }
+        return new CohortCounts(alleles, ref, alt, homRef, het, homAlt);
+    }
+
+    private void updateMasks(Map<String, Integer> samplesPosition) {
+        if (this.samplesPosition == samplesPosition
+                || this.samplesPosition != null && this.samplesPosition.equals(samplesPosition)) {
+            return;
+        }
+        this.samplesPosition = samplesPosition;
+        int numSamples = samplesPosition.isEmpty() ? 0 : Collections.max(samplesPosition.values()) + 1;
+        int words = (numSamples + 63) >>> 6;
+        caseMask = new long[words];
+        controlMask = new long[words];
+        bitmaps = new long[NUM_BITMAPS][words];
+        List<Integer> positions = new ArrayList<>(caseSamples.size() + controlSamples.size());
+        addToMask(caseSamples, caseMask, positions);
+        addToMask(controlSamples, controlMask, positions);
+        cohortPositions = positions.stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private void addToMask(List<String> samples, long[] mask, List<Integer> positions) {
+        for (String sample : samples) {
+            Integer position = samplesPosition.get(sample);
+            if (position != null) {
+                mask[position >>> 6] |= 1L << position;
+                positions.add(position);
+            }
+        }
+    }
+
+    private int getGenotypeFlags(String gt) {
+        if (gt == null) {
+            return 0;
+        }
+        Integer flags = genotypeFlags.get(gt);
+        if (flags == null) {
+            flags = computeGenotypeFlags(gt);
+            if (genotypeFlags.size() > MAX_CACHED_GENOTYPES) {
+                genotypeFlags.clear();
+            }
+            genotypeFlags.put(gt, flags);
+        }
+        return flags;
+    }
+
+    static int computeGenotypeFlags(String gt) {
+        int[] allelesIdx;
+        try {
+            allelesIdx = new Genotype(gt).getAllelesIdx();
+        } catch (RuntimeException e) {
+            // Unknown genotype. Treat as missing
+            return 0;
+        }
+        int alleles = 0;
+        int ref = 0;
+        int alt = 0;
+        boolean missing = false;
+        for (int allele : allelesIdx) {
+            if (allele < 0) {
+                missing = true;
+            } else {
+                alleles++;
+                if (allele == 0) {
+                    ref++;
+                } else if (allele == 1) {
+                    alt++;
+                }
+            }
+        }
+        int flags = 0;
+        // Genotypes with other alleles (e.g. 0/2, 1/2), haploid or polyploid genotypes do not fit in any class
+        if (!missing && allelesIdx.length == 2 && ref + alt == 2) {
+            if (alt == 0) {
+                flags |= 1 << HOM_REF;
+            } else if (alt == 1) {
+                flags |= 1 << HET;
+            } else {
+                flags |= 1 << HOM_ALT;
+            }
+        }
+        flags |= countFlags(alleles, ALLELE_1, ALLELE_2);
+        flags |= countFlags(ref, REF_1, REF_2);
+        flags |= countFlags(alt, ALT_1, ALT_2);
+        return flags;
+    }
+
+    private static int countFlags(int count, int bitmap1, int bitmap2) {
+        int flags = 0;
+        if (count >= 1) {
+            flags |= 1 << bitmap1;
+        }
+        if (count >= 2) {
+            flags |= 1 << bitmap2;
+        }
+        return flags;
+    }
+
+    /**
+     * Allele and genotype counts of one cohort. Genotype counts only include fully called diploid genotypes with the
+     * reference and the main alternate alleles.
+     */
+    public static class CohortCounts {
+        private final int alleleCount;
+        private final int refAlleleCount;
+        private final int altAlleleCount;
+        private final int homRefCount;
+        private final int hetCount;
+        private final int homAltCount;
+
+        public CohortCounts(int alleleCount, int refAlleleCount, int altAlleleCount, int homRefCount, int hetCount, int homAltCount) {
+            this.alleleCount = alleleCount;
+            this.refAlleleCount = refAlleleCount;
+            this.altAlleleCount = altAlleleCount;
+            this.homRefCount = homRefCount;
+            this.hetCount = hetCount;
+            this.homAltCount = homAltCount;
+        }
+
+        public int getAlleleCount() {
+            return alleleCount;
+        }
+
+        public int getRefAlleleCount() {
+            return refAlleleCount;
+        }
+
+        public int getAltAlleleCount() {
+            return altAlleleCount;
+        }
+
+        public float getAltAlleleFreq() {
+            return alleleCount == 0 ? Float.NaN : ((float) altAlleleCount) / alleleCount;
+        }
+
+        /**
+         * Number of 0/0, 0/1 and 1/1 genotypes.
+         *
+         * @return Genotype counts
+         */
+        public int[] getGenotypeCounts() {
+            return new int[]{homRefCount, hetCount, homAltCount};
+        }
+    }
+
+    public static class Counts {
+        private final CohortCounts caseCounts;
+        private final CohortCounts controlCounts;
+
+        public Counts(CohortCounts caseCounts, CohortCounts controlCounts) {
+            this.caseCounts = caseCounts;
+            this.controlCounts = controlCounts;
+        }
+
+        public CohortCounts getCase() {
+            return caseCounts;
+        }
+
+        public CohortCounts getControl() {
+            return controlCounts;
+        }
+    }
+}
@@ -20,14 +20,13 @@ import org.apache.commons.lang3.StringUtils;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.avro.ConsequenceType;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
-import org.opencb.biodata.models.variant.stats.VariantStats;
-import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
 import org.opencb.commons.ProgressLogger;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.run.ParallelTaskRunner;
 import org.opencb.commons.run.Task;
 import org.opencb.opencga.core.tools.variant.GwasAnalysisExecutor;
+import org.opencb.oskar.analysis.variant.gwas.GwasConfiguration;
 import org.opencb.opencga.core.tools.annotations.ToolExecutor;
 import org.opencb.opencga.core.exceptions.ToolException;
 import org.opencb.opencga.analysis.variant.manager.VariantStorageToolExecutor;
@@ -41,6 +40,7 @@ import org.opencb.oskar.analysis.stats.FisherTestResult;
 
 import java.util.*;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
 
 @ToolExecutor(id = "opencga-local",
         tool = GwasAnalysis.ID,
@@ -48,6 +48,8 @@ import java.util.concurrent.ExecutionException;
         framework = ToolExecutor.Framework.LOCAL)
 public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implements VariantStorageToolExecutor {
 
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
     @Override
     public void run() throws ToolException {
         List<String> sampleList1 = getSampleList1();
@@ -56,28 +58,46 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
         allSamples.addAll(sampleList1);
         allSamples.addAll(sampleList2);
 
+        GwasConfiguration.Method method = getConfiguration() == null
+                ? GwasConfiguration.Method.FISHER_TEST
+                : getConfiguration().getMethod();
+        int numTasks = getExecutorParams().getInt("numThreads", Runtime.getRuntime().availableProcessors());
+        int batchSize = getExecutorParams().getInt("batchSize", DEFAULT_BATCH_SIZE);
+
         try {
             Query query = new Query(VariantQueryParam.STUDY.key(), getStudy())
-                    .append(VariantQueryParam.INCLUDE_SAMPLE.key(), allSamples);
+                    .append(VariantQueryParam.INCLUDE_SAMPLE.key(), allSamples)
+                    .append(VariantQueryParam.INCLUDE_SAMPLE_DATA.key(), "GT");
             VariantDBReader reader = new VariantDBReader(getVariantStorageManager().iterator(query, new QueryOptions(), getToken()));
 
             ProgressLogger progressLogger = new ProgressLogger("Processed variants:");
 
-            Task<Variant, String> task = Task.forEach(this::computeFisherTest)
-                    .then((Task<String, String>) batch -> {
-                progressLogger.increment(batch.size());
-                return batch;
-            });
+            // One counter per task. Case and control masks are reused across batches
+            Supplier<Task<Variant, String>> taskSupplier = () -> {
+                CaseControlGenotypeCounter counter = new CaseControlGenotypeCounter(sampleList1, sampleList2);
+                FisherExactTest fisherExactTest = new FisherExactTest();
+                return batch -> {
+                    List<String> lines = new ArrayList<>(batch.size());
+                    for (Variant variant : batch) {
+                        String line = computeTests(variant, counter, fisherExactTest, method);
+                        if (line != null) {
+                            lines.add(line);
+                        }
+                    }
+                    progressLogger.increment(batch.size());
+                    return lines;
+                };
+            };
 
             // TODO: Write header
             StringDataWriter writer = new StringDataWriter(getOutputFile(), true);
 
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                    .setNumTasks(4)
-                    .setBatchSize(100)
+                    .setNumTasks(Math.max(1, numTasks))
+                    .setBatchSize(batchSize)
                     .setSorted(true)
                     .build();
-            ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, task, writer, config);
+            ParallelTaskRunner<Variant, String> ptr = new ParallelTaskRunner<>(reader, taskSupplier, writer, config);
 
             ptr.run();
         } catch (CatalogException | ExecutionException | StorageEngineException e) {
@@ -85,20 +105,37 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
         }
     }
 
-    private String computeFisherTest(Variant variant) {
-        VariantStats caseStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList1());
-        VariantStats controlStats = VariantStatsCalculator.calculate(variant, variant.getStudies().get(0), getSampleList2());
+    private String computeTests(Variant variant, CaseControlGenotypeCounter counter, FisherExactTest fisherExactTest,
+                                GwasConfiguration.Method method) {
+        CaseControlGenotypeCounter.Counts counts = counter.count(variant.getStudies().get(0));
+        CaseControlGenotypeCounter.CohortCounts caseCounts = counts.getCase();
+        CaseControlGenotypeCounter.CohortCounts controlCounts = counts.getControl();
 
-        int a = caseStats.getRefAlleleCount(); // case #REF
-        int b = controlStats.getRefAlleleCount(); // control #REF
-        int c = caseStats.getAltAlleleCount(); // case #ALT
-        int d = controlStats.getAltAlleleCount(); // control #ALT
+        int a = caseCounts.getRefAlleleCount(); // case #REF
+        int b = controlCounts.getRefAlleleCount(); // control #REF
+        int c = caseCounts.getAltAlleleCount(); // case #ALT
+        int d = controlCounts.getAltAlleleCount(); // control #ALT
 
         if (a + b + c + d == 0) {
             return null;
         }
-        FisherTestResult fisherTestResult = new FisherExactTest().fisherTest(a, b, c, d);
 
+        // All the tests are computed in one pass from the same counts
+        double chiSquare = AssociationTests.chiSquare(a, b, c, d);
+        double chiSquarePValue = AssociationTests.chiSquarePValue(chiSquare);
+        double trendChiSquare = AssociationTests.trendChiSquare(caseCounts.getGenotypeCounts(), controlCounts.getGenotypeCounts());
+        double trendPValue = AssociationTests.chiSquarePValue(trendChiSquare);
+
+        double pValue;
+        double oddRatio;
+        if (method == GwasConfiguration.Method.CHI_SQUARE_TEST) {
+            pValue = chiSquarePValue;
+            oddRatio = AssociationTests.oddsRatio(a, b, c, d);
+        } else {
+            FisherTestResult fisherTestResult = fisherExactTest.fisherTest(a, b, c, d);
+            pValue = fisherTestResult.getpValue();
+            oddRatio = fisherTestResult.getOddRatio();
+        }
 
         VariantAnnotation variantAnnotation = variant.getAnnotation();
         String id = null;
@@ -121,6 +158,7 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
             genes = Collections.singleton(".");
         }
 
+        // Columns 15 (p-value) and 16 (odd ratio) are loaded as variant scores. Extra tests go at the end.
         return tsv(
                 id,
                 variant.toString(),
@@ -129,12 +167,16 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
                 variant.getAlternate().isEmpty() ? "-" : variant.getAlternate(),
                 String.join(",", genes),
                 a, b, c, d,
-                caseStats.getAlleleCount(),
-                controlStats.getAlleleCount(),
-                caseStats.getAltAlleleFreq(),
-                controlStats.getAltAlleleFreq(),
-                fisherTestResult.getpValue(),
-                fisherTestResult.getOddRatio()
+                caseCounts.getAlleleCount(),
+                controlCounts.getAlleleCount(),
+                caseCounts.getAltAlleleFreq(),
+                controlCounts.getAltAlleleFreq(),
+                pValue,
+                oddRatio,
+                chiSquare,
+                chiSquarePValue,
+                trendChiSquare,
+                trendPValue
         );
     }
 
@@ -142,8 +184,9 @@ public final class GwasLocalAnalysisExecutor extends GwasAnalysisExecutor implem
         StringJoiner joiner = new StringJoiner("\t");
         for (Object object : objects) {
             final String toString;
-            if (object instanceof Double) {
-                if (((Double) object).isNaN() || ((Double) object).isInfinite()) {
+            if (object instanceof Double || object instanceof Float) {
+                double value = ((Number) object).doubleValue();
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
                     toString = "NA";
                 } else {
                     toString = object.toString();
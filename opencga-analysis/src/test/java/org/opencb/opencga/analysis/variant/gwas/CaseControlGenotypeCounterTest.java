@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.analysis.variant.gwas;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CaseControlGenotypeCounterTest {
+
+    private static final String[] GENOTYPES = {"0/0", "0/1", "1/1", "0|1", "1|0", "./.", "1/2", "0/2", "0", "1", "."};
+
+    @Test
+    public void testCount() {
+        Variant variant = Variant.newBuilder("1:1000:A:C")
+                .setStudyId("s")
+                .setSampleDataKeys("GT")
+                .addSample("case1", "0/1")
+                .addSample("ctrl1", "0/0")
+                .addSample("case2", "1/1")
+                .addSample("other", "1/1")
+                .addSample("ctrl2", "./.")
+                .addSample("case3", "0/0")
+                .addSample("ctrl3", "1|0")
+                .build();
+
+        CaseControlGenotypeCounter counter = new CaseControlGenotypeCounter(
+                Arrays.asList("case1", "case2", "case3", "missingSample"),
+                Arrays.asList("ctrl1", "ctrl2", "ctrl3"));
+        CaseControlGenotypeCounter.Counts counts = counter.count(variant.getStudies().get(0));
+
+        assertEquals(6, counts.getCase().getAlleleCount());
+        assertEquals(3, counts.getCase().getRefAlleleCount());
+        assertEquals(3, counts.getCase().getAltAlleleCount());
+        assertEquals(0.5f, counts.getCase().getAltAlleleFreq(), 0.0001);
+        assertArrayEquals(new int[]{1, 1, 1}, counts.getCase().getGenotypeCounts());
+
+        assertEquals(4, counts.getControl().getAlleleCount());
+        assertEquals(3, counts.getControl().getRefAlleleCount());
+        assertEquals(1, counts.getControl().getAltAlleleCount());
+        assertArrayEquals(new int[]{1, 1, 0}, counts.getControl().getGenotypeCounts());
+    }
+
+    @Test
+    public void testGenotypeClasses() {
+        Variant variant = Variant.newBuilder("1:1000:A:C")
+                .setStudyId("s")
+                .setSampleDataKeys("GT")
+                .addSample("case1", "0/2")
+                .addSample("case2", "1/2")
+                .addSample("case3", "1")
+                .addSample("case4", "0")
+                .addSample("case5", "1/.")
+                .addSample("ctrl1", "0|1")
+                .addSample("ctrl2", "1|1")
+                .addSample("ctrl3", "0/0")
+                .addSample("ctrl4", "2/2")
+                .build();
+
+        CaseControlGenotypeCounter counter = new CaseControlGenotypeCounter(
+                Arrays.asList("case1", "case2", "case3", "case4", "case5"),
+                Arrays.asList("ctrl1", "ctrl2", "ctrl3", "ctrl4"));
+        CaseControlGenotypeCounter.Counts counts = counter.count(variant.getStudies().get(0));
+
+        // Secondary alternates, haploid and partially missing genotypes are not hom-ref, het nor hom-alt
+        assertArrayEquals(new int[]{0, 0, 0}, counts.getCase().getGenotypeCounts());
+        // But their alleles are still counted
+        assertEquals(7, counts.getCase().getAlleleCount());
+        assertEquals(2, counts.getCase().getRefAlleleCount());
+        assertEquals(3, counts.getCase().getAltAlleleCount());
+
+        assertArrayEquals(new int[]{1, 1, 1}, counts.getControl().getGenotypeCounts());
+        assertEquals(8, counts.getControl().getAlleleCount());
+        assertEquals(3, counts.getControl().getRefAlleleCount());
+        assertEquals(3, counts.getControl().getAltAlleleCount());
+    }
+
+    @Test
+    public void testCountLikeVariantStatsCalculator() {
+        Random random = new Random(1);
+        int numSamples = 200;
+        List<String> cases = new ArrayList<>();
+        List<String> controls = new ArrayList<>();
+        CaseControlGenotypeCounter counter = null;
+
+        for (int v = 0; v < 50; v++) {
+            VariantBuilder builder = Variant.newBuilder("1:" + (1000 + v) + ":A:C")
+                    .setStudyId("s")
+                    .setSampleDataKeys("GT");
+            for (int i = 0; i < numSamples; i++) {
+                String sample = "S" + i;
+                builder.addSample(sample, GENOTYPES[random.nextInt(GENOTYPES.length)]);
+                if (v == 0) {
+                    // Some samples are in none of the cohorts
+                    if (i % 3 == 0) {
+                        cases.add(sample);
+                    } else if (i % 3 == 1) {
+                        controls.add(sample);
+                    }
+                }
+            }
+            if (counter == null) {
+                counter = new CaseControlGenotypeCounter(cases, controls);
+            }
+            Variant variant = builder.build();
+            StudyEntry study = variant.getStudies().get(0);
+
+            CaseControlGenotypeCounter.Counts counts = counter.count(study);
+            checkCounts(VariantStatsCalculator.calculate(variant, study, cases), counts.getCase());
+            checkCounts(VariantStatsCalculator.calculate(variant, study, controls), counts.getControl());
+        }
+    }
+
+    private void checkCounts(VariantStats expected, CaseControlGenotypeCounter.CohortCounts actual) {
+        assertEquals(expected.getAlleleCount().intValue(), actual.getAlleleCount());
+        assertEquals(expected.getRefAlleleCount().intValue(), actual.getRefAlleleCount());
+        assertEquals(expected.getAltAlleleCount().intValue(), actual.getAltAlleleCount());
+        assertEquals(expected.getAltAlleleFreq(), actual.getAltAlleleFreq(), 0.0001);
+    }
+
+    @Test
+    public void testAssociationTests() {
+        assertEquals(0.7937, AssociationTests.chiSquare(10, 20, 30, 40), 0.0001);
+        assertTrue(Double.isNaN(AssociationTests.chiSquare(0, 0, 30, 40)));
+        assertEquals(2.0 / 3.0, AssociationTests.oddsRatio(10, 20, 30, 40), 0.0001);
+
+        assertEquals(0.05, AssociationTests.chiSquarePValue(3.841459), 1e-6);
+        assertEquals(5e-8, AssociationTests.chiSquarePValue(29.7168), 1e-10);
+        assertEquals(1, AssociationTests.chiSquarePValue(0), 1e-6);
+
+        assertEquals(20.0, AssociationTests.trendChiSquare(new int[]{10, 20, 30}, new int[]{30, 20, 10}), 0.0001);
+        assertEquals(0.0, AssociationTests.trendChiSquare(new int[]{10, 20, 30}, new int[]{10, 20, 30}), 0.0001);
+        assertTrue(Double.isNaN(AssociationTests.trendChiSquare(new int[]{10, 0, 0}, new int[]{30, 0, 0})));
+    }
+}
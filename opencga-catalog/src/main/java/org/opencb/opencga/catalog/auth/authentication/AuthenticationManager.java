@@ -84,6 +84,17 @@ public abstract class AuthenticationManager {
         return jwtManager.getUser(token);
     }
 
+    /**
+     * Remove the verified tokens of the user from the token cache, so they are verified again on the next request.
+     *
+     * @param userId user id.
+     */
+    public void invalidateTokens(String userId) {
+        if (jwtManager != null) {
+            jwtManager.invalidateUserTokens(userId);
+        }
+    }
+
     public abstract List<User> getUsersFromRemoteGroup(String group) throws CatalogException;
 
     public abstract List<User> getRemoteUserInformation(List<String> userStringList) throws CatalogException;
@@ -22,19 +22,36 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class JwtManager {
 
+    // Verified tokens are cached to avoid checking the signature on every request
+    static final int MAX_CACHED_TOKENS = 10000;
+    static final long MAX_CACHED_TOKEN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
     private SignatureAlgorithm algorithm;
 
     private Key privateKey;
     private Key publicKey;
 
+    private final Map<String, CachedClaims> claimsCache = new ConcurrentHashMap<>();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong cacheEvictions = new AtomicLong();
+
     private Logger logger;
 
     JwtManager(String algorithm) {
@@ -59,6 +76,7 @@ public class JwtManager {
 
     public JwtManager setAlgorithm(SignatureAlgorithm algorithm) {
         this.algorithm = algorithm;
+        claimsCache.clear();
         return this;
     }
 
@@ -77,6 +95,7 @@ public class JwtManager {
 
     public JwtManager setPublicKey(Key publicKey) {
         this.publicKey = publicKey;
+        claimsCache.clear();
         return this;
     }
 
@@ -163,6 +182,33 @@ public class JwtManager {
     }
 
     private Jws<Claims> parseClaims(String token, Key publicKey) throws CatalogAuthenticationException {
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        CachedClaims cachedClaims = claimsCache.get(digest);
+        if (cachedClaims != null) {
+            if (now < cachedClaims.expiresAt && Objects.equals(cachedClaims.publicKey, publicKey)) {
+                cacheHits.incrementAndGet();
+                return cachedClaims.claims;
+            }
+            claimsCache.remove(digest, cachedClaims);
+        }
+        cacheMisses.incrementAndGet();
+
+        Jws<Claims> claims = verifyClaims(token, publicKey);
+
+        long expiresAt = now + MAX_CACHED_TOKEN_MILLIS;
+        Date expiration = claims.getBody().getExpiration();
+        if (expiration != null) {
+            expiresAt = Math.min(expiresAt, expiration.getTime());
+        }
+        if (claimsCache.size() >= MAX_CACHED_TOKENS) {
+            evictCachedClaims(now);
+        }
+        claimsCache.put(digest, new CachedClaims(claims, publicKey, expiresAt));
+        return claims;
+    }
+
+    private Jws<Claims> verifyClaims(String token, Key publicKey) throws CatalogAuthenticationException {
         try {
             return Jwts.parser().setSigningKey(publicKey).parseClaimsJws(token);
         } catch (ExpiredJwtException e) {
@@ -177,6 +223,50 @@ public class JwtManager {
         }
     }
 
+    private void evictCachedClaims(long now) {
+        int size = claimsCache.size();
+        claimsCache.values().removeIf(cachedClaims -> cachedClaims.expiresAt <= now);
+        if (claimsCache.size() >= MAX_CACHED_TOKENS) {
+            claimsCache.clear();
+        }
+        cacheEvictions.addAndGet(size - claimsCache.size());
+    }
+
+    /**
+     * Remove from the cache all the verified tokens of the user, so they are verified again on the next request.
+     *
+     * @param userId User id
+     */
+    public void invalidateUserTokens(String userId) {
+        claimsCache.values().removeIf(cachedClaims -> userId.equals(cachedClaims.claims.getBody().getSubject()));
+    }
+
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses.get();
+    }
+
+    public long getCacheEvictions() {
+        return cacheEvictions.get();
+    }
+
+    public int getCacheSize() {
+        return claimsCache.size();
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
     // Check if the token contains the key and any of the values from 'filters'
     public boolean passFilters(String token, Map<String, List<String>> filters) throws CatalogAuthenticationException {
         return passFilters(token, filters, this.publicKey);
@@ -197,4 +287,16 @@ public class JwtManager {
         return true;
     }
 
+    private static final class CachedClaims {
+        private final Jws<Claims> claims;
+        private final Key publicKey;
+        private final long expiresAt;
+
+        private CachedClaims(Jws<Claims> claims, Key publicKey, long expiresAt) {
+            this.claims = claims;
+            this.publicKey = publicKey;
+            this.expiresAt = expiresAt;
+        }
+    }
+
 }
@@ -123,6 +123,68 @@ public interface AuthorizationManager {
     void checkIndividualPermission(long studyId, long individualId, String userId, IndividualAclEntry.IndividualPermissions permission)
             throws CatalogException;
 
+    /**
+     * Check the user has the permission over all the files with a single query.
+     *
+     * @param studyId    Study uid.
+     * @param fileIds    File uids.
+     * @param userId     User id.
+     * @param permission Permission to check.
+     * @throws CatalogException if the user does not have the permission over any of the files.
+     */
+    void checkFilePermissions(long studyId, List<Long> fileIds, String userId, FileAclEntry.FilePermissions permission)
+            throws CatalogException;
+
+    /**
+     * Check the user has the permission over all the samples with a single query.
+     *
+     * @param studyId    Study uid.
+     * @param sampleIds  Sample uids.
+     * @param userId     User id.
+     * @param permission Permission to check.
+     * @throws CatalogException if the user does not have the permission over any of the samples.
+     */
+    void checkSamplePermissions(long studyId, List<Long> sampleIds, String userId, SampleAclEntry.SamplePermissions permission)
+            throws CatalogException;
+
+    /**
+     * Check the user has the permission over all the individuals with a single query.
+     *
+     * @param studyId       Study uid.
+     * @param individualIds Individual uids.
+     * @param userId        User id.
+     * @param permission    Permission to check.
+     * @throws CatalogException if the user does not have the permission over any of the individuals.
+     */
+    void checkIndividualPermissions(long studyId, List<Long> individualIds, String userId,
+                                    IndividualAclEntry.IndividualPermissions permission) throws CatalogException;
+
+    /**
+     * Check if the user has the permission over all the samples with a single query, without looking for the denied ones.
+     *
+     * @param studyId    Study uid.
+     * @param sampleIds  Sample uids.
+     * @param userId     User id.
+     * @param permission Permission to check.
+     * @return true if the user has the permission over all the samples.
+     * @throws CatalogException if there is any error counting the samples.
+     */
+    boolean hasSamplePermissions(long studyId, List<Long> sampleIds, String userId, SampleAclEntry.SamplePermissions permission)
+            throws CatalogException;
+
+    /**
+     * Check if the user has the permission over all the individuals with a single query, without looking for the denied ones.
+     *
+     * @param studyId       Study uid.
+     * @param individualIds Individual uids.
+     * @param userId        User id.
+     * @param permission    Permission to check.
+     * @return true if the user has the permission over all the individuals.
+     * @throws CatalogException if there is any error counting the individuals.
+     */
+    boolean hasIndividualPermissions(long studyId, List<Long> individualIds, String userId,
+                                     IndividualAclEntry.IndividualPermissions permission) throws CatalogException;
+
     void checkJobPermission(long studyId, long jobId, String userId, JobAclEntry.JobPermissions permission) throws CatalogException;
 
     void checkCohortPermission(long studyId, long cohortId, String userId, CohortAclEntry.CohortPermissions permission)
@@ -370,6 +370,77 @@ public class CatalogAuthorizationManager implements AuthorizationManager {
         throw CatalogAuthorizationException.deny(userId, permission.toString(), "Individual", individualId, null);
     }
 
+    @Override
+    public void checkFilePermissions(long studyId, List<Long> fileIds, String userId, FileAclEntry.FilePermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, fileIds, userId, permission.name(), FileDBAdaptor.QueryParams.UID.key(),
+                FileDBAdaptor.QueryParams.STUDY_UID.key(), fileDBAdaptor, "File");
+    }
+
+    @Override
+    public void checkSamplePermissions(long studyId, List<Long> sampleIds, String userId, SampleAclEntry.SamplePermissions permission)
+            throws CatalogException {
+        checkUserPermissions(studyId, sampleIds, userId, permission.name(), SampleDBAdaptor.QueryParams.UID.key(),
+                SampleDBAdaptor.QueryParams.STUDY_UID.key(), sampleDBAdaptor, "Sample");
+    }
+
+    @Override
+    public void checkIndividualPermissions(long studyId, List<Long> individualIds, String userId,
+                                           IndividualAclEntry.IndividualPermissions permission) throws CatalogException {
+        checkUserPermissions(studyId, individualIds, userId, permission.name(), IndividualDBAdaptor.QueryParams.UID.key(),
+                IndividualDBAdaptor.QueryParams.STUDY_UID.key(), individualDBAdaptor, "Individual");
+    }
+
+    @Override
+    public boolean hasSamplePermissions(long studyId, List<Long> sampleIds, String userId, SampleAclEntry.SamplePermissions permission)
+            throws CatalogException {
+        return hasUserPermissions(studyId, sampleIds, userId, permission.name(), SampleDBAdaptor.QueryParams.UID.key(),
+                SampleDBAdaptor.QueryParams.STUDY_UID.key(), sampleDBAdaptor);
+    }
+
+    @Override
+    public boolean hasIndividualPermissions(long studyId, List<Long> individualIds, String userId,
+                                            IndividualAclEntry.IndividualPermissions permission) throws CatalogException {
+        return hasUserPermissions(studyId, individualIds, userId, permission.name(), IndividualDBAdaptor.QueryParams.UID.key(),
+                IndividualDBAdaptor.QueryParams.STUDY_UID.key(), individualDBAdaptor);
+    }
+
+    /**
+     * Count all the entries the user has the permission for with a single query.
+     */
+    private boolean hasUserPermissions(long studyId, List<Long> uids, String userId, String permission, String uidKey,
+                                       String studyUidKey, CoreDBAdaptor dbAdaptor) throws CatalogException {
+        if (uids == null || uids.isEmpty() || isInstallationAdministrator(userId)) {
+            return true;
+        }
+        List<Long> distinctUids = new ArrayList<>(new LinkedHashSet<>(uids));
+        Query query = new Query()
+                .append(uidKey, distinctUids)
+                .append(studyUidKey, studyId)
+                .append(ParamConstants.ACL_PARAM, userId + ":" + permission);
+        return dbAdaptor.count(query, userId).getNumMatches() == distinctUids.size();
+    }
+
+    /**
+     * Count all the entries the user has the permission for with a single query. Only if the count does not match, the entries are
+     * checked one by one to report the first one the user does not have the permission for.
+     */
+    private void checkUserPermissions(long studyId, List<Long> uids, String userId, String permission, String uidKey, String studyUidKey,
+                                      CoreDBAdaptor dbAdaptor, String entity) throws CatalogException {
+        if (hasUserPermissions(studyId, uids, userId, permission, uidKey, studyUidKey, dbAdaptor)) {
+            return;
+        }
+        for (Long uid : new LinkedHashSet<>(uids)) {
+            Query query = new Query()
+                    .append(uidKey, uid)
+                    .append(studyUidKey, studyId)
+                    .append(ParamConstants.ACL_PARAM, userId + ":" + permission);
+            if (dbAdaptor.count(query, userId).getNumMatches() != 1) {
+                throw CatalogAuthorizationException.deny(userId, permission, entity, uid, null);
+            }
+        }
+    }
+
     @Override
     public void checkJobPermission(long studyId, long jobId, String userId, JobAclEntry.JobPermissions permission) throws CatalogException {
         Query query = new Query()
@@ -54,6 +54,14 @@ public interface StudyDBAdaptor extends Iterable<Study> {
     OpenCGAResult<Long> count(Query query, String user, StudyAclEntry.StudyPermissions studyPermission)
             throws CatalogDBException, CatalogAuthorizationException;
 
+    /**
+     * Version stamp of the studies. It changes every time any study is modified by this process, once the modification is committed.
+     * The version is kept in memory, so modifications made by other processes are not reflected.
+     *
+     * @return the current version of the studies.
+     */
+    long getVersion();
+
     default OpenCGAResult distinct(String field) throws CatalogDBException {
         return distinct(new Query(), field);
     }
@@ -129,6 +129,19 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         this.dbCollectionMap.put(Enums.Resource.CLINICAL_ANALYSIS, dbAdaptorFactory.getClinicalAnalysisDBAdaptor().getClinicalCollection());
     }
 
+    /**
+     * Run the transaction and invalidate every cached study (authorization documents and resolved studies) once it finishes, as
+     * it might have changed the groups or the ACLs of the studies.
+     */
+    private <T> T runAclTransaction(TransactionBodyWithException<T> body)
+            throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
+        try {
+            return runTransaction(body);
+        } finally {
+            dbAdaptorFactory.getCatalogStudyDBAdaptor().studiesModified();
+        }
+    }
+
     private List<String> getFullPermissions(Enums.Resource resource) {
         List<String> permissionList = new ArrayList<>(resource.getFullPermissionList());
         permissionList.add("NONE");
@@ -319,13 +332,18 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
         logger.debug("Remove all acls for entity {} for member {} in study {}. Query: {}, pullAll: {}", resource, member, studyId,
                 query.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
                 update.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()));
-        return new OpenCGAResult(dbCollectionMap.get(resource).update(query, update, new QueryOptions(MongoDBCollection.MULTI, true)));
+        OpenCGAResult result = new OpenCGAResult(dbCollectionMap.get(resource).update(query, update,
+                new QueryOptions(MongoDBCollection.MULTI, true)));
+        if (resource == Enums.Resource.STUDY) {
+            dbAdaptorFactory.getCatalogStudyDBAdaptor().studyModified(studyId);
+        }
+        return result;
     }
 
     @Override
     public OpenCGAResult setToMembers(long studyId, List<String> members, List<AuthorizationManager.CatalogAclParams> aclParams)
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
-        return runTransaction(clientSession -> {
+        return runAclTransaction(clientSession -> {
             long startTime = startQuery();
 
             // We obtain which of those members are actually users to add them to the @members group automatically
@@ -346,7 +364,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
     @Override
     public OpenCGAResult setToMembers(List<Long> studyIds, List<String> members, List<String> permissions)
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
-        return runTransaction(clientSession -> {
+        return runAclTransaction(clientSession -> {
             long startTime = startQuery();
             for (Long studyId : studyIds) {
                 addToMembersGroupInStudy(studyId, members, clientSession);
@@ -404,7 +422,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
     @Override
     public OpenCGAResult addToMembers(long studyId, List<String> members, List<AuthorizationManager.CatalogAclParams> aclParams)
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
-        return runTransaction(clientSession -> {
+        return runAclTransaction(clientSession -> {
             long startTime = startQuery();
             addToMembersGroupInStudy(studyId, members, clientSession);
 
@@ -453,7 +471,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
     @Override
     public OpenCGAResult addToMembers(List<Long> studyIds, List<String> members, List<String> permissions)
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
-        return runTransaction((clientSession) -> {
+        return runAclTransaction((clientSession) -> {
             long startTime = startQuery();
             for (Long studyId : studyIds) {
                 addToMembersGroupInStudy(studyId, members, clientSession);
@@ -480,7 +498,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
     @Override
     public OpenCGAResult removeFromMembers(List<String> members, List<AuthorizationManager.CatalogAclParams> aclParams)
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
-        return runTransaction(clientSession -> {
+        return runAclTransaction(clientSession -> {
             long startTime = startQuery();
 
             for (AuthorizationManager.CatalogAclParams aclParam : aclParams) {
@@ -530,7 +548,7 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
             throw new CatalogDBException("Missing 'members' array.");
         }
 
-        return runTransaction(clientSession -> {
+        return runAclTransaction(clientSession -> {
             long tmpStartTime = startQuery();
             logger.debug("Resetting permissions of users '{}' for study '{}'", members, studyId);
 
@@ -586,6 +604,9 @@ public class AuthorizationMongoDBAdaptor extends MongoDBAdaptor implements Autho
                     update.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()));
 
             collection.update(queryDocument, update, new QueryOptions(MongoDBCollection.MULTI, true));
+            if (resource == Enums.Resource.STUDY) {
+                dbAdaptorFactory.getCatalogStudyDBAdaptor().studyModified(resourceId);
+            }
         }
 
         return OpenCGAResult.empty();
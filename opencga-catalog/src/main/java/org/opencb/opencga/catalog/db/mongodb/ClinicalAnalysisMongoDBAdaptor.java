@@ -839,7 +839,7 @@ public class ClinicalAnalysisMongoDBAdaptor extends MongoDBAdaptor implements Cl
 
         if (queryCopy.containsKey(QueryParams.STUDY_UID.key())
                 && (StringUtils.isNotEmpty(user) || queryCopy.containsKey(ParamConstants.ACL_PARAM))) {
-            Document studyDocument = getStudyDocument(null, queryCopy.getLong(QueryParams.STUDY_UID.key()));
+            Document studyDocument = getStudyAuthorizationDocument(queryCopy.getLong(QueryParams.STUDY_UID.key()));
 
             // Get the document query needed to check the permissions as well
             andBsonList.add(getQueryForAuthorisedEntries(studyDocument, user,
@@ -35,6 +35,7 @@ import org.opencb.opencga.core.response.OpenCGAResult;
 import org.slf4j.Logger;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
@@ -78,6 +79,9 @@ public class MongoDBAdaptor extends AbstractDBAdaptor {
     // Possible update actions
     static final String SET = "SET";
 
+    // Actions to run once the transaction of each session is committed
+    private static final Map<ClientSession, List<Runnable>> AFTER_COMMIT_ACTIONS = new ConcurrentHashMap<>();
+
     protected MongoDBAdaptorFactory dbAdaptorFactory;
     protected Configuration configuration;
 
@@ -99,13 +103,20 @@ public class MongoDBAdaptor extends AbstractDBAdaptor {
             throws CatalogDBException, CatalogParameterException, CatalogAuthorizationException {
         ClientSession session = dbAdaptorFactory.getMongoDataStore().startSession();
         try {
-            return session.withTransaction(() -> {
+            T result = session.withTransaction(() -> {
+                // Discard the actions of any previous attempt of the transaction
+                AFTER_COMMIT_ACTIONS.remove(session);
                 try {
                     return body.execute(session);
                 } catch (CatalogDBException | CatalogAuthorizationException | CatalogParameterException e) {
                     throw new CatalogDBRuntimeException(e);
                 }
             });
+            List<Runnable> actions = AFTER_COMMIT_ACTIONS.remove(session);
+            if (actions != null) {
+                actions.forEach(Runnable::run);
+            }
+            return result;
         } catch (CatalogDBRuntimeException e) {
             if (e.getCause() instanceof CatalogDBException) {
                 CatalogDBException cause = (CatalogDBException) e.getCause();
@@ -129,10 +140,26 @@ public class MongoDBAdaptor extends AbstractDBAdaptor {
                 throw e;
             }
         } finally {
+            AFTER_COMMIT_ACTIONS.remove(session);
             session.close();
         }
     }
 
+    /**
+     * Run an action once the transaction of the session is committed, so other threads do not see the effects of the action before
+     * the changes. The action is discarded if the transaction is aborted. Without an active transaction, the action runs immediately.
+     *
+     * @param clientSession Client session.
+     * @param action        Action to run.
+     */
+    protected void afterCommit(ClientSession clientSession, Runnable action) {
+        if (clientSession == null || !clientSession.hasActiveTransaction()) {
+            action.run();
+        } else {
+            AFTER_COMMIT_ACTIONS.computeIfAbsent(clientSession, k -> new ArrayList<>()).add(action);
+        }
+    }
+
     protected long getNewUid() {
 //        return CatalogMongoDBUtils.getNewAutoIncrementId(metaCollection);
         return dbAdaptorFactory.getCatalogMetaDBAdaptor().getNewAutoIncrementId();
@@ -777,6 +804,35 @@ public class MongoDBAdaptor extends AbstractDBAdaptor {
         return dataResult.first();
     }
 
+    /**
+     * Get the study document with the fields needed to check the permissions of the users, i.e. owner, groups and ACLs.
+     * The document is shared through the {@link StudyAuthorizationCache}, so it must not be modified.
+     *
+     * @param studyUid Study uid.
+     * @return the study document.
+     * @throws CatalogDBException if the study does not exist.
+     */
+    protected Document getStudyAuthorizationDocument(long studyUid) throws CatalogDBException {
+        StudyAuthorizationCache cache = dbAdaptorFactory.getStudyAuthorizationCache();
+        Document studyDocument = cache.get(studyUid);
+        if (studyDocument == null) {
+            // Do not cache the document if the study is modified while reading it
+            long generation = cache.getGeneration();
+            Query studyQuery = new Query(StudyDBAdaptor.QueryParams.UID.key(), studyUid);
+            QueryOptions options = new QueryOptions(QueryOptions.INCLUDE, Arrays.asList(StudyDBAdaptor.QueryParams.ID.key(),
+                    StudyDBAdaptor.QueryParams.UID.key(), StudyDBAdaptor.QueryParams.FQN.key(),
+                    AuthorizationMongoDBAdaptor.MEMBER_WITH_INTERNAL_ACL));
+            DataResult<Document> dataResult = dbAdaptorFactory.getCatalogStudyDBAdaptor().nativeGet(null, studyQuery, options);
+            if (dataResult.getNumResults() == 0) {
+                throw new CatalogDBException("Study " + studyUid + " not found");
+            }
+            studyDocument = dataResult.first();
+            cache.put(studyUid, studyDocument, generation);
+            logger.debug("Study {} authorization cache miss. {}", studyUid, cache);
+        }
+        return studyDocument;
+    }
+
     public class NestedArrayUpdateDocument {
         private Query query;
         private Document set;
@@ -118,6 +118,7 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
     private InterpretationMongoDBAdaptor interpretationDBAdaptor;
     private AuditMongoDBAdaptor auditDBAdaptor;
     private MetaMongoDBAdaptor metaDBAdaptor;
+    private final StudyAuthorizationCache studyAuthorizationCache = new StudyAuthorizationCache();
 
     private Logger logger;
 
@@ -206,6 +207,7 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
 
     @Override
     public void close() {
+        logger.info("Closing catalog. {}", studyAuthorizationCache);
         mongoManager.close(mongoDataStore.getDatabaseName());
     }
 
@@ -288,6 +290,10 @@ public class MongoDBAdaptorFactory implements DBAdaptorFactory {
         return mongoDataStore;
     }
 
+    public StudyAuthorizationCache getStudyAuthorizationCache() {
+        return studyAuthorizationCache;
+    }
+
     private void connect(Configuration catalogConfiguration) throws CatalogDBException {
         mongoDataStore = mongoManager.get(database, configuration);
         if (mongoDataStore == null) {
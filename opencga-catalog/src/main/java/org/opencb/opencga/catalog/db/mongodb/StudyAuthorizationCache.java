@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.db.mongodb;
+
+import org.bson.Document;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short lived cache of the study fields needed to resolve the permissions of any user: owner, groups, study ACLs and members with
+ * internal ACLs. Every permission check of an entry (sample, file, ...) used to read the whole study document.
+ *
+ * Entries are invalidated by the study and authorization DB adaptors whenever groups or ACLs are modified. Changes made by other
+ * processes are visible once the entry expires.
+ *
+ * Every invalidation increases the generation of the cache. Documents read before an invalidation are not cached, so a slow
+ * read can not put back a stale document.
+ */
+public class StudyAuthorizationCache {
+
+    public static final long DEFAULT_TTL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final long ttlMillis;
+    private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    public StudyAuthorizationCache() {
+        this(DEFAULT_TTL_MILLIS);
+    }
+
+    public StudyAuthorizationCache(long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Get the cached study document, if present and not expired.
+     *
+     * @param studyUid Study uid
+     * @return the cached document, or null
+     */
+    public Document get(long studyUid) {
+        if (ttlMillis <= 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        Entry entry = cache.get(studyUid);
+        if (entry == null || entry.expiresAt < System.currentTimeMillis()) {
+            if (entry != null) {
+                cache.remove(studyUid, entry);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.document;
+    }
+
+    /**
+     * Current generation of the cache. Must be obtained before reading the document to cache.
+     *
+     * @return the current generation
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Cache the study document, only if there were no invalidations since the document was read.
+     *
+     * @param studyUid   Study uid
+     * @param document   Study document
+     * @param generation Generation of the cache before reading the document. See {@link #getGeneration()}
+     */
+    public void put(long studyUid, Document document, long generation) {
+        if (ttlMillis <= 0 || generation != this.generation.get()) {
+            return;
+        }
+        Entry entry = new Entry(document, System.currentTimeMillis() + ttlMillis);
+        cache.put(studyUid, entry);
+        if (generation != this.generation.get()) {
+            // Invalidated while adding the entry
+            cache.remove(studyUid, entry);
+        }
+    }
+
+    public void invalidate(long studyUid) {
+        generation.incrementAndGet();
+        cache.remove(studyUid);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.clear();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("StudyAuthorizationCache{");
+        sb.append("ttlMillis=").append(ttlMillis);
+        sb.append(", size=").append(cache.size());
+        sb.append(", hits=").append(hits);
+        sb.append(", misses=").append(misses);
+        sb.append('}');
+        return sb.toString();
+    }
+
+    private static final class Entry {
+        private final Document document;
+        private final long expiresAt;
+
+        private Entry(Document document, long expiresAt) {
+            this.document = document;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -59,6 +59,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -78,6 +79,8 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
     private final MongoDBCollection deletedStudyCollection;
     private StudyConverter studyConverter;
     private VariableSetConverter variableSetConverter;
+    // Version stamp increased on every modification of any study made by this process
+    private final AtomicLong version = new AtomicLong();
 
     public StudyMongoDBAdaptor(MongoDBCollection studyCollection, MongoDBCollection deletedStudyCollection, Configuration configuration,
                                MongoDBAdaptorFactory dbAdaptorFactory) {
@@ -89,6 +92,27 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         this.variableSetConverter = new VariableSetConverter();
     }
 
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Must be called once the modification is visible to other readers, i.e. after the commit when modifying the study within a
+     * transaction. See {@link #afterCommit}.
+     *
+     * @param studyUid Study uid.
+     */
+    void studyModified(long studyUid) {
+        version.incrementAndGet();
+        dbAdaptorFactory.getStudyAuthorizationCache().invalidate(studyUid);
+    }
+
+    void studiesModified() {
+        version.incrementAndGet();
+        dbAdaptorFactory.getStudyAuthorizationCache().invalidateAll();
+    }
+
     public void checkId(ClientSession clientSession, long studyId) throws CatalogDBException {
         if (studyId < 0) {
             throw CatalogDBException.newInstance("Study id '{}' is not valid: ", studyId);
@@ -341,6 +365,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         Document update = new Document("$push", new Document(QueryParams.GROUPS.key(), getMongoDBDocument(group, "Group")));
 
         DataResult result = studyCollection.update(query, update, null);
+        studyModified(studyId);
 
         if (result.getNumUpdated() != 1) {
             OpenCGAResult<Group> group1 = getGroup(studyId, group.getId(), Collections.emptyList());
@@ -399,6 +424,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 .append(QueryParams.GROUP_ID.key(), groupId);
         Document update = new Document("$set", new Document("groups.$.userIds", members));
         DataResult result = studyCollection.update(query, update, null);
+        studyModified(studyId);
 
         if (result.getNumMatches() != 1) {
             throw new CatalogDBException("Unable to set users to group " + groupId + ". The group does not exist.");
@@ -416,6 +442,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 .append(QueryParams.GROUP_ID.key(), groupId);
         Document update = new Document("$addToSet", new Document("groups.$.userIds", new Document("$each", members)));
         DataResult result = studyCollection.update(clientSession, query, update, null);
+        afterCommit(clientSession, () -> studyModified(studyId));
 
         if (result.getNumMatches() != 1) {
             throw new CatalogDBException("Unable to add members to group " + groupId + ". The group does not exist.");
@@ -433,6 +460,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 .append(QueryParams.GROUP_ID.key(), groupId);
         Document update = new Document("$addToSet", new Document("groups.$.userIds", new Document("$each", members)));
         DataResult result = studyCollection.update(query, update, null);
+        studyModified(studyId);
 
         if (result.getNumMatches() != 1) {
             throw new CatalogDBException("Unable to add members to group " + groupId + ". The group does not exist.");
@@ -451,6 +479,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 .append(QueryParams.GROUP_ID.key(), groupId);
         Bson pull = Updates.pullAll("groups.$.userIds", members);
         DataResult update = studyCollection.update(query, pull, null);
+        studyModified(studyId);
         if (update.getNumMatches() != 1) {
             throw new CatalogDBException("Unable to remove members from group " + groupId + ". The group does not exist.");
         }
@@ -465,7 +494,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         }
 
         try {
-            return runTransaction(clientSession -> {
+            OpenCGAResult<Group> result = runTransaction(clientSession -> {
                 long tmpStartTime = startQuery();
                 logger.debug("Removing list of users '{}' from all groups from study '{}'", users, studyId);
 
@@ -482,6 +511,8 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
 
                 return endWrite(tmpStartTime, -1, -1, null);
             });
+            studyModified(studyId);
+            return result;
         } catch (Exception e) {
             logger.error("Could not remove users from all groups of the study. {}", e.getMessage());
             throw e;
@@ -495,6 +526,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 .append(QueryParams.GROUP_ID.key(), groupId);
         Document pull = new Document("$pull", new Document("groups", new Document("id", groupId)));
         DataResult result = studyCollection.update(queryBson, pull, null);
+        studyModified(studyId);
 
         if (result.getNumUpdated() != 1) {
             throw new CatalogDBException("Could not remove the group " + groupId);
@@ -510,7 +542,9 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 .append(PRIVATE_UID, studyId)
                 .append(QueryParams.GROUP_ID.key(), groupId);
         Document updates = new Document("$set", new Document("groups.$.syncedFrom", mongoDBDocument));
-        return new OpenCGAResult<>(studyCollection.update(query, updates, null));
+        DataResult result = studyCollection.update(query, updates, null);
+        studyModified(studyId);
+        return new OpenCGAResult<>(result);
     }
 
     // TODO: Make this transactional
@@ -561,6 +595,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 addUsersToGroup(study.getUid(), "@members", Arrays.asList(user));
             }
         }
+        studiesModified();
 
         return OpenCGAResult.empty();
     }
@@ -593,6 +628,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         Query query = new Query(QueryParams.UID.key(), studyId);
         Document update = new Document("$set", new Document(QueryParams.PERMISSION_RULES.key() + "." + entry, permissionDocumentList));
         DataResult result = studyCollection.update(parseQuery(query), update, QueryOptions.empty());
+        studyModified(studyId);
 
         if (result.getNumUpdated() == 0) {
             throw new CatalogDBException("Unexpected error occurred when adding new permission rules to study");
@@ -621,6 +657,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 update.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()));
 
         DataResult result = studyCollection.update(query, update, QueryOptions.empty());
+        studyModified(studyId);
         if (result.getNumMatches() == 0) {
             throw new CatalogDBException("Permission rule " + permissionRuleId + " not found");
         }
@@ -688,6 +725,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         Bson bsonQuery = Filters.eq(PRIVATE_UID, studyId);
         Bson update = Updates.push("variableSets", object);
         DataResult result = studyCollection.update(bsonQuery, update, null);
+        studyModified(studyId);
 
         if (result.getNumUpdated() == 0) {
             throw new CatalogDBException("createVariableSet: Could not create a new variable set in study " + studyId);
@@ -706,6 +744,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         Bson update = Updates.push(QueryParams.VARIABLE_SET.key() + ".$." + VariableSetParams.VARIABLE.key(),
                 getMongoDBDocument(variable, "variable"));
         DataResult result = studyCollection.update(bsonQuery, update, null);
+        studiesModified();
         if (result.getNumUpdated() == 0) {
             throw CatalogDBException.updateError("VariableSet", variableSetId);
         }
@@ -784,6 +823,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         Bson update = Updates.pull(QueryParams.VARIABLE_SET.key() + ".$." + VariableSetParams.VARIABLE.key(),
                 Filters.eq("id", name));
         DataResult result = studyCollection.update(bsonQuery, update, null);
+        studiesModified();
         if (result.getNumUpdated() != 1) {
             throw new CatalogDBException("Remove field from Variable Set. Could not remove the field " + name
                     + " from the variableSet id " + variableSetId);
@@ -1050,6 +1090,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
         Bson query = Filters.eq(QueryParams.VARIABLE_SET_UID.key(), variableSetId);
         Bson operation = Updates.pull("variableSets", Filters.eq(PRIVATE_UID, variableSetId));
         DataResult result = studyCollection.update(query, operation, null);
+        studiesModified();
 
         if (result.getNumUpdated() == 0) {
             throw CatalogDBException.uidNotFound("VariableSet", variableSetId);
@@ -1244,6 +1285,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
             Bson bsonQuery = Filters.eq(QueryParams.UID.key(), study.getUid());
 
             DataResult result = studyCollection.update(clientSession, bsonQuery, update, null);
+            afterCommit(clientSession, () -> studyModified(study.getUid()));
             if (result.getNumUpdated() == 0) {    //Check if the the project id was modified
                 throw new CatalogDBException("Could not update new project id references in study " + study.getFqn());
             }
@@ -1318,6 +1360,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                     finalQuery.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()),
                     updates.toBsonDocument(Document.class, MongoClient.getDefaultCodecRegistry()));
             DataResult result = studyCollection.update(clientSession, finalQuery, updates, null);
+            afterCommit(clientSession, () -> studyModified(study.getUid()));
 
             if (result.getNumMatches() == 0) {
                 throw new CatalogDBException("Study " + study.getId() + " not found");
@@ -1394,7 +1437,9 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 Updates.set(QueryParams.ID.key(), newId),
                 Updates.set(QueryParams.FQN.key(), newFqn)
         );
+        // The id is not updated within the transaction
         DataResult writeResult = studyCollection.update(bsonQuery, update, null);
+        studyModified(studyUid);
         if (writeResult.getNumUpdated() == 0) {
             throw new CatalogDBException("Could not update study id");
         }
@@ -1499,6 +1544,7 @@ public class StudyMongoDBAdaptor extends MongoDBAdaptor implements StudyDBAdapto
                 .append(PRIVATE_UID, studyUid)
                 .append(PRIVATE_PROJECT_UID, projectUid);
         DataResult remove = studyCollection.remove(clientSession, query, null);
+        afterCommit(clientSession, () -> studyModified(studyUid));
         if (remove.getNumMatches() == 0) {
             throw new CatalogDBException("Study " + studyId + " not found");
         }
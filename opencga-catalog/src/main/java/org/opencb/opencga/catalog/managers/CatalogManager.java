@@ -26,6 +26,7 @@ import org.opencb.opencga.catalog.auth.authorization.AuthorizationManager;
 import org.opencb.opencga.catalog.auth.authorization.CatalogAuthorizationManager;
 import org.opencb.opencga.catalog.db.DBAdaptorFactory;
 import org.opencb.opencga.catalog.db.mongodb.MongoDBAdaptorFactory;
+import org.opencb.opencga.catalog.db.mongodb.StudyAuthorizationCache;
 import org.opencb.opencga.catalog.exceptions.CatalogAuthorizationException;
 import org.opencb.opencga.catalog.exceptions.CatalogDBException;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
@@ -159,6 +160,10 @@ public class CatalogManager implements AutoCloseable {
         }
     }
 
+    public StudyAuthorizationCache getStudyAuthorizationCache() {
+        return ((MongoDBAdaptorFactory) catalogDBAdaptorFactory).getStudyAuthorizationCache();
+    }
+
     /**
      * Checks if the database exists.
      *
@@ -91,6 +91,7 @@ public class FileManager extends AnnotationSetManager<File> {
     public  static final QueryOptions EXCLUDE_FILE_ATTRIBUTES;
     private static final Comparator<File> ROOT_FIRST_COMPARATOR;
     private static final Comparator<File> ROOT_LAST_COMPARATOR;
+    private static final int PERMISSION_CHECK_BATCH_SIZE = 1000;
 
     protected static Logger logger;
     private FileMetadataReader fileMetadataReader;
@@ -2928,12 +2929,16 @@ public class FileManager extends AnnotationSetManager<File> {
             }
 
             DBIterator<File> iterator = fileDBAdaptor.iterator(query, options);
+            List<Long> fileUids = new ArrayList<>(PERMISSION_CHECK_BATCH_SIZE);
             while (iterator.hasNext()) {
                 File tmpFile = iterator.next();
 
                 if (checkPermissions) {
-                    authorizationManager.checkFilePermission(study.getUid(), tmpFile.getUid(), userId, FileAclEntry.FilePermissions.DELETE);
-                    authorizationManager.checkFilePermission(study.getUid(), tmpFile.getUid(), userId, FileAclEntry.FilePermissions.WRITE);
+                    fileUids.add(tmpFile.getUid());
+                    if (fileUids.size() == PERMISSION_CHECK_BATCH_SIZE) {
+                        checkDeletePermissions(study.getUid(), fileUids, userId);
+                        fileUids.clear();
+                    }
                 }
 
                 // File must exist in the file system
@@ -2944,6 +2949,7 @@ public class FileManager extends AnnotationSetManager<File> {
                 checkValidStatusForDeletion(tmpFile, acceptedStatus);
                 indexFiles.addAll(getProducedFromIndexFiles(tmpFile));
             }
+            checkDeletePermissions(study.getUid(), fileUids, userId);
 
             // TODO: Validate no file/folder within any registered directory is not registered in OpenCGA
         }
@@ -2991,6 +2997,11 @@ public class FileManager extends AnnotationSetManager<File> {
         return Collections.emptySet();
     }
 
+    private void checkDeletePermissions(long studyUid, List<Long> fileUids, String userId) throws CatalogException {
+        authorizationManager.checkFilePermissions(studyUid, fileUids, userId, FileAclEntry.FilePermissions.DELETE);
+        authorizationManager.checkFilePermissions(studyUid, fileUids, userId, FileAclEntry.FilePermissions.WRITE);
+    }
+
     void checkValidStatusForDeletion(File file, List<String> expectedStatus) throws CatalogException {
         if (file.getInternal().getStatus() == null) {
             throw new CatalogException("Cannot check file status for deletion");
@@ -81,6 +81,7 @@ public class IndividualManager extends AnnotationSetManager<Individual> {
             IndividualDBAdaptor.QueryParams.VERSION.key(), IndividualDBAdaptor.QueryParams.FATHER.key(),
             IndividualDBAdaptor.QueryParams.MOTHER.key(), IndividualDBAdaptor.QueryParams.DISORDERS.key(),
             IndividualDBAdaptor.QueryParams.PHENOTYPES.key(), IndividualDBAdaptor.QueryParams.STUDY_UID.key()));
+    private static final int PERMISSION_CHECK_BATCH_SIZE = 1000;
 
     private static final Map<IndividualProperty.KaryotypicSex, IndividualProperty.Sex> KARYOTYPIC_SEX_SEX_MAP;
 
@@ -858,6 +859,18 @@ public class IndividualManager extends AnnotationSetManager<Individual> {
             throw e;
         }
 
+        if (checkPermissions) {
+            // Check all the individuals with a single query. Only if any of them is not found or denied, check them one by one
+            try {
+                List<Individual> individuals = internalGet(study.getUid(), individualIds, INCLUDE_INDIVIDUAL_IDS, userId, false)
+                        .getResults();
+                checkPermissions = !hasIndividualPermissions(study.getUid(), individuals, userId,
+                        IndividualAclEntry.IndividualPermissions.DELETE);
+            } catch (CatalogException e) {
+                logger.debug("Checking the permissions of each individual: {}", e.getMessage());
+            }
+        }
+
         auditManager.initAuditBatch(operationUuid);
         OpenCGAResult result = OpenCGAResult.empty();
         for (String id : individualIds) {
@@ -945,25 +958,35 @@ public class IndividualManager extends AnnotationSetManager<Individual> {
 
         auditManager.initAuditBatch(operationUuid);
         while (iterator.hasNext()) {
-            Individual individual = iterator.next();
+            // Check the permissions of each batch of individuals with a single query. Only if any of them is denied, check them
+            // one by one
+            List<Individual> individuals = new ArrayList<>(PERMISSION_CHECK_BATCH_SIZE);
+            while (iterator.hasNext() && individuals.size() < PERMISSION_CHECK_BATCH_SIZE) {
+                individuals.add(iterator.next());
+            }
+            boolean checkIndividualPermissions = checkPermissions && !hasIndividualPermissions(study.getUid(), individuals, userId,
+                    IndividualAclEntry.IndividualPermissions.DELETE);
 
-            try {
-                OpenCGAResult deleteResult = delete(study, individual, params, userId, checkPermissions);
+            for (Individual individual : individuals) {
+                try {
+                    OpenCGAResult deleteResult = delete(study, individual, params, userId, checkIndividualPermissions);
 
-                // Add the results to the current write result
-                result.append(deleteResult);
+                    // Add the results to the current write result
+                    result.append(deleteResult);
 
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
-            } catch (CatalogException e) {
-                String errorMsg = "Cannot delete individual " + individual.getId() + ": " + e.getMessage();
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
+                            study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
+                } catch (CatalogException e) {
+                    String errorMsg = "Cannot delete individual " + individual.getId() + ": " + e.getMessage();
 
-                Event event = new Event(Event.Type.ERROR, individual.getId(), e.getMessage());
-                result.getEvents().add(event);
+                    Event event = new Event(Event.Type.ERROR, individual.getId(), e.getMessage());
+                    result.getEvents().add(event);
 
-                logger.error(errorMsg);
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                    logger.error(errorMsg);
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.INDIVIDUAL, individual.getId(), individual.getUuid(),
+                            study.getId(), study.getUuid(), auditParams,
+                            new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                }
             }
         }
         auditManager.finishAuditBatch(operationUuid);
@@ -971,6 +994,17 @@ public class IndividualManager extends AnnotationSetManager<Individual> {
         return endResult(result, ignoreException);
     }
 
+    private boolean hasIndividualPermissions(long studyUid, List<Individual> individuals, String userId,
+                                             IndividualAclEntry.IndividualPermissions permission) {
+        List<Long> individualUids = individuals.stream().map(Individual::getUid).collect(Collectors.toList());
+        try {
+            return authorizationManager.hasIndividualPermissions(studyUid, individualUids, userId, permission);
+        } catch (CatalogException e) {
+            logger.debug("Checking the permissions of each individual: {}", e.getMessage());
+            return false;
+        }
+    }
+
     private OpenCGAResult delete(Study study, Individual individual, ObjectMap params, String userId, boolean checkPermissions)
             throws CatalogException {
         if (checkPermissions) {
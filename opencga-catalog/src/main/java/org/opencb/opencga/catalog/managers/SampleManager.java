@@ -75,6 +75,7 @@ public class SampleManager extends AnnotationSetManager<Sample> {
     public static final QueryOptions INCLUDE_SAMPLE_IDS = new QueryOptions(QueryOptions.INCLUDE, Arrays.asList(
             SampleDBAdaptor.QueryParams.ID.key(), SampleDBAdaptor.QueryParams.UID.key(), SampleDBAdaptor.QueryParams.UUID.key(),
             SampleDBAdaptor.QueryParams.VERSION.key(), SampleDBAdaptor.QueryParams.STUDY_UID.key()));
+    private static final int PERMISSION_CHECK_BATCH_SIZE = 1000;
 
     SampleManager(AuthorizationManager authorizationManager, AuditManager auditManager, CatalogManager catalogManager,
                   DBAdaptorFactory catalogDBAdaptorFactory, Configuration configuration) {
@@ -445,6 +446,16 @@ public class SampleManager extends AnnotationSetManager<Sample> {
             throw e;
         }
 
+        if (checkPermissions) {
+            // Check all the samples with a single query. Only if any of them is not found or denied, check them one by one
+            try {
+                List<Sample> samples = internalGet(study.getUid(), sampleIds, INCLUDE_SAMPLE_IDS, userId, false).getResults();
+                checkPermissions = !hasSamplePermissions(study.getUid(), samples, userId, SampleAclEntry.SamplePermissions.DELETE);
+            } catch (CatalogException e) {
+                logger.debug("Checking the permissions of each sample: {}", e.getMessage());
+            }
+        }
+
         auditManager.initAuditBatch(operationId);
         OpenCGAResult result = OpenCGAResult.empty();
         for (String id : sampleIds) {
@@ -547,30 +558,39 @@ public class SampleManager extends AnnotationSetManager<Sample> {
 
         auditManager.initAuditBatch(operationUuid);
         while (iterator.hasNext()) {
-            Sample sample = iterator.next();
+            // Check the permissions of each batch of samples with a single query. Only if any of them is denied, check them one by one
+            List<Sample> samples = new ArrayList<>(PERMISSION_CHECK_BATCH_SIZE);
+            while (iterator.hasNext() && samples.size() < PERMISSION_CHECK_BATCH_SIZE) {
+                samples.add(iterator.next());
+            }
+            boolean checkSamplePermissions = checkPermissions
+                    && !hasSamplePermissions(study.getUid(), samples, userId, SampleAclEntry.SamplePermissions.DELETE);
+
+            for (Sample sample : samples) {
+                try {
+                    if (checkSamplePermissions) {
+                        authorizationManager.checkSamplePermission(study.getUid(), sample.getUid(), userId,
+                                SampleAclEntry.SamplePermissions.DELETE);
+                    }
 
-            try {
-                if (checkPermissions) {
-                    authorizationManager.checkSamplePermission(study.getUid(), sample.getUid(), userId,
-                            SampleAclEntry.SamplePermissions.DELETE);
-                }
+                    // Check if the sample can be deleted
+                    checkSampleCanBeDeleted(study.getUid(), sample, params.getBoolean(Constants.FORCE, false));
 
-                // Check if the sample can be deleted
-                checkSampleCanBeDeleted(study.getUid(), sample, params.getBoolean(Constants.FORCE, false));
+                    result.append(sampleDBAdaptor.delete(sample));
 
-                result.append(sampleDBAdaptor.delete(sample));
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
+                            study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
+                } catch (CatalogException e) {
+                    String errorMsg = "Cannot delete sample " + sample.getId() + ": " + e.getMessage();
 
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
-            } catch (CatalogException e) {
-                String errorMsg = "Cannot delete sample " + sample.getId() + ": " + e.getMessage();
-
-                Event event = new Event(Event.Type.ERROR, sample.getId(), e.getMessage());
-                result.getEvents().add(event);
+                    Event event = new Event(Event.Type.ERROR, sample.getId(), e.getMessage());
+                    result.getEvents().add(event);
 
-                logger.error(errorMsg);
-                auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
-                        study.getId(), study.getUuid(), auditParams, new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                    logger.error(errorMsg);
+                    auditManager.auditDelete(operationUuid, userId, Enums.Resource.SAMPLE, sample.getId(), sample.getUuid(),
+                            study.getId(), study.getUuid(), auditParams,
+                            new AuditRecord.Status(AuditRecord.Status.Result.ERROR, e.getError()));
+                }
             }
         }
         auditManager.finishAuditBatch(operationUuid);
@@ -578,6 +598,17 @@ public class SampleManager extends AnnotationSetManager<Sample> {
         return endResult(result, ignoreException);
     }
 
+    private boolean hasSamplePermissions(long studyUid, List<Sample> samples, String userId,
+                                         SampleAclEntry.SamplePermissions permission) {
+        List<Long> sampleUids = samples.stream().map(Sample::getUid).collect(Collectors.toList());
+        try {
+            return authorizationManager.hasSamplePermissions(studyUid, sampleUids, userId, permission);
+        } catch (CatalogException e) {
+            logger.debug("Checking the permissions of each sample: {}", e.getMessage());
+            return false;
+        }
+    }
+
     // TODO: This method should be private. This should only be accessible internally.
     public OpenCGAResult<Sample> resetRgaIndexes(String studyStr, String token) throws CatalogException {
         String userId = catalogManager.getUserManager().getUserId(token);
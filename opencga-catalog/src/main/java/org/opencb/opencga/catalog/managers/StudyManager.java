@@ -72,6 +72,7 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.regex.Matcher;
@@ -106,6 +107,13 @@ public class StudyManager extends AbstractManager {
     static final QueryOptions INCLUDE_CONFIGURATION =
             new QueryOptions(QueryOptions.INCLUDE, StudyDBAdaptor.QueryParams.CONFIGURATION.key());
 
+    // Resolved studies are cached until any study is modified by this process. The version of the studies is not shared with other
+    // processes (e.g. the REST server and the master), so changes made by them, including revoked ACLs, are only visible once the
+    // entry expires. Same TTL as the StudyAuthorizationCache, so both caches are stale for at most the same time.
+    private static final long STUDY_CACHE_TTL_MILLIS = TimeUnit.SECONDS.toMillis(10);
+    private static final int STUDY_CACHE_MAX_SIZE = 10000;
+    private final Map<String, CachedStudy> studyCache = new ConcurrentHashMap<>();
+
     protected Logger logger;
 
     StudyManager(AuthorizationManager authorizationManager, AuditManager auditManager, CatalogManager catalogManager,
@@ -142,6 +150,21 @@ public class StudyManager extends AbstractManager {
     }
 
     Study resolveId(String studyStr, String userId, QueryOptions options) throws CatalogException {
+        String cacheKey = null;
+        if (StringUtils.isNotEmpty(studyStr) && !studyStr.contains("*")) {
+            cacheKey = userId + '\n' + studyStr + '\n'
+                    + (options == null ? "" : StringUtils.join(options.getAsStringList(QueryOptions.INCLUDE), ","));
+            CachedStudy cachedStudy = studyCache.get(cacheKey);
+            if (cachedStudy != null) {
+                if (cachedStudy.expiresAt > System.currentTimeMillis() && cachedStudy.version == studyDBAdaptor.getVersion()) {
+                    return cachedStudy.study;
+                }
+                studyCache.remove(cacheKey, cachedStudy);
+            }
+        }
+
+        // Read the version before resolving the study, so a study modified while resolving it is cached with an outdated version
+        long version = studyDBAdaptor.getVersion();
         OpenCGAResult<Study> studyDataResult = smartResolutor(studyStr, userId, options);
 
         if (studyDataResult.getNumResults() > 1) {
@@ -153,7 +176,29 @@ public class StudyManager extends AbstractManager {
                     + " The accepted pattern is [ownerId@projectId:studyId]");
         }
 
-        return studyDataResult.first();
+        Study study = studyDataResult.first();
+        if (cacheKey != null) {
+            if (studyCache.size() >= STUDY_CACHE_MAX_SIZE) {
+                studyCache.clear();
+            }
+            studyCache.put(cacheKey, new CachedStudy(study, version, System.currentTimeMillis() + STUDY_CACHE_TTL_MILLIS));
+        }
+        return study;
+    }
+
+    /**
+     * Study resolved for a user. The study is shared by all the callers, so it must not be modified.
+     */
+    private static final class CachedStudy {
+        private final Study study;
+        private final long version;
+        private final long expiresAt;
+
+        private CachedStudy(Study study, long version, long expiresAt) {
+            this.study = study;
+            this.version = version;
+            this.expiresAt = expiresAt;
+        }
     }
 
     private OpenCGAResult<Study> smartResolutor(String studyStr, String userId, QueryOptions options) throws CatalogException {
@@ -136,6 +136,7 @@ public class UserManager extends AbstractManager {
             userDBAdaptor.checkId(userId);
             String authOrigin = getAuthenticationOriginId(userId);
             authenticationManagerMap.get(authOrigin).changePassword(userId, oldPassword, newPassword);
+            invalidateTokens(userId);
             auditManager.auditUser(userId, Enums.Action.CHANGE_USER_PASSWORD, userId,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
         } catch (CatalogException e) {
@@ -720,6 +721,7 @@ public class UserManager extends AbstractManager {
             if (OPENCGA.equals(tokenUser) || userId.equals(tokenUser)) {
                 try {
                     OpenCGAResult result = userDBAdaptor.delete(userId, options);
+                    invalidateTokens(userId);
 
                     auditManager.auditDelete(operationUuid, tokenUser, Enums.Resource.USER, userId, "", "", "", auditParams,
                             new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
@@ -769,6 +771,7 @@ public class UserManager extends AbstractManager {
             userId = getCatalogUserId(userId, token);
             String authOrigin = getAuthenticationOriginId(userId);
             OpenCGAResult writeResult = authenticationManagerMap.get(authOrigin).resetPassword(userId);
+            invalidateTokens(userId);
             auditManager.auditUser(userId, Enums.Action.RESET_USER_PASSWORD, userId,
                     new AuditRecord.Status(AuditRecord.Status.Result.SUCCESS));
             return writeResult;
@@ -1328,6 +1331,12 @@ public class UserManager extends AbstractManager {
         }
     }
 
+    private void invalidateTokens(String userId) {
+        for (AuthenticationManager authenticationManager : authenticationManagerMap.values()) {
+            authenticationManager.invalidateTokens(userId);
+        }
+    }
+
     /**
      * Get the userId from the sessionId.
      *
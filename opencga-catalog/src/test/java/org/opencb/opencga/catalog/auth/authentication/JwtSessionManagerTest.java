@@ -30,6 +30,7 @@ import java.util.Collections;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 /**
  * Created by wasim on 06/06/17.
@@ -74,6 +75,30 @@ public class JwtSessionManagerTest extends GenericTest {
         jwtSessionManager.validateToken(jwtToken);
     }
 
+    @Test
+    public void testCachedClaims() throws CatalogException {
+        long misses = jwtSessionManager.getCacheMisses();
+        assertEquals("testUser", jwtSessionManager.getUser(jwtToken));
+        assertEquals("OpenCGA users", jwtSessionManager.getAudience(jwtToken));
+        jwtSessionManager.validateToken(jwtToken);
+        assertEquals(misses + 1, jwtSessionManager.getCacheMisses());
+        assertEquals(2, jwtSessionManager.getCacheHits());
+
+        jwtSessionManager.invalidateUserTokens("testUser");
+        assertEquals(0, jwtSessionManager.getCacheSize());
+        jwtSessionManager.validateToken(jwtToken);
+        assertEquals(misses + 2, jwtSessionManager.getCacheMisses());
+
+        // A cached token must not be accepted with a different key
+        jwtSessionManager.setPublicKey(new SecretKeySpec(TextCodec.BASE64.decode("wrongKey"), SignatureAlgorithm.HS256.getJcaName()));
+        try {
+            jwtSessionManager.validateToken(jwtToken);
+            fail("Token should not be valid with a different key");
+        } catch (CatalogAuthenticationException e) {
+            assertEquals(0, jwtSessionManager.getCacheSize());
+        }
+    }
+
     @Test
     public void testNonExpiringToken() throws CatalogException {
         String nonExpiringToken = jwtSessionManager.createJWTToken("System", null, -1L);
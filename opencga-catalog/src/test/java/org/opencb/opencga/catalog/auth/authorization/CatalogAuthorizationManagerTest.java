@@ -22,6 +22,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.test.GenericTest;
@@ -756,6 +757,51 @@ public class CatalogAuthorizationManagerTest extends GenericTest {
         catalogManager.getSampleManager().get(studyFqn, smp3.getId(), null, externalSessionId);
     }
 
+    @Test
+    public void checkSamplePermissionsBatch() throws CatalogException {
+        AuthorizationManager authorizationManager = catalogManager.getAuthorizationManager();
+        authorizationManager.checkSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp1.getUid()), externalUser,
+                SampleAclEntry.SamplePermissions.VIEW);
+        authorizationManager.checkSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp3.getUid(), smp5.getUid()), ownerUser,
+                SampleAclEntry.SamplePermissions.VIEW);
+
+        thrown.expect(CatalogAuthorizationException.class);
+        thrown.expectMessage("uid: " + smp3.getUid());
+        authorizationManager.checkSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp3.getUid()), externalUser,
+                SampleAclEntry.SamplePermissions.VIEW);
+    }
+
+    @Test
+    public void hasSamplePermissionsBatch() throws CatalogException {
+        AuthorizationManager authorizationManager = catalogManager.getAuthorizationManager();
+        assertTrue(authorizationManager.hasSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp1.getUid()), externalUser,
+                SampleAclEntry.SamplePermissions.VIEW));
+        assertTrue(authorizationManager.hasSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp3.getUid(), smp5.getUid()),
+                ownerUser, SampleAclEntry.SamplePermissions.VIEW));
+        assertFalse(authorizationManager.hasSamplePermissions(studyUid, Arrays.asList(smp1.getUid(), smp3.getUid()), externalUser,
+                SampleAclEntry.SamplePermissions.VIEW));
+    }
+
+    @Test
+    public void deleteSamplesBatchPermissions() throws CatalogException {
+        // All the samples granted
+        OpenCGAResult<?> result = catalogManager.getSampleManager().delete(studyFqn, Collections.singletonList(smp6.getId()),
+                new ObjectMap(), true, externalSessionId);
+        assertEquals(1, result.getNumDeleted());
+        assertTrue(result.getEvents().isEmpty());
+
+        // Denied samples are reported one by one
+        Sample smp7 = catalogManager.getSampleManager().create(studyFqn, new Sample().setId("smp7"), QueryOptions.empty(), ownerSessionId)
+                .first();
+        catalogManager.getSampleManager().updateAcl(studyFqn, Collections.singletonList(smp7.getId()), "@members", allSamplePermissions,
+                ParamUtils.AclAction.SET, ownerSessionId);
+        result = catalogManager.getSampleManager().delete(studyFqn, Arrays.asList(smp7.getId(), smp4.getId()), new ObjectMap(), true,
+                externalSessionId);
+        assertEquals(1, result.getNumDeleted());
+        assertEquals(1, result.getEvents().size());
+        assertEquals(smp4.getId(), result.getEvents().get(0).getId());
+    }
+
     @Test
     public void readSampleExternalUser() throws CatalogException, IOException {
         String newUser = "newUser";
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.catalog.db.mongodb;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class StudyAuthorizationCacheTest {
+
+    @Test
+    public void testPut() {
+        StudyAuthorizationCache cache = new StudyAuthorizationCache();
+        Document document = new Document("id", "study");
+        cache.put(1, document, cache.getGeneration());
+
+        assertSame(document, cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    public void testInvalidate() {
+        StudyAuthorizationCache cache = new StudyAuthorizationCache();
+        cache.put(1, new Document("id", "study1"), cache.getGeneration());
+        cache.put(2, new Document("id", "study2"), cache.getGeneration());
+
+        cache.invalidate(1);
+        assertNull(cache.get(1));
+        assertNotNull(cache.get(2));
+
+        cache.invalidateAll();
+        assertNull(cache.get(2));
+    }
+
+    @Test
+    public void testPutAfterInvalidate() {
+        StudyAuthorizationCache cache = new StudyAuthorizationCache();
+        // The document is read before the study is modified, and cached after
+        long generation = cache.getGeneration();
+        cache.invalidate(1);
+        cache.put(1, new Document("id", "stale"), generation);
+        assertNull(cache.get(1));
+
+        generation = cache.getGeneration();
+        cache.invalidateAll();
+        cache.put(1, new Document("id", "stale"), generation);
+        assertNull(cache.get(1));
+    }
+
+    @Test
+    public void testDisabled() {
+        StudyAuthorizationCache cache = new StudyAuthorizationCache(0);
+        cache.put(1, new Document("id", "study"), cache.getGeneration());
+        assertNull(cache.get(1));
+    }
+}
@@ -36,6 +36,7 @@ import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Created by pfurio on 19/01/16.
@@ -57,6 +58,32 @@ public class StudyMongoDBAdaptorTest extends MongoDBAdaptorTest {
         assertEquals(1900, catalogStudyDBAdaptor.get(5, null).getResults().get(0).getSize());
     }
 
+    @Test
+    public void versionChangesAfterCommit() throws Exception {
+        long studyUid = user3.getProjects().get(0).getStudies().get(0).getUid();
+        long version = catalogStudyDBAdaptor.getVersion();
+
+        catalogStudyDBAdaptor.runTransaction(clientSession -> {
+            catalogStudyDBAdaptor.addUsersToGroup(studyUid, "@members", Collections.singletonList(user2.getId()), clientSession);
+            // Not visible until the transaction is committed
+            assertEquals(version, catalogStudyDBAdaptor.getVersion());
+            return null;
+        });
+        assertEquals(version + 1, catalogStudyDBAdaptor.getVersion());
+
+        // Aborted transactions do not change the version
+        try {
+            catalogStudyDBAdaptor.runTransaction(clientSession -> {
+                catalogStudyDBAdaptor.addUsersToGroup(studyUid, "@members", Collections.singletonList(user4.getId()), clientSession);
+                throw new CatalogDBException("Abort");
+            });
+            fail("Expected CatalogDBException");
+        } catch (CatalogDBException e) {
+            assertEquals("Abort", e.getMessage());
+        }
+        assertEquals(version + 1, catalogStudyDBAdaptor.getVersion());
+    }
+
     /***
      * The test will check whether it is possible to create a new study using an alias that is already being used, but on a different
      * project.
@@ -147,6 +147,21 @@ public class StudyManagerTest extends AbstractManagerTest {
         assertTrue(study.getConfiguration().getClinical().getStatus().isEmpty());
     }
 
+    @Test
+    public void testResolveIdCacheInvalidation() throws CatalogException {
+        catalogManager.getStudyManager().create(project1, "newStudy", "newStudy", "newStudy", null, null, null, null, null,
+                new QueryOptions(), token);
+
+        StudyManager studyManager = catalogManager.getStudyManager();
+        Study study = studyManager.resolveId("newStudy", "user");
+        assertEquals("newStudy", study.getName());
+        assertSame(study, studyManager.resolveId("newStudy", "user"));
+
+        studyManager.update("newStudy", new StudyUpdateParams().setName("newName"), QueryOptions.empty(), token);
+        study = studyManager.resolveId("newStudy", "user");
+        assertEquals("newName", study.getName());
+    }
+
 
     @Test
     public void testSetVariantEngineConfiguration() throws CatalogException {
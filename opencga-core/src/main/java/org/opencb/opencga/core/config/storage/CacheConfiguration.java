@@ -40,12 +40,30 @@ public class CacheConfiguration {
      */
     private String allowedTypes;
 
-    public static final boolean DEFAULT_ACTVE = true;
+    /**
+     * Max number of results stored in the in-process cache.
+     */
+    private int maxEntries;
+
+    /**
+     * Time to live of each cached result, in seconds.
+     */
+    private int ttl;
+
+    /**
+     * Remote cache store. Accepted values are: none, redis, or the class name of a CacheStore implementation.
+     */
+    private String remote;
+
+    public static final boolean DEFAULT_ACTVE = false;
     public static final String DEFAULT_SERIALIZATION = "json";
     public static final String DEFAULT_ALLOWED_TYPE = "aln,var";
     public static final String DEFAULT_HOST = "localhost:6379";
     public static final String DEFAULT_PASSWORD = "";
     public static final int DEFAULT_MAX_FILE_SIZE = 500;
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+    public static final int DEFAULT_TTL = 300;
+    public static final String DEFAULT_REMOTE = "none";
 
     public CacheConfiguration() {
         this(DEFAULT_HOST, DEFAULT_ACTVE, DEFAULT_SERIALIZATION, 50, DEFAULT_MAX_FILE_SIZE, DEFAULT_PASSWORD,
@@ -61,6 +79,9 @@ public class CacheConfiguration {
         this.maxResultSize = maxFileSize;
         this.password = password;
         this.allowedTypes = allowedTypes;
+        this.maxEntries = DEFAULT_MAX_ENTRIES;
+        this.ttl = DEFAULT_TTL;
+        this.remote = DEFAULT_REMOTE;
     }
 
     @Override
@@ -72,6 +93,9 @@ public class CacheConfiguration {
                 + ", slowThreshold=" + slowThreshold
                 + ", maxResultSize=" + maxResultSize
                 + ", allowedTypes='" + allowedTypes + '\''
+                + ", maxEntries=" + maxEntries
+                + ", ttl=" + ttl
+                + ", remote='" + remote + '\''
                 + '}');
         return sb.toString();
     }
@@ -138,4 +162,31 @@ public class CacheConfiguration {
         this.allowedTypes = allowedTypes;
         return this;
     }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    public CacheConfiguration setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+        return this;
+    }
+
+    public int getTtl() {
+        return ttl;
+    }
+
+    public CacheConfiguration setTtl(int ttl) {
+        this.ttl = ttl;
+        return this;
+    }
+
+    public String getRemote() {
+        return remote;
+    }
+
+    public CacheConfiguration setRemote(String remote) {
+        this.remote = remote;
+        return this;
+    }
 }
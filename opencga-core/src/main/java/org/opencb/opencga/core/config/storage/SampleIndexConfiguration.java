@@ -16,6 +16,7 @@ public class SampleIndexConfiguration {
 
     private final List<PopulationFrequencyRange> populationRanges = new ArrayList<>();
     private final FileIndexConfiguration fileIndexConfiguration = new FileIndexConfiguration();
+    private boolean genotypeBitmaps = false;
 
     public static SampleIndexConfiguration defaultConfiguration() {
         SampleIndexConfiguration sampleIndexConfiguration = new SampleIndexConfiguration()
@@ -212,6 +213,15 @@ public class SampleIndexConfiguration {
     }
 
 
+    public boolean isGenotypeBitmaps() {
+        return genotypeBitmaps;
+    }
+
+    public SampleIndexConfiguration setGenotypeBitmaps(boolean genotypeBitmaps) {
+        this.genotypeBitmaps = genotypeBitmaps;
+        return this;
+    }
+
     public SampleIndexConfiguration addFileIndexField(IndexFieldConfiguration fileIndex) {
         if (fileIndexConfiguration.getCustomFields().contains(fileIndex)) {
             throw new IllegalArgumentException("Duplicated file index '"
@@ -231,12 +241,13 @@ public class SampleIndexConfiguration {
         }
         SampleIndexConfiguration that = (SampleIndexConfiguration) o;
         return Objects.equals(populationRanges, that.populationRanges)
-                && Objects.equals(fileIndexConfiguration, that.fileIndexConfiguration);
+                && Objects.equals(fileIndexConfiguration, that.fileIndexConfiguration)
+                && genotypeBitmaps == that.genotypeBitmaps;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(populationRanges, fileIndexConfiguration);
+        return Objects.hash(populationRanges, fileIndexConfiguration, genotypeBitmaps);
     }
 
     @Override
@@ -244,6 +255,7 @@ public class SampleIndexConfiguration {
         final StringBuilder sb = new StringBuilder("SampleIndexConfiguration{");
         sb.append("populationRanges=").append(populationRanges);
         sb.append(", fileIndexConfiguration=").append(fileIndexConfiguration);
+        sb.append(", genotypeBitmaps=").append(genotypeBitmaps);
         sb.append('}');
         return sb.toString();
     }
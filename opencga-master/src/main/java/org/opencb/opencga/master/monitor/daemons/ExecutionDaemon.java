@@ -67,6 +67,7 @@ import org.opencb.opencga.catalog.db.api.DBIterator;
 import org.opencb.opencga.catalog.db.api.FileDBAdaptor;
 import org.opencb.opencga.catalog.db.api.JobDBAdaptor;
 import org.opencb.opencga.catalog.db.api.StudyDBAdaptor;
+import org.opencb.opencga.catalog.db.mongodb.MongoDBAdaptorFactory;
 import org.opencb.opencga.catalog.exceptions.CatalogAuthorizationException;
 import org.opencb.opencga.catalog.exceptions.CatalogDBException;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
@@ -117,7 +118,9 @@ import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -134,10 +137,13 @@ public class ExecutionDaemon extends MonitorParentDaemon {
     public static final String OUTDIR_PARAM = "outdir";
     public static final int EXECUTION_RESULT_FILE_EXPIRATION_MINUTES = 10;
     public static final String REDACTED_TOKEN = "xxxxxxxxxxxxxxxxxxxxx";
+    // Execution option with the max number of queued and running jobs of each user. 0 for no limit
+    public static final String MAX_CONCURRENT_JOBS_PER_USER = "maxConcurrentJobsPerUser";
     private String internalCli;
     private JobManager jobManager;
     private FileManager fileManager;
     private final Map<String, Long> jobsCountByType = new HashMap<>();
+    private final Map<String, Long> jobsCountByUser = new HashMap<>();
     private final Map<String, Long> retainedLogsTime = new HashMap<>();
 
     private Path defaultJobDir;
@@ -157,6 +163,19 @@ public class ExecutionDaemon extends MonitorParentDaemon {
 
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
 
+    // Job events wake up the daemon before the interval. While events are being received, the whole set of jobs is only checked
+    // every RECONCILIATION_FACTOR intervals, to repair any missing event. Running jobs are still checked every interval, as their
+    // progress is not notified by any event.
+    static final int RECONCILIATION_FACTOR = 10;
+    // Wait before handling an event, to handle bursts of events in one iteration
+    private static final long EVENT_DELAY_MILLIS = 200;
+    private final Semaphore wakeUp = new Semaphore(0);
+    private final AtomicBoolean pendingJobsEvent = new AtomicBoolean();
+    private final AtomicBoolean executorEvent = new AtomicBoolean();
+    private long lastPendingCheck = 0;
+    private long lastExecutorCheck = 0;
+    private long lastRunningCheck = 0;
+
     static {
         TOOL_CLI_MAP = new HashMap<String, String>(){{
             put(FileUnlinkTask.ID, "files unlink");
@@ -254,9 +273,22 @@ public class ExecutionDaemon extends MonitorParentDaemon {
 
     @Override
     public void run() {
+        JobChangeStreamWatcher jobWatcher = null;
+        if (dbAdaptorFactory instanceof MongoDBAdaptorFactory) {
+            jobWatcher = new JobChangeStreamWatcher(((MongoDBAdaptorFactory) dbAdaptorFactory).getMongoDataStore(),
+                    this::notifyPendingJobs);
+            Thread watcherThread = new Thread(jobWatcher, "ExecutionDaemon-jobWatcher");
+            watcherThread.setDaemon(true);
+            watcherThread.start();
+        }
+        boolean executorEvents = batchExecutor.addStatusListener(jobId -> notifyExecutorEvent());
+
         while (!exit) {
             try {
-                Thread.sleep(interval);
+                if (wakeUp.tryAcquire(interval, TimeUnit.MILLISECONDS)) {
+                    Thread.sleep(EVENT_DELAY_MILLIS);
+                    wakeUp.drainPermits();
+                }
             } catch (InterruptedException e) {
                 if (!exit) {
                     e.printStackTrace();
@@ -264,12 +296,21 @@ public class ExecutionDaemon extends MonitorParentDaemon {
             }
 
             try {
-                checkJobs();
+                runChecks(System.currentTimeMillis(), jobWatcher != null && jobWatcher.isActive(), executorEvents);
             } catch (Exception e) {
                 logger.error("Catch exception " + e.getMessage(), e);
             }
         }
 
+        if (jobWatcher != null) {
+            jobWatcher.close();
+        }
+        try {
+            batchExecutor.close();
+        } catch (Exception e) {
+            logger.error("Error closing batch executor", e);
+        }
+
         try {
             logger.info("Attempt to shutdown webhook executor");
             executor.shutdown();
@@ -285,6 +326,60 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         }
     }
 
+    /**
+     * Run the checks triggered by the events received since the last call, and the periodic checks.
+     *
+     * @param now            Current time, in milliseconds
+     * @param pendingEvents  If new pending jobs are being notified, so pending jobs only need a periodic reconciliation
+     * @param executorEvents If the executor notifies status changes, so queued jobs only need a periodic reconciliation
+     */
+    void runChecks(long now, boolean pendingEvents, boolean executorEvents) {
+        boolean pendingSweep = now - lastPendingCheck >= (pendingEvents ? interval * RECONCILIATION_FACTOR : interval);
+        boolean executorSweep = now - lastExecutorCheck >= (executorEvents ? interval * RECONCILIATION_FACTOR : interval);
+        boolean checkPending = pendingJobsEvent.getAndSet(false) || pendingSweep;
+        boolean checkExecutor = executorEvent.getAndSet(false) || executorSweep;
+        boolean checkRunning = checkExecutor || now - lastRunningCheck >= interval;
+        if (checkPending) {
+            lastPendingCheck = now;
+        }
+        if (checkExecutor) {
+            lastExecutorCheck = now;
+        }
+        if (checkRunning) {
+            lastRunningCheck = now;
+        }
+
+        if (pendingSweep && executorSweep) {
+            checkJobs();
+        } else {
+            if (checkPending) {
+                checkPendingJobs();
+            }
+            if (checkExecutor) {
+                checkQueuedJobs();
+            }
+            if (checkRunning) {
+                checkRunningJobs();
+            }
+        }
+    }
+
+    /**
+     * Notify that there might be new pending jobs ready to be queued.
+     */
+    public void notifyPendingJobs() {
+        pendingJobsEvent.set(true);
+        wakeUp.release();
+    }
+
+    /**
+     * Notify that the executor changed the status of any queued or running job.
+     */
+    public void notifyExecutorEvent() {
+        executorEvent.set(true);
+        wakeUp.release();
+    }
+
     protected void checkJobs() {
         long pendingJobs = -1;
         long queuedJobs = -1;
@@ -328,6 +423,10 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         } catch (Exception e) {
             logger.error("{}", e.getMessage(), e);
         }
+        if (handledRunningJobs >= NUM_JOBS_HANDLED) {
+            // There might be more jobs to handle. Do not wait for the next interval
+            notifyExecutorEvent();
+        }
     }
 
     protected int checkRunningJob(Job job) {
@@ -385,6 +484,10 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         } catch (Exception e) {
             logger.error("{}", e.getMessage(), e);
         }
+        if (handledQueuedJobs >= NUM_JOBS_HANDLED) {
+            // There might be more jobs to handle. Do not wait for the next interval
+            notifyExecutorEvent();
+        }
     }
 
     /**
@@ -426,6 +529,7 @@ public class ExecutionDaemon extends MonitorParentDaemon {
     protected void checkPendingJobs() {
         // Clear job counts each cycle
         jobsCountByType.clear();
+        jobsCountByUser.clear();
 
         int handledPendingJobs = 0;
         try (DBIterator<Job> iterator = jobManager.iterator(pendingJobsQuery, queryOptions, token)) {
@@ -440,6 +544,10 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         } catch (Exception e) {
             logger.error("{}", e.getMessage(), e);
         }
+        if (handledPendingJobs >= NUM_JOBS_HANDLED) {
+            // There might be more jobs to handle. Do not wait for the next interval
+            notifyPendingJobs();
+        }
     }
 
     /**
@@ -546,7 +654,6 @@ public class ExecutionDaemon extends MonitorParentDaemon {
 
         // Create cli
         String commandLine = buildCli(internalCli, job);
-        String authenticatedCommandLine = commandLine + " --token " + userToken;
         String shadedCommandLine = commandLine + " --token " + REDACTED_TOKEN;
 
         updateParams.setCommandLine(shadedCommandLine);
@@ -563,7 +670,7 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         try {
             String queue = getQueue(tool);
             logger.info("Queue job '{}' on queue '{}'", job.getId(), queue);
-            batchExecutor.execute(job.getId(), queue, authenticatedCommandLine, stdout, stderr);
+            batchExecutor.execute(job, queue, commandLine, userToken, stdout, stderr);
         } catch (Exception e) {
             logger.error("Error executing job {}.", job.getId(), e);
             return abortJob(job, "Error executing job. " + e.getMessage());
@@ -812,6 +919,12 @@ public class ExecutionDaemon extends MonitorParentDaemon {
             return false;
         }
 
+        int maxJobsPerUser = catalogManager.getConfiguration().getAnalysis().getExecution().getOptions()
+                .getInt(MAX_CONCURRENT_JOBS_PER_USER, 0);
+        if (maxJobsPerUser > 0 && !canBeQueuedByUser(job.getUserId(), maxJobsPerUser)) {
+            return false;
+        }
+
         Integer maxJobs = catalogManager.getConfiguration().getAnalysis().getExecution().getMaxConcurrentJobs().get(job.getTool().getId());
         if (maxJobs == null) {
             // No limit for this tool
@@ -851,6 +964,30 @@ public class ExecutionDaemon extends MonitorParentDaemon {
         }
     }
 
+    private boolean canBeQueuedByUser(String userId, int maxJobs) {
+        Query query = new Query()
+                .append(JobDBAdaptor.QueryParams.INTERNAL_STATUS_NAME.key(), Enums.ExecutionStatus.QUEUED + ","
+                        + Enums.ExecutionStatus.RUNNING)
+                .append(JobDBAdaptor.QueryParams.USER_ID.key(), userId);
+        long currentJobs = jobsCountByUser.computeIfAbsent(userId, k -> {
+            try {
+                return catalogManager.getJobManager().count(query, token).getNumMatches();
+            } catch (CatalogException e) {
+                logger.error("Error counting the current number of running and queued jobs from user '" + userId + "'", e);
+                return 0L;
+            }
+        });
+        if (currentJobs >= maxJobs) {
+            logger.debug("There are {} jobs from user '{}' running or queued already. Current limit is {}", currentJobs, userId,
+                    maxJobs);
+            return false;
+        } else {
+            // The job might be queued. Count again
+            jobsCountByUser.remove(userId);
+            return true;
+        }
+    }
+
     private int abortJob(Job job, Exception e) {
         logger.error(e.getMessage(), e);
         return abortJob(job, e.getMessage());
@@ -984,6 +1121,8 @@ public class ExecutionDaemon extends MonitorParentDaemon {
 
     private int processFinishedJob(Job job, Enums.ExecutionStatus status) {
         logger.info("[{}] - Processing finished job with status {}", job.getId(), status.getName());
+        // Other jobs might be waiting for this one, or for the resources it was using
+        notifyPendingJobs();
 
         Path outDirUri = Paths.get(job.getOutDir().getUri());
         Path analysisResultPath = getExecutionResultPath(job);
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.daemons;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.opencb.commons.datastore.mongodb.MongoDataStore;
+import org.opencb.opencga.catalog.db.api.JobDBAdaptor;
+import org.opencb.opencga.catalog.db.mongodb.MongoDBAdaptorFactory;
+import org.opencb.opencga.core.models.common.Enums;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Filters.in;
+
+/**
+ * Watches the job collection with a MongoDB change stream, and notifies whenever there might be new jobs ready to be queued.
+ * That is, when a job is created, or when a job finishes, as other jobs might depend on it.
+ *
+ * Change streams require a replica set. If they are not available, the watcher becomes inactive and retries periodically.
+ */
+public class JobChangeStreamWatcher implements Runnable {
+
+    private static final long RETRY_MILLIS = 60000;
+    private static final String STATUS_FIELD = "fullDocument." + JobDBAdaptor.QueryParams.INTERNAL_STATUS_NAME.key();
+
+    private final Logger logger = LoggerFactory.getLogger(JobChangeStreamWatcher.class);
+    private final MongoDataStore mongoDataStore;
+    private final Runnable onEvent;
+    private volatile MongoCursor<ChangeStreamDocument<Document>> cursor;
+    private volatile boolean active;
+    private volatile boolean closed;
+
+    public JobChangeStreamWatcher(MongoDataStore mongoDataStore, Runnable onEvent) {
+        this.mongoDataStore = mongoDataStore;
+        this.onEvent = onEvent;
+    }
+
+    @Override
+    public void run() {
+        List<Bson> pipeline = Collections.singletonList(match(in(STATUS_FIELD, Arrays.asList(
+                Enums.ExecutionStatus.PENDING,
+                Enums.ExecutionStatus.DONE,
+                Enums.ExecutionStatus.ERROR,
+                Enums.ExecutionStatus.ABORTED))));
+        boolean warned = false;
+        while (!closed) {
+            try (MongoCursor<ChangeStreamDocument<Document>> cursor = mongoDataStore.getDb()
+                    .getCollection(MongoDBAdaptorFactory.JOB_COLLECTION)
+                    .watch(pipeline)
+                    .fullDocument(FullDocument.UPDATE_LOOKUP)
+                    .iterator()) {
+                this.cursor = cursor;
+                active = true;
+                warned = false;
+                logger.info("Watching changes in the job collection");
+                // Any change made while the watcher was inactive
+                onEvent.run();
+                while (!closed && cursor.hasNext()) {
+                    cursor.next();
+                    onEvent.run();
+                }
+            } catch (RuntimeException e) {
+                active = false;
+                if (closed) {
+                    break;
+                }
+                if (!warned) {
+                    logger.warn("Unable to watch changes in the job collection. Fallback to polling. {}", e.getMessage());
+                    warned = true;
+                } else {
+                    logger.debug("Unable to watch changes in the job collection", e);
+                }
+            }
+            active = false;
+            if (!closed) {
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if the watcher is receiving changes.
+     *
+     * @return if the watcher is active
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    public void close() {
+        closed = true;
+        MongoCursor<ChangeStreamDocument<Document>> cursor = this.cursor;
+        if (cursor != null) {
+            try {
+                cursor.close();
+            } catch (RuntimeException e) {
+                logger.debug("Error closing change stream", e);
+            }
+        }
+    }
+}
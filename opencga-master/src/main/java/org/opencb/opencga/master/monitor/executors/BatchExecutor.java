@@ -16,12 +16,15 @@
 
 package org.opencb.opencga.master.monitor.executors;
 
+import org.opencb.opencga.core.models.job.Job;
+
 import java.nio.file.Path;
+import java.util.function.Consumer;
 
 /**
  * Created by pfurio on 22/08/16.
  */
-public interface BatchExecutor {
+public interface BatchExecutor extends AutoCloseable {
 
     String TIMEOUT = "timeout";
     String STDOUT = "stdout";
@@ -36,6 +39,21 @@ public interface BatchExecutor {
 
     void execute(String jobId, String queue, String commandLine, Path stdout, Path stderr) throws Exception;
 
+    /**
+     * Execute a job. Executors able to run the job without the command line may override this method.
+     *
+     * @param job         Job to execute
+     * @param queue       Queue
+     * @param commandLine Command line of the job, without the token
+     * @param token       Token of the user executing the job
+     * @param stdout      File where the standard output will be redirected
+     * @param stderr      File where the standard error will be redirected
+     * @throws Exception on error
+     */
+    default void execute(Job job, String queue, String commandLine, String token, Path stdout, Path stderr) throws Exception {
+        execute(job.getId(), queue, commandLine + " --token " + token, stdout, stderr);
+    }
+
     String getStatus(String jobId);
 
     boolean stop(String jobId) throws Exception;
@@ -48,8 +66,27 @@ public interface BatchExecutor {
         return true;
     }
 
+    /**
+     * Register a listener to be notified with the job id whenever a job changes its status.
+     *
+     * @param listener Listener
+     * @return false if the executor is not able to notify status changes, so the status has to be polled
+     */
+    default boolean addStatusListener(Consumer<String> listener) {
+        return false;
+    }
+
     boolean isExecutorAlive();
 
+    /**
+     * Release the resources of the executor.
+     *
+     * @throws Exception on error
+     */
+    @Override
+    default void close() throws Exception {
+    }
+
     default String getCommandLine(String commandLine) {
         return getCommandLine(commandLine, null, null);
     }
@@ -20,6 +20,7 @@ import org.opencb.commons.exec.Command;
 import org.opencb.commons.exec.RunnableProcess;
 import org.opencb.opencga.core.config.Execution;
 import org.opencb.opencga.core.models.common.Enums;
+import org.opencb.opencga.core.models.job.Job;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,8 +31,11 @@ import java.nio.file.Path;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Consumer;
 
 /**
  * Created by pfurio on 22/08/16.
@@ -45,11 +49,14 @@ public class LocalExecutor implements BatchExecutor {
     private final ExecutorService threadPool;
     private final Map<String, String> jobStatus;
     private final int maxConcurrentJobs;
+    private final LocalWorkerPool workerPool;
+    private final List<Consumer<String>> statusListeners = new CopyOnWriteArrayList<>();
 
     public LocalExecutor(Execution execution) {
         logger = LoggerFactory.getLogger(LocalExecutor.class);
         maxConcurrentJobs = execution.getOptions().getInt(MAX_CONCURRENT_JOBS, 1);
         threadPool = Executors.newFixedThreadPool(maxConcurrentJobs);
+        workerPool = new LocalWorkerPool(execution.getOptions());
         jobStatus = Collections.synchronizedMap(new LinkedHashMap<String, String>(1000) {
             @Override
             protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
@@ -60,12 +67,12 @@ public class LocalExecutor implements BatchExecutor {
 
     @Override
     public void execute(String jobId, String queue, String commandLine, Path stdout, Path stderr) throws Exception {
-        jobStatus.put(jobId, Enums.ExecutionStatus.QUEUED);
+        setJobStatus(jobId, Enums.ExecutionStatus.QUEUED);
         Runnable runnable = () -> {
             try {
                 Thread.currentThread().setName("LocalExecutor-" + nextThreadNum());
                 logger.info("Ready to run - {}", commandLine);
-                jobStatus.put(jobId, Enums.ExecutionStatus.RUNNING);
+                setJobStatus(jobId, Enums.ExecutionStatus.RUNNING);
                 Command com = new Command(commandLine);
 
                 DataOutputStream dataOutputStream = new DataOutputStream(new FileOutputStream(stdout.toFile()));
@@ -79,7 +86,7 @@ public class LocalExecutor implements BatchExecutor {
                     com.setStatus(RunnableProcess.Status.KILLED);
                     com.setExitValue(-2);
                     closeOutputStreams(com);
-                    jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
+                    setJobStatus(jobId, Enums.ExecutionStatus.ERROR);
                 });
 
                 logger.info("==========================================");
@@ -102,18 +109,58 @@ public class LocalExecutor implements BatchExecutor {
                 logger.info("==========================================");
 
                 if (com.getStatus().equals(RunnableProcess.Status.DONE)) {
-                    jobStatus.put(jobId, Enums.ExecutionStatus.DONE);
+                    setJobStatus(jobId, Enums.ExecutionStatus.DONE);
                 } else {
-                    jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
+                    setJobStatus(jobId, Enums.ExecutionStatus.ERROR);
                 }
             } catch (Throwable throwable) {
                 logger.error("Error running job " + jobId, throwable);
-                jobStatus.put(jobId, Enums.ExecutionStatus.ERROR);
+                setJobStatus(jobId, Enums.ExecutionStatus.ERROR);
             }
         };
         threadPool.submit(runnable);
     }
 
+    @Override
+    public void execute(Job job, String queue, String commandLine, String token, Path stdout, Path stderr) throws Exception {
+        if (!workerPool.accepts(job.getTool().getId())) {
+            execute(job.getId(), queue, commandLine + " --token " + token, stdout, stderr);
+            return;
+        }
+        String jobId = job.getId();
+        setJobStatus(jobId, Enums.ExecutionStatus.QUEUED);
+        threadPool.submit(() -> {
+            try {
+                Thread.currentThread().setName("LocalExecutor-" + nextThreadNum());
+                logger.info("Ready to run job {} in a warm worker", jobId);
+                setJobStatus(jobId, Enums.ExecutionStatus.RUNNING);
+                String status = workerPool.run(jobId, job.getStudy().getId(), token, stdout, stderr);
+                logger.info("Finished job {} with status {}", jobId, status);
+                setJobStatus(jobId, status);
+            } catch (Throwable throwable) {
+                logger.error("Error running job " + jobId, throwable);
+                setJobStatus(jobId, Enums.ExecutionStatus.ERROR);
+            }
+        });
+    }
+
+    @Override
+    public boolean addStatusListener(Consumer<String> listener) {
+        statusListeners.add(listener);
+        return true;
+    }
+
+    private void setJobStatus(String jobId, String status) {
+        jobStatus.put(jobId, status);
+        for (Consumer<String> listener : statusListeners) {
+            try {
+                listener.accept(jobId);
+            } catch (RuntimeException e) {
+                logger.warn("Error notifying status change of job " + jobId, e);
+            }
+        }
+    }
+
     private static synchronized int nextThreadNum() {
         return threadInitNumber++;
     }
@@ -135,7 +182,7 @@ public class LocalExecutor implements BatchExecutor {
 
     @Override
     public boolean kill(String jobId) throws Exception {
-        return false;
+        return workerPool.kill(jobId);
     }
 
     @Override
@@ -151,6 +198,12 @@ public class LocalExecutor implements BatchExecutor {
         return true;
     }
 
+    @Override
+    public void close() {
+        threadPool.shutdown();
+        workerPool.close();
+    }
+
     private void closeOutputStreams(Command command) {
         /** Close output streams **/
         if (command.getOutputOutputStream() != null) {
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.executors;
+
+import org.opencb.opencga.analysis.tools.ToolRunner;
+import org.opencb.opencga.catalog.managers.CatalogManager;
+import org.opencb.opencga.core.config.Configuration;
+import org.opencb.opencga.core.config.storage.StorageConfiguration;
+import org.opencb.opencga.storage.core.StorageEngineFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+
+/**
+ * Long-lived worker of the {@link LocalWorkerPool}.
+ *
+ * Loads the configuration and the catalog and storage managers once, and then executes the jobs received from the pool
+ * with the {@link ToolRunner}, one at a time. The standard output and error are redirected to the log files of each job.
+ *
+ * Usage: LocalWorker {port} {maxHeapUsage}
+ */
+public final class LocalWorker {
+
+    private LocalWorker() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // Replace the standard streams before any logger is initialized, so the console appenders follow the redirection.
+        SwitchableOutputStream stdout = new SwitchableOutputStream(new FileOutputStream(FileDescriptor.out));
+        SwitchableOutputStream stderr = new SwitchableOutputStream(new FileOutputStream(FileDescriptor.err));
+        System.setOut(new PrintStream(stdout, true));
+        System.setErr(new PrintStream(stderr, true));
+
+        Logger logger = LoggerFactory.getLogger(LocalWorker.class);
+        int port = Integer.parseInt(args[0]);
+        double maxHeapUsage = Double.parseDouble(args[1]);
+        String appHome = System.getProperty("app.home");
+
+        Configuration configuration;
+        try (InputStream is = new FileInputStream(Paths.get(appHome, "conf", "configuration.yml").toFile())) {
+            configuration = Configuration.load(is);
+        }
+        StorageConfiguration storageConfiguration;
+        try (InputStream is = new FileInputStream(Paths.get(appHome, "conf", "storage-configuration.yml").toFile())) {
+            storageConfiguration = StorageConfiguration.load(is);
+        }
+
+        try (CatalogManager catalogManager = new CatalogManager(configuration);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            ToolRunner toolRunner = new ToolRunner(appHome, catalogManager, StorageEngineFactory.get(storageConfiguration));
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeUTF(System.getenv(LocalWorkerPool.SECRET_ENV));
+            out.flush();
+
+            boolean recycle = false;
+            while (!recycle) {
+                String jobId;
+                try {
+                    jobId = in.readUTF();
+                } catch (EOFException e) {
+                    // Pool closed
+                    break;
+                }
+                String study = in.readUTF();
+                String token = in.readUTF();
+                String jobStdout = in.readUTF();
+                String jobStderr = in.readUTF();
+
+                boolean success;
+                try (OutputStream jobOut = new FileOutputStream(jobStdout, true);
+                     OutputStream jobErr = new FileOutputStream(jobStderr, true)) {
+                    stdout.setTarget(jobOut);
+                    stderr.setTarget(jobErr);
+                    try {
+                        logger.info("Executing job {}", jobId);
+                        toolRunner.execute(study, jobId, token);
+                        logger.info("Finished job {}", jobId);
+                        success = true;
+                    } catch (Exception e) {
+                        logger.error("Error executing job " + jobId, e);
+                        success = false;
+                    } finally {
+                        System.out.flush();
+                        System.err.flush();
+                        stdout.resetTarget();
+                        stderr.resetTarget();
+                    }
+                } catch (IOException e) {
+                    logger.error("Error opening log files of job " + jobId, e);
+                    success = false;
+                }
+
+                double heapUsage = getHeapUsage();
+                if (heapUsage > maxHeapUsage) {
+                    // Part of the used heap might be garbage. Collect it before deciding to recycle the worker.
+                    System.gc();
+                    heapUsage = getHeapUsage();
+                }
+                recycle = heapUsage > maxHeapUsage;
+                if (recycle) {
+                    logger.info("Heap usage {} over {}. Recycle worker", heapUsage, maxHeapUsage);
+                }
+                out.writeBoolean(success);
+                out.writeBoolean(recycle);
+                out.flush();
+            }
+        }
+        System.exit(0);
+    }
+
+    private static double getHeapUsage() {
+        Runtime runtime = Runtime.getRuntime();
+        return (runtime.totalMemory() - runtime.freeMemory()) / (double) runtime.maxMemory();
+    }
+
+    private static final class SwitchableOutputStream extends OutputStream {
+        private final OutputStream defaultTarget;
+        private volatile OutputStream target;
+
+        private SwitchableOutputStream(OutputStream defaultTarget) {
+            this.defaultTarget = defaultTarget;
+            this.target = defaultTarget;
+        }
+
+        private void setTarget(OutputStream target) {
+            this.target = target;
+        }
+
+        private void resetTarget() {
+            this.target = defaultTarget;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            target.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            target.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            target.flush();
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.master.monitor.executors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.core.models.common.Enums;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Pool of long-lived JVMs to run short jobs without paying the JVM startup, configuration loading and
+ * catalog/storage connections of the internal command line for each job.
+ *
+ * Each worker is a {@link LocalWorker} process connected to the pool through a loopback socket. Workers execute one
+ * job at a time, and are recycled after {@link #MAX_JOBS_PER_WORKER} jobs, or when the heap usage after a job is over
+ * {@link #MAX_HEAP_USAGE}. Workers that exceed the {@link #JOB_TIMEOUT} are killed.
+ * Jobs received while all the workers are busy start a new worker. The number of idle workers never exceeds the
+ * {@link #SIZE} of the pool.
+ */
+public class LocalWorkerPool implements AutoCloseable {
+
+    public static final String SIZE = "local.warmPool.size";
+    public static final String TOOLS = "local.warmPool.tools";
+    public static final String MAX_JOBS_PER_WORKER = "local.warmPool.maxJobsPerWorker";
+    public static final String MAX_HEAP_USAGE = "local.warmPool.maxHeapUsage";
+    public static final String JOB_TIMEOUT = "local.warmPool.jobTimeoutSeconds";
+    public static final String JAVA_OPTS = "local.warmPool.javaOpts";
+
+    static final String SECRET_ENV = "OPENCGA_LOCAL_WORKER_SECRET";
+    private static final int CONNECT_TIMEOUT_MILLIS = 5 * 60 * 1000;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 60 * 1000;
+    private static final int ACCEPT_POLL_MILLIS = 1000;
+
+    private final Logger logger = LoggerFactory.getLogger(LocalWorkerPool.class);
+    private final int size;
+    private final Set<String> tools;
+    private final int maxJobsPerWorker;
+    private final double maxHeapUsage;
+    private final long jobTimeoutMillis;
+    private final List<String> javaOpts;
+    private final String appHome;
+    private final String workerClass;
+    private final BlockingDeque<Worker> idleWorkers = new LinkedBlockingDeque<>();
+    private final Map<String, Worker> runningJobs = new ConcurrentHashMap<>();
+    private final ExecutorService starter;
+    private final SecureRandom random = new SecureRandom();
+    private volatile boolean closed;
+
+    public LocalWorkerPool(ObjectMap options) {
+        this(options, System.getProperty("app.home", System.getenv("OPENCGA_HOME")), LocalWorker.class.getName());
+    }
+
+    LocalWorkerPool(ObjectMap options, String appHome, String workerClass) {
+        size = options.getInt(SIZE, 0);
+        tools = new HashSet<>(options.getAsStringList(TOOLS));
+        maxJobsPerWorker = options.getInt(MAX_JOBS_PER_WORKER, 50);
+        maxHeapUsage = options.getDouble(MAX_HEAP_USAGE, 0.75);
+        jobTimeoutMillis = TimeUnit.SECONDS.toMillis(options.getLong(JOB_TIMEOUT, TimeUnit.HOURS.toSeconds(1)));
+        javaOpts = options.getAsStringList(JAVA_OPTS, " ");
+        this.appHome = appHome;
+        this.workerClass = workerClass;
+        starter = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "LocalWorkerPool-starter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < size; i++) {
+            startWorkerAsync();
+        }
+    }
+
+    public boolean isEnabled() {
+        return size > 0 && StringUtils.isNotEmpty(appHome);
+    }
+
+    /**
+     * Check if the tool can be executed in a warm worker.
+     *
+     * @param toolId Tool id
+     * @return if the tool is configured to run in the pool
+     */
+    public boolean accepts(String toolId) {
+        return isEnabled() && tools.contains(toolId);
+    }
+
+    /**
+     * Run a job in a warm worker, blocking until the job finishes.
+     *
+     * @param jobId  Job id
+     * @param study  Study of the job
+     * @param token  Token of the user executing the job
+     * @param stdout File where the standard output of the job is written
+     * @param stderr File where the standard error of the job is written
+     * @return Final status of the job
+     * @throws IOException if a worker can not be started
+     */
+    public String run(String jobId, String study, String token, Path stdout, Path stderr) throws IOException {
+        Worker worker = idleWorkers.poll();
+        if (worker == null || !worker.process.isAlive()) {
+            if (worker != null) {
+                worker.destroy();
+            }
+            worker = startWorker();
+        }
+        runningJobs.put(jobId, worker);
+        boolean recycle = true;
+        String status = Enums.ExecutionStatus.ERROR;
+        try {
+            worker.out.writeUTF(jobId);
+            worker.out.writeUTF(study);
+            worker.out.writeUTF(token);
+            worker.out.writeUTF(stdout.toAbsolutePath().toString());
+            worker.out.writeUTF(stderr.toAbsolutePath().toString());
+            worker.out.flush();
+
+            worker.socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, jobTimeoutMillis));
+            boolean success = worker.in.readBoolean();
+            recycle = worker.in.readBoolean() || ++worker.jobs >= maxJobsPerWorker;
+            status = success ? Enums.ExecutionStatus.DONE : Enums.ExecutionStatus.ERROR;
+        } catch (SocketTimeoutException e) {
+            logger.error("Job {} exceeded the timeout of {}s. Kill worker {}", jobId, jobTimeoutMillis / 1000, worker.process);
+        } catch (IOException e) {
+            logger.error("Lost connection with the worker running job " + jobId, e);
+        } finally {
+            runningJobs.remove(jobId);
+            if (recycle || closed) {
+                worker.destroy();
+                if (!closed) {
+                    startWorkerAsync();
+                }
+            } else {
+                offerIdle(worker);
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Kill the worker running the given job.
+     *
+     * @param jobId Job id
+     * @return if the job was running in the pool
+     */
+    public boolean kill(String jobId) {
+        Worker worker = runningJobs.get(jobId);
+        if (worker == null) {
+            return false;
+        }
+        logger.info("Kill worker running job {}", jobId);
+        worker.destroy();
+        return true;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        starter.shutdownNow();
+        synchronized (idleWorkers) {
+            for (Worker worker : idleWorkers) {
+                worker.destroy();
+            }
+            idleWorkers.clear();
+        }
+        for (Worker worker : runningJobs.values()) {
+            worker.destroy();
+        }
+    }
+
+    int getIdleWorkers() {
+        return idleWorkers.size();
+    }
+
+    /**
+     * Return a worker to the idle set, or destroy it if the pool is already full.
+     *
+     * @param worker Worker ready to run a new job
+     */
+    private void offerIdle(Worker worker) {
+        synchronized (idleWorkers) {
+            if (!closed && idleWorkers.size() < size) {
+                idleWorkers.offer(worker);
+                return;
+            }
+        }
+        logger.info("Local worker pool full. Stop worker {}", worker.process);
+        worker.destroy();
+    }
+
+    private void startWorkerAsync() {
+        if (!isEnabled()) {
+            return;
+        }
+        starter.submit(() -> {
+            try {
+                // Cold started workers might have filled the pool already
+                if (!closed && idleWorkers.size() < size) {
+                    offerIdle(startWorker());
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.error("Error starting local worker", e);
+            }
+        });
+    }
+
+    private Worker startWorker() throws IOException {
+        String secret = Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+        try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(javaOpts);
+            command.add("-Dapp.home=" + appHome);
+            command.add("-cp");
+            command.add(System.getProperty("java.class.path"));
+            command.add(workerClass);
+            command.add(String.valueOf(serverSocket.getLocalPort()));
+            command.add(String.valueOf(maxHeapUsage));
+
+            ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .directory(new File(appHome));
+            processBuilder.environment().put(SECRET_ENV, secret);
+            Process process = processBuilder.start();
+
+            Socket socket;
+            try {
+                socket = accept(serverSocket, process);
+            } catch (IOException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+            Worker worker = new Worker(process, socket);
+            try {
+                // Do not wait forever for a worker that connects but never completes the handshake
+                socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+                if (!secret.equals(worker.in.readUTF())) {
+                    throw new IOException("Unexpected connection to the local worker pool");
+                }
+                socket.setSoTimeout(0);
+            } catch (IOException e) {
+                worker.destroy();
+                throw e;
+            }
+            logger.info("Local worker {} ready", process);
+            return worker;
+        }
+    }
+
+    /**
+     * Wait for the worker to connect, failing fast if the worker process exits before connecting.
+     */
+    private static Socket accept(ServerSocket serverSocket, Process process) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+        serverSocket.setSoTimeout(ACCEPT_POLL_MILLIS);
+        while (true) {
+            try {
+                return serverSocket.accept();
+            } catch (SocketTimeoutException e) {
+                if (!process.isAlive()) {
+                    throw new IOException("Local worker exited with code " + process.exitValue() + " before connecting");
+                }
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static final class Worker {
+        private final Process process;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+        private int jobs;
+
+        private Worker(Process process, Socket socket) throws IOException {
+            this.process = process;
+            this.socket = socket;
+            in = new DataInputStream(socket.getInputStream());
+            out = new DataOutputStream(socket.getOutputStream());
+        }
+
+        private void destroy() {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+                // Nothing to do
+            }
+            process.destroyForcibly();
+        }
+    }
+}
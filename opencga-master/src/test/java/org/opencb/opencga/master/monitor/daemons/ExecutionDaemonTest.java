@@ -17,6 +17,7 @@
 package org.opencb.opencga.master.monitor.daemons;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Test;
 import org.opencb.commons.datastore.core.Query;
@@ -24,6 +25,8 @@ import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.analysis.variant.operations.VariantAnnotationIndexOperationTool;
 import org.opencb.opencga.analysis.variant.operations.VariantIndexOperationTool;
 import org.opencb.opencga.catalog.db.api.FileDBAdaptor;
+import org.opencb.opencga.catalog.db.mongodb.MongoDBAdaptorFactory;
+import org.opencb.opencga.catalog.exceptions.CatalogDBException;
 import org.opencb.opencga.catalog.exceptions.CatalogException;
 import org.opencb.opencga.catalog.managers.AbstractManagerTest;
 import org.opencb.opencga.catalog.managers.FileManager;
@@ -57,10 +60,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class ExecutionDaemonTest extends AbstractManagerTest {
@@ -297,6 +302,26 @@ public class ExecutionDaemonTest extends AbstractManagerTest {
         assertEquals(firstJob.getUuid(), job.getDependsOn().get(0).getUuid());
     }
 
+    @Test
+    public void testMaxConcurrentJobsPerUser() throws Exception {
+        catalogManager.getConfiguration().getAnalysis().getExecution().getOptions()
+                .put(ExecutionDaemon.MAX_CONCURRENT_JOBS_PER_USER, 1);
+        HashMap<String, Object> params = new HashMap<>();
+        String job1 = catalogManager.getJobManager().submit(studyFqn, "files-delete", Enums.Priority.MEDIUM, params, token).first().getId();
+        String job2 = catalogManager.getJobManager().submit(studyFqn, "files-delete", Enums.Priority.MEDIUM, params, token).first().getId();
+
+        daemon.checkPendingJobs();
+
+        assertEquals(Enums.ExecutionStatus.QUEUED, getJob(job1).getInternal().getStatus().getName());
+        assertEquals(Enums.ExecutionStatus.PENDING, getJob(job2).getInternal().getStatus().getName());
+
+        catalogManager.getJobManager().update(studyFqn, job1, new PrivateJobUpdateParams()
+                .setInternal(new JobInternal(new Enums.ExecutionStatus(Enums.ExecutionStatus.DONE))), QueryOptions.empty(), token);
+        daemon.checkPendingJobs();
+
+        assertEquals(Enums.ExecutionStatus.QUEUED, getJob(job2).getInternal().getStatus().getName());
+    }
+
     @Test
     public void testRunJob() throws Exception {
         HashMap<String, Object> params = new HashMap<>();
@@ -477,6 +502,108 @@ public class ExecutionDaemonTest extends AbstractManagerTest {
         assertEquals("Job could not finish successfully. Missing execution result", getJob(jobId).getInternal().getStatus().getDescription());
     }
 
+    @Test
+    public void testRunChecksWithEvents() throws Exception {
+        List<String> checks = new ArrayList<>();
+        ExecutionDaemon eventDaemon = newCheckRecorderDaemon(checks);
+        long t = 100000;
+
+        // First iteration checks all the jobs
+        assertChecks(checks, eventDaemon, t, true, Collections.singletonList("all"));
+        // Running jobs are checked every interval, even without events
+        assertChecks(checks, eventDaemon, t + 1000, true, Collections.singletonList("running"));
+        assertChecks(checks, eventDaemon, t + 1500, true, Collections.emptyList());
+
+        eventDaemon.notifyPendingJobs();
+        assertChecks(checks, eventDaemon, t + 1600, true, Collections.singletonList("pending"));
+        eventDaemon.notifyExecutorEvent();
+        assertChecks(checks, eventDaemon, t + 1700, true, Arrays.asList("queued", "running"));
+        assertChecks(checks, eventDaemon, t + 2700, true, Collections.singletonList("running"));
+
+        // Reconciliation sweep
+        int sweep = 1000 * ExecutionDaemon.RECONCILIATION_FACTOR;
+        assertChecks(checks, eventDaemon, t + 1700 + sweep, true, Collections.singletonList("all"));
+    }
+
+    @Test
+    public void testRunChecksWithoutEvents() throws Exception {
+        List<String> checks = new ArrayList<>();
+        ExecutionDaemon pollingDaemon = newCheckRecorderDaemon(checks);
+        long t = 100000;
+
+        assertChecks(checks, pollingDaemon, t, false, Collections.singletonList("all"));
+        assertChecks(checks, pollingDaemon, t + 500, false, Collections.emptyList());
+        assertChecks(checks, pollingDaemon, t + 1000, false, Collections.singletonList("all"));
+
+        // Events are still handled before the interval
+        pollingDaemon.notifyPendingJobs();
+        assertChecks(checks, pollingDaemon, t + 1100, false, Collections.singletonList("pending"));
+    }
+
+    @Test
+    public void testJobChangeStreamWatcher() throws Exception {
+        AtomicInteger events = new AtomicInteger();
+        JobChangeStreamWatcher watcher = new JobChangeStreamWatcher(
+                ((MongoDBAdaptorFactory) daemon.dbAdaptorFactory).getMongoDataStore(), events::incrementAndGet);
+        Thread thread = new Thread(watcher, "jobWatcher");
+        thread.setDaemon(true);
+        thread.start();
+        try {
+            for (int i = 0; i < 50 && (!watcher.isActive() || events.get() == 0); i++) {
+                Thread.sleep(100);
+            }
+            Assume.assumeTrue("Change streams require a replica set", watcher.isActive());
+
+            // Changes made while the watcher was starting
+            assertEquals(1, events.get());
+
+            HashMap<String, Object> params = new HashMap<>();
+            catalogManager.getJobManager().submit(studyFqn, "files-delete", Enums.Priority.MEDIUM, params, token);
+            for (int i = 0; i < 50 && events.get() == 1; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(2, events.get());
+
+            // Jobs queued by the daemon are not notified
+            daemon.checkPendingJobs();
+            Thread.sleep(1000);
+            assertEquals(2, events.get());
+        } finally {
+            watcher.close();
+        }
+        assertFalse(watcher.isActive());
+    }
+
+    private ExecutionDaemon newCheckRecorderDaemon(List<String> checks) throws CatalogDBException {
+        return new ExecutionDaemon(1000, token, catalogManager, "/tmp") {
+            @Override
+            protected void checkJobs() {
+                checks.add("all");
+            }
+
+            @Override
+            protected void checkPendingJobs() {
+                checks.add("pending");
+            }
+
+            @Override
+            protected void checkQueuedJobs() {
+                checks.add("queued");
+            }
+
+            @Override
+            protected void checkRunningJobs() {
+                checks.add("running");
+            }
+        };
+    }
+
+    private void assertChecks(List<String> checks, ExecutionDaemon daemon, long now, boolean events, List<String> expected) {
+        checks.clear();
+        daemon.runChecks(now, events, events);
+        assertEquals(expected, checks);
+    }
+
     private Job getJob(String jobId) throws CatalogException {
         return catalogManager.getJobManager().get(studyFqn, jobId, new QueryOptions(), token).first();
     }
@@ -26,8 +26,11 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class LocalExecutorTest {
     private LocalExecutor localExecutor;
@@ -62,4 +65,16 @@ public class LocalExecutorTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test(timeout = 10000)
+    public void testStatusListener() throws Exception {
+        List<String> events = new CopyOnWriteArrayList<>();
+        Assert.assertTrue(localExecutor.addStatusListener(jobId -> events.add(jobId + ":" + localExecutor.getStatus(jobId))));
+
+        localExecutor.execute("jobId", "default", "echo Hello World", rootDir.resolve("out.txt"), rootDir.resolve("err.txt"));
+        while (events.size() < 3) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(Arrays.asList("jobId:QUEUED", "jobId:RUNNING", "jobId:DONE"), events);
+    }
+}
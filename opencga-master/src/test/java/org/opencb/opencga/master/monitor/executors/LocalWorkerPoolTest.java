@@ -0,0 +1,227 @@
+package org.opencb.opencga.master.monitor.executors;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.core.models.common.Enums;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class LocalWorkerPoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private LocalWorkerPool pool;
+
+    @After
+    public void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        try (LocalWorkerPool disabledPool = new LocalWorkerPool(new ObjectMap())) {
+            assertFalse(disabledPool.isEnabled());
+            assertFalse(disabledPool.accepts("sample-index"));
+            assertFalse(disabledPool.kill("myJob"));
+        }
+    }
+
+    @Test
+    public void testRunJob() throws Exception {
+        pool = newPool(new ObjectMap(), TestWorker.class);
+        assertTrue(pool.accepts("my-tool"));
+        assertFalse(pool.accepts("other-tool"));
+
+        assertEquals(Enums.ExecutionStatus.DONE, run("job1"));
+        assertEquals("job=job1 study=study token=token", readLog("job1").get(0).split(" ", 2)[1]);
+
+        assertEquals(Enums.ExecutionStatus.ERROR, run("fail_job2"));
+    }
+
+    @Test
+    public void testRecycleWorker() throws Exception {
+        pool = newPool(new ObjectMap(LocalWorkerPool.MAX_JOBS_PER_WORKER, 2), TestWorker.class);
+
+        runInIdleWorker("job1");
+        runInIdleWorker("job2");
+        runInIdleWorker("job3");
+        assertEquals(getWorker("job1"), getWorker("job2"));
+        assertNotEquals(getWorker("job2"), getWorker("job3"));
+
+        // The worker asks to be recycled, e.g. because of the heap usage
+        runInIdleWorker("recycle_job4");
+        runInIdleWorker("job5");
+        assertEquals(getWorker("job3"), getWorker("recycle_job4"));
+        assertNotEquals(getWorker("recycle_job4"), getWorker("job5"));
+    }
+
+    @Test
+    public void testKillOnTimeout() throws Exception {
+        pool = newPool(new ObjectMap(LocalWorkerPool.JOB_TIMEOUT, 1), TestWorker.class);
+
+        awaitIdleWorker();
+        long start = System.currentTimeMillis();
+        assertEquals(Enums.ExecutionStatus.ERROR, run("sleep_job1"));
+        assertTrue(System.currentTimeMillis() - start < TestWorker.SLEEP_MILLIS);
+
+        // The killed worker is replaced
+        assertEquals(Enums.ExecutionStatus.DONE, run("job2"));
+        assertNotEquals(getWorker("sleep_job1"), getWorker("job2"));
+    }
+
+    @Test
+    public void testRejectBadHandshake() throws Exception {
+        pool = newPool(new ObjectMap(), BadSecretWorker.class);
+        try {
+            run("job1");
+            fail("Expected IOException");
+        } catch (IOException e) {
+            assertEquals("Unexpected connection to the local worker pool", e.getMessage());
+        }
+        assertFalse(Files.exists(folder.getRoot().toPath().resolve("job1.out")));
+    }
+
+    @Test
+    public void testIdleWorkersLimit() throws Exception {
+        pool = newPool(new ObjectMap(), TestWorker.class);
+
+        // More concurrent jobs than workers in the pool
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                String jobId = "job" + i;
+                futures.add(executorService.submit(() -> run(jobId)));
+            }
+            for (Future<String> future : futures) {
+                assertEquals(Enums.ExecutionStatus.DONE, future.get());
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Wait for any worker still starting
+        Thread.sleep(5000);
+        assertEquals(1, pool.getIdleWorkers());
+    }
+
+    private LocalWorkerPool newPool(ObjectMap options, Class<?> workerClass) {
+        options.put(LocalWorkerPool.SIZE, 1);
+        options.put(LocalWorkerPool.TOOLS, "my-tool");
+        return new LocalWorkerPool(options, folder.getRoot().getAbsolutePath(), workerClass.getName());
+    }
+
+    private String run(String jobId) throws IOException {
+        Path dir = folder.getRoot().toPath();
+        return pool.run(jobId, "study", "token", dir.resolve(jobId + ".out"), dir.resolve(jobId + ".err"));
+    }
+
+    /**
+     * Wait for the pool to start a worker, so the job does not need to cold start a new one.
+     */
+    private String runInIdleWorker(String jobId) throws Exception {
+        awaitIdleWorker();
+        return run(jobId);
+    }
+
+    private void awaitIdleWorker() throws InterruptedException {
+        for (int i = 0; i < 600 && pool.getIdleWorkers() == 0; i++) {
+            Thread.sleep(100);
+        }
+        assertEquals(1, pool.getIdleWorkers());
+    }
+
+    private List<String> readLog(String jobId) throws IOException {
+        return Files.readAllLines(folder.getRoot().toPath().resolve(jobId + ".out"));
+    }
+
+    private String getWorker(String jobId) throws IOException {
+        return readLog(jobId).get(0).split(" ", 2)[0];
+    }
+
+    /**
+     * Worker implementing the {@link LocalWorkerPool} protocol, without executing any tool.
+     * Writes the name of the worker JVM and the job parameters in the job stdout.
+     * Jobs starting with "fail" fail, with "recycle" recycle the worker, and with "sleep" never finish on time.
+     */
+    public static final class TestWorker {
+
+        static final long SLEEP_MILLIS = 60000;
+
+        private TestWorker() {
+        }
+
+        public static void main(String[] args) throws Exception {
+            String name = ManagementFactory.getRuntimeMXBean().getName();
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeUTF(System.getenv(LocalWorkerPool.SECRET_ENV));
+                out.flush();
+                boolean recycle = false;
+                while (!recycle) {
+                    String jobId;
+                    try {
+                        jobId = in.readUTF();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    String study = in.readUTF();
+                    String token = in.readUTF();
+                    String stdout = in.readUTF();
+                    in.readUTF();
+                    try (PrintStream jobOut = new PrintStream(new FileOutputStream(stdout, true))) {
+                        jobOut.println(name + " job=" + jobId + " study=" + study + " token=" + token);
+                    }
+                    if (jobId.startsWith("sleep")) {
+                        Thread.sleep(SLEEP_MILLIS);
+                    }
+                    recycle = jobId.startsWith("recycle");
+                    out.writeBoolean(!jobId.startsWith("fail"));
+                    out.writeBoolean(recycle);
+                    out.flush();
+                }
+            }
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Worker that does not know the secret of the pool.
+     */
+    public static final class BadSecretWorker {
+
+        private BadSecretWorker() {
+        }
+
+        public static void main(String[] args) throws Exception {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeUTF("not the secret");
+                out.flush();
+                new DataInputStream(socket.getInputStream()).readUTF();
+            } catch (IOException e) {
+                // Connection closed by the pool
+            }
+            System.exit(0);
+        }
+    }
+}
@@ -20,6 +20,7 @@ import io.swagger.annotations.*;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.opencb.commons.datastore.core.Event;
+import org.opencb.opencga.catalog.db.mongodb.StudyAuthorizationCache;
 import org.opencb.opencga.core.common.GitRepositoryState;
 import org.opencb.opencga.core.exceptions.VersionException;
 import org.opencb.opencga.core.response.OpenCGAResult;
@@ -164,6 +165,9 @@ public class MetaWSServer extends OpenCGAWSServer {
             newHealthCheckResults.put(CATALOG_MONGO_DB, NOT_OKAY);
             errorMsg.append(e.getMessage());
         }
+        StudyAuthorizationCache studyAuthorizationCache = catalogManager.getStudyAuthorizationCache();
+        newHealthCheckResults.put("CatalogAuthorizationCache",
+                "hits=" + studyAuthorizationCache.getHits() + ", misses=" + studyAuthorizationCache.getMisses());
         catalogMongoDBTime.stop();
 
         StopWatch storageTime = StopWatch.createStarted();
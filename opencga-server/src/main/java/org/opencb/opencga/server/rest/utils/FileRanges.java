@@ -0,0 +1,307 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.server.rest.utils;
+
+import javax.ws.rs.core.StreamingOutput;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Serves byte ranges of local files, following the HTTP Range protocol (RFC 7233).
+ *
+ * Ranges are streamed from the {@link FileChannel} to the response in fixed size chunks, using a bounded pool of direct
+ * buffers, so the memory used by a request does not depend on the size of the requested ranges.
+ */
+public final class FileRanges {
+
+    public static final int MAX_RANGES = 100;
+    public static final String MULTIPART_BYTERANGES = "multipart/byteranges";
+    static final int CHUNK_SIZE = 256 * 1024;
+    private static final int MAX_POOLED_BUFFERS = 32;
+    private static final BlockingQueue<ByteBuffer> BUFFER_POOL = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+    private static final String CRLF = "\r\n";
+
+    private FileRanges() {
+    }
+
+    /**
+     * Inclusive range of bytes.
+     */
+    public static final class Range {
+        private final long start;
+        private final long end;
+
+        public Range(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+
+        public String getContentRange(long size) {
+            return "bytes " + start + "-" + end + "/" + size;
+        }
+
+        @Override
+        public String toString() {
+            return start + "-" + end;
+        }
+    }
+
+    /**
+     * Parse the value of a Range header.
+     *
+     * Overlapping or adjacent ranges are merged. Ranges starting after the end of the file are discarded, and ranges
+     * ending after the end of the file are truncated.
+     *
+     * @param header Range header, e.g. "bytes=0-99,200-,-50"
+     * @param size   File size
+     * @return       Satisfiable ranges. Empty if none of the ranges is satisfiable.
+     *               Null if the header is not valid, and should be ignored.
+     */
+    public static List<Range> parse(String header, long size) {
+        if (header == null) {
+            return null;
+        }
+        int idx = header.indexOf('=');
+        if (idx < 0 || !header.substring(0, idx).trim().equalsIgnoreCase("bytes")) {
+            return null;
+        }
+        List<Range> ranges = new ArrayList<>();
+        try {
+            for (String spec : header.substring(idx + 1).split(",")) {
+                spec = spec.trim();
+                int dash = spec.indexOf('-');
+                if (dash < 0) {
+                    return null;
+                }
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // Suffix range. Last N bytes
+                    long suffixLength = Long.parseLong(last);
+                    if (suffixLength > 0 && size > 0) {
+                        ranges.add(new Range(Math.max(0, size - suffixLength), size - 1));
+                    }
+                } else {
+                    long start = Long.parseLong(first);
+                    long end = last.isEmpty() ? size - 1 : Long.parseLong(last);
+                    if (start < 0 || end < start) {
+                        return null;
+                    }
+                    if (start < size) {
+                        ranges.add(new Range(start, Math.min(end, size - 1)));
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        ranges = merge(ranges);
+        if (ranges.size() > MAX_RANGES) {
+            // Too many ranges. Considered as not satisfiable.
+            return new ArrayList<>();
+        }
+        return ranges;
+    }
+
+    /**
+     * Build a strong entity tag from the size and the modification time of the file.
+     *
+     * @param path File
+     * @return     Quoted entity tag
+     * @throws IOException if the file can not be read
+     */
+    public static String etag(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        return "\"" + Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+    }
+
+    /**
+     * Check if any of the values of an If-None-Match header matches the entity tag.
+     *
+     * @param ifNoneMatch Values of the If-None-Match header. Can be null
+     * @param etag        Current entity tag
+     * @return            If the client already has the current version
+     */
+    public static boolean matches(List<String> ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String value : ifNoneMatch) {
+            for (String tag : value.split(",")) {
+                tag = tag.trim();
+                // Weak comparison
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stream a single range.
+     *
+     * @param path  File
+     * @param range Range
+     * @return      StreamingOutput
+     */
+    public static StreamingOutput stream(Path path, Range range) {
+        return os -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                transfer(channel, range, Channels.newChannel(os));
+            }
+            os.flush();
+        };
+    }
+
+    /**
+     * Stream multiple ranges as a "multipart/byteranges" body.
+     *
+     * @param path        File
+     * @param ranges      Ranges
+     * @param size        File size
+     * @param boundary    Multipart boundary
+     * @param contentType Content type of each part
+     * @return            StreamingOutput
+     */
+    public static StreamingOutput stream(Path path, List<Range> ranges, long size, String boundary, String contentType) {
+        return os -> {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                WritableByteChannel target = Channels.newChannel(os);
+                for (Range range : ranges) {
+                    os.write(partHeader(range, size, boundary, contentType));
+                    transfer(channel, range, target);
+                }
+                os.write(closeDelimiter(boundary));
+            }
+            os.flush();
+        };
+    }
+
+    /**
+     * Length of the "multipart/byteranges" body built by {@link #stream(Path, List, long, String, String)}.
+     *
+     * @param ranges      Ranges
+     * @param size        File size
+     * @param boundary    Multipart boundary
+     * @param contentType Content type of each part
+     * @return            Content length
+     */
+    public static long multipartLength(List<Range> ranges, long size, String boundary, String contentType) {
+        long length = closeDelimiter(boundary).length;
+        for (Range range : ranges) {
+            length += partHeader(range, size, boundary, contentType).length + range.getLength();
+        }
+        return length;
+    }
+
+    static void transfer(FileChannel channel, Range range, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = acquireBuffer();
+        try {
+            long position = range.getStart();
+            long remaining = range.getLength();
+            while (remaining > 0) {
+                buffer.clear();
+                if (remaining < buffer.capacity()) {
+                    buffer.limit((int) remaining);
+                }
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new EOFException("Unexpected end of file at position " + position);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                position += read;
+                remaining -= read;
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private static List<Range> merge(List<Range> ranges) {
+        if (ranges.size() < 2) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(Range::getStart));
+        List<Range> merged = new ArrayList<>(ranges.size());
+        Range current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            if (range.getStart() <= current.getEnd() + 1) {
+                current = new Range(current.getStart(), Math.max(current.getEnd(), range.getEnd()));
+            } else {
+                merged.add(current);
+                current = range;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+
+    private static byte[] partHeader(Range range, long size, String boundary, String contentType) {
+        return (CRLF + "--" + boundary + CRLF
+                + "Content-Type: " + contentType + CRLF
+                + "Content-Range: " + range.getContentRange(size) + CRLF
+                + CRLF).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] closeDelimiter(String boundary) {
+        return (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer buffer = BUFFER_POOL.poll();
+        return buffer == null ? ByteBuffer.allocateDirect(CHUNK_SIZE) : buffer;
+    }
+
+    private static void releaseBuffer(ByteBuffer buffer) {
+        // Discarded if the pool is full
+        BUFFER_POOL.offer(buffer);
+    }
+}
@@ -18,7 +18,6 @@ package org.opencb.opencga.server.rest.utils;
 
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
-import org.apache.commons.lang3.time.StopWatch;
 import org.opencb.commons.datastore.core.DataResult;
 import org.opencb.opencga.core.api.ParamConstants;
 import org.opencb.opencga.core.exceptions.VersionException;
@@ -30,12 +29,10 @@ import javax.ws.rs.*;
 import javax.ws.rs.core.*;
 import java.io.DataInputStream;
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 import java.util.List;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Path("/{apiVersion}/utils")
 @Produces("application/json")
@@ -59,45 +56,53 @@ public class FileRangesWSServer extends OpenCGAWSServer {
             DataResult<File> queryResult = catalogManager.getFileManager().get(studyStr, fileIdStr, this.queryOptions, token);
             File file = queryResult.getResults().get(0);
 
-            List<String> rangeList = headers.getRequestHeader("range");
-            if (rangeList != null) {
-                long from;
-                long to;
-                String[] acceptedRanges = rangeList.get(0).split("=")[1].split("-");
-                from = Long.parseLong(acceptedRanges[0]);
-                to = Long.parseLong(acceptedRanges[1]);
-                int length = (int) (to - from) + 1;
-                ByteBuffer buf = ByteBuffer.allocate(length);
-
-                logger.debug("from: {} , to: {}, length:{}", from, to, length);
-                StopWatch t = StopWatch.createStarted();
-
-                java.nio.file.Path filePath = Paths.get(file.getUri());
-                try (FileChannel fc = (FileChannel.open(filePath, StandardOpenOption.READ))) {
-                    fc.position(from);
-                    fc.read(buf);
-                }
-
-                t.stop();
-                logger.debug("Skip {}B and read {}B in {}s", from, length, t.getTime(TimeUnit.MILLISECONDS) / 1000.0);
+            java.nio.file.Path filePath = Paths.get(file.getUri());
+            long size = Files.size(filePath);
+            String etag = FileRanges.etag(filePath);
+            if (FileRanges.matches(headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+                // Unchanged file. The client can reuse the cached content
+                return rangeHeaders(Response.status(Response.Status.NOT_MODIFIED), etag).build();
+            }
 
-                return Response.ok(buf.array(), MediaType.APPLICATION_OCTET_STREAM_TYPE)
-                        .header("Accept-Ranges", "bytes")
-                        .header("Access-Control-Allow-Origin", "*")
-                        .header("Access-Control-Allow-Headers", "x-requested-with, content-type, range")
-                        .header("Access-Control-Allow-Credentials", "true")
-                        .header("Access-Control-Allow-Methods", "GET, POST, OPTIONS")
-                        .header("Content-Range", "bytes " + from + "-" + to + "/" + file.getSize())
-                        .header("Content-length", to - from + 1)
+            List<FileRanges.Range> ranges = FileRanges.parse(headers.getHeaderString("range"), size);
+            if (ranges == null) {
+                DataInputStream stream = catalogManager.getFileManager().download(studyStr, fileIdStr, -1, -1, token);
+                Response response = createOkResponse(stream, MediaType.APPLICATION_OCTET_STREAM_TYPE, file.getName());
+                return rangeHeaders(Response.fromResponse(response), etag).build();
+            } else if (ranges.isEmpty()) {
+                return rangeHeaders(Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE), etag)
+                        .header("Content-Range", "bytes */" + size)
+                        .build();
+            } else if (ranges.size() == 1) {
+                FileRanges.Range range = ranges.get(0);
+                logger.debug("Read {}B from position {}", range.getLength(), range.getStart());
+                return rangeHeaders(Response.ok(FileRanges.stream(filePath, range), MediaType.APPLICATION_OCTET_STREAM_TYPE), etag)
+                        .header("Content-Range", range.getContentRange(size))
+                        .header("Content-length", range.getLength())
                         .status(Response.Status.PARTIAL_CONTENT).build();
-
             } else {
-                DataInputStream stream = catalogManager.getFileManager().download(studyStr, fileIdStr, -1, -1, token);
-                return createOkResponse(stream, MediaType.APPLICATION_OCTET_STREAM_TYPE, file.getName());
+                String boundary = "opencga-" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+                String contentType = MediaType.APPLICATION_OCTET_STREAM;
+                logger.debug("Read {} ranges: {}", ranges.size(), ranges);
+                return rangeHeaders(Response.ok(FileRanges.stream(filePath, ranges, size, boundary, contentType),
+                        FileRanges.MULTIPART_BYTERANGES + "; boundary=" + boundary), etag)
+                        .header("Content-length", FileRanges.multipartLength(ranges, size, boundary, contentType))
+                        .status(Response.Status.PARTIAL_CONTENT).build();
             }
         } catch (Exception e) {
             return createErrorResponse(e);
         }
     }
 
+    private static Response.ResponseBuilder rangeHeaders(Response.ResponseBuilder builder, String etag) {
+        return builder
+                .header("Accept-Ranges", "bytes")
+                .header(HttpHeaders.ETAG, etag)
+                .header("Access-Control-Allow-Origin", "*")
+                .header("Access-Control-Allow-Headers", "x-requested-with, content-type, range, if-none-match")
+                .header("Access-Control-Expose-Headers", "accept-ranges, content-range, content-length, etag")
+                .header("Access-Control-Allow-Credentials", "true")
+                .header("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
+    }
+
 }
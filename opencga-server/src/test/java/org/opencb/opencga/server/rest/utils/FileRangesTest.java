@@ -0,0 +1,112 @@
+package org.opencb.opencga.server.rest.utils;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FileRangesTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path path;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws Exception {
+        // Bigger than a chunk, to read each range in multiple steps
+        content = new byte[FileRanges.CHUNK_SIZE * 2 + 123];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) i;
+        }
+        path = temporaryFolder.newFile("file.bin").toPath();
+        Files.write(path, content);
+    }
+
+    @Test
+    public void testParse() {
+        long size = 1000;
+        assertRanges("0-99", FileRanges.parse("bytes=0-99", size));
+        assertRanges("900-999", FileRanges.parse("bytes=900-", size));
+        assertRanges("950-999", FileRanges.parse("bytes=-50", size));
+        assertRanges("0-999", FileRanges.parse("bytes=-5000", size));
+        assertRanges("990-999", FileRanges.parse("bytes=990-5000", size));
+        // Large offsets
+        assertRanges("3000000000-3000000099", FileRanges.parse("bytes=3000000000-3000000099", 5000000000L));
+
+        // Sorted and merged
+        assertRanges("0-199,500-599", FileRanges.parse("bytes=500-599, 100-199, 0-99", size));
+        assertRanges("0-149", FileRanges.parse("bytes=0-99,50-149", size));
+
+        // Not satisfiable
+        assertEquals(Collections.emptyList(), FileRanges.parse("bytes=1000-1099", size));
+        assertEquals(Collections.emptyList(), FileRanges.parse("bytes=-0", size));
+
+        // Invalid. To be ignored
+        assertNull(FileRanges.parse(null, size));
+        assertNull(FileRanges.parse("items=0-10", size));
+        assertNull(FileRanges.parse("bytes=10-5", size));
+        assertNull(FileRanges.parse("bytes=a-5", size));
+        assertNull(FileRanges.parse("bytes=10", size));
+    }
+
+    @Test
+    public void testStreamSingleRange() throws Exception {
+        FileRanges.Range range = new FileRanges.Range(10, content.length - 1);
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        FileRanges.stream(path, range).write(os);
+
+        assertArrayEquals(Arrays.copyOfRange(content, 10, content.length), os.toByteArray());
+    }
+
+    @Test
+    public void testStreamMultipleRanges() throws Exception {
+        List<FileRanges.Range> ranges = FileRanges.parse("bytes=0-9,-5", content.length);
+        String boundary = "BOUNDARY";
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        FileRanges.stream(path, ranges, content.length, boundary, "application/octet-stream").write(os);
+
+        byte[] body = os.toByteArray();
+        assertEquals(FileRanges.multipartLength(ranges, content.length, boundary, "application/octet-stream"), body.length);
+        String bodyStr = new String(body, StandardCharsets.ISO_8859_1);
+        assertTrue(bodyStr.contains("Content-Range: bytes 0-9/" + content.length));
+        assertTrue(bodyStr.contains("Content-Range: bytes " + (content.length - 5) + "-" + (content.length - 1) + "/" + content.length));
+        assertTrue(bodyStr.endsWith("\r\n--" + boundary + "--\r\n"));
+    }
+
+    @Test
+    public void testEtag() throws Exception {
+        String etag = FileRanges.etag(path);
+        assertTrue(FileRanges.matches(Collections.singletonList(etag), etag));
+        assertTrue(FileRanges.matches(Collections.singletonList("\"other\", W/" + etag), etag));
+        assertTrue(FileRanges.matches(Collections.singletonList("*"), etag));
+        assertFalse(FileRanges.matches(Collections.singletonList("\"other\""), etag));
+        assertFalse(FileRanges.matches(null, etag));
+
+        Files.write(path, new byte[10]);
+        assertNotEquals(etag, FileRanges.etag(path));
+    }
+
+    private void assertRanges(String expected, List<FileRanges.Range> ranges) {
+        assertNotNull(ranges);
+        StringBuilder sb = new StringBuilder();
+        for (FileRanges.Range range : ranges) {
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(range);
+        }
+        assertEquals(expected, sb.toString());
+    }
+}
@@ -0,0 +1,47 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAnnotation;
+import org.opencb.opencga.storage.hadoop.variant.index.annotation.AnnotationIndexConverter;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of variant annotations into annotation index entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotationIndexConverterBenchmark {
+
+    @Param({"1000"})
+    private int numVariants;
+
+    private AnnotationIndexConverter converter;
+    private List<VariantAnnotation> annotations;
+
+    @Setup
+    public void setup() {
+        converter = new AnnotationIndexConverter(SampleIndexSchema.defaultSampleIndexSchema());
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        annotations = new ArrayList<>(numVariants);
+        for (Variant variant : generator.variants("1", 1, 100_000_000, numVariants)) {
+            annotations.add(generator.annotation(variant));
+        }
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        for (VariantAnnotation annotation : annotations) {
+            blackhole.consume(converter.convert(annotation));
+        }
+    }
+}
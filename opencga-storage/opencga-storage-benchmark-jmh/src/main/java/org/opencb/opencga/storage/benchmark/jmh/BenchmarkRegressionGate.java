@@ -0,0 +1,130 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Runs the benchmarks and compares the results with a baseline, failing if any benchmark regressed more than the allowed
+ * ratio. Scores are only comparable between executions on the same machine, so the baseline is usually generated by running
+ * the gate on the target branch before running it on the change under test.
+ *
+ * Usage:
+ *   java -cp target/benchmarks.jar org.opencb.opencga.storage.benchmark.jmh.BenchmarkRegressionGate BASELINE [MAX_REGRESSION] [REGEX]
+ *
+ * If the BASELINE file does not exist, it is created with the results of this execution. Otherwise, the results are written
+ * next to it, with the ".current" suffix. MAX_REGRESSION defaults to 0.2 (20% slower). REGEX selects the benchmarks to run.
+ */
+public final class BenchmarkRegressionGate {
+
+    public static final double DEFAULT_MAX_REGRESSION = 0.2;
+
+    private static Logger logger = LoggerFactory.getLogger(BenchmarkRegressionGate.class);
+
+    private BenchmarkRegressionGate() {
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+        if (args.length < 1) {
+            logger.error("Usage: " + BenchmarkRegressionGate.class.getName() + " BASELINE [MAX_REGRESSION] [REGEX]");
+            System.exit(2);
+        }
+        Path baselineFile = Paths.get(args[0]);
+        double maxRegression = args.length > 1 ? Double.parseDouble(args[1]) : DEFAULT_MAX_REGRESSION;
+        String regex = args.length > 2 ? args[2] : BenchmarkRegressionGate.class.getPackage().getName() + ".*";
+
+        Collection<RunResult> runResults = new Runner(new OptionsBuilder()
+                .include(regex)
+                .build()).run();
+
+        Properties current = new Properties();
+        Map<String, Mode> modes = new HashMap<>();
+        for (RunResult runResult : runResults) {
+            String key = getKey(runResult.getParams());
+            current.setProperty(key, String.valueOf(runResult.getPrimaryResult().getScore()));
+            modes.put(key, runResult.getParams().getMode());
+        }
+
+        if (Files.notExists(baselineFile)) {
+            write(current, baselineFile);
+            logger.info("Baseline not found. Written results to " + baselineFile);
+            return;
+        }
+        write(current, Paths.get(baselineFile.toString() + ".current"));
+
+        Properties baseline = new Properties();
+        try (InputStream is = Files.newInputStream(baselineFile)) {
+            baseline.load(is);
+        }
+
+        List<String> regressions = compare(baseline, current, modes, maxRegression);
+        if (regressions.isEmpty()) {
+            logger.info("No regressions found over " + (int) (maxRegression * 100) + "% in " + current.size() + " benchmarks");
+        } else {
+            for (String regression : regressions) {
+                logger.error(regression);
+            }
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Compare the current scores with the baseline.
+     *
+     * @param baseline      Baseline scores
+     * @param current       Current scores
+     * @param modes         Benchmark mode of each score. Throughput is better when higher, any other mode when lower.
+     * @param maxRegression Max allowed regression ratio
+     * @return              Description of every regression found
+     */
+    static List<String> compare(Properties baseline, Properties current, Map<String, Mode> modes, double maxRegression) {
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(current.stringPropertyNames())) {
+            String baselineValue = baseline.getProperty(key);
+            if (baselineValue == null) {
+                // New benchmark
+                continue;
+            }
+            double expected = Double.parseDouble(baselineValue);
+            double actual = Double.parseDouble(current.getProperty(key));
+            double regression;
+            if (modes.get(key) == Mode.Throughput) {
+                regression = (expected - actual) / expected;
+            } else {
+                regression = (actual - expected) / expected;
+            }
+            if (regression > maxRegression) {
+                regressions.add(String.format("Regression of %.1f%% in %s. Baseline: %.4f, current: %.4f",
+                        regression * 100, key, expected, actual));
+            }
+        }
+        return regressions;
+    }
+
+    private static String getKey(BenchmarkParams params) {
+        StringBuilder sb = new StringBuilder(params.getBenchmark());
+        for (String param : new TreeSet<>(params.getParamsKeys())) {
+            sb.append('[').append(param).append('=').append(params.getParam(param)).append(']');
+        }
+        return sb.toString();
+    }
+
+    private static void write(Properties properties, Path file) throws IOException {
+        try (OutputStream os = Files.newOutputStream(file)) {
+            properties.store(os, "JMH scores");
+        }
+    }
+}
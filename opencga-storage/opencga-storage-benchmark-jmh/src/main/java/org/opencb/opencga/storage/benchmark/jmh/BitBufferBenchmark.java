@@ -0,0 +1,65 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.opencga.storage.core.io.bit.BitBuffer;
+import org.opencb.opencga.storage.core.io.bit.BitInputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the partial read and write of values in a {@link BitBuffer}, used by all the sample index entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitBufferBenchmark {
+
+    @Param({"10000"})
+    private int numValues;
+
+    @Param({"3", "7", "12"})
+    private int bitLength;
+
+    private int[] values;
+    private BitBuffer bitBuffer;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(SyntheticVariantGenerator.DEFAULT_SEED);
+        values = new int[numValues];
+        bitBuffer = new BitBuffer(numValues * bitLength);
+        for (int i = 0; i < numValues; i++) {
+            values[i] = random.nextInt(1 << bitLength);
+            bitBuffer.setIntPartial(values[i], i * bitLength, bitLength);
+        }
+    }
+
+    @Benchmark
+    public BitBuffer write() {
+        BitBuffer buffer = new BitBuffer(numValues * bitLength);
+        for (int i = 0; i < numValues; i++) {
+            buffer.setIntPartial(values[i], i * bitLength, bitLength);
+        }
+        return buffer;
+    }
+
+    @Benchmark
+    public void read(Blackhole blackhole) {
+        for (int i = 0; i < numValues; i++) {
+            blackhole.consume(bitBuffer.getIntPartial(i * bitLength, bitLength));
+        }
+    }
+
+    @Benchmark
+    public void readStream(Blackhole blackhole) {
+        BitInputStream stream = new BitInputStream(bitBuffer);
+        for (int i = 0; i < numValues; i++) {
+            blackhole.consume(stream.readIntPartial(bitLength));
+        }
+    }
+}
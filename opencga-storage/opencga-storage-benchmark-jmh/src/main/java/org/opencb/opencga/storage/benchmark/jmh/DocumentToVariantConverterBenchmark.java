@@ -0,0 +1,102 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.bson.Document;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.query.projection.VariantQueryProjection;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToSamplesConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantStatsConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter.*;
+
+/**
+ * Measures the conversion of MongoDB variant documents, including the genotypes of all the samples, into variants.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DocumentToVariantConverterBenchmark {
+
+    private static final String DEFAULT_GENOTYPE = "0/0";
+
+    @Param({"1000"})
+    private int numVariants;
+
+    @Param({"10", "500"})
+    private int numSamples;
+
+    private DocumentToVariantConverter converter;
+    private List<Document> documents;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws StorageEngineException {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager =
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = metadataManager.createStudy("study").getId();
+        metadataManager.updateStudyMetadata(studyId, studyMetadata -> {
+            studyMetadata.getAttributes().put(MongoDBVariantStorageOptions.DEFAULT_GENOTYPE.key(), DEFAULT_GENOTYPE);
+            return studyMetadata;
+        });
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        List<String> samples = generator.sampleNames(numSamples);
+        int fileId = metadataManager.registerFile(studyId, "file1", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+        List<Integer> sampleIds = new ArrayList<>(numSamples);
+        for (String sample : samples) {
+            sampleIds.add(metadataManager.getSampleId(studyId, sample));
+        }
+
+        StudyMetadata studyMetadata = metadataManager.getStudyMetadata(studyId);
+        converter = new DocumentToVariantConverter(
+                new DocumentToStudyVariantEntryConverter(true,
+                        new DocumentToSamplesConverter(metadataManager,
+                                new VariantQueryProjection(studyMetadata, sampleIds, Collections.singletonList(fileId)))),
+                new DocumentToVariantStatsConverter());
+
+        // Build the documents as stored by the MongoDB loader, with the samples grouped by genotype
+        DocumentToVariantConverter variantConverter = new DocumentToVariantConverter();
+        documents = new ArrayList<>(numVariants);
+        for (Variant variant : generator.variants("1", 1, 100_000_000, numVariants)) {
+            Document document = variantConverter.convertToStorageType(variant);
+            Document genotypes = new Document();
+            for (Integer sampleId : sampleIds) {
+                String gt = generator.genotype();
+                if (!gt.equals(DEFAULT_GENOTYPE)) {
+                    genotypes.computeIfAbsent(gt, k -> new ArrayList<Integer>());
+                    ((List<Integer>) genotypes.get(gt)).add(sampleId);
+                }
+            }
+            Document file = new Document(FILEID_FIELD, fileId)
+                    .append(ATTRIBUTES_FIELD, new Document("QUAL", "100").append("FILTER", "PASS"))
+                    .append(SAMPLE_DATA_FIELD, new Document());
+            Document study = new Document(STUDYID_FIELD, studyId)
+                    .append(FILES_FIELD, Collections.singletonList(file))
+                    .append(GENOTYPES_FIELD, genotypes);
+            document.append(DocumentToVariantConverter.STUDIES_FIELD, Collections.singletonList(study));
+            documents.add(document);
+        }
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        for (Document document : documents) {
+            blackhole.consume(converter.convertToDataModelType(document));
+        }
+    }
+}
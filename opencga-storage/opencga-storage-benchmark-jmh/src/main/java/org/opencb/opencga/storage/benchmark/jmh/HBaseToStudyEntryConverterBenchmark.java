@@ -0,0 +1,128 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.hadoop.variant.converters.HBaseVariantConverterConfiguration;
+import org.opencb.opencga.storage.hadoop.variant.converters.VariantRow;
+import org.opencb.opencga.storage.hadoop.variant.converters.study.HBaseToStudyEntryConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion of the sample columns of the HBase variants table into study entries, including the samples
+ * missing in each variant.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HBaseToStudyEntryConverterBenchmark {
+
+    private static final String REF_GENOTYPE = "0/0";
+
+    @Param({"1000"})
+    private int numVariants;
+
+    @Param({"10", "500"})
+    private int numSamples;
+
+    private HBaseToStudyEntryConverter converter;
+    private int studyId;
+    private List<Variant> variants;
+    private List<List<VariantRow.SampleColumn>> sampleColumns;
+
+    @Setup
+    public void setup() throws StorageEngineException {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager =
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        studyId = metadataManager.createStudy("study").getId();
+        metadataManager.updateStudyMetadata(studyId, studyMetadata -> {
+            studyMetadata.getAttributes().put(VariantStorageOptions.MERGE_MODE.key(), VariantStorageEngine.MergeMode.BASIC);
+            return studyMetadata;
+        });
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        List<String> samples = generator.sampleNames(numSamples);
+        int fileId = metadataManager.registerFile(studyId, "file1", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+        List<Integer> sampleIds = new ArrayList<>(numSamples);
+        for (String sample : samples) {
+            sampleIds.add(metadataManager.getSampleId(studyId, sample));
+        }
+
+        converter = new HBaseToStudyEntryConverter(metadataManager, null)
+                .configure(HBaseVariantConverterConfiguration.builder().build());
+
+        // As stored by the loader, only samples with a non reference genotype have a column
+        variants = generator.variants("1", 1, 100_000_000, numVariants);
+        sampleColumns = new ArrayList<>(numVariants);
+        for (int i = 0; i < numVariants; i++) {
+            List<VariantRow.SampleColumn> columns = new ArrayList<>();
+            for (Integer sampleId : sampleIds) {
+                String gt = generator.genotype();
+                if (!gt.equals(REF_GENOTYPE)) {
+                    columns.add(new ListSampleColumn(studyId, sampleId, Arrays.asList(gt, "PASS")));
+                }
+            }
+            sampleColumns.add(columns);
+        }
+    }
+
+    @Benchmark
+    public void convert(Blackhole blackhole) {
+        for (int i = 0; i < numVariants; i++) {
+            blackhole.consume(converter.convert(sampleColumns.get(i), Collections.emptyList(), variants.get(i), studyId));
+        }
+    }
+
+    private static final class ListSampleColumn implements VariantRow.SampleColumn {
+        private final int studyId;
+        private final int sampleId;
+        private final List<String> sampleData;
+
+        private ListSampleColumn(int studyId, int sampleId, List<String> sampleData) {
+            this.studyId = studyId;
+            this.sampleId = sampleId;
+            this.sampleData = sampleData;
+        }
+
+        @Override
+        public int getStudyId() {
+            return studyId;
+        }
+
+        @Override
+        public int getSampleId() {
+            return sampleId;
+        }
+
+        @Override
+        public Integer getFileId() {
+            return null;
+        }
+
+        @Override
+        public List<String> getSampleData() {
+            return sampleData;
+        }
+
+        @Override
+        public List<String> getMutableSampleData() {
+            return new ArrayList<>(sampleData);
+        }
+
+        @Override
+        public String getSampleData(int idx) {
+            return sampleData.get(idx);
+        }
+    }
+}
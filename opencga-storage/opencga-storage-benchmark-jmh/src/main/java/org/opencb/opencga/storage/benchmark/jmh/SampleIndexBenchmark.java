@@ -0,0 +1,75 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexEntry;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexEntryIterator;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexVariantBiConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the encoding and decoding of the variants list of a sample index entry.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SampleIndexBenchmark {
+
+    private static final String CHROMOSOME = "1";
+    private static final String GT = "0/1";
+
+    @Param({"100", "5000"})
+    private int numVariants;
+
+    private SampleIndexVariantBiConverter converter;
+    private List<Variant> variants;
+    private byte[] bytes;
+    private SampleIndexEntry.SampleIndexGtEntry gtEntry;
+
+    @Setup
+    public void setup() {
+        converter = new SampleIndexVariantBiConverter(SampleIndexSchema.defaultSampleIndexSchema());
+        // All variants within the same batch
+        variants = new SyntheticVariantGenerator().variants(CHROMOSOME, 1, SampleIndexSchema.BATCH_SIZE, numVariants);
+        bytes = converter.toBytes(variants);
+        gtEntry = new SampleIndexEntry(0, CHROMOSOME, 0).getGtEntry(GT);
+        gtEntry.setVariants(bytes, 0, bytes.length);
+        gtEntry.setCount(numVariants);
+    }
+
+    @Benchmark
+    public byte[] encode() {
+        return converter.toBytes(variants);
+    }
+
+    @Benchmark
+    public List<Variant> decode() {
+        return converter.toVariants(CHROMOSOME, 0, bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public void iterate(Blackhole blackhole) {
+        SampleIndexEntryIterator iterator = converter.toVariantsIterator(gtEntry);
+        while (iterator.hasNext()) {
+            blackhole.consume(iterator.next());
+        }
+    }
+
+    @Benchmark
+    public int count() {
+        SampleIndexEntryIterator iterator = converter.toVariantsCountIterator(gtEntry);
+        int count = 0;
+        while (iterator.hasNext()) {
+            iterator.skip();
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,166 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.*;
+
+import java.util.*;
+
+/**
+ * Generates reproducible synthetic variants, sample data and annotations for the benchmarks.
+ *
+ * All the values are derived from a seeded {@link Random}, so two generators with the same seed produce the same data,
+ * allowing to compare benchmark results between executions without any external dataset.
+ */
+public class SyntheticVariantGenerator {
+
+    public static final long DEFAULT_SEED = 42;
+
+    private static final String[] BASES = {"A", "C", "G", "T"};
+    // Most of the genotypes in a real study are reference or missing
+    private static final String[] GENOTYPES = {"0/0", "0/0", "0/0", "0/0", "0/0", "0/1", "0/1", "1/1", "./.", "0|1"};
+    private static final String[] BIOTYPES = {"protein_coding", "protein_coding", "lincRNA", "miRNA", "processed_pseudogene",
+            "nonsense_mediated_decay", };
+    private static final String[] SO_TERMS = {"missense_variant", "synonymous_variant", "intron_variant", "stop_gained",
+            "upstream_gene_variant", "3_prime_UTR_variant", "splice_region_variant", "frameshift_variant", "intergenic_variant", };
+    private static final String[] POPULATION_STUDIES = {"GNOMAD_GENOMES", "GNOMAD_EXOMES", "1kG_phase3", };
+
+    private final Random random;
+
+    public SyntheticVariantGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public SyntheticVariantGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    public List<String> sampleNames(int numSamples) {
+        List<String> samples = new ArrayList<>(numSamples);
+        for (int i = 0; i < numSamples; i++) {
+            samples.add("S" + i);
+        }
+        return samples;
+    }
+
+    /**
+     * Generate a sorted list of variants, without studies. Around 90% of them are SNVs.
+     *
+     * @param chromosome  Chromosome
+     * @param start       Min start position
+     * @param end         Max start position
+     * @param numVariants Number of variants
+     * @return List of variants
+     */
+    public List<Variant> variants(String chromosome, int start, int end, int numVariants) {
+        int[] positions = new int[numVariants];
+        for (int i = 0; i < numVariants; i++) {
+            positions[i] = start + random.nextInt(end - start);
+        }
+        Arrays.sort(positions);
+        List<Variant> variants = new ArrayList<>(numVariants);
+        for (int position : positions) {
+            variants.add(variant(chromosome, position));
+        }
+        return variants;
+    }
+
+    public Variant variant(String chromosome, int position) {
+        String reference = base();
+        String alternate;
+        if (random.nextInt(10) == 0) {
+            // Insertion
+            alternate = reference + base() + base();
+        } else {
+            alternate = base();
+            while (alternate.equals(reference)) {
+                alternate = base();
+            }
+        }
+        Variant variant = new Variant(chromosome, position, position + reference.length() - 1, reference, alternate);
+        variant.setId("rs" + random.nextInt(100000000));
+        return variant;
+    }
+
+    /**
+     * Generate variants with one study and sample data (GT and DP) for all the given samples.
+     *
+     * @param studyId     Study id
+     * @param fileId      File id
+     * @param chromosome  Chromosome
+     * @param numVariants Number of variants
+     * @param samples     Sample names
+     * @return List of variants
+     */
+    public List<Variant> variantsWithSamples(String studyId, String fileId, String chromosome, int numVariants, List<String> samples) {
+        List<Variant> variants = variants(chromosome, 1, 100_000_000, numVariants);
+        for (Variant variant : variants) {
+            StudyEntry studyEntry = new StudyEntry(studyId, Collections.emptyList(), Arrays.asList("GT", "DP"));
+            Map<String, String> fileData = new HashMap<>();
+            fileData.put(StudyEntry.QUAL, String.valueOf(random.nextInt(1000)));
+            fileData.put(StudyEntry.FILTER, "PASS");
+            studyEntry.setFiles(Collections.singletonList(new FileEntry(fileId, null, fileData)));
+            for (String sample : samples) {
+                studyEntry.addSampleData(sample, Arrays.asList(genotype(), String.valueOf(random.nextInt(60))));
+            }
+            variant.addStudyEntry(studyEntry);
+        }
+        return variants;
+    }
+
+    public String genotype() {
+        return GENOTYPES[random.nextInt(GENOTYPES.length)];
+    }
+
+    /**
+     * Generate a variant annotation with a few consequence types and population frequencies.
+     *
+     * @param variant Variant
+     * @return Variant annotation
+     */
+    public VariantAnnotation annotation(Variant variant) {
+        VariantAnnotation annotation = new VariantAnnotation();
+        annotation.setChromosome(variant.getChromosome());
+        annotation.setStart(variant.getStart());
+        annotation.setEnd(variant.getEnd());
+        annotation.setReference(variant.getReference());
+        annotation.setAlternate(variant.getAlternate());
+        annotation.setId(variant.getId());
+
+        int numCts = 1 + random.nextInt(4);
+        List<ConsequenceType> cts = new ArrayList<>(numCts);
+        for (int i = 0; i < numCts; i++) {
+            ConsequenceType ct = new ConsequenceType();
+            int gene = random.nextInt(20000);
+            ct.setGeneName("GENE" + gene);
+            ct.setEnsemblGeneId("ENSG" + gene);
+            ct.setEnsemblTranscriptId("ENST" + random.nextInt(200000));
+            ct.setBiotype(BIOTYPES[random.nextInt(BIOTYPES.length)]);
+            String so = SO_TERMS[random.nextInt(SO_TERMS.length)];
+            ct.setSequenceOntologyTerms(Collections.singletonList(new SequenceOntologyTerm("SO:" + so.hashCode(), so)));
+            ct.setExonOverlap(Collections.emptyList());
+            ct.setTranscriptAnnotationFlags(Collections.emptyList());
+            cts.add(ct);
+        }
+        annotation.setConsequenceTypes(cts);
+
+        List<PopulationFrequency> frequencies = new ArrayList<>(POPULATION_STUDIES.length);
+        for (String study : POPULATION_STUDIES) {
+            float altFreq = random.nextFloat() * random.nextFloat();
+            PopulationFrequency frequency = new PopulationFrequency();
+            frequency.setStudy(study);
+            frequency.setPopulation(StudyEntry.DEFAULT_COHORT);
+            frequency.setRefAllele(variant.getReference());
+            frequency.setAltAllele(variant.getAlternate());
+            frequency.setRefAlleleFreq(1 - altFreq);
+            frequency.setAltAlleleFreq(altFreq);
+            frequencies.add(frequency);
+        }
+        annotation.setPopulationFrequencies(frequencies);
+        return annotation;
+    }
+
+    private String base() {
+        return BASES[random.nextInt(BASES.length)];
+    }
+}
@@ -0,0 +1,79 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the string and the compact binary ids of the MongoDB variants collection.
+ * The average encoded size of the "_id" is logged on setup, as it drives the size of the "_id" index.
+ *
+ * The actual index size and the merge throughput depend on the MongoDB server, so they are not measured here.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantIdConverterBenchmark {
+
+    @Param({"1000"})
+    private int numVariants;
+
+    @Param({"false", "true"})
+    private boolean compactIds;
+
+    // Document length, type, "_id" field name and document terminator
+    private static final int ID_DOCUMENT_OVERHEAD = 4 + 1 + 4 + 1;
+    private static Logger logger = LoggerFactory.getLogger(VariantIdConverterBenchmark.class);
+
+    private final DocumentCodec codec = new DocumentCodec();
+    private DocumentToVariantConverter converter;
+    private List<Variant> variants;
+    private List<Object> ids;
+
+    @Setup
+    public void setup() {
+        converter = new DocumentToVariantConverter().setCompactIds(compactIds);
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        variants = new ArrayList<>(numVariants);
+        for (String chromosome : new String[]{"1", "10", "X"}) {
+            variants.addAll(generator.variants(chromosome, 1, 100_000_000, numVariants / 3));
+        }
+        ids = new ArrayList<>(variants.size());
+        long size = 0;
+        for (Variant variant : variants) {
+            Object id = converter.buildStorageId(variant);
+            ids.add(id);
+            size += new RawBsonDocument(new Document("_id", id), codec).getByteBuffer().remaining();
+        }
+        double averageSize = size / (double) variants.size();
+        logger.info("compactIds={} : average encoded _id document size = {} bytes. Index key size = {} bytes",
+                compactIds, averageSize, averageSize - ID_DOCUMENT_OVERHEAD);
+    }
+
+    @Benchmark
+    public void buildIds(Blackhole blackhole) {
+        for (Variant variant : variants) {
+            blackhole.consume(converter.buildStorageId(variant));
+        }
+    }
+
+    @Benchmark
+    public void encodeIds(Blackhole blackhole) {
+        for (Object id : ids) {
+            blackhole.consume(new RawBsonDocument(new Document("_id", id), codec));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.cellbase.client.rest.CellBaseClient;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.config.storage.CellBaseConfiguration;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.utils.CellBaseUtils;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+import org.opencb.opencga.storage.core.variant.query.ParsedVariantQuery;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parsing and pre-processing of variant queries with sample, genotype, file and annotation filters.
+ *
+ * Only filters that do not require CellBase are used, so no network access is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantQueryParserBenchmark {
+
+    private static final String STUDY = "study";
+    private static final List<String> LOADED_GENOTYPES = Arrays.asList("0/1", "1/1", "0|1", "1|0", "1|1", "0/2", "1/2");
+
+    @Param({"100"})
+    private int numSamples;
+
+    private VariantQueryParser parser;
+    private Query sampleQuery;
+    private Query genotypeQuery;
+    private Query annotationQuery;
+
+    @Setup
+    public void setup() throws StorageEngineException {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        VariantStorageMetadataManager metadataManager =
+                new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        int studyId = metadataManager.createStudy(STUDY).getId();
+        metadataManager.updateStudyMetadata(studyId, studyMetadata -> {
+            studyMetadata.getAttributes().put(VariantStorageOptions.LOADED_GENOTYPES.key(), LOADED_GENOTYPES);
+            return studyMetadata;
+        });
+        List<String> samples = new SyntheticVariantGenerator().sampleNames(numSamples);
+        int fileId = metadataManager.registerFile(studyId, "file1", samples);
+        metadataManager.addIndexedFiles(studyId, Collections.singletonList(fileId));
+
+        CellBaseUtils cellBaseUtils = new CellBaseUtils(
+                new CellBaseClient("hsapiens", "grch38", new CellBaseConfiguration().toClientConfiguration()), "grch38");
+        parser = new VariantQueryParser(cellBaseUtils, metadataManager);
+
+        sampleQuery = new Query(VariantQueryParam.STUDY.key(), STUDY)
+                .append(VariantQueryParam.SAMPLE.key(), String.join(",", samples.subList(0, 10)))
+                .append(VariantQueryParam.REGION.key(), "1:1000-200000,2:5000-10000");
+        genotypeQuery = new Query(VariantQueryParam.STUDY.key(), STUDY)
+                .append(VariantQueryParam.GENOTYPE.key(), samples.get(0) + ":0/1,1/1;" + samples.get(1) + ":0/0;" + samples.get(2) + ":1/2")
+                .append(VariantQueryParam.FILTER.key(), "PASS")
+                .append(VariantQueryParam.QUAL.key(), ">50");
+        annotationQuery = new Query(VariantQueryParam.STUDY.key(), STUDY)
+                .append(VariantQueryParam.FILE.key(), "file1")
+                .append(VariantQueryParam.ANNOT_CONSEQUENCE_TYPE.key(), "missense_variant,stop_gained,frameshift_variant")
+                .append(VariantQueryParam.ANNOT_BIOTYPE.key(), "protein_coding")
+                .append(VariantQueryParam.ANNOT_POPULATION_ALTERNATE_FREQUENCY.key(), "GNOMAD_GENOMES:ALL<0.01");
+    }
+
+    @Benchmark
+    public ParsedVariantQuery parseSampleQuery() {
+        return parser.parseQuery(new Query(sampleQuery), new QueryOptions());
+    }
+
+    @Benchmark
+    public ParsedVariantQuery parseGenotypeQuery() {
+        return parser.parseQuery(new Query(genotypeQuery), new QueryOptions());
+    }
+
+    @Benchmark
+    public ParsedVariantQuery parseAnnotationQuery() {
+        return parser.parseQuery(new Query(annotationQuery), new QueryOptions());
+    }
+}
@@ -0,0 +1,55 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchModel;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchToVariantConverter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the conversion between variants and Solr documents, in both directions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantSearchToVariantConverterBenchmark {
+
+    @Param({"1000"})
+    private int numVariants;
+
+    private VariantSearchToVariantConverter converter;
+    private List<Variant> variants;
+    private List<VariantSearchModel> models;
+
+    @Setup
+    public void setup() {
+        converter = new VariantSearchToVariantConverter();
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        variants = generator.variants("1", 1, 100_000_000, numVariants);
+        for (Variant variant : variants) {
+            variant.setAnnotation(generator.annotation(variant));
+        }
+        models = new ArrayList<>(converter.convertListToStorageType(variants));
+    }
+
+    @Benchmark
+    public void toSearchModel(Blackhole blackhole) {
+        for (Variant variant : variants) {
+            blackhole.consume(converter.convertToStorageType(variant));
+        }
+    }
+
+    @Benchmark
+    public void toVariant(Blackhole blackhole) {
+        for (VariantSearchModel model : models) {
+            blackhole.consume(converter.convertToDataModelType(model));
+        }
+    }
+}
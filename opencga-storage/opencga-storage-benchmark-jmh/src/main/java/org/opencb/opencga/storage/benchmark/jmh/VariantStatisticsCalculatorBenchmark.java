@@ -0,0 +1,53 @@
+package org.opencb.opencga.storage.benchmark.jmh;
+
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.variant.stats.VariantStatisticsCalculator;
+import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the computation of variant stats for a batch of variants, for the default cohort and one cohort per half of
+ * the samples.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariantStatisticsCalculatorBenchmark {
+
+    private static final String STUDY = "study";
+
+    @Param({"1000"})
+    private int numVariants;
+
+    @Param({"10", "500"})
+    private int numSamples;
+
+    private VariantStatisticsCalculator calculator;
+    private List<Variant> variants;
+    private Map<String, Set<String>> cohorts;
+
+    @Setup
+    public void setup() {
+        calculator = new VariantStatisticsCalculator(true);
+        SyntheticVariantGenerator generator = new SyntheticVariantGenerator();
+        List<String> samples = generator.sampleNames(numSamples);
+        variants = generator.variantsWithSamples(STUDY, "file1", "1", numVariants, samples);
+
+        cohorts = new LinkedHashMap<>();
+        cohorts.put(StudyEntry.DEFAULT_COHORT, new HashSet<>(samples));
+        cohorts.put("C1", new HashSet<>(samples.subList(0, numSamples / 2)));
+        cohorts.put("C2", new HashSet<>(samples.subList(numSamples / 2, numSamples)));
+    }
+
+    @Benchmark
+    public List<VariantStatsWrapper> calculate() {
+        return calculator.calculateBatch(variants, STUDY, cohorts);
+    }
+}
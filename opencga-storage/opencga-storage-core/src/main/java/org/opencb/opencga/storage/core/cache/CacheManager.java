@@ -18,180 +18,263 @@ package org.opencb.opencga.storage.core.cache;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
-import org.opencb.commons.datastore.core.QueryResult;
 import org.opencb.opencga.core.config.storage.CacheConfiguration;
 import org.opencb.opencga.core.config.storage.StorageConfiguration;
-import org.redisson.Config;
-import org.redisson.Redisson;
-import org.redisson.RedissonClient;
-import org.redisson.client.RedisConnectionException;
-import org.redisson.codec.JsonJacksonCodec;
-import org.redisson.codec.KryoCodec;
-import org.redisson.core.RKeys;
-import org.redisson.core.RMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 /**
+ * Two tier query result cache.
+ *
+ * Results are first looked up in a size bounded in-process {@link LocalCacheStore}, and then in an optional remote
+ * {@link CacheStore}, shared between processes. Values found in the remote store are promoted to the local store.
+ *
  * Created by wasim on 26/10/16.
  */
 public class CacheManager {
 
-    private StorageConfiguration storageConfiguration;
+    public static final String PREFIX_DATABASE_KEY = "ocga:";
+    public static final String REMOTE_NONE = "none";
+    public static final String REMOTE_REDIS = "redis";
 
-    private Config redissonConfig;
-    private Set<String> allowedTypesSet;
-    private RedissonClient redissonClient;
-    private boolean redisState;
+    private final CacheConfiguration cacheConfiguration;
+    private final Set<String> allowedTypesSet;
+    private final LocalCacheStore localStore;
+    private final CacheStore remoteStore;
 
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder remoteHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder puts = new LongAdder();
 
-    private static final String PREFIX_DATABASE_KEY = "ocga:";
+    private final Logger logger = LoggerFactory.getLogger(CacheManager.class);
 
     public CacheManager() {
+        this((CacheConfiguration) null, null);
     }
 
     public CacheManager(StorageConfiguration configuration) {
+        this(configuration == null ? null : configuration.getCache());
+    }
 
-        CacheConfiguration cache;
-
-        if (configuration != null && configuration.getCache() != null) {
-
-            this.storageConfiguration = configuration;
-
-            cache = configuration.getCache();
-            redissonConfig = new Config();
-
-            String host = (StringUtils.isNotEmpty(cache.getHost()))
-                    ? cache.getHost()
-                    : CacheConfiguration.DEFAULT_HOST;
-            redissonConfig.useSingleServer().setAddress(host);
-
-            String codec = (StringUtils.isNotEmpty(cache.getSerialization()))
-                    ? cache.getSerialization()
-                    : CacheConfiguration.DEFAULT_SERIALIZATION;
-
-            this.allowedTypesSet = new HashSet<>(Arrays.asList(cache.getAllowedTypes().split(",")));
-
-
-            if (StringUtils.isNotEmpty(cache.getPassword())) {
-                redissonConfig.useSingleServer().setPassword(cache.getPassword());
-            }
-
-            if ("KRYO".equalsIgnoreCase(codec)) {
-                redissonConfig.setCodec(new KryoCodec());
-            } else {
-                redissonConfig.setCodec(new JsonJacksonCodec());
-            }
-
-            redisState = true;
+    public CacheManager(CacheConfiguration cache) {
+        this(cache, buildRemoteStore(cache));
+    }
 
-//            redissonClient = Redisson.create(redissonConfig);
-            redissonClient = null;
+    public CacheManager(CacheConfiguration cache, CacheStore remoteStore) {
+        this.cacheConfiguration = cache;
+        if (cache != null) {
+            String allowedTypes = StringUtils.isEmpty(cache.getAllowedTypes())
+                    ? CacheConfiguration.DEFAULT_ALLOWED_TYPE
+                    : cache.getAllowedTypes();
+            this.allowedTypesSet = new HashSet<>(Arrays.asList(allowedTypes.split(",")));
+            this.localStore = new LocalCacheStore(cache);
+        } else {
+            this.allowedTypesSet = Collections.emptySet();
+            this.localStore = null;
         }
+        this.remoteStore = remoteStore;
     }
 
-
-    public <T> QueryResult<T> get(String key) {
-
-        QueryResult<T> queryResult = new QueryResult<>();
-        if (isActive()) {
-            long start = System.currentTimeMillis();
-            RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-
+    private static CacheStore buildRemoteStore(CacheConfiguration cache) {
+        if (cache == null || !cache.isActive()) {
+            return null;
+        }
+        String remote = cache.getRemote();
+        if (StringUtils.isEmpty(remote) || remote.equalsIgnoreCase(REMOTE_NONE)) {
+            return null;
+        } else if (remote.equalsIgnoreCase(REMOTE_REDIS)) {
+            return new RedisCacheStore(cache);
+        } else {
             try {
-                // We only retrieve the first field of the HASH, which is the only one that exist.
-                Map<Integer, Map<String, Object>> result = map.getAll(new HashSet<>(Collections.singletonList(0)));
-
-                if (result != null && !result.isEmpty()) {
-                    Object resultMap = result.get(0).get("result");
-                    queryResult = (QueryResult<T>) resultMap;
-                    queryResult.setDbTime((int) (System.currentTimeMillis() - start));
-                }
-            } catch (RedisConnectionException e) {
-                redisState = false;
-                queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
-                return queryResult;
+                return (CacheStore) Class.forName(remote).getConstructor(CacheConfiguration.class).newInstance(cache);
+            } catch (ReflectiveOperationException | ClassCastException e) {
+                throw new IllegalArgumentException("Unable to create CacheStore '" + remote + "'", e);
             }
         }
-        return queryResult;
     }
 
-    public void set(String key, Query query, QueryResult queryResult) {
-
-        if (isActive()) {
-            if (queryResult.getDbTime() >= storageConfiguration.getCache().getSlowThreshold()
-                    && queryResult.getResult().size() >= storageConfiguration.getCache().getMaxResultSize()) {
-                RMap<Integer, Map<String, Object>> map = getRedissonClient().getMap(key);
-                Map<String, Object> record = new HashMap<>();
-                record.put("query", query);
-                record.put("result", queryResult);
-                try {
-                    map.fastPut(0, record);
-                } catch (RedisConnectionException e) {
-                    redisState = false;
-                    queryResult.setWarningMsg("Unable to connect to Redis Cache, Please query WITHOUT Cache (Falling back to Database)");
-                }
+    /**
+     * Get a cached value. The returned value is shared with the cache, so it must not be modified.
+     *
+     * @param key Key
+     * @param <T> Value type
+     * @return    Cached value, or null if missing
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        if (!isActive()) {
+            return null;
+        }
+        Object value = localStore.get(key);
+        if (value != null) {
+            hits.increment();
+            return (T) value;
+        }
+        if (remoteStore != null) {
+            value = remoteStore.get(key);
+            if (value != null) {
+                remoteHits.increment();
+                localStore.put(key, value);
+                return (T) value;
             }
         }
+        misses.increment();
+        return null;
     }
 
-    public String createKey(String studyId, String allowedType, Query query, QueryOptions queryOptions) {
+    /**
+     * Store a query result, if it took longer than the slowThreshold and is not bigger than the maxResultSize.
+     *
+     * @param key    Key
+     * @param result Query result
+     */
+    public void set(String key, DataResult<?> result) {
+        if (isCacheable(result)) {
+            puts.increment();
+            localStore.put(key, result);
+            if (remoteStore != null) {
+                remoteStore.put(key, result);
+            }
+        }
+    }
 
-        queryOptions.remove("cache");
-        queryOptions.remove("sId");
+    /**
+     * Get a cached result, or compute and store it if missing.
+     *
+     * @param key      Key
+     * @param supplier Function to compute the result
+     * @param <T>      Result type
+     * @return         Query result
+     */
+    public <T extends DataResult<?>> T get(String key, Supplier<T> supplier) {
+        T result = get(key);
+        if (result == null) {
+            result = supplier.get();
+            set(key, result);
+        }
+        return result;
+    }
 
+    /**
+     * Build a cache key from a normalized query.
+     *
+     * @param namespace    Namespace of the key, e.g. the database name and the data version
+     * @param allowedType  Type of query
+     * @param query        Query
+     * @param queryOptions Query options
+     * @return             Key
+     */
+    public String createKey(String namespace, String allowedType, Query query, QueryOptions queryOptions) {
         StringBuilder key = new StringBuilder(PREFIX_DATABASE_KEY);
-        key.append(studyId).append(":").append(allowedType);
-        SortedMap<String, SortedSet<Object>> map = new TreeMap<>();
+        key.append(namespace).append(":").append(allowedType);
+        SortedMap<String, SortedSet<String>> map = new TreeMap<>();
 
-        for (String item : query.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(query.getAsStringList(item)));
+        if (query != null) {
+            for (String item : query.keySet()) {
+                map.put(item.toLowerCase(), new TreeSet<>(query.getAsStringList(item)));
+            }
         }
 
-        for (String item : queryOptions.keySet()) {
-            map.put(item.toLowerCase(), new TreeSet<>(queryOptions.getAsStringList(item)));
+        if (queryOptions != null) {
+            for (String item : queryOptions.keySet()) {
+                if (item.equals("cache") || item.equals("sId")) {
+                    continue;
+                }
+                // Avoid collisions between query and options params
+                map.put("opt." + item.toLowerCase(), new TreeSet<>(queryOptions.getAsStringList(item)));
+            }
         }
 
         String sha1 = DigestUtils.sha1Hex(map.toString());
         key.append(":").append(sha1);
 
-        queryOptions.add("cache", "true");
         return key.toString();
     }
 
+    /**
+     * Check if a query result should be stored: it took longer than the slowThreshold and is not bigger than the maxResultSize.
+     *
+     * @param result Query result
+     * @return       If the result should be stored
+     */
+    public boolean isCacheable(DataResult<?> result) {
+        return isActive() && result != null
+                && result.getTime() >= cacheConfiguration.getSlowThreshold()
+                && result.getNumResults() <= cacheConfiguration.getMaxResultSize();
+    }
+
     public boolean isActive() {
-        return storageConfiguration.getCache().isActive() && redisState;
+        return cacheConfiguration != null && cacheConfiguration.isActive();
     }
 
+    /**
+     * Check if a type of query is allowed to be cached.
+     * Subtypes as "var.count" are allowed if the parent type "var" is allowed.
+     *
+     * @param type Query type
+     * @return     If the type is allowed
+     */
     public boolean isTypeAllowed(String type) {
-        return allowedTypesSet.contains(type);
+        if (allowedTypesSet.contains(type)) {
+            return true;
+        }
+        int idx = type.indexOf('.');
+        return idx > 0 && allowedTypesSet.contains(type.substring(0, idx));
     }
 
-    public void clear() {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(PREFIX_DATABASE_KEY + "*");
+    public ObjectMap getStats() {
+        return new ObjectMap()
+                .append("hits", hits.sum())
+                .append("remoteHits", remoteHits.sum())
+                .append("misses", misses.sum())
+                .append("puts", puts.sum())
+                .append("size", localStore == null ? 0 : localStore.size())
+                .append("evictions", localStore == null ? 0 : localStore.getEvictions());
     }
 
-    public void clear(Pattern pattern) {
-        RKeys redisKeys = getRedissonClient().getKeys();
-        redisKeys.deleteByPattern(pattern.toString());
+    public void clear() {
+        if (localStore != null) {
+            localStore.clear();
+        }
+        if (remoteStore != null) {
+            remoteStore.clear();
+        }
     }
 
-    public void close() {
-        if (redissonClient != null) {
-            redissonClient.shutdown();
-            redissonClient = null;
+    /**
+     * Remove all values with a key matching the glob-style pattern.
+     *
+     * @param globPattern Glob-style pattern, where "*" matches any sequence of characters and "?" any single character
+     */
+    public void clear(String globPattern) {
+        if (localStore != null) {
+            localStore.remove(globPattern);
+        }
+        if (remoteStore != null) {
+            remoteStore.remove(globPattern);
         }
     }
 
-    private synchronized RedissonClient getRedissonClient() {
-        if (redissonClient == null) {
-            redissonClient = Redisson.create(redissonConfig);
+    public void close() {
+        if (localStore != null) {
+            localStore.close();
+        }
+        if (remoteStore != null) {
+            try {
+                remoteStore.close();
+            } catch (RuntimeException e) {
+                logger.warn("Error closing remote cache store", e);
+            }
         }
-        return redissonClient;
     }
 
 }
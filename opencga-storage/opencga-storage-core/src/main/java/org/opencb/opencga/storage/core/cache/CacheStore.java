@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import org.opencb.opencga.core.config.storage.CacheConfiguration;
+
+import java.io.Closeable;
+
+/**
+ * Key-value store used by the {@link CacheManager}.
+ *
+ * Implementations must be thread safe. Custom implementations can be configured with the "remote"
+ * field of the {@link CacheConfiguration}, and require a public constructor receiving the CacheConfiguration.
+ */
+public interface CacheStore extends Closeable {
+
+    /**
+     * Get a value from the store.
+     *
+     * @param key Key
+     * @return    Stored value, or null if missing
+     */
+    Object get(String key);
+
+    /**
+     * Store a value.
+     *
+     * @param key   Key
+     * @param value Value
+     */
+    void put(String key, Object value);
+
+    /**
+     * Remove all values with a key matching the glob-style pattern, where "*" matches any sequence of characters
+     * and "?" matches any single character.
+     *
+     * @param globPattern Glob-style pattern
+     */
+    void remove(String globPattern);
+
+    void clear();
+
+    @Override
+    void close();
+
+}
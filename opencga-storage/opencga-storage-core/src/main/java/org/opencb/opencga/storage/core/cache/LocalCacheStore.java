@@ -0,0 +1,131 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import org.opencb.opencga.core.config.storage.CacheConfiguration;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * In-process, size bounded, least recently used {@link CacheStore}.
+ */
+public class LocalCacheStore implements CacheStore {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<String, Entry> map;
+    private final LongAdder evictions = new LongAdder();
+
+    public LocalCacheStore(CacheConfiguration configuration) {
+        this(configuration.getMaxEntries(), configuration.getTtl(), TimeUnit.SECONDS);
+    }
+
+    public LocalCacheStore(int maxEntries, long ttl, TimeUnit unit) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0;
+        // Access ordered. Least recently used entries first.
+        this.map = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public synchronized Object get(String key) {
+        Entry entry = map.get(key);
+        if (entry == null) {
+            return null;
+        } else if (entry.expireAt != 0 && entry.expireAt - System.nanoTime() < 0) {
+            map.remove(key);
+            return null;
+        } else {
+            return entry.value;
+        }
+    }
+
+    @Override
+    public synchronized void put(String key, Object value) {
+        if (maxEntries <= 0) {
+            return;
+        }
+        map.put(key, new Entry(value, ttlNanos > 0 ? System.nanoTime() + ttlNanos : 0));
+        Iterator<Map.Entry<String, Entry>> iterator = map.entrySet().iterator();
+        while (map.size() > maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    @Override
+    public void remove(String globPattern) {
+        Pattern pattern = globToRegex(globPattern);
+        synchronized (this) {
+            map.keySet().removeIf(key -> pattern.matcher(key).matches());
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        map.clear();
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public void close() {
+        clear();
+    }
+
+    static Pattern globToRegex(String globPattern) {
+        StringBuilder regex = new StringBuilder(globPattern.length() + 16);
+        StringBuilder literal = new StringBuilder();
+        for (char c : globPattern.toCharArray()) {
+            if (c == '*' || c == '?') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '*' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long expireAt;
+
+        private Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015-2017 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.cache;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.opencga.core.config.storage.CacheConfiguration;
+import org.redisson.Config;
+import org.redisson.Redisson;
+import org.redisson.RedissonClient;
+import org.redisson.client.RedisConnectionException;
+import org.redisson.codec.JsonJacksonCodec;
+import org.redisson.codec.KryoCodec;
+import org.redisson.core.RMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CacheStore} backed by a Redis server.
+ *
+ * If the connection to Redis fails, the store is disabled and behaves as an always empty cache.
+ *
+ * Created by wasim on 26/10/16.
+ */
+public class RedisCacheStore implements CacheStore {
+
+    private final Config redissonConfig;
+    private final int ttl;
+    private RedissonClient redissonClient;
+    private volatile boolean redisState;
+
+    private final Logger logger = LoggerFactory.getLogger(RedisCacheStore.class);
+
+    public RedisCacheStore(CacheConfiguration cache) {
+        redissonConfig = new Config();
+
+        String host = (StringUtils.isNotEmpty(cache.getHost()))
+                ? cache.getHost()
+                : CacheConfiguration.DEFAULT_HOST;
+        redissonConfig.useSingleServer().setAddress(host);
+
+        String codec = (StringUtils.isNotEmpty(cache.getSerialization()))
+                ? cache.getSerialization()
+                : CacheConfiguration.DEFAULT_SERIALIZATION;
+
+        if (StringUtils.isNotEmpty(cache.getPassword())) {
+            redissonConfig.useSingleServer().setPassword(cache.getPassword());
+        }
+
+        if ("KRYO".equalsIgnoreCase(codec)) {
+            redissonConfig.setCodec(new KryoCodec());
+        } else {
+            redissonConfig.setCodec(new JsonJacksonCodec());
+        }
+        ttl = cache.getTtl();
+        redisState = true;
+    }
+
+    @Override
+    public Object get(String key) {
+        if (!redisState) {
+            return null;
+        }
+        try {
+            RMap<Integer, Object> map = getRedissonClient().getMap(key);
+            // We only retrieve the first field of the HASH, which is the only one that exist.
+            Map<Integer, Object> result = map.getAll(new HashSet<>(Collections.singletonList(0)));
+            if (result != null && !result.isEmpty()) {
+                return result.get(0);
+            } else {
+                return null;
+            }
+        } catch (RedisConnectionException e) {
+            disable(e);
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        if (!redisState) {
+            return;
+        }
+        try {
+            RMap<Integer, Object> map = getRedissonClient().getMap(key);
+            map.fastPut(0, value);
+            if (ttl > 0) {
+                map.expire(ttl, TimeUnit.SECONDS);
+            }
+        } catch (RedisConnectionException e) {
+            disable(e);
+        }
+    }
+
+    @Override
+    public void remove(String globPattern) {
+        if (!redisState) {
+            return;
+        }
+        try {
+            getRedissonClient().getKeys().deleteByPattern(globPattern);
+        } catch (RedisConnectionException e) {
+            disable(e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        remove(CacheManager.PREFIX_DATABASE_KEY + "*");
+    }
+
+    @Override
+    public synchronized void close() {
+        if (redissonClient != null) {
+            redissonClient.shutdown();
+            redissonClient = null;
+        }
+    }
+
+    private void disable(RedisConnectionException e) {
+        logger.warn("Unable to connect to Redis Cache. Falling back to Database", e);
+        redisState = false;
+    }
+
+    private synchronized RedissonClient getRedissonClient() {
+        if (redissonClient == null) {
+            redissonClient = Redisson.create(redissonConfig);
+        }
+        return redissonClient;
+    }
+}
@@ -1,41 +1,77 @@
 package org.opencb.opencga.storage.core.metadata;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
 
 /**
+ * Bounded metadata cache.
+ *
+ * Cache hits are served lock-free from a {@link ConcurrentHashMap}. Missing, expired or invalid values are loaded with
+ * {@link ConcurrentHashMap#compute}, so the function is executed only once per key. While loading, the map locks the bin
+ * of the key, which might also hold a few other keys colliding in the same bin.
+ * Once the cache is full, the least recently used entries are evicted in batches. Entries can optionally expire after a
+ * given time, which bounds the staleness when multiple processes share the same metadata.
+ *
  * Created by jacobo on 27/02/19.
  */
 public class MetadataCache<ID, R> {
 
-    private final ConcurrentHashMap<String, R> cache;
+    public static final int DEFAULT_MAX_SIZE = 100000;
+    // Evict down to 90% of the max size, to amortize the cost of finding the least recently used entries.
+    private static final double EVICTION_FACTOR = 0.9;
+
+    private final ConcurrentHashMap<Object, Entry<R>> cache;
     private final BiFunction<Integer, ID, R> function;
+    private final Predicate<R> reuseValue;
+    // Hash-indexed table of reusable values. Only used if reuseValue is defined.
+    private final ConcurrentHashMap<R, R> internedValues;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder reused = new LongAdder();
 
     public MetadataCache(BiFunction<Integer, ID, R> function) {
         this(function, null);
     }
 
     public MetadataCache(BiFunction<Integer, ID, R> function, Predicate<R> reuseValue) {
-        this.cache = new ConcurrentHashMap<>();
-        if (reuseValue != null) {
-            // Try to reuse the value from another already existing in the cache.
-            // Allows to avoid duplicated values and lets the GC to claim the unused values.
-            this.function = function.andThen(value -> {
-                // Once we have the value, try to find an equal value in the cache
-                if (value != null && reuseValue.test(value)) {
-                    for (R cachedValue : cache.values()) {
-                        if (cachedValue.equals(value)) {
-                            // Use the cached value. The GC will claim the 'value'. Multiple entries will point to the same value.
-                            return cachedValue;
-                        }
-                    }
-                }
-                return value;
-            });
-        } else {
-            this.function = function;
+        this(function, reuseValue, DEFAULT_MAX_SIZE, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new metadata cache.
+     *
+     * @param function   Function to obtain the value when missing
+     * @param reuseValue Values matching this predicate will be shared between entries when equals.
+     *                   Allows to avoid duplicated values and lets the GC to claim the unused values.
+     * @param maxSize    Max number of entries in the cache
+     * @param ttl        Time to live of each entry. Use 0 or negative to disable
+     * @param unit       TimeUnit of the ttl
+     */
+    public MetadataCache(BiFunction<Integer, ID, R> function, Predicate<R> reuseValue, int maxSize, long ttl, TimeUnit unit) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("Cache max size must be positive. Found " + maxSize);
         }
+        this.cache = new ConcurrentHashMap<>();
+        this.function = function;
+        this.reuseValue = reuseValue;
+        this.internedValues = reuseValue == null ? null : new ConcurrentHashMap<>();
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl > 0 ? unit.toNanos(ttl) : 0;
     }
 
     /**
@@ -46,17 +82,7 @@ public class MetadataCache<ID, R> {
      * @return        Value
      */
     public R get(int studyId, ID id) {
-        String key = getKey(studyId, id);
-
-        // Avoid unnecessary synchronize blocks.
-        // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
-        if (r != null) {
-            return r;
-        } else {
-            // Use this method to avoid executing the function twice
-            return cache.computeIfAbsent(key, k -> this.function.apply(studyId, id));
-        }
+        return get(studyId, id, null);
     }
 
     /**
@@ -68,35 +94,262 @@ public class MetadataCache<ID, R> {
      * @return Value
      */
     public R get(int studyId, ID id, R invalidValue) {
-        String key = getKey(studyId, id);
+        Object key = getKey(studyId, id);
 
         // Avoid unnecessary synchronize blocks.
         // ConcurrentHashMap::get does not have any synchronization block
-        R r = cache.get(key);
-        if (r == null || r.equals(invalidValue)) {
-            // Use this method to avoid executing the function twice
-            return cache.compute(key, (k, v) -> {
-                if (v == null || v.equals(invalidValue)) {
-                    return this.function.apply(studyId, id);
-                } else {
-                    return v;
-                }
-            });
-        } else {
-            return r;
+        Entry<R> entry = cache.get(key);
+        if (isValid(entry, invalidValue)) {
+            hits.increment();
+            entry.lastAccess = System.nanoTime();
+            return entry.value;
+        }
+
+        // Use compute to avoid executing the function twice. Only the bin of this key is locked while loading the value.
+        entry = cache.compute(key, (k, current) -> {
+            if (isValid(current, invalidValue)) {
+                hits.increment();
+                return current;
+            }
+            if (current != null && isExpired(current)) {
+                expirations.increment();
+            }
+            misses.increment();
+            R value = reuse(function.apply(studyId, id));
+            return value == null ? null : newEntry(value);
+        });
+        if (entry == null) {
+            return null;
         }
+        entry.lastAccess = System.nanoTime();
+        evictIfNeeded();
+        return entry.value;
     }
 
     public void put(int studyId, ID id, R value) {
-        cache.put(getKey(studyId, id), value);
+        cache.put(getKey(studyId, id), newEntry(reuse(value)));
+        evictIfNeeded();
+    }
+
+    /**
+     * Remove a value from the cache, if present.
+     *
+     * @param studyId Study id
+     * @param id      Resource id
+     */
+    public void invalidate(int studyId, ID id) {
+        cache.remove(getKey(studyId, id));
+    }
+
+    /**
+     * Remove all the values from a given study.
+     *
+     * @param studyId Study id
+     */
+    public void invalidateStudy(int studyId) {
+        cache.keySet().removeIf(key -> getStudyId(key) == studyId);
     }
 
     public void clear() {
         cache.clear();
+        if (internedValues != null) {
+            internedValues.clear();
+        }
+    }
+
+    public int size() {
+        return cache.size();
+    }
+
+    public Stats getStats() {
+        return new Stats(size(), maxSize, hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), reused.sum());
+    }
+
+    private Entry<R> newEntry(R value) {
+        long now = System.nanoTime();
+        return new Entry<>(value, ttlNanos > 0 ? now + ttlNanos : 0, now);
+    }
+
+    private boolean isValid(Entry<R> entry, R invalidValue) {
+        return entry != null && !isExpired(entry) && (invalidValue == null || !entry.value.equals(invalidValue));
+    }
+
+    /**
+     * Evict the least recently used entries once the cache is full.
+     * Only one thread evicts at a time. Other threads keep working without waiting for it.
+     */
+    private void evictIfNeeded() {
+        if (cache.size() <= maxSize || !evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int size = cache.size();
+            if (size <= maxSize) {
+                return;
+            }
+            int targetSize = (int) (maxSize * EVICTION_FACTOR);
+            List<Map.Entry<Object, Entry<R>>> entries = new ArrayList<>(size);
+            for (Map.Entry<Object, Entry<R>> e : cache.entrySet()) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(e.getKey(), e.getValue()));
+            }
+            entries.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (int i = 0; i < entries.size() && cache.size() > targetSize; i++) {
+                Map.Entry<Object, Entry<R>> e = entries.get(i);
+                // Do not remove entries replaced after the snapshot
+                if (cache.remove(e.getKey(), e.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
     }
 
-    private String getKey(int studyId, ID id) {
-        return studyId + "_" + id;
+    private R reuse(R value) {
+        // Once we have the value, try to find an equal value in the cache
+        if (value != null && internedValues != null && reuseValue.test(value)) {
+            if (internedValues.size() > maxSize) {
+                // Only used for deduplication. It can be safely cleared.
+                internedValues.clear();
+            }
+            R cachedValue = internedValues.putIfAbsent(value, value);
+            if (cachedValue != null) {
+                // Use the cached value. The GC will claim the 'value'. Multiple entries will point to the same value.
+                reused.increment();
+                return cachedValue;
+            }
+        }
+        return value;
+    }
+
+    private boolean isExpired(Entry<R> entry) {
+        return entry.expireAt != 0 && entry.expireAt - System.nanoTime() < 0;
+    }
+
+    /**
+     * Build the key for the given study and resource.
+     * Integer ids are packed into a single primitive long, avoiding string concatenation.
+     *
+     * @param studyId Study id
+     * @param id      Resource id
+     * @return        Key
+     */
+    private Object getKey(int studyId, ID id) {
+        if (id instanceof Integer) {
+            return (((long) studyId) << 32) | (((Integer) id) & 0xFFFFFFFFL);
+        } else {
+            return new StudyKey(studyId, id);
+        }
+    }
+
+    private static int getStudyId(Object key) {
+        if (key instanceof Long) {
+            return (int) (((Long) key) >>> 32);
+        } else {
+            return ((StudyKey) key).studyId;
+        }
+    }
+
+    private static final class Entry<R> {
+        private final R value;
+        private final long expireAt;
+        // Approximated access order. Updated without locks on every hit.
+        private volatile long lastAccess;
+
+        private Entry(R value, long expireAt, long lastAccess) {
+            this.value = value;
+            this.expireAt = expireAt;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class StudyKey {
+        private final int studyId;
+        private final Object id;
+
+        private StudyKey(int studyId, Object id) {
+            this.studyId = studyId;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            StudyKey studyKey = (StudyKey) o;
+            return studyId == studyKey.studyId && id.equals(studyKey.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * studyId + id.hashCode();
+        }
+    }
+
+    public static class Stats {
+        private final int size;
+        private final int maxSize;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+        private final long reused;
+
+        public Stats(int size, int maxSize, long hits, long misses, long evictions, long expirations, long reused) {
+            this.size = size;
+            this.maxSize = maxSize;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+            this.reused = reused;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public long getExpirations() {
+            return expirations;
+        }
+
+        public long getReused() {
+            return reused;
+        }
+
+        @Override
+        public String toString() {
+            final StringBuilder sb = new StringBuilder("Stats{");
+            sb.append("size=").append(size);
+            sb.append(", maxSize=").append(maxSize);
+            sb.append(", hits=").append(hits);
+            sb.append(", misses=").append(misses);
+            sb.append(", evictions=").append(evictions);
+            sb.append(", expirations=").append(expirations);
+            sb.append(", reused=").append(reused);
+            sb.append('}');
+            return sb.toString();
+        }
     }
 
 }
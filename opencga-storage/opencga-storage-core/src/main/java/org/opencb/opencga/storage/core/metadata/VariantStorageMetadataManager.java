@@ -48,10 +48,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -90,8 +93,13 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     private final MetadataCache<String, Integer> cohortIdCache;
     private final MetadataCache<Integer, String> cohortNameCache;
 
+    private final Map<String, MetadataCache<?, ?>> caches = new LinkedHashMap<>();
+    private final List<Consumer<TaskMetadata>> taskListeners = new CopyOnWriteArrayList<>();
+
     private final int lockDuration;
     private final int lockTimeout;
+    private final int cacheMaxSize;
+    private final long cacheTtl;
 
     public VariantStorageMetadataManager(VariantStorageMetadataDBAdaptorFactory dbAdaptorFactory) {
         this.projectDBAdaptor = dbAdaptorFactory.buildProjectMetadataDBAdaptor();
@@ -104,29 +112,33 @@ public class VariantStorageMetadataManager implements AutoCloseable {
                 .getInt(VariantStorageOptions.METADATA_LOCK_DURATION.key(), VariantStorageOptions.METADATA_LOCK_DURATION.defaultValue());
         lockTimeout = dbAdaptorFactory.getConfiguration()
                 .getInt(VariantStorageOptions.METADATA_LOCK_TIMEOUT.key(), VariantStorageOptions.METADATA_LOCK_TIMEOUT.defaultValue());
-        sampleIdCache = new MetadataCache<>(sampleDBAdaptor::getSampleId);
-        sampleNameCache = new MetadataCache<>((studyId, sampleId) -> {
+        cacheMaxSize = dbAdaptorFactory.getConfiguration()
+                .getInt(VariantStorageOptions.METADATA_CACHE_MAX_SIZE.key(), VariantStorageOptions.METADATA_CACHE_MAX_SIZE.defaultValue());
+        cacheTtl = dbAdaptorFactory.getConfiguration()
+                .getLong(VariantStorageOptions.METADATA_CACHE_TTL.key(), VariantStorageOptions.METADATA_CACHE_TTL.defaultValue());
+        sampleIdCache = buildCache(sampleDBAdaptor::getSampleId);
+        sampleNameCache = buildCache((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.getName();
         });
-        sampleIdIndexedCache = new MetadataCache<>((studyId, sampleId) -> {
+        sampleIdIndexedCache = buildCache((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
             }
             return sampleMetadata.isIndexed();
         });
-        sampleIdsFromFileIdCache = new MetadataCache<>((studyId, fileId) -> {
+        sampleIdsFromFileIdCache = buildCache((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getSamples();
         }, samples -> samples.size() > 100);
-        splitDataCache = new MetadataCache<>((studyId, sampleId) -> {
+        splitDataCache = buildCache((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = sampleDBAdaptor.getSampleMetadata(studyId, sampleId, null);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
@@ -139,22 +151,22 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             }
         });
 
-        fileIdCache = new MetadataCache<>(fileDBAdaptor::getFileId);
-        fileNameCache = new MetadataCache<>((studyId, fileId) -> {
+        fileIdCache = buildCache(fileDBAdaptor::getFileId);
+        fileNameCache = buildCache((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.getName();
         });
-        fileIdIndexedCache = new MetadataCache<>((studyId, fileId) -> {
+        fileIdIndexedCache = buildCache((studyId, fileId) -> {
             FileMetadata fileMetadata = fileDBAdaptor.getFileMetadata(studyId, fileId, null);
             if (fileMetadata == null) {
                 throw VariantQueryException.fileNotFound(fileId, getStudyName(studyId));
             }
             return fileMetadata.isIndexed();
         });
-        fileIdsFromSampleIdCache = new MetadataCache<>((studyId, sampleId) -> {
+        fileIdsFromSampleIdCache = buildCache((studyId, sampleId) -> {
             SampleMetadata sampleMetadata = getSampleMetadata(studyId, sampleId);
             if (sampleMetadata == null) {
                 throw VariantQueryException.sampleNotFound(sampleId, getStudyName(studyId));
@@ -162,14 +174,66 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             return sampleMetadata.getFiles();
         }, files -> files.size() > 20);
 
-        cohortIdCache = new MetadataCache<>(cohortDBAdaptor::getCohortId);
-        cohortNameCache = new MetadataCache<>((studyId, cohortId) -> {
+        cohortIdCache = buildCache(cohortDBAdaptor::getCohortId);
+        cohortNameCache = buildCache((studyId, cohortId) -> {
             CohortMetadata cohortMetadata = cohortDBAdaptor.getCohortMetadata(studyId, cohortId, null);
             if (cohortMetadata == null) {
                 throw VariantQueryException.cohortNotFound(cohortId, studyId, getAvailableCohorts(studyId));
             }
             return cohortMetadata.getName();
         });
+        caches.put("sampleIdCache", sampleIdCache);
+        caches.put("sampleNameCache", sampleNameCache);
+        caches.put("sampleIdIndexedCache", sampleIdIndexedCache);
+        caches.put("sampleIdsFromFileIdCache", sampleIdsFromFileIdCache);
+        caches.put("splitDataCache", splitDataCache);
+        caches.put("fileIdCache", fileIdCache);
+        caches.put("fileNameCache", fileNameCache);
+        caches.put("fileIdIndexedCache", fileIdIndexedCache);
+        caches.put("fileIdsFromSampleIdCache", fileIdsFromSampleIdCache);
+        caches.put("cohortIdCache", cohortIdCache);
+        caches.put("cohortNameCache", cohortNameCache);
+    }
+
+    private <ID, R> MetadataCache<ID, R> buildCache(BiFunction<Integer, ID, R> function) {
+        return buildCache(function, null);
+    }
+
+    private <ID, R> MetadataCache<ID, R> buildCache(BiFunction<Integer, ID, R> function, Predicate<R> reuseValue) {
+        return new MetadataCache<>(function, reuseValue, cacheMaxSize, cacheTtl, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the usage statistics of all the internal metadata caches.
+     *
+     * @return Map from cache name to cache stats
+     */
+    public Map<String, MetadataCache.Stats> getCacheStats() {
+        Map<String, MetadataCache.Stats> stats = new LinkedHashMap<>(caches.size());
+        caches.forEach((name, cache) -> stats.put(name, cache.getStats()));
+        return stats;
+    }
+
+    /**
+     * Remove all cached values from a study.
+     * Used after bulk updates of the indexed files of a study, and whenever the metadata of the study is modified by an external
+     * process.
+     *
+     * @param studyId Study id
+     */
+    public void invalidateCaches(int studyId) {
+        for (MetadataCache<?, ?> cache : caches.values()) {
+            cache.invalidateStudy(studyId);
+        }
+    }
+
+    /**
+     * Remove all cached values.
+     */
+    public void clearCaches() {
+        for (MetadataCache<?, ?> cache : caches.values()) {
+            cache.clear();
+        }
     }
 
     public Lock lockGlobal(long lockDuration, long timeout, String lockName)
@@ -608,8 +672,34 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     }
 
     public void unsecureUpdateFileMetadata(int studyId, FileMetadata file) {
+        // Read the previous metadata, to invalidate the entries of the previous name and samples
+        FileMetadata previous = fileDBAdaptor.getFileMetadata(studyId, file.getId(), null);
+        if (previous == null) {
+            unsecureUpdateFileMetadata(studyId, file, null, null);
+        } else {
+            unsecureUpdateFileMetadata(studyId, file, previous.getName(), previous.getSamples());
+        }
+    }
+
+    private void unsecureUpdateFileMetadata(int studyId, FileMetadata file, String previousName, Collection<Integer> previousSamples) {
         file.setStudyId(studyId);
         fileDBAdaptor.updateFileMetadata(studyId, file, null);
+        invalidateFileCaches(studyId, file.getId(), file.getName(), file.getSamples());
+        invalidateFileCaches(studyId, file.getId(), previousName, previousSamples);
+    }
+
+    private void invalidateFileCaches(int studyId, int fileId, String fileName, Collection<Integer> samples) {
+        fileNameCache.invalidate(studyId, fileId);
+        fileIdIndexedCache.invalidate(studyId, fileId);
+        sampleIdsFromFileIdCache.invalidate(studyId, fileId);
+        if (fileName != null) {
+            fileIdCache.invalidate(studyId, fileName);
+        }
+        if (samples != null) {
+            for (Integer sampleId : samples) {
+                fileIdsFromSampleIdCache.invalidate(studyId, sampleId);
+            }
+        }
     }
 
     public <E extends Exception> FileMetadata updateFileMetadata(int studyId, int fileId, UpdateFunction<FileMetadata, E> update)
@@ -618,9 +708,12 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         Lock lock = fileDBAdaptor.lock(studyId, fileId, lockDuration, lockTimeout);
         try {
             FileMetadata fileMetadata = getFileMetadata(studyId, fileId);
+            // The update function might modify the metadata in place
+            String previousName = fileMetadata.getName();
+            List<Integer> previousSamples = fileMetadata.getSamples() == null ? null : new ArrayList<>(fileMetadata.getSamples());
             fileMetadata = update.update(fileMetadata);
             lock.checkLocked();
-            unsecureUpdateFileMetadata(studyId, fileMetadata);
+            unsecureUpdateFileMetadata(studyId, fileMetadata, previousName, previousSamples);
             return fileMetadata;
         } finally {
             lock.unlock();
@@ -736,8 +829,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             logger.info("Register file " + name + " as INDEXED");
         }
         fileDBAdaptor.addIndexedFiles(studyId, fileIds);
-        fileIdsFromSampleIdCache.clear();
-        fileIdIndexedCache.clear();
+        invalidateCaches(studyId);
     }
 
     public void removeIndexedFiles(int studyId, Collection<Integer> fileIds) throws StorageEngineException {
@@ -766,6 +858,7 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             });
         }
         fileDBAdaptor.removeIndexedFiles(studyId, fileIds);
+        invalidateCaches(studyId);
     }
 
     public Iterator<FileMetadata> fileMetadataIterator(int studyId) {
@@ -777,8 +870,28 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     }
 
     public void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample) {
+        // Read the previous metadata, to invalidate the entries of the previous name
+        SampleMetadata previous = sampleDBAdaptor.getSampleMetadata(studyId, sample.getId(), null);
+        unsecureUpdateSampleMetadata(studyId, sample, previous == null ? null : previous.getName());
+    }
+
+    private void unsecureUpdateSampleMetadata(int studyId, SampleMetadata sample, String previousName) {
         sample.setStudyId(studyId);
         sampleDBAdaptor.updateSampleMetadata(studyId, sample, null);
+        invalidateSampleCaches(studyId, sample.getId(), sample.getName());
+        if (previousName != null && !previousName.equals(sample.getName())) {
+            sampleIdCache.invalidate(studyId, previousName);
+        }
+    }
+
+    private void invalidateSampleCaches(int studyId, int sampleId, String sampleName) {
+        sampleNameCache.invalidate(studyId, sampleId);
+        sampleIdIndexedCache.invalidate(studyId, sampleId);
+        splitDataCache.invalidate(studyId, sampleId);
+        fileIdsFromSampleIdCache.invalidate(studyId, sampleId);
+        if (sampleName != null) {
+            sampleIdCache.invalidate(studyId, sampleName);
+        }
     }
 
     public <E extends Exception> SampleMetadata updateSampleMetadata(int studyId, int sampleId, UpdateFunction<SampleMetadata, E> update)
@@ -787,9 +900,11 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         Lock lock = sampleDBAdaptor.lock(studyId, sampleId, lockDuration, lockTimeout);
         try {
             SampleMetadata sample = getSampleMetadata(studyId, sampleId);
+            // The update function might modify the metadata in place
+            String previousName = sample.getName();
             sample = update.update(sample);
             lock.checkLocked();
-            unsecureUpdateSampleMetadata(studyId, sample);
+            unsecureUpdateSampleMetadata(studyId, sample, previousName);
             return sample;
         } finally {
             lock.unlock();
@@ -954,6 +1069,14 @@ public class VariantStorageMetadataManager implements AutoCloseable {
     public void unsecureUpdateCohortMetadata(int studyId, CohortMetadata cohort) {
         cohort.setStudyId(studyId);
         cohortDBAdaptor.updateCohortMetadata(studyId, cohort, null);
+        invalidateCohortCaches(studyId, cohort.getId(), cohort.getName());
+    }
+
+    private void invalidateCohortCaches(int studyId, int cohortId, String cohortName) {
+        cohortNameCache.invalidate(studyId, cohortId);
+        if (cohortName != null) {
+            cohortIdCache.invalidate(studyId, cohortName);
+        }
     }
 
     public <E extends Exception> CohortMetadata updateCohortMetadata(int studyId, int cohortId, UpdateFunction<CohortMetadata, E> update)
@@ -976,7 +1099,9 @@ public class VariantStorageMetadataManager implements AutoCloseable {
         if (cohortId == null) {
             throw VariantQueryException.cohortNotFound(cohort.toString(), studyId, this);
         }
+        String cohortName = getCohortName(studyId, cohortId);
         cohortDBAdaptor.removeCohort(studyId, cohortId);
+        invalidateCohortCaches(studyId, cohortId, cohortName);
     }
 
     public Integer getCohortId(int studyId, String cohortName) {
@@ -1191,6 +1316,18 @@ public class VariantStorageMetadataManager implements AutoCloseable {
             task.setId(newTaskId(studyId));
         }
         taskDBAdaptor.updateTask(studyId, task, null);
+        for (Consumer<TaskMetadata> listener : taskListeners) {
+            listener.accept(task);
+        }
+    }
+
+    /**
+     * Register a listener to be notified every time a task is created or modified by this manager.
+     *
+     * @param listener Listener
+     */
+    public void addTaskListener(Consumer<TaskMetadata> listener) {
+        taskListeners.add(listener);
     }
 
     public <E extends Exception> TaskMetadata updateTask(int studyId, int taskId, UpdateFunction<TaskMetadata, E> update)
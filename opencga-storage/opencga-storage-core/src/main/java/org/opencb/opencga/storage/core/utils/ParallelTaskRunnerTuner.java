@@ -0,0 +1,403 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
+
+/**
+ * Chooses the number of tasks, batch size and queue capacity of a {@link ParallelTaskRunner} pipeline stage.
+ *
+ * Without auto tune, the values are read from the options, as usual. With {@link VariantStorageOptions#PIPELINE_AUTO_TUNE},
+ * the reader, tasks and writer of the stage are measured, and the values are adjusted within bounds:
+ * <ul>
+ *     <li>The batch size is adjusted while running, so each task spends about
+ *     {@link VariantStorageOptions#PIPELINE_AUTO_TUNE_BATCH_MILLIS} processing each batch. Small batches are dominated by the
+ *     per batch overhead, while big batches increase the memory usage.</li>
+ *     <li>The number of tasks of a running ParallelTaskRunner can not be modified. Instead, the utilization of the reader,
+ *     tasks and writer is used to choose the number of tasks of the next run of the same stage in this JVM,
+ *     e.g. the next file to load.</li>
+ * </ul>
+ * The tuning is only reused within the same project and study, as the cost of each stage depends on the data and the
+ * database of each of them. The project is read from the {@link #PROJECT} option, set by the VariantStorageEngine.
+ */
+public class ParallelTaskRunnerTuner {
+
+    public static final String TRANSFORM = "transform";
+    public static final String LOAD = "load";
+    public static final String ANNOTATION = "annotation";
+    public static final String STATS = "stats";
+
+    // Internal option with the project (database name) of the stage
+    public static final String PROJECT = "pipeline.autoTune.project";
+
+    // Key of the report in the pipeline stats
+    public static final String TUNING = "tuning";
+
+    public static final String NUM_TASKS = "numTasks";
+    public static final String BATCH_SIZE = "batchSize";
+    public static final String CAPACITY = "capacity";
+    public static final String NEXT_NUM_TASKS = "nextNumTasks";
+    public static final String FINAL_BATCH_SIZE = "finalBatchSize";
+
+    private static final int MIN_BATCH_SIZE = 10;
+    // Tasks are the bottleneck if busy more than this fraction of the time
+    private static final double HIGH_UTILIZATION = 0.9;
+    // Tasks are waiting for the reader or the writer if busy less than this fraction of the time
+    private static final double LOW_UTILIZATION = 0.5;
+    private static final double TARGET_UTILIZATION = 0.75;
+
+    // Last report of each stage, by project and study. Used as starting point for the next run of the same stage.
+    private static final Map<String, ObjectMap> LAST_REPORTS = new ConcurrentHashMap<>();
+
+    private final String stage;
+    private final String key;
+    private final boolean autoTune;
+    private final int numTasks;
+    private final int initialBatchSize;
+    private final int capacity;
+    private final int maxThreads;
+    private final int maxBatchSize;
+    private final long targetBatchNanos;
+    private volatile int batchSize;
+
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder taskNanos = new LongAdder();
+    private final LongAdder writeNanos = new LongAdder();
+    private final LongAdder taskElements = new LongAdder();
+    private final LongAdder taskBatches = new LongAdder();
+    private volatile long startNanos;
+
+    private final Logger logger = LoggerFactory.getLogger(ParallelTaskRunnerTuner.class);
+
+    /**
+     * Create a tuner for the given stage.
+     *
+     * @param stage           Stage name, e.g. {@link #TRANSFORM}
+     * @param study           Study of the stage. Null for stages not bound to a study, like the annotation
+     * @param options         Options
+     * @param numTasksOption  Option with the configured number of tasks
+     * @param batchSizeOption Option with the configured batch size
+     */
+    public ParallelTaskRunnerTuner(String stage, String study, ObjectMap options,
+                                   VariantStorageOptions numTasksOption, VariantStorageOptions batchSizeOption) {
+        this.stage = stage;
+        this.key = buildKey(options.getString(PROJECT), study, stage);
+        this.autoTune = options.getBoolean(PIPELINE_AUTO_TUNE.key(), PIPELINE_AUTO_TUNE.defaultValue());
+        int configuredNumTasks = options.getInt(numTasksOption.key(), numTasksOption.defaultValue());
+        int configuredBatchSize = options.getInt(batchSizeOption.key(), batchSizeOption.defaultValue());
+
+        if (autoTune) {
+            int maxThreads = options.getInt(PIPELINE_AUTO_TUNE_MAX_THREADS.key(), PIPELINE_AUTO_TUNE_MAX_THREADS.defaultValue());
+            if (maxThreads <= 0) {
+                int processors = Runtime.getRuntime().availableProcessors();
+                // Annotation tasks spend most of the time waiting for the remote annotator
+                maxThreads = ANNOTATION.equals(stage) ? processors * 4 : processors;
+            }
+            this.maxThreads = maxThreads;
+            this.maxBatchSize = Math.max(MIN_BATCH_SIZE,
+                    options.getInt(PIPELINE_AUTO_TUNE_MAX_BATCH_SIZE.key(), PIPELINE_AUTO_TUNE_MAX_BATCH_SIZE.defaultValue()));
+            this.targetBatchNanos = TimeUnit.MILLISECONDS.toNanos(
+                    options.getInt(PIPELINE_AUTO_TUNE_BATCH_MILLIS.key(), PIPELINE_AUTO_TUNE_BATCH_MILLIS.defaultValue()));
+
+            ObjectMap lastReport = LAST_REPORTS.get(key);
+            if (lastReport != null) {
+                configuredNumTasks = lastReport.getInt(NEXT_NUM_TASKS, configuredNumTasks);
+                configuredBatchSize = lastReport.getInt(FINAL_BATCH_SIZE, configuredBatchSize);
+            }
+            this.numTasks = bound(configuredNumTasks, 1, this.maxThreads);
+            this.initialBatchSize = bound(configuredBatchSize, MIN_BATCH_SIZE, maxBatchSize);
+        } else {
+            this.maxThreads = configuredNumTasks;
+            this.maxBatchSize = configuredBatchSize;
+            this.targetBatchNanos = 0;
+            this.numTasks = configuredNumTasks;
+            this.initialBatchSize = configuredBatchSize;
+        }
+        this.batchSize = initialBatchSize;
+        this.capacity = options.getInt("blockingQueueCapacity", numTasks * 2);
+    }
+
+    public boolean isAutoTune() {
+        return autoTune;
+    }
+
+    public int getNumTasks() {
+        return numTasks;
+    }
+
+    /**
+     * Current batch size. Only changes while running if auto tune is enabled.
+     *
+     * @return Batch size
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Wrap the reader of the stage. With auto tune, the batch size requested by the ParallelTaskRunner is replaced by the current
+     * tuned batch size.
+     *
+     * @param reader Reader
+     * @param <T>    Read type
+     * @return       Measured reader, or the same reader if auto tune is disabled
+     */
+    public <T> DataReader<T> reader(DataReader<T> reader) {
+        if (!autoTune) {
+            return reader;
+        }
+        return new DataReader<T>() {
+            @Override
+            public boolean open() {
+                return reader.open();
+            }
+
+            @Override
+            public boolean pre() {
+                startNanos = System.nanoTime();
+                return reader.pre();
+            }
+
+            @Override
+            public List<T> read(int ignored) {
+                long start = System.nanoTime();
+                try {
+                    return reader.read(batchSize);
+                } finally {
+                    readNanos.add(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean post() {
+                return reader.post();
+            }
+
+            @Override
+            public boolean close() {
+                return reader.close();
+            }
+        };
+    }
+
+    /**
+     * Wrap a task of the stage. The same wrapped task can be shared by multiple threads.
+     *
+     * @param task Task
+     * @param <T>  Input type
+     * @param <R>  Output type
+     * @return     Measured task, or the same task if auto tune is disabled
+     */
+    public <T, R> Task<T, R> task(Task<T, R> task) {
+        if (!autoTune) {
+            return task;
+        }
+        return new Task<T, R>() {
+            @Override
+            public void pre() throws Exception {
+                task.pre();
+            }
+
+            @Override
+            public List<R> apply(List<T> batch) throws Exception {
+                long start = System.nanoTime();
+                try {
+                    return task.apply(batch);
+                } finally {
+                    taskNanos.add(System.nanoTime() - start);
+                    taskElements.add(batch.size());
+                    taskBatches.increment();
+                    adjustBatchSize();
+                }
+            }
+
+            @Override
+            public List<R> drain() throws Exception {
+                return task.drain();
+            }
+
+            @Override
+            public void post() throws Exception {
+                task.post();
+            }
+        };
+    }
+
+    public <T, R> Supplier<Task<T, R>> taskSupplier(Supplier<Task<T, R>> supplier) {
+        if (!autoTune) {
+            return supplier;
+        }
+        return () -> task(supplier.get());
+    }
+
+    public <T, R> List<Task<T, R>> tasks(List<Task<T, R>> tasks) {
+        if (!autoTune) {
+            return tasks;
+        }
+        List<Task<T, R>> wrapped = new ArrayList<>(tasks.size());
+        for (Task<T, R> task : tasks) {
+            wrapped.add(task(task));
+        }
+        return wrapped;
+    }
+
+    /**
+     * Wrap the writer of the stage.
+     *
+     * @param writer Writer. Can be null
+     * @param <T>    Write type
+     * @return       Measured writer, or the same writer if auto tune is disabled
+     */
+    public <T> DataWriter<T> writer(DataWriter<T> writer) {
+        if (!autoTune || writer == null) {
+            return writer;
+        }
+        return new DataWriter<T>() {
+            @Override
+            public boolean open() {
+                return writer.open();
+            }
+
+            @Override
+            public boolean pre() {
+                return writer.pre();
+            }
+
+            @Override
+            public boolean write(List<T> batch) {
+                long start = System.nanoTime();
+                try {
+                    return writer.write(batch);
+                } finally {
+                    writeNanos.add(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean post() {
+                return writer.post();
+            }
+
+            @Override
+            public boolean close() {
+                return writer.close();
+            }
+        };
+    }
+
+    /**
+     * Report the chosen values and, with auto tune, the measured utilization of each step of the stage.
+     * To be called once the ParallelTaskRunner has finished. The report is used as starting point for the next run
+     * of the same stage.
+     *
+     * @return Report
+     */
+    public ObjectMap report() {
+        ObjectMap report = new ObjectMap()
+                .append("stage", stage)
+                .append("autoTune", autoTune)
+                .append(NUM_TASKS, numTasks)
+                .append(BATCH_SIZE, initialBatchSize)
+                .append(CAPACITY, capacity);
+        if (!autoTune || startNanos == 0 || taskElements.sum() == 0) {
+            return report;
+        }
+        long wallNanos = Math.max(1, System.nanoTime() - startNanos);
+        double readerUtilization = (double) readNanos.sum() / wallNanos;
+        double taskUtilization = (double) taskNanos.sum() / ((double) wallNanos * numTasks);
+        double writerUtilization = (double) writeNanos.sum() / wallNanos;
+
+        String bottleneck;
+        int nextNumTasks;
+        if (taskUtilization > HIGH_UTILIZATION && readerUtilization < HIGH_UTILIZATION && writerUtilization < HIGH_UTILIZATION) {
+            bottleneck = "tasks";
+            nextNumTasks = Math.min(maxThreads, numTasks + Math.max(1, numTasks / 2));
+        } else {
+            bottleneck = readerUtilization >= writerUtilization ? "reader" : "writer";
+            if (taskUtilization < LOW_UTILIZATION) {
+                // Tasks are starving. Use only the tasks needed to keep up with the reader and the writer
+                nextNumTasks = Math.max(1, (int) Math.ceil(numTasks * taskUtilization / TARGET_UTILIZATION));
+            } else {
+                nextNumTasks = numTasks;
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(wallNanos);
+        report.append(FINAL_BATCH_SIZE, batchSize)
+                .append("maxThreads", maxThreads)
+                .append("maxBatchSize", maxBatchSize)
+                .append("elements", taskElements.sum())
+                .append("batches", taskBatches.sum())
+                .append("millis", millis)
+                .append("elementsPerSecond", millis == 0 ? taskElements.sum() : taskElements.sum() * 1000 / millis)
+                .append("readerUtilization", round(readerUtilization))
+                .append("taskUtilization", round(taskUtilization))
+                .append("writerUtilization", round(writerUtilization))
+                .append("bottleneck", bottleneck)
+                .append(NEXT_NUM_TASKS, nextNumTasks);
+        LAST_REPORTS.put(key, report);
+        logger.info("Pipeline stage '{}' tuning: {}", stage, report.toJson());
+        return report;
+    }
+
+    /**
+     * Get the last report of a stage executed in this JVM with auto tune.
+     *
+     * @param project Project (database name) of the stage. See {@link #PROJECT}
+     * @param study   Study of the stage. Null for stages not bound to a study
+     * @param stage   Stage name
+     * @return        Last report, or null if none
+     */
+    public static ObjectMap getLastReport(String project, String study, String stage) {
+        return LAST_REPORTS.get(buildKey(project, study, stage));
+    }
+
+    /**
+     * Forget the tuning of previous runs.
+     */
+    public static void reset() {
+        LAST_REPORTS.clear();
+    }
+
+    private static String buildKey(String project, String study, String stage) {
+        return (project == null ? "" : project) + ':' + (study == null ? "" : study) + ':' + stage;
+    }
+
+    private void adjustBatchSize() {
+        long elements = taskElements.sum();
+        if (elements == 0) {
+            return;
+        }
+        double nanosPerElement = Math.max(1.0, (double) taskNanos.sum() / elements);
+        int target = bound((int) Math.min(Integer.MAX_VALUE, targetBatchNanos / nanosPerElement), MIN_BATCH_SIZE, maxBatchSize);
+        // Move halfway to the target to smooth the changes
+        batchSize = (batchSize + target) / 2;
+    }
+
+    private static int bound(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
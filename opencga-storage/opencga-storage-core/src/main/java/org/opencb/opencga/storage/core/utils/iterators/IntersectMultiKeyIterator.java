@@ -85,6 +85,7 @@ public class IntersectMultiKeyIterator<T> extends MultiKeyIterator<T> {
             Iterator<T> iterator = iterators.get(i);
             T t;
 
+            skipTo(iterator, target);
             // Iterate until find a t equals or above to the target t
             do {
                 if (iterator.hasNext()) {
@@ -109,6 +110,13 @@ public class IntersectMultiKeyIterator<T> extends MultiKeyIterator<T> {
         return target;
     }
 
+    @SuppressWarnings("unchecked")
+    private void skipTo(Iterator<T> iterator, T target) {
+        if (iterator instanceof SkipAheadIterator) {
+            ((SkipAheadIterator<T>) iterator).skipTo(target);
+        }
+    }
+
     /**
      * Check against all negatedIterators if any of them contains the target element.
      * If so, this element should be discarded
@@ -122,6 +130,9 @@ public class IntersectMultiKeyIterator<T> extends MultiKeyIterator<T> {
             for (int i = 0; i < negatedIterators.size(); i++) {
                 Iterator<T> negatedIterator = negatedIterators.get(i);
                 T t = negatedTs.get(i);
+                if (t != null && comparator.compare(t, target) < 0) {
+                    skipTo(negatedIterator, target);
+                }
                 while (t != null && comparator.compare(t, target) < 0) {
                     if (negatedIterator.hasNext()) {
                         t = negatedIterator.next();
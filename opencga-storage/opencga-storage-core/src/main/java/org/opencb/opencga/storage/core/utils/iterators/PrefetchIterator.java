@@ -0,0 +1,253 @@
+package org.opencb.opencga.storage.core.utils.iterators;
+
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads the elements of one or more sources in background tasks, into bounded buffers.
+ *
+ * Each source is read by its own task. In ordered mode, each source has its own buffer, and the sources are returned one
+ * after another, in the given order, while the next sources are prefetched. In unordered mode, all the sources share one
+ * buffer, and the elements are returned as soon as any source produces them.
+ *
+ * Closing this iterator stops the running tasks and waits for them to finish, so the resources used by the sources can be
+ * safely released afterwards. Tasks not started yet are never started.
+ */
+public class PrefetchIterator<T> implements Iterator<T>, AutoCloseable {
+    public static final long CLOSE_TIMEOUT_MS = 30000;
+    // Marks the end of the elements of one source
+    private static final Object END = new Object();
+    private static Logger logger = LoggerFactory.getLogger(PrefetchIterator.class);
+
+    private final List<Producer> producers;
+    private final List<BlockingQueue<Object>> buffers;
+    private final Iterator<BlockingQueue<Object>> buffersIterator;
+    private final long timeout;
+    private final AtomicReference<Exception> error = new AtomicReference<>();
+    private volatile boolean closed = false;
+    private BlockingQueue<Object> currentBuffer;
+    private int finishedSources = 0;
+    private Object next;
+
+    @FunctionalInterface
+    public interface Source<T> {
+        /**
+         * Read all the elements of the source. Any resource used by the source must be released before returning.
+         *
+         * @param sink Receives the elements
+         * @throws Exception if there is any error reading the source
+         */
+        void read(Sink<T> sink) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Sink<T> {
+        /**
+         * Add an element to the buffer, waiting if it is full.
+         *
+         * @param element Element
+         * @throws InterruptedException if the iterator is closed, or any other source failed
+         */
+        void put(T element) throws InterruptedException;
+    }
+
+    /**
+     * Prefetch the elements of one iterator. The source iterator is only accessed from the producer task.
+     *
+     * @param source          Source iterator
+     * @param size            Max number of buffered elements
+     * @param executorService Executor to run the producer
+     */
+    public PrefetchIterator(Iterator<T> source, int size, ExecutorService executorService) {
+        this(Collections.<Source<T>>singletonList(sink -> {
+            while (source.hasNext()) {
+                sink.put(source.next());
+            }
+        }), size, true, 0, executorService);
+    }
+
+    /**
+     * Create and start the prefetch of all the sources.
+     *
+     * @param sources         Sources to read
+     * @param size            Max number of buffered elements per source. In unordered mode, shared by all the sources.
+     * @param ordered         Return the sources one after another, in the given order
+     * @param timeout         Max time in milliseconds to wait for the next element. 0 or negative for no timeout.
+     * @param executorService Executor to run the producers
+     */
+    public PrefetchIterator(List<Source<T>> sources, int size, boolean ordered, long timeout, ExecutorService executorService) {
+        this.timeout = timeout > 0 ? timeout : Long.MAX_VALUE;
+        buffers = new ArrayList<>(ordered ? sources.size() : 1);
+        // Leave room for the END markers
+        BlockingQueue<Object> sharedBuffer = ordered ? null : new ArrayBlockingQueue<>(Math.max(1, size) + sources.size());
+        if (!ordered) {
+            buffers.add(sharedBuffer);
+        }
+        producers = new ArrayList<>(sources.size());
+        for (Source<T> source : sources) {
+            BlockingQueue<Object> buffer;
+            if (ordered) {
+                buffer = new ArrayBlockingQueue<>(Math.max(1, size) + 1);
+                buffers.add(buffer);
+            } else {
+                buffer = sharedBuffer;
+            }
+            producers.add(new Producer(source, buffer));
+        }
+        for (Producer producer : producers) {
+            // Tasks start in order, so the first pending source is always running
+            producer.future = executorService.submit(producer);
+        }
+        buffersIterator = buffers.iterator();
+        currentBuffer = buffersIterator.hasNext() ? buffersIterator.next() : null;
+    }
+
+    private final class Producer implements Runnable {
+        private final Source<T> source;
+        private final BlockingQueue<Object> buffer;
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private Future<?> future;
+
+        private Producer(Source<T> source, BlockingQueue<Object> buffer) {
+            this.source = source;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                // Closed before starting
+                return;
+            }
+            try {
+                produce();
+            } finally {
+                finished.countDown();
+            }
+        }
+
+        private void produce() {
+            try {
+                if (!closed && error.get() == null) {
+                    source.read(this::put);
+                }
+            } catch (InterruptedException e) {
+                if (closed) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                // Stopped because of an error in other source. Mark the end, so the consumer reaches the error.
+            } catch (Exception e) {
+                if (closed) {
+                    logger.debug("Prefetch interrupted by close", e);
+                    return;
+                }
+                error.compareAndSet(null, e);
+            }
+            if (closed) {
+                return;
+            }
+            try {
+                buffer.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void put(T element) throws InterruptedException {
+            if (closed || error.get() != null) {
+                throw new InterruptedException("Prefetch stopped");
+            }
+            buffer.put(element);
+        }
+
+        private void cancel() {
+            if (started.compareAndSet(false, true)) {
+                // The producer never started, and never will
+                finished.countDown();
+                future.cancel(false);
+            } else {
+                future.cancel(true);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = fetchNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T t = (T) next;
+        next = null;
+        return t;
+    }
+
+    private Object fetchNext() {
+        while (currentBuffer != null && finishedSources < producers.size()) {
+            Object element;
+            try {
+                element = currentBuffer.poll(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw VariantQueryException.internalException(e);
+            }
+            if (element == null) {
+                throw VariantQueryException.internalException(
+                        new TimeoutException("Timeout waiting for prefetched results after " + timeout + "ms"));
+            }
+            if (element == END) {
+                finishedSources++;
+                Exception e = error.get();
+                if (e != null) {
+                    throw e instanceof RuntimeException ? (RuntimeException) e : VariantQueryException.internalException(e);
+                }
+                if (buffersIterator.hasNext()) {
+                    currentBuffer = buffersIterator.next();
+                }
+            } else {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Producer producer : producers) {
+            producer.cancel();
+        }
+        long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+        try {
+            for (Producer producer : producers) {
+                long wait = Math.max(0, deadline - System.currentTimeMillis());
+                if (!producer.finished.await(wait, TimeUnit.MILLISECONDS)) {
+                    logger.warn("Prefetch thread did not finish after " + CLOSE_TIMEOUT_MS + "ms");
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        buffers.forEach(BlockingQueue::clear);
+    }
+}
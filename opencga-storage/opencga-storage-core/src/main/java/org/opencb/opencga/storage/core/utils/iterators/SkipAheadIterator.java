@@ -0,0 +1,18 @@
+package org.opencb.opencga.storage.core.utils.iterators;
+
+import java.util.Iterator;
+
+/**
+ * Iterator able to discard a range of sorted elements without returning them one by one.
+ */
+public interface SkipAheadIterator<T> extends Iterator<T> {
+
+    /**
+     * Hint to discard the following elements lower than the target.
+     * Elements equal or greater than the target must be kept. Lower elements might still be returned.
+     *
+     * @param target Target element
+     */
+    void skipTo(T target);
+
+}
@@ -16,11 +16,13 @@
 
 package org.opencb.opencga.storage.core.variant;
 
+import com.google.common.collect.Iterators;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantAnnotation;
 import org.opencb.biodata.models.variant.metadata.SampleVariantStats;
 import org.opencb.biodata.models.variant.metadata.VariantMetadata;
@@ -33,6 +35,7 @@ import org.opencb.opencga.core.response.VariantQueryResult;
 import org.opencb.opencga.storage.core.StorageEngine;
 import org.opencb.opencga.storage.core.StoragePipelineResult;
 import org.opencb.opencga.core.config.storage.StorageConfiguration;
+import org.opencb.opencga.storage.core.cache.CacheManager;
 import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.exceptions.StoragePipelineException;
 import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
@@ -41,6 +44,7 @@ import org.opencb.opencga.storage.core.metadata.VariantMetadataFactory;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.*;
 import org.opencb.opencga.storage.core.utils.CellBaseUtils;
+import org.opencb.opencga.storage.core.utils.ParallelTaskRunnerTuner;
 import org.opencb.opencga.storage.core.variant.adaptors.*;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.MultiVariantDBIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
@@ -56,6 +60,7 @@ import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
 import org.opencb.opencga.storage.core.variant.io.VariantWriterFactory.VariantOutputFormat;
 import org.opencb.opencga.storage.core.variant.query.ParsedVariantQuery;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryResultCache;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.query.executors.*;
 import org.opencb.opencga.storage.core.variant.score.VariantScoreFormatDescriptor;
@@ -65,6 +70,7 @@ import org.opencb.opencga.storage.core.variant.search.SearchIndexVariantQueryExe
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadListener;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchLoadResult;
 import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchManager;
+import org.opencb.opencga.storage.core.variant.search.solr.VariantSearchParallelLoader;
 import org.opencb.opencga.storage.core.variant.stats.DefaultVariantStatisticsManager;
 import org.opencb.opencga.storage.core.variant.stats.SampleVariantStatsAggregationQuery;
 import org.opencb.opencga.storage.core.variant.stats.VariantStatisticsManager;
@@ -90,11 +96,15 @@ import static org.opencb.opencga.storage.core.variant.search.VariantSearchUtils.
 public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdaptor> implements VariantIterable {
 
     private final AtomicReference<VariantSearchManager> variantSearchManager = new AtomicReference<>();
+    private final AtomicReference<VariantQueryResultCache> variantQueryResultCache = new AtomicReference<>();
     private final List<VariantQueryExecutor> lazyVariantQueryExecutorsList = new ArrayList<>();
     private final List<VariantAggregationExecutor> lazyVariantAggregationExecutorsList = new ArrayList<>();
     private CellBaseUtils cellBaseUtils;
 
     public static final String REMOVE_OPERATION_NAME = TaskMetadata.Type.REMOVE.name().toLowerCase();
+    private static final String SECONDARY_INDEX_CHECKPOINT = "search.index.checkpoint";
+    // Pseudo-region of the secondary index load, with the variants from chromosomes not listed in the file stats
+    private static final String SECONDARY_INDEX_OTHER_CHROMOSOMES = "*other_chromosomes*";
 
     private Logger logger = LoggerFactory.getLogger(VariantStorageEngine.class);
     private ObjectMap options;
@@ -376,7 +386,9 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
                         .append(DefaultVariantAnnotationManager.OUT_DIR, outdirUri.toString())
                         .append(DefaultVariantAnnotationManager.FILE_NAME, dbName + "." + TimeUtils.getTime());
 
+                ObjectMap lastTuning = ParallelTaskRunnerTuner.getLastReport(dbName, null, ParallelTaskRunnerTuner.ANNOTATION);
                 annotate(annotationQuery, annotationOptions);
+                addTuningReport(results, null, ParallelTaskRunnerTuner.ANNOTATION, lastTuning);
             } catch (RuntimeException | StorageEngineException | VariantAnnotatorException | IOException e) {
                 throw new StoragePipelineException("Error annotating.", e, results);
             }
@@ -511,13 +523,28 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
                 statsOptions.put(DefaultVariantStatisticsManager.OUTPUT, statsOutputUri.toString());
 
                 List<String> cohorts = Collections.singletonList(StudyEntry.DEFAULT_COHORT);
+                ObjectMap lastTuning = ParallelTaskRunnerTuner.getLastReport(dbName, studyMetadata.getName(),
+                        ParallelTaskRunnerTuner.STATS);
                 calculateStats(studyMetadata.getName(), cohorts, statsOptions);
+                addTuningReport(results, studyMetadata.getName(), ParallelTaskRunnerTuner.STATS, lastTuning);
             } catch (Exception e) {
                 throw new StoragePipelineException("Can't calculate stats.", e, results);
             }
         }
     }
 
+    private void addTuningReport(List<StoragePipelineResult> results, String study, String stage, ObjectMap previousReport) {
+        ObjectMap report = ParallelTaskRunnerTuner.getLastReport(dbName, study, stage);
+        // Only if the stage was executed by this process with auto tune
+        if (report != null && report != previousReport && results != null) {
+            for (StoragePipelineResult result : results) {
+                if (result.getLoadStats() != null) {
+                    result.getLoadStats().put(stage + "." + ParallelTaskRunnerTuner.TUNING, report);
+                }
+            }
+        }
+    }
+
     /**
      * Build the sample index. For advanced users only.
      * SampleIndex is built while loading data, so this operation should be executed only to rebuild the index,
@@ -614,6 +641,16 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
         // then, load variants
         queryOptions.put(QueryOptions.EXCLUDE, Arrays.asList(VariantField.STUDIES_SAMPLES, VariantField.STUDIES_FILES));
+        ObjectMap options = getMergedOptions(queryOptions);
+        int numThreads = options.getInt(SEARCH_LOAD_THREADS.key(), SEARCH_LOAD_THREADS.defaultValue());
+        boolean regionFilter = isValidParam(query, VariantQueryParam.REGION) || isValidParam(query, VariantQueryParam.GENE)
+                || isValidParam(query, VariantQueryParam.ID) || isValidParam(query, VariantQueryParam.ANNOT_XREF);
+        List<String> regions = numThreads > 1 && !regionFilter ? getSecondaryIndexRegions() : Collections.emptyList();
+        if (!regions.isEmpty()) {
+            return secondaryIndexByRegion(query, queryOptions, overwrite, regions, options);
+        }
+
+        long start = System.currentTimeMillis();
         try (VariantDBIterator iterator = getVariantsToIndex(overwrite, query, queryOptions, dbAdaptor)) {
             ProgressLogger progressLogger = new ProgressLogger("Variants loaded in Solr:");
             VariantSearchLoadResult load = variantSearchManager.load(dbName, iterator, progressLogger,
@@ -622,11 +659,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
             if (isValidParam(query, VariantQueryParam.REGION)) {
                 logger.info("Partial secondary index. Do not update {} timestamp", SEARCH_INDEX_LAST_TIMESTAMP.key());
             } else {
-                long value = System.currentTimeMillis();
-                getMetadataManager().updateProjectMetadata(projectMetadata -> {
-                    projectMetadata.getAttributes().put(SEARCH_INDEX_LAST_TIMESTAMP.key(), value);
-                    return projectMetadata;
-                });
+                updateSecondaryIndexTimestamp(start);
             }
 
             return load;
@@ -637,6 +670,139 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         }
     }
 
+    /**
+     * Load the secondary index splitting the variants by chromosome. Each chromosome is read by a different worker.
+     *
+     * Loaded chromosomes are checkpointed in the project metadata, so a failed execution with the same query
+     * is resumed from the pending chromosomes.
+     *
+     * Chromosomes are taken from the file stats. If they do not cover all the variants, the variants from any other
+     * chromosome are loaded by an extra worker that reads all the variants, discarding the listed chromosomes.
+     */
+    @SuppressWarnings("unchecked")
+    private VariantSearchLoadResult secondaryIndexByRegion(Query query, QueryOptions queryOptions, boolean overwrite,
+                                                           List<String> regions, ObjectMap options)
+            throws StorageEngineException, VariantSearchException {
+        String checkpointQuery = query.toJson() + (overwrite ? ",overwrite" : "");
+        Object checkpointObj = getMetadataManager().getProjectMetadata().getAttributes().get(SECONDARY_INDEX_CHECKPOINT);
+        ObjectMap checkpoint = checkpointObj instanceof Map ? new ObjectMap((Map<String, Object>) checkpointObj) : null;
+        long start = System.currentTimeMillis();
+        Set<String> loadedRegions = Collections.synchronizedSet(new HashSet<>());
+        if (checkpoint != null && checkpointQuery.equals(checkpoint.getString("query"))) {
+            // Resume from previous execution. Keep the original start time, so modifications after that are not lost
+            loadedRegions.addAll(checkpoint.getAsStringList("regions"));
+            start = checkpoint.getLong("start", start);
+            logger.info("Resume secondary index. Skip {} loaded regions: {}", loadedRegions.size(), loadedRegions);
+        } else {
+            writeSecondaryIndexCheckpoint(checkpointQuery, start, loadedRegions);
+        }
+        long startFinal = start;
+        VariantDBAdaptor dbAdaptor = getDBAdaptor();
+        Set<String> chromosomes = new HashSet<>(regions);
+        List<String> pendingRegions = new ArrayList<>(regions.size() + 1);
+        if (!loadedRegions.contains(SECONDARY_INDEX_OTHER_CHROMOSOMES) && !isCoveredByRegions(query, regions, dbAdaptor)) {
+            // Reads all the variants, so it goes first
+            pendingRegions.add(SECONDARY_INDEX_OTHER_CHROMOSOMES);
+        }
+        regions.stream().filter(r -> !loadedRegions.contains(r)).forEach(pendingRegions::add);
+
+        VariantSearchLoadResult load = new VariantSearchParallelLoader(getVariantSearchManager(), dbName)
+                .setNumThreads(options.getInt(SEARCH_LOAD_THREADS.key(), SEARCH_LOAD_THREADS.defaultValue()))
+                .setConcurrentUpdates(options.getInt(SEARCH_LOAD_CONCURRENT_UPDATES.key(), SEARCH_LOAD_CONCURRENT_UPDATES.defaultValue()))
+                .setProgressLogger(new ProgressLogger("Variants loaded in Solr:"))
+                .setLoadListener(newVariantSearchLoadListener(overwrite))
+                .setRegionListener(region -> {
+                    loadedRegions.add(region);
+                    writeSecondaryIndexCheckpoint(checkpointQuery, startFinal, loadedRegions);
+                })
+                .load(pendingRegions, region -> {
+                    if (region.equals(SECONDARY_INDEX_OTHER_CHROMOSOMES)) {
+                        VariantDBIterator iterator = getVariantsToIndex(overwrite, new Query(query), new QueryOptions(queryOptions),
+                                dbAdaptor);
+                        return VariantDBIterator.wrapper(Iterators.filter(iterator, v -> !chromosomes.contains(v.getChromosome())))
+                                .addCloseable(iterator);
+                    }
+                    Query regionQuery = new Query(query).append(VariantQueryParam.REGION.key(), region);
+                    return getVariantsToIndex(overwrite, regionQuery, new QueryOptions(queryOptions), dbAdaptor);
+                });
+
+        updateSecondaryIndexTimestamp(start);
+        getMetadataManager().updateProjectMetadata(projectMetadata -> {
+            projectMetadata.getAttributes().remove(SECONDARY_INDEX_CHECKPOINT);
+            return projectMetadata;
+        });
+        return load;
+    }
+
+    /**
+     * Check if the given chromosomes contain all the variants of the query.
+     *
+     * @param query     Query
+     * @param regions   Chromosomes
+     * @param dbAdaptor VariantDBAdaptor
+     * @return false if there are variants in other chromosomes, or they can not be counted
+     */
+    private boolean isCoveredByRegions(Query query, List<String> regions, VariantDBAdaptor dbAdaptor) {
+        try {
+            long total = dbAdaptor.count(new Query(query)).first();
+            long inRegions = dbAdaptor.count(new Query(query).append(VariantQueryParam.REGION.key(), regions)).first();
+            if (inRegions < total) {
+                logger.info("Found {} variants out of the chromosomes from the file stats", total - inRegions);
+                return false;
+            }
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Unable to count variants by chromosome", e);
+            return false;
+        }
+    }
+
+    private void writeSecondaryIndexCheckpoint(String query, long start, Set<String> loadedRegions) throws StorageEngineException {
+        ObjectMap checkpoint = new ObjectMap()
+                .append("query", query)
+                .append("start", start)
+                .append("regions", new ArrayList<>(loadedRegions));
+        getMetadataManager().updateProjectMetadata(projectMetadata -> {
+            projectMetadata.getAttributes().put(SECONDARY_INDEX_CHECKPOINT, checkpoint);
+            return projectMetadata;
+        });
+    }
+
+    private void updateSecondaryIndexTimestamp(long value) throws StorageEngineException {
+        getMetadataManager().updateProjectMetadata(projectMetadata -> {
+            projectMetadata.getAttributes().put(SEARCH_INDEX_LAST_TIMESTAMP.key(), value);
+            return projectMetadata;
+        });
+    }
+
+    /**
+     * Chromosomes of all the indexed files, sorted by number of variants, largest first.
+     *
+     * @return List of chromosomes. Empty if the files do not have stats
+     * @throws StorageEngineException if there is an error reading the file metadata
+     */
+    protected List<String> getSecondaryIndexRegions() throws StorageEngineException {
+        Map<String, Long> chromosomeCount = new HashMap<>();
+        VariantStorageMetadataManager metadataManager = getMetadataManager();
+        for (Integer studyId : metadataManager.getStudyIds()) {
+            Iterator<VariantFileMetadata> iterator = metadataManager.variantFileMetadataIterator(studyId, new QueryOptions());
+            while (iterator.hasNext()) {
+                VariantFileMetadata fileMetadata = iterator.next();
+                if (fileMetadata.getStats() == null || fileMetadata.getStats().getChromosomeCount() == null) {
+                    // Unknown chromosomes. Can not split by region
+                    return Collections.emptyList();
+                }
+                fileMetadata.getStats().getChromosomeCount()
+                        .forEach((chr, count) -> chromosomeCount.merge(chr, count.longValue(), Long::sum));
+            }
+        }
+        return chromosomeCount.entrySet()
+                .stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
     protected VariantDBIterator getVariantsToIndex(boolean overwrite, Query query, QueryOptions queryOptions, VariantDBAdaptor dbAdaptor)
             throws StorageEngineException {
         if (!overwrite) {
@@ -917,6 +1083,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         options = new ObjectMap(configuration.getVariantEngine(storageEngineId).getOptions());
         // Merge general options
         configuration.getVariant().getOptions().forEach(options::putIfNotNull);
+        options.put(ParallelTaskRunnerTuner.PROJECT, dbName);
         super.setConfiguration(configuration, storageEngineId, dbName);
     }
 
@@ -956,6 +1123,17 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         return variantSearchManager.get();
     }
 
+    public VariantQueryResultCache getVariantQueryResultCache() throws StorageEngineException {
+        if (variantQueryResultCache.get() == null) {
+            synchronized (variantQueryResultCache) {
+                if (variantQueryResultCache.get() == null) {
+                    variantQueryResultCache.set(new VariantQueryResultCache(new CacheManager(configuration), getMetadataManager(), dbName));
+                }
+            }
+        }
+        return variantQueryResultCache.get();
+    }
+
     public VariantQueryResult<Variant> getPhased(String variant, String studyName, String sampleName, QueryOptions options, int windowsSize)
             throws StorageEngineException {
         VariantQueryExecutor.setDefaultTimeout(options, getOptions());
@@ -986,8 +1164,14 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         }
         addDefaultLimit(options, getOptions());
         addDefaultSampleLimit(query, getOptions());
-        query = preProcessQuery(query, options);
-        return getVariantQueryExecutor(query, options).get(query, options);
+        Query finalQuery = preProcessQuery(query, options);
+        QueryOptions finalOptions = options;
+        try {
+            return getVariantQueryResultCache().get(finalQuery, finalOptions,
+                    () -> getVariantQueryExecutor(finalQuery, finalOptions).get(finalQuery, finalOptions));
+        } catch (StorageEngineException e) {
+            throw VariantQueryException.internalException(e);
+        }
     }
 
     @Override
@@ -1094,9 +1278,11 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
     }
 
     public DataResult<Long> count(Query query) throws StorageEngineException {
-        query = preProcessQuery(query, QueryOptions.empty());
-        VariantQueryExecutor variantQueryExecutor = getVariantQueryExecutor(query, new QueryOptions(QueryOptions.COUNT, true));
-        return variantQueryExecutor.count(query);
+        Query finalQuery = preProcessQuery(query, QueryOptions.empty());
+        return getVariantQueryResultCache().count(finalQuery, () -> {
+            VariantQueryExecutor variantQueryExecutor = getVariantQueryExecutor(finalQuery, new QueryOptions(QueryOptions.COUNT, true));
+            return variantQueryExecutor.count(finalQuery);
+        });
     }
 
 
@@ -1118,8 +1304,14 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
         // Hardcode INCLUDE to simplify preProcess operation, as the query does not return any study data.
         options.put(QueryOptions.INCLUDE, VariantField.ID.fieldName());
         addDefaultLimit(options, getOptions());
-        query = preProcessQuery(query, options);
-        return getVariantAggregationExecutor(query, options).aggregation(query, options);
+        Query finalQuery = preProcessQuery(query, options);
+        QueryOptions finalOptions = options;
+        try {
+            return getVariantQueryResultCache().facet(finalQuery, finalOptions,
+                    () -> getVariantAggregationExecutor(finalQuery, finalOptions).aggregation(finalQuery, finalOptions));
+        } catch (StorageEngineException e) {
+            throw VariantQueryException.internalException(e);
+        }
     }
 
     protected final List<VariantAggregationExecutor> getVariantAggregationExecutors() {
@@ -1138,7 +1330,7 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
 
         try {
             executors.add(new SearchIndexVariantAggregationExecutor(getVariantSearchManager(), getDBName()));
-            executors.add(new ChromDensityVariantAggregationExecutor(this, getMetadataManager()));
+            executors.add(new ChromDensityVariantAggregationExecutor(this, getMetadataManager(), getOptions()));
         } catch (Exception e) {
             throw VariantQueryException.internalException(e);
         }
@@ -1178,6 +1370,13 @@ public abstract class VariantStorageEngine extends StorageEngine<VariantDBAdapto
                 variantSearchManager.set(null);
             }
         }
+        if (variantQueryResultCache.get() != null) {
+            try {
+                variantQueryResultCache.get().getCacheManager().close();
+            } finally {
+                variantQueryResultCache.set(null);
+            }
+        }
         lazyVariantQueryExecutorsList.clear();
     }
 }
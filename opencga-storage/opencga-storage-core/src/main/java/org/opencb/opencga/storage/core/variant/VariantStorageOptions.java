@@ -24,6 +24,9 @@ public enum VariantStorageOptions implements ConfigurationOption {
     TRANSFORM_FAIL_ON_MALFORMED_VARIANT("transform.failOnMalformed", true),
     TRANSFORM_COMPRESSION("transform.compression", "gzip"),
     TRANSFORM_ISOLATE("transform.isolate", false), // Do not store file in metadata
+    TRANSFORM_STREAMING("transform.streaming", false), // Transform while loading, without intermediate file
+    TRANSFORM_STREAMING_SIDE_OUTPUT("transform.streaming.sideOutput", false), // Write the transformed file while streaming
+    TRANSFORM_STREAMING_QUEUE_CAPACITY("transform.streaming.queueCapacity", 10), // Max number of batches between transform and load
     NORMALIZATION_SKIP("normalization.skip", false), // Do not run normalization
     NORMALIZATION_REFERENCE_GENOME("normalization.referenceGenome"),
     NORMALIZATION_EXTENSIONS("normalization.extensions", ParamConstants.NONE),
@@ -77,9 +80,18 @@ public enum VariantStorageOptions implements ConfigurationOption {
     ANNOTATOR_CELLBASE_STAR_ALTERNATE("annotator.cellbase.starAlternate", false),
 
     INDEX_SEARCH("indexSearch", false), // Build secondary indexes using search engine.
+    SEARCH_LOAD_THREADS("search.load.numThreads", 1),                 // Regions loaded in parallel. 1 to load with a single iterator
+    SEARCH_LOAD_CONCURRENT_UPDATES("search.load.concurrentUpdates", 4), // Max concurrent update requests to the search engine
+
+    PIPELINE_AUTO_TUNE("pipeline.autoTune", false),                    // Tune threads and batch size of load, annotation, stats...
+    PIPELINE_AUTO_TUNE_MAX_THREADS("pipeline.autoTune.maxThreads", 0), // 0 for the number of available processors
+    PIPELINE_AUTO_TUNE_MAX_BATCH_SIZE("pipeline.autoTune.maxBatchSize", 5000),
+    PIPELINE_AUTO_TUNE_BATCH_MILLIS("pipeline.autoTune.batchMillis", 200), // Target time for a task to process one batch
 
     METADATA_LOCK_DURATION("metadata.lock.duration", 5000),
     METADATA_LOCK_TIMEOUT("metadata.lock.timeout", 60000),
+    METADATA_CACHE_MAX_SIZE("metadata.cache.maxSize", 100000), // Max number of entries per metadata cache
+    METADATA_CACHE_TTL("metadata.cache.ttl", 600000L),         // millis. Bounds the staleness between processes. 0 to disable
 
     QUERY_DEFAULT_TIMEOUT("query.timeout.default", 10000), // Default timeout for DBAdaptor operations. Only used if none is provided.
     QUERY_MAX_TIMEOUT("query.timeout.max", 30000),         // Max allowed timeout for DBAdaptor operations
@@ -94,6 +106,8 @@ public enum VariantStorageOptions implements ConfigurationOption {
     INTERSECT_PARAMS_THRESHOLD("search.intersect.params.threshold", 3),      // Minimum number of QueryParams in the query to intersect
 
     APPROXIMATE_COUNT_SAMPLING_SIZE("approximateCountSamplingSize", 1000),
+    AGGREGATION_THREADS("aggregation.numThreads", 4),                   // Partitions accumulated in parallel by local aggregations
+    AGGREGATION_APPROXIMATE_TIMEOUT("aggregation.approximate.timeout", 5000), // millis. Latency budget for approximate aggregations
     @Deprecated
     APPROXIMATE_COUNT("approximateCount", false),
 
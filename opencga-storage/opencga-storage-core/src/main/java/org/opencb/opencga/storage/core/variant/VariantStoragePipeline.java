@@ -28,12 +28,14 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.commons.lang3.tuple.Pair;
 import org.opencb.biodata.formats.io.FileFormatException;
+import org.opencb.biodata.formats.variant.io.VariantReader;
 import org.opencb.biodata.formats.variant.vcf4.VariantVcfFactory;
 import org.opencb.biodata.models.variant.StudyEntry;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantAvro;
 import org.opencb.biodata.models.variant.metadata.VariantFileHeaderComplexLine;
+import org.opencb.biodata.models.variant.metadata.VariantStudyMetadata;
 import org.opencb.biodata.tools.variant.VariantNormalizer;
 import org.opencb.biodata.tools.variant.VariantReferenceBlockCreatorTask;
 import org.opencb.biodata.tools.variant.VariantSorterTask;
@@ -63,10 +65,12 @@ import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.utils.ParallelTaskRunnerTuner;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.io.VariantReaderUtils;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.opencb.opencga.storage.core.variant.transform.MalformedVariantHandler;
+import org.opencb.opencga.storage.core.variant.transform.VariantTransformStreamReader;
 import org.opencb.opencga.storage.core.variant.transform.VariantTransformTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -102,6 +106,8 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
     protected final ObjectMap loadStats = new ObjectMap();
     protected Integer privateFileId;
     protected Integer privateStudyId;
+    private VariantTransformStreamReader streamingTransformReader;
+    private ParallelTaskRunnerTuner transformTuner;
 //    protected StudyMetadata privateStudyMetadata;
 
     /**
@@ -202,10 +208,14 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         // input: VcfReader
         // output: JsonWriter
 
+        if (isStreamingTransform(input)) {
+            // Variants will be transformed while loading. See #newVariantReader
+            logger.info("Streaming transform enabled. Variants from file '{}' will be transformed while loading",
+                    UriUtils.fileName(input));
+            transformStats.put(TRANSFORM_STREAMING.key(), true);
+            return input;
+        }
 
-        boolean failOnError = options.getBoolean(
-                VariantStorageOptions.TRANSFORM_FAIL_ON_MALFORMED_VARIANT.key(),
-                VariantStorageOptions.TRANSFORM_FAIL_ON_MALFORMED_VARIANT.defaultValue());
         String format = options.getString(
                 VariantStorageOptions.TRANSFORM_FORMAT.key(),
                 VariantStorageOptions.TRANSFORM_FORMAT.defaultValue());
@@ -220,91 +230,29 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         final VariantFileMetadata metadata = variantReaderUtils.readVariantFileMetadata(input, metadataTemplate, stdin);
 
         String fileName = UriUtils.fileName(input);
-        String studyId = String.valueOf(getStudyId());
-
-        int batchSize = options.getInt(
-                VariantStorageOptions.TRANSFORM_BATCH_SIZE.key(),
-                VariantStorageOptions.TRANSFORM_BATCH_SIZE.defaultValue());
 
         String compression = options.getString(
                 VariantStorageOptions.TRANSFORM_COMPRESSION.key(),
                 VariantStorageOptions.TRANSFORM_COMPRESSION.defaultValue());
-        String extension = "";
-        int numTasks = options.getInt(
-                VariantStorageOptions.TRANSFORM_THREADS.key(),
-                VariantStorageOptions.TRANSFORM_THREADS.defaultValue());
-        int capacity = options.getInt("blockingQueueCapacity", numTasks * 2);
-
-        if ("gzip".equalsIgnoreCase(compression) || "gz".equalsIgnoreCase(compression)) {
-            extension = ".gz";
-        } else if ("snappy".equalsIgnoreCase(compression) || "snz".equalsIgnoreCase(compression)) {
-            extension = ".snappy";
-        } else if (!compression.isEmpty()) {
-            throw new IllegalArgumentException("Unknown compression method " + compression);
-        }
+        String extension = getTransformExtension(compression);
 
         URI outputMalformedVariants = output.resolve(fileName + '.' + VariantReaderUtils.MALFORMED_FILE + ".txt");
         URI outputVariantsFile = output.resolve(fileName + '.' + VariantReaderUtils.VARIANTS_FILE + '.' + format + extension);
         URI outputMetaFile = VariantReaderUtils.getMetaFromTransformedFile(outputVariantsFile);
 
         // Close at the end!
-        final MalformedVariantHandler malformedHandler;
-        try {
-            malformedHandler = new MalformedVariantHandler(() -> {
-                try {
-                    return ioConnectorProvider.newOutputStream(outputMalformedVariants);
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-            });
-        } catch (IOException e) {
-            throw StorageEngineException.ioException(e);
-        }
+        final MalformedVariantHandler malformedHandler = newMalformedVariantHandler(outputMalformedVariants);
 
-        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                .setNumTasks(numTasks)
-                .setBatchSize(batchSize)
-                .setCapacity(capacity)
-                .setSorted(true)
-                .build();
+        ParallelTaskRunner.Config config = newTransformConfig();
 
         logger.info("Transforming variants using {} into {} ...", parser, format);
         StopWatch stopWatch;
 
-
         //Reader
-        long fileSize;
-        StringDataReader stringReader;
-        try {
-            stringReader = stdin ? new StringDataReader(System.in) : new StringDataReader(input, ioConnectorProvider);
-            fileSize = stdin ? -1 : ioConnectorProvider.size(input);
-        } catch (IOException e) {
-            throw StorageEngineException.ioException(e);
-        }
-        ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
-        stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
-
-        VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(studyId, metadata);
-
-        logger.info("Using HTSJDK to read variants.");
-        Pair<VCFHeader, VCFHeaderVersion> header = variantReaderUtils.readHtsHeader(input, stdin);
-
-        boolean parallelParse = true;
-        Task<Variant, Variant> normalizer;
-        if (getOptions().getBoolean(NORMALIZATION_SKIP.key())) {
-            normalizer = null;
-        } else {
-            boolean generateReferenceBlocks = options.getBoolean(VariantStorageOptions.GVCF.key(), false);
-            // Do not run parallelParse when generating reference blocks, as the task is stateful
-            parallelParse = !generateReferenceBlocks;
-            normalizer = initNormalizer(metadata);
-        }
+        StringDataReader stringReader = newTransformStringReader(input, stdin);
 
-        Supplier<Task<String, Variant>> task = () ->
-                new VariantTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculator, normalizer)
-                .setFailOnError(failOnError)
-                .addMalformedErrorHandler(malformedHandler)
-                .setIncludeSrc(false);
+        boolean parallelParse = isTransformParallelParse();
+        Supplier<Task<String, Variant>> task = newTransformTask(input, metadata, malformedHandler, stdin);
 
         ParallelTaskRunner ptr;
         if ("avro".equals(format)) {
@@ -357,7 +305,20 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         stopWatch.stop();
 
         logger.info("Variants transformed in " + TimeUtils.durationToString(stopWatch));
+        getTransformStats().put(ParallelTaskRunnerTuner.TUNING, transformTuner.report());
+
+        writeVariantFileMetadata(outputMetaFile, metadata);
+
+        // Close the malformed variant handler
+        malformedHandler.close();
+        if (malformedHandler.getMalformedLines() > 0) {
+            getTransformStats().put("malformed lines", malformedHandler.getMalformedLines());
+        }
+
+        return outputVariantsFile;
+    }
 
+    private void writeVariantFileMetadata(URI outputMetaFile, VariantFileMetadata metadata) throws StorageEngineException {
         try (OutputStream outputMetadataStream = ioConnectorProvider.newOutputStream(outputMetaFile)) {
             ObjectMapper jsonObjectMapper = new ObjectMapper();
             jsonObjectMapper.addMixIn(GenericRecord.class, GenericRecordAvroJsonMixin.class);
@@ -365,15 +326,237 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
         } catch (IOException e) {
             throw StorageEngineException.ioException(e);
         }
+    }
 
+    private String getTransformExtension(String compression) {
+        if ("gzip".equalsIgnoreCase(compression) || "gz".equalsIgnoreCase(compression)) {
+            return ".gz";
+        } else if ("snappy".equalsIgnoreCase(compression) || "snz".equalsIgnoreCase(compression)) {
+            return ".snappy";
+        } else if (!compression.isEmpty()) {
+            throw new IllegalArgumentException("Unknown compression method " + compression);
+        } else {
+            return "";
+        }
+    }
 
-        // Close the malformed variant handler
-        malformedHandler.close();
-        if (malformedHandler.getMalformedLines() > 0) {
-            getTransformStats().put("malformed lines", malformedHandler.getMalformedLines());
+    private MalformedVariantHandler newMalformedVariantHandler(URI outputMalformedVariants) throws StorageEngineException {
+        try {
+            return new MalformedVariantHandler(() -> {
+                try {
+                    return ioConnectorProvider.newOutputStream(outputMalformedVariants);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw StorageEngineException.ioException(e);
         }
+    }
 
-        return outputVariantsFile;
+    private ParallelTaskRunner.Config newTransformConfig() {
+        transformTuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.TRANSFORM, options.getString(STUDY.key()), options,
+                TRANSFORM_THREADS, TRANSFORM_BATCH_SIZE);
+
+        return ParallelTaskRunner.Config.builder()
+                .setNumTasks(transformTuner.getNumTasks())
+                .setBatchSize(transformTuner.getBatchSize())
+                .setCapacity(transformTuner.getCapacity())
+                .setSorted(true)
+                .build();
+    }
+
+    private StringDataReader newTransformStringReader(URI input, boolean stdin) throws StorageEngineException {
+        long fileSize;
+        StringDataReader stringReader;
+        try {
+            stringReader = stdin ? new StringDataReader(System.in) : new StringDataReader(input, ioConnectorProvider);
+            fileSize = stdin ? -1 : ioConnectorProvider.size(input);
+        } catch (IOException e) {
+            throw StorageEngineException.ioException(e);
+        }
+        ProgressLogger progressLogger = new ProgressLogger("Transforming file:", fileSize, 200);
+        stringReader.setReadBytesListener((totalRead, delta) -> progressLogger.increment(delta, "Bytes"));
+        return stringReader;
+    }
+
+    private boolean isTransformParallelParse() {
+        // Do not run parallelParse when generating reference blocks, as the task is stateful
+        return getOptions().getBoolean(NORMALIZATION_SKIP.key()) || !options.getBoolean(VariantStorageOptions.GVCF.key(), false);
+    }
+
+    private Supplier<Task<String, Variant>> newTransformTask(URI input, VariantFileMetadata metadata,
+                                                             MalformedVariantHandler malformedHandler, boolean stdin)
+            throws StorageEngineException {
+        boolean failOnError = options.getBoolean(
+                VariantStorageOptions.TRANSFORM_FAIL_ON_MALFORMED_VARIANT.key(),
+                VariantStorageOptions.TRANSFORM_FAIL_ON_MALFORMED_VARIANT.defaultValue());
+        String studyId = String.valueOf(getStudyId());
+
+        VariantSetStatsCalculator statsCalculator = new VariantSetStatsCalculator(studyId, metadata);
+
+        logger.info("Using HTSJDK to read variants.");
+        Pair<VCFHeader, VCFHeaderVersion> header = variantReaderUtils.readHtsHeader(input, stdin);
+
+        Task<Variant, Variant> normalizer;
+        if (getOptions().getBoolean(NORMALIZATION_SKIP.key())) {
+            normalizer = null;
+        } else {
+            normalizer = initNormalizer(metadata);
+        }
+
+        return () -> new VariantTransformTask(header.getKey(), header.getValue(), studyId, metadata, statsCalculator, normalizer)
+                .setFailOnError(failOnError)
+                .addMalformedErrorHandler(malformedHandler)
+                .setIncludeSrc(false);
+    }
+
+    /**
+     * Check if the transform step should be executed while loading the file, without the intermediate transformed file.
+     * Only raw VCF files can be streamed.
+     *
+     * @param input Input file
+     * @return if the transform should be streamed
+     */
+    protected boolean isStreamingTransform(URI input) {
+        return options.getBoolean(TRANSFORM_STREAMING.key(), TRANSFORM_STREAMING.defaultValue())
+                && !options.getBoolean(TRANSFORM_ISOLATE.key(), TRANSFORM_ISOLATE.defaultValue())
+                && !options.getBoolean(STDOUT.key(), STDOUT.defaultValue())
+                && VariantReaderUtils.isVcf(input.getPath());
+    }
+
+    /**
+     * Get a reader for the variants to load.
+     *
+     * If the streaming transform is enabled and the input is a raw VCF file, the file will be transformed on the fly,
+     * in a background thread. Otherwise, reads the already transformed file.
+     *
+     * @param input    Input file
+     * @param outdir   Output directory, for the malformed variants and the optional transformed file
+     * @param metadata Study metadata
+     * @return Variant reader
+     * @throws StorageEngineException if the format is not valid or there is an error reading
+     */
+    protected DataReader<Variant> newVariantReader(URI input, URI outdir, VariantStudyMetadata metadata)
+            throws StorageEngineException {
+        boolean stdin = options.getBoolean(STDIN.key(), STDIN.defaultValue());
+        if (isStreamingTransform(input)) {
+            return newStreamingTransformReader(input, outdir, stdin);
+        } else {
+            return variantReaderUtils.getVariantReader(input, metadata, stdin);
+        }
+    }
+
+    /**
+     * Get the VariantFileMetadata from a reader created with {@link #newVariantReader}.
+     * The stats of streamed files are only complete after reading all the variants.
+     *
+     * @param reader Variant reader
+     * @return VariantFileMetadata
+     */
+    protected static VariantFileMetadata getVariantFileMetadata(DataReader<Variant> reader) {
+        if (reader instanceof VariantTransformStreamReader) {
+            return ((VariantTransformStreamReader) reader).getVariantFileMetadata();
+        } else {
+            return ((VariantReader) reader).getVariantFileMetadata();
+        }
+    }
+
+    private VariantTransformStreamReader newStreamingTransformReader(URI input, URI outdir, boolean stdin)
+            throws StorageEngineException {
+        String fileName = UriUtils.fileName(input);
+        VariantFileMetadata metadataTemplate = createEmptyVariantFileMetadata(input);
+        VariantFileMetadata metadata = variantReaderUtils.readVariantFileMetadata(input, metadataTemplate, stdin);
+
+        MalformedVariantHandler malformedHandler =
+                newMalformedVariantHandler(outdir.resolve(fileName + '.' + VariantReaderUtils.MALFORMED_FILE + ".txt"));
+        StringDataReader stringReader = newTransformStringReader(input, stdin);
+        boolean parallelParse = isTransformParallelParse();
+        Supplier<Task<String, Variant>> task = newTransformTask(input, metadata, malformedHandler, stdin);
+        ParallelTaskRunner.Config config = newTransformConfig();
+
+        DataWriter<Variant> sideOutput = null;
+        URI outputMetaFile = null;
+        if (options.getBoolean(TRANSFORM_STREAMING_SIDE_OUTPUT.key(), TRANSFORM_STREAMING_SIDE_OUTPUT.defaultValue())) {
+            // The side output is always written in avro
+            String compression = options.getString(TRANSFORM_COMPRESSION.key(), TRANSFORM_COMPRESSION.defaultValue());
+            URI outputVariantsFile = outdir.resolve(fileName + '.' + VariantReaderUtils.VARIANTS_FILE + ".avro"
+                    + getTransformExtension(compression));
+            outputMetaFile = VariantReaderUtils.getMetaFromTransformedFile(outputVariantsFile);
+            sideOutput = newAvroVariantWriter(outputVariantsFile, compression);
+            logger.info("Write transformed variants into {}", outputVariantsFile);
+        }
+        int queueCapacity = options.getInt(TRANSFORM_STREAMING_QUEUE_CAPACITY.key(), TRANSFORM_STREAMING_QUEUE_CAPACITY.defaultValue());
+
+        logger.info("Streaming transform of file '{}' ...", fileName);
+        URI finalOutputMetaFile = outputMetaFile;
+        streamingTransformReader = new VariantTransformStreamReader(
+                writer -> buildTransformPtr(parallelParse, stringReader, task, () -> Task.forEach(v -> v), writer, config),
+                sideOutput, metadata, queueCapacity) {
+            @Override
+            public boolean post() {
+                super.post();
+                try {
+                    malformedHandler.close();
+                    if (finalOutputMetaFile != null) {
+                        writeVariantFileMetadata(finalOutputMetaFile, getVariantFileMetadata());
+                    }
+                } catch (StorageEngineException e) {
+                    throw new RuntimeException(e);
+                }
+                if (malformedHandler.getMalformedLines() > 0) {
+                    getTransformStats().put("malformed lines", malformedHandler.getMalformedLines());
+                }
+                getTransformStats().put(ParallelTaskRunnerTuner.TUNING, transformTuner.report());
+                return true;
+            }
+        };
+        return streamingTransformReader;
+    }
+
+    private DataWriter<Variant> newAvroVariantWriter(URI outputVariantsFile, String compression) throws StorageEngineException {
+        AvroFileWriter<ByteBuffer> avroWriter;
+        try {
+            avroWriter = new AvroFileWriter<>(VariantAvro.getClassSchema(), compression,
+                    ioConnectorProvider.newOutputStreamRaw(outputVariantsFile), true);
+        } catch (IOException e) {
+            throw StorageEngineException.ioException(e);
+        }
+        AvroEncoder<VariantAvro> encoder = new AvroEncoder<>(VariantAvro.getClassSchema(), true);
+        return new DataWriter<Variant>() {
+            @Override
+            public boolean open() {
+                return avroWriter.open();
+            }
+
+            @Override
+            public boolean pre() {
+                return avroWriter.pre();
+            }
+
+            @Override
+            public boolean write(List<Variant> batch) {
+                List<VariantAvro> avros = new ArrayList<>(batch.size());
+                for (Variant variant : batch) {
+                    avros.add(variant.getImpl());
+                }
+                try {
+                    return avroWriter.write(encoder.apply(avros));
+                } catch (Exception e) {
+                    throw new RuntimeException("Error writing transformed variants", e);
+                }
+            }
+
+            @Override
+            public boolean post() {
+                return avroWriter.post();
+            }
+
+            @Override
+            public boolean close() {
+                return avroWriter.close();
+            }
+        };
     }
 
     protected Task<Variant, Variant> initNormalizer(VariantFileMetadata metadata) throws StorageEngineException {
@@ -426,18 +609,24 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
                                                      ParallelTaskRunner.Config config) {
 
         logger.info("Multi thread transform... [1 reading, {} transforming, 1 writing]", config.getNumTasks());
+        ParallelTaskRunnerTuner tuner = transformTuner == null
+                ? new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.TRANSFORM, options.getString(STUDY.key()), options,
+                        TRANSFORM_THREADS, TRANSFORM_BATCH_SIZE)
+                : transformTuner;
         if (parallelParse) {
+            Supplier<Task<String, W>> parseAndEncode = () -> task.get().then(encoder.get());
             return new ParallelTaskRunner<String, W>(
-                    stringReader,
-                    () -> task.get().then(encoder.get()),
-                    dataWriter,
+                    tuner.reader(stringReader),
+                    tuner.taskSupplier(parseAndEncode),
+                    tuner.writer(dataWriter),
                     config
             );
         } else {
+            DataReader<Variant> variantReader = stringReader.then(task.get());
             return new ParallelTaskRunner<Variant, W>(
-                    stringReader.then(task.get()),
-                    encoder,
-                    dataWriter,
+                    tuner.reader(variantReader),
+                    tuner.taskSupplier(encoder),
+                    tuner.writer(dataWriter),
                     config
             );
         }
@@ -652,6 +841,14 @@ public abstract class VariantStoragePipeline implements StoragePipeline {
             finalFileIds = fileIds;
         }
 
+        if (streamingTransformReader != null) {
+            // Store the VariantFileMetadata with the stats computed while streaming
+            VariantFileMetadata fileMetadata = streamingTransformReader.getVariantFileMetadata();
+            fileMetadata.setId(String.valueOf(getFileId()));
+            getMetadataManager().updateVariantFileMetadata(studyId, fileMetadata);
+            loadStats.put(TRANSFORM_STREAMING.key(), streamingTransformReader.getStats());
+        }
+
         // Check loaded variants BEFORE updating the StudyMetadata
         checkLoadedVariants(finalFileIds, getStudyMetadata());
 
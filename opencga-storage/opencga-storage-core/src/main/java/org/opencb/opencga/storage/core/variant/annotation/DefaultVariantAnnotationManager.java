@@ -45,6 +45,7 @@ import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.utils.ParallelTaskRunnerTuner;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
@@ -212,12 +213,8 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
         /** Getting iterator from OpenCGA Variant database. **/
         QueryOptions iteratorQueryOptions = getIteratorQueryOptions(query, params);
 
-        int batchSize = params.getInt(
-                VariantStorageOptions.ANNOTATION_BATCH_SIZE.key(),
-                VariantStorageOptions.ANNOTATION_BATCH_SIZE.defaultValue());
-        int numThreads = params.getInt(
-                VariantStorageOptions.ANNOTATION_THREADS.key(),
-                VariantStorageOptions.ANNOTATION_THREADS.defaultValue());
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.ANNOTATION, null, params,
+                VariantStorageOptions.ANNOTATION_THREADS, VariantStorageOptions.ANNOTATION_BATCH_SIZE);
         int timeoutSeconds = (int) TimeUnit.MILLISECONDS.toSeconds(params.getInt(
                 VariantStorageOptions.ANNOTATION_TIMEOUT.key(),
                 VariantStorageOptions.ANNOTATION_TIMEOUT.defaultValue()));
@@ -266,14 +263,16 @@ public class DefaultVariantAnnotationManager extends VariantAnnotationManager {
             }
 
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                    .setNumTasks(numThreads)
-                    .setBatchSize(batchSize)
+                    .setNumTasks(tuner.getNumTasks())
+                    .setBatchSize(tuner.getBatchSize())
+                    .setCapacity(tuner.getCapacity())
                     .setAbortOnFail(true)
                     .setReadQueuePutTimeout(timeoutSeconds, TimeUnit.SECONDS)
                     .setSorted(false).build();
-            ParallelTaskRunner<Variant, VariantAnnotation> parallelTaskRunner =
-                    new ParallelTaskRunner<>(variantDataReader, annotationTask, variantAnnotationDataWriter, config);
+            ParallelTaskRunner<Variant, VariantAnnotation> parallelTaskRunner = new ParallelTaskRunner<>(tuner.reader(variantDataReader),
+                    tuner.task(annotationTask), tuner.writer(variantAnnotationDataWriter), config);
             parallelTaskRunner.run();
+            tuner.report();
         } catch (ExecutionException e) {
             throw new VariantAnnotatorException("Error creating annotations", e);
         }
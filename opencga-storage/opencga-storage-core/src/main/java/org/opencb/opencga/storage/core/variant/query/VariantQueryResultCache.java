@@ -0,0 +1,216 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.VariantAvro;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Event;
+import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.common.JacksonUtils;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.cache.CacheManager;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches the results of variant queries using a {@link CacheManager}.
+ *
+ * Keys are built from the pre-processed (normalized) query, and include the data version of each study involved in the
+ * query, computed from the tasks registered in the {@link VariantStorageMetadataManager}. Any new or modified task (load,
+ * annotation, stats, ...) changes the data version of its study, so the cached results from previous versions are no longer
+ * reachable, even if the task was executed by a different process. Cached results of other studies are not affected.
+ *
+ * Cached results are mutable objects, so they are copied when stored and when returned.
+ */
+public class VariantQueryResultCache {
+
+    public static final String VARIANT = "var";
+    public static final String GET = VARIANT + ".get";
+    public static final String COUNT = VARIANT + ".count";
+    public static final String FACET = VARIANT + ".facet";
+
+    // Max time to reuse the data version of a study without checking the metadata
+    private static final long VERSION_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final CacheManager cacheManager;
+    private final VariantStorageMetadataManager metadataManager;
+    private final String dbName;
+
+    private final Map<Integer, StudyVersion> studyVersions = new ConcurrentHashMap<>();
+
+    public VariantQueryResultCache(CacheManager cacheManager, VariantStorageMetadataManager metadataManager, String dbName) {
+        this.cacheManager = cacheManager;
+        this.metadataManager = metadataManager;
+        this.dbName = dbName;
+        // Changes made from this process are visible immediately
+        metadataManager.addTaskListener(task -> studyVersions.remove(task.getStudyId()));
+    }
+
+    public boolean isActive(String type) {
+        return cacheManager.isActive() && cacheManager.isTypeAllowed(type);
+    }
+
+    public VariantQueryResult<Variant> get(Query query, QueryOptions options, Supplier<VariantQueryResult<Variant>> supplier) {
+        return get(GET, query, options, supplier, VariantQueryResultCache::copyVariant);
+    }
+
+    public DataResult<Long> count(Query query, Supplier<DataResult<Long>> supplier) {
+        // Long values are immutable
+        return get(COUNT, query, null, supplier, UnaryOperator.identity());
+    }
+
+    public DataResult<FacetField> facet(Query query, QueryOptions options, Supplier<DataResult<FacetField>> supplier) {
+        return get(FACET, query, options, supplier, VariantQueryResultCache::copyFacetField);
+    }
+
+    public CacheManager getCacheManager() {
+        return cacheManager;
+    }
+
+    private <E, T extends DataResult<E>> T get(String type, Query query, QueryOptions options, Supplier<T> supplier,
+                                               UnaryOperator<E> copy) {
+        if (!isActive(type)) {
+            return supplier.get();
+        }
+        String key = cacheManager.createKey(dbName + ":" + getDataVersion(query), type, query, options);
+        T result = cacheManager.get(key);
+        if (result != null) {
+            return copyResult(result, copy);
+        }
+        result = supplier.get();
+        if (cacheManager.isCacheable(result)) {
+            cacheManager.set(key, copyResult(result, copy));
+        }
+        return result;
+    }
+
+    private String getDataVersion(Query query) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer studyId : getStudies(query)) {
+            if (sb.length() > 0) {
+                sb.append('-');
+            }
+            sb.append(studyId).append('.').append(Long.toHexString(getStudyVersion(studyId)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Get the studies that might be involved in the query, sorted by id. All studies if the query is not restricted to
+     * some studies.
+     *
+     * @param query Query
+     * @return      Sorted list of study ids
+     */
+    private Collection<Integer> getStudies(Query query) {
+        if (VariantQueryUtils.isValidParam(query, VariantQueryParam.STUDY)) {
+            Set<Integer> studies = new TreeSet<>();
+            for (String study : VariantQueryUtils.splitValue(query.getString(VariantQueryParam.STUDY.key())).getValue()) {
+                Integer studyId = VariantQueryUtils.isNegated(study) ? null : metadataManager.getStudyIdOrNull(study);
+                if (studyId == null) {
+                    studies = null;
+                    break;
+                }
+                studies.add(studyId);
+            }
+            if (studies != null) {
+                return studies;
+            }
+        }
+        return new TreeSet<>(metadataManager.getStudyIds());
+    }
+
+    private long getStudyVersion(int studyId) {
+        StudyVersion studyVersion = studyVersions.get(studyId);
+        if (studyVersion == null || System.nanoTime() - studyVersion.timestamp > VERSION_REFRESH_NANOS) {
+            studyVersion = new StudyVersion(computeStudyVersion(studyId), System.nanoTime());
+            studyVersions.put(studyId, studyVersion);
+        }
+        return studyVersion.version;
+    }
+
+    private long computeStudyVersion(int studyId) {
+        long hash = 1;
+        Iterator<TaskMetadata> iterator = metadataManager.taskIterator(studyId);
+        while (iterator.hasNext()) {
+            TaskMetadata task = iterator.next();
+            hash = 31 * hash + task.getId();
+            hash = 31 * hash + task.getStatus().size();
+            TaskMetadata.Status status = task.currentStatus();
+            hash = 31 * hash + (status == null ? 0 : status.ordinal());
+        }
+        return hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E, T extends DataResult<E>> T copyResult(T result, UnaryOperator<E> copy) {
+        List<E> results = new ArrayList<>(result.getResults() == null ? 0 : result.getResults().size());
+        if (result.getResults() != null) {
+            for (E e : result.getResults()) {
+                results.add(e == null ? null : copy.apply(e));
+            }
+        }
+        List<Event> events = new ArrayList<>();
+        if (result.getEvents() != null) {
+            events.addAll(result.getEvents());
+        }
+        VariantQueryResult<E> copyResult = new VariantQueryResult<>(result.getTime(), result.getNumResults(), result.getNumMatches(),
+                events, results);
+        copyResult.setNumInserted(result.getNumInserted());
+        copyResult.setNumUpdated(result.getNumUpdated());
+        copyResult.setNumDeleted(result.getNumDeleted());
+        copyResult.setAttributes(result.getAttributes() == null ? new ObjectMap() : new ObjectMap(copyMap(result.getAttributes())));
+        return (T) copyResult;
+    }
+
+    private static Map<String, Object> copyMap(Map<String, ?> map) {
+        Map<String, Object> copy = new LinkedHashMap<>(map.size());
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            copy.put(entry.getKey(), copyValue(entry.getValue()));
+        }
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object copyValue(Object value) {
+        if (value instanceof Map) {
+            return copyMap((Map<String, ?>) value);
+        } else if (value instanceof Collection) {
+            List<Object> copy = new ArrayList<>(((Collection<?>) value).size());
+            for (Object o : ((Collection<?>) value)) {
+                copy.add(copyValue(o));
+            }
+            return copy;
+        } else {
+            return value;
+        }
+    }
+
+    private static Variant copyVariant(Variant variant) {
+        return new Variant(VariantAvro.newBuilder(variant.getImpl()).build());
+    }
+
+    private static FacetField copyFacetField(FacetField field) {
+        return JacksonUtils.getDefaultObjectMapper().convertValue(field, FacetField.class);
+    }
+
+    private static final class StudyVersion {
+        private final long version;
+        private final long timestamp;
+
+        private StudyVersion(long version, long timestamp) {
+            this.version = version;
+            this.timestamp = timestamp;
+        }
+    }
+
+}
@@ -4,12 +4,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.Event;
 import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
 import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.commons.datastore.solr.FacetQueryParser;
 import org.opencb.opencga.core.response.VariantQueryResult;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantIterable;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
@@ -22,22 +25,38 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
 import java.util.regex.Matcher;
 
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
 import static org.opencb.opencga.storage.core.variant.search.solr.SolrQueryParser.CHROM_DENSITY;
 
 public class ChromDensityVariantAggregationExecutor extends VariantAggregationExecutor {
 
     protected static final Set<String> ACCEPTED_CHROM_DENSITY_NESTED = new HashSet<>(Arrays.asList("type"));
 
+    protected static final String APPROXIMATE_COUNT_ERROR = "approximateCountError";
+    // Minimum number of variants to read from each partition before giving up by timeout
+    private static final int MIN_SAMPLING_SIZE = 10;
+    // Partitions of each region with approximate count. More partitions spread the sampling along the region.
+    private static final int APPROXIMATE_PARTITIONS = 32;
+    // Max number of partitions of each region, to bound the number of iterators
+    private static final int MAX_PARTITIONS = 64;
+
     private final VariantIterable iterable;
     private final VariantStorageMetadataManager metadataManager;
+    private final ObjectMap options;
     private Logger logger = LoggerFactory.getLogger(ChromDensityVariantAggregationExecutor.class);
 
     public ChromDensityVariantAggregationExecutor(VariantIterable iterable, VariantStorageMetadataManager metadataManager) {
+        this(iterable, metadataManager, new ObjectMap());
+    }
+
+    public ChromDensityVariantAggregationExecutor(VariantIterable iterable, VariantStorageMetadataManager metadataManager,
+                                                  ObjectMap options) {
         this.iterable = iterable;
         this.metadataManager = metadataManager;
+        this.options = options == null ? new ObjectMap() : options;
     }
 
     @Override
@@ -111,40 +130,181 @@ public class ChromDensityVariantAggregationExecutor extends VariantAggregationEx
             throw new VariantQueryException("Unable to calculate aggregated stats query without a region or gene");
         }
 
-        List<FacetField.Bucket> regionBuckets = new ArrayList<>(regions.size());
-        long numMatches = 0;
-        for (Region region : regions) {
-            Query regionQuery = new Query(query).append(VariantQueryParam.REGION.key(), region);
-            VariantDBIterator iterator = iterable.iterator(
-                    regionQuery,
-                    new QueryOptions()
-                            .append(QueryOptions.INCLUDE, VariantField.ID)
-                            .append(QueryOptions.SORT, true));
+        int numThreads = getInt(options, AGGREGATION_THREADS);
+        boolean approximate = options.getBoolean(APPROXIMATE_COUNT.key(), false);
+        int samplingSize = approximate ? getInt(options, APPROXIMATE_COUNT_SAMPLING_SIZE) : 0;
+        long deadline = approximate
+                ? System.currentTimeMillis() + getInt(options, AGGREGATION_APPROXIMATE_TIMEOUT)
+                : Long.MAX_VALUE;
 
+        // Split each region in partitions, aligned to the step. Partitions are accumulated in parallel, and merged by region.
+        int numPartitions = Math.min(MAX_PARTITIONS, approximate ? Math.max(APPROXIMATE_PARTITIONS, numThreads * 2) : numThreads * 2);
+        List<VariantChromDensityAccumulator> accumulators = new ArrayList<>(regions.size());
+        List<List<Partition>> regionPartitions = new ArrayList<>(regions.size());
+        List<Partition> allPartitions = new ArrayList<>();
+        for (Region region : regions) {
             VariantChromDensityAccumulator chromDensityAccumulator =
                     new VariantChromDensityAccumulator(metadataManager, region, nestedFieldAccumulator, step);
+            accumulators.add(chromDensityAccumulator);
+            List<Partition> partitions = split(region, step, numPartitions, nestedFieldAccumulator, chromDensityAccumulator);
+            regionPartitions.add(partitions);
+            allPartitions.addAll(partitions);
+            logger.info("Query : " + new Query(query).append(VariantQueryParam.REGION.key(), region).toJson()
+                    + " in " + partitions.size() + " partitions");
+        }
 
-            logger.info("Query : " + regionQuery.toJson());
-
-            FacetField regionField = chromDensityAccumulator.createField();
-
-            int count = 0;
-            while (iterator.hasNext()) {
-                count++;
-                chromDensityAccumulator.accumulate(regionField, iterator.next());
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, allPartitions.size())));
+        List<FacetField.Bucket> regionBuckets = new ArrayList<>(regions.size());
+        long numMatches = 0;
+        int sampledVariants = 0;
+        double variance = 0;
+        try {
+            for (List<Partition> partitions : regionPartitions) {
+                // The sampling size of each region is divided across its partitions
+                int partitionSamplingSize = samplingSize > 0
+                        ? Math.max(MIN_SAMPLING_SIZE, (samplingSize + partitions.size() - 1) / partitions.size())
+                        : 0;
+                for (Partition partition : partitions) {
+                    partition.future = executorService.submit(() -> partition.accumulate(query, partitionSamplingSize, deadline));
+                }
             }
-            numMatches += count;
+            for (int i = 0; i < regions.size(); i++) {
+                VariantChromDensityAccumulator chromDensityAccumulator = accumulators.get(i);
+                FacetField regionField = chromDensityAccumulator.createField();
+                long count = 0;
+                for (Partition partition : regionPartitions.get(i)) {
+                    partition.future.get();
+                    if (partition.truncated) {
+                        // Extrapolate the partition from the covered length
+                        double factor = partition.getScaleFactor();
+                        partition.accumulator.extrapolate(partition.field, partition.lastStart);
+                        count += Math.round(partition.count * factor);
+                        variance += factor * factor * partition.count;
+                    } else {
+                        count += partition.count;
+                    }
+                    sampledVariants += partition.count;
+                    chromDensityAccumulator.merge(regionField, partition.field);
+                }
+                numMatches += count;
 
-            chromDensityAccumulator.evaluate(regionField);
-            regionBuckets.add(new FacetField.Bucket(region.getChromosome(), count, Collections.singletonList(regionField)));
+                chromDensityAccumulator.evaluate(regionField);
+                regionBuckets.add(new FacetField.Bucket(regions.get(i).getChromosome(), count, Collections.singletonList(regionField)));
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        } finally {
+            // Cancel pending partitions, if any
+            executorService.shutdownNow();
         }
 
         FacetField field = new FacetField(
                 CHROM_DENSITY,
                 regionBuckets.size(),
                 regionBuckets);
-        return new VariantQueryResult<>((int) stopWatch.getTime(TimeUnit.MILLISECONDS), 1, numMatches, Collections.emptyList(),
-                Collections.singletonList(field), null, null);
+        VariantQueryResult<FacetField> result = new VariantQueryResult<>((int) stopWatch.getTime(TimeUnit.MILLISECONDS), 1, numMatches,
+                new ArrayList<>(), Collections.singletonList(field), null, null);
+        if (approximate) {
+            // 95% confidence interval of the total count, assuming the variants of each partition are uniformly distributed
+            long error = Math.round(1.96 * Math.sqrt(variance));
+            result.setApproximateCount(error > 0);
+            result.setApproximateCountSamplingSize(sampledVariants);
+            result.getAttributes().put(APPROXIMATE_COUNT_ERROR, error);
+            if (error > 0) {
+                result.getEvents().add(new Event(Event.Type.WARNING, "Approximate " + CHROM_DENSITY + " estimated from "
+                        + sampledVariants + " variants. Total count " + numMatches + " +/- " + error + " (95% confidence)"));
+            }
+        }
+        return result;
+    }
+
+    private int getInt(QueryOptions options, VariantStorageOptions option) {
+        return options.getInt(option.key(), this.options.getInt(option.key(), option.defaultValue()));
+    }
+
+    // Split the region in at most numPartitions partitions, aligned to the step.
+    // Each partition has its own accumulator, so its field only contains the buckets of the partition.
+    private List<Partition> split(Region region, int step, int numPartitions, FacetFieldAccumulator<Variant> nestedFieldAccumulator,
+                                  VariantChromDensityAccumulator accumulator) {
+        if (region.getEnd() == Integer.MAX_VALUE) {
+            // Unknown region length. Can not be split nor extrapolated
+            return Collections.singletonList(new Partition(accumulator, region, true, true));
+        }
+        long regionLength = region.getEnd() - region.getStart() + 1L;
+        long steps = (regionLength + step - 1) / step;
+        long partitionLength = Math.max(1, (steps + numPartitions - 1) / numPartitions) * step;
+        if (partitionLength >= regionLength) {
+            return Collections.singletonList(new Partition(accumulator, region, true, true));
+        }
+        List<Partition> partitions = new ArrayList<>();
+        for (long start = region.getStart(); start <= region.getEnd(); start += partitionLength) {
+            long end = Math.min(region.getEnd(), start + partitionLength - 1);
+            Region partitionRegion = new Region(region.getChromosome(), (int) start, (int) end);
+            partitions.add(new Partition(new VariantChromDensityAccumulator(metadataManager, partitionRegion, nestedFieldAccumulator, step),
+                    partitionRegion, start == region.getStart(), end == region.getEnd()));
+        }
+        return partitions;
+    }
+
+    /**
+     * Sub region of a chrom density region, accumulated in its own field.
+     */
+    private final class Partition {
+        private final VariantChromDensityAccumulator accumulator;
+        private final Region region;
+        // Variants overlapping the region are accepted only in the first partition
+        private final boolean first;
+        private final boolean last;
+        private FacetField field;
+        private int count;
+        private boolean truncated;
+        private int lastStart;
+        private Future<Partition> future;
+
+        private Partition(VariantChromDensityAccumulator accumulator, Region region, boolean first, boolean last) {
+            this.accumulator = accumulator;
+            this.region = region;
+            this.first = first;
+            this.last = last;
+        }
+
+        private Partition accumulate(Query query, int limit, long deadline) throws Exception {
+            if (region.getEnd() == Integer.MAX_VALUE) {
+                // Can not extrapolate without the region length
+                limit = 0;
+            }
+            Query partitionQuery = new Query(query).append(VariantQueryParam.REGION.key(), region);
+            field = accumulator.createField();
+            try (VariantDBIterator iterator = iterable.iterator(partitionQuery, new QueryOptions()
+                    .append(QueryOptions.INCLUDE, VariantField.ID)
+                    .append(QueryOptions.SORT, true))) {
+                while (iterator.hasNext()) {
+                    Variant variant = iterator.next();
+                    if (!first && variant.getStart() < region.getStart() || !last && variant.getStart() > region.getEnd()) {
+                        continue;
+                    }
+                    count++;
+                    lastStart = variant.getStart();
+                    accumulator.accumulate(field, variant);
+                    if (limit > 0 && (count >= limit || count >= MIN_SAMPLING_SIZE && System.currentTimeMillis() > deadline)) {
+                        truncated = iterator.hasNext();
+                        break;
+                    }
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException();
+                    }
+                }
+            }
+            return this;
+        }
+
+        private double getScaleFactor() {
+            double coveredLength = Math.max(1, lastStart - region.getStart() + 1);
+            return Math.max(1, (region.getEnd() - region.getStart() + 1) / coveredLength);
+        }
     }
 
     private VariantQueryException invalidNestedField(String nestedFieldName) {
@@ -86,6 +86,47 @@ public class ChromDensityAccumulator<T> extends FacetFieldAccumulator<T> {
         }
     }
 
+    /**
+     * Extrapolate a field accumulated only up to the given position, e.g. from a sample of the elements of the region.
+     * The part of each bucket after that position is estimated with the mean density of the accumulated part of the region.
+     * Must be called before evaluating the field.
+     *
+     * @param field     Field created by this accumulator
+     * @param lastStart Start of the last accumulated element
+     */
+    public void extrapolate(FacetField field, int lastStart) {
+        long coveredLength = Math.max(1, lastStart - region.getStart() + 1L);
+        long accumulated = field.getCount();
+        FacetFieldAccumulator<T> nestedFieldAccumulator = getNestedFieldAccumulator();
+        FacetField accumulatedNestedField = null;
+        List<FacetField.Bucket> buckets = field.getBuckets();
+        if (nestedFieldAccumulator != null) {
+            accumulatedNestedField = nestedFieldAccumulator.createField();
+            for (FacetField.Bucket bucket : buckets) {
+                nestedFieldAccumulator.merge(accumulatedNestedField, bucket.getFacetFields().get(0));
+            }
+        }
+        for (int i = 0; i < buckets.size(); i++) {
+            long bucketStart = region.getStart() + (long) i * step;
+            long bucketEnd = Math.min(region.getEnd(), bucketStart + step - 1);
+            long uncoveredLength = bucketEnd - Math.max(bucketStart, lastStart + 1L) + 1;
+            if (uncoveredLength <= 0) {
+                continue;
+            }
+            double factor = (double) uncoveredLength / coveredLength;
+            FacetField.Bucket bucket = buckets.get(i);
+            long estimate = Math.round(accumulated * factor);
+            bucket.addCount(estimate);
+            field.addCount(estimate);
+            if (nestedFieldAccumulator != null) {
+                FacetField nestedEstimate = nestedFieldAccumulator.createField();
+                nestedFieldAccumulator.merge(nestedEstimate, accumulatedNestedField);
+                nestedFieldAccumulator.scale(nestedEstimate, factor);
+                nestedFieldAccumulator.merge(bucket.getFacetFields().get(0), nestedEstimate);
+            }
+        }
+    }
+
     protected Integer getStart(T variant) {
         return getStart.apply(variant);
     }
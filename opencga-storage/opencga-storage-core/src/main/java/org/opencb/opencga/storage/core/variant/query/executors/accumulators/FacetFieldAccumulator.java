@@ -3,7 +3,9 @@ package org.opencb.opencga.storage.core.variant.query.executors.accumulators;
 import org.opencb.commons.datastore.core.FacetField;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public abstract class FacetFieldAccumulator<T> {
     private FacetFieldAccumulator<T> nestedFieldAccumulator;
@@ -17,6 +19,10 @@ public abstract class FacetFieldAccumulator<T> {
         return this;
     }
 
+    protected FacetFieldAccumulator<T> getNestedFieldAccumulator() {
+        return nestedFieldAccumulator;
+    }
+
     /**
      * Get field name.
      * @return Field name
@@ -86,4 +92,45 @@ public abstract class FacetFieldAccumulator<T> {
     }
 
     protected abstract List<FacetField.Bucket> getBuckets(FacetField field, T t);
+
+    /**
+     * Merge into the given field the values accumulated in another field.
+     * Both fields must be created by this accumulator, and not evaluated yet.
+     * @param field   Field to merge into
+     * @param other   Field accumulated separately, e.g. from another partition
+     */
+    public void merge(FacetField field, FacetField other) {
+        field.addCount(other.getCount());
+        Map<String, FacetField.Bucket> bucketsMap = new HashMap<>(field.getBuckets().size());
+        for (FacetField.Bucket bucket : field.getBuckets()) {
+            bucketsMap.put(bucket.getValue(), bucket);
+        }
+        for (FacetField.Bucket otherBucket : other.getBuckets()) {
+            FacetField.Bucket bucket = bucketsMap.get(otherBucket.getValue());
+            if (bucket == null) {
+                bucket = addBucket(field, otherBucket.getValue());
+                bucketsMap.put(bucket.getValue(), bucket);
+            }
+            bucket.addCount(otherBucket.getCount());
+            if (nestedFieldAccumulator != null) {
+                nestedFieldAccumulator.merge(bucket.getFacetFields().get(0), otherBucket.getFacetFields().get(0));
+            }
+        }
+    }
+
+    /**
+     * Scale the accumulated counts of the field. Used to extrapolate a field accumulated from a sample.
+     * Must be called before evaluating the field.
+     * @param field   Field
+     * @param factor  Scale factor
+     */
+    public void scale(FacetField field, double factor) {
+        field.setCount(Math.round(field.getCount() * factor));
+        for (FacetField.Bucket bucket : field.getBuckets()) {
+            bucket.setCount(Math.round(bucket.getCount() * factor));
+            if (nestedFieldAccumulator != null) {
+                nestedFieldAccumulator.scale(bucket.getFacetFields().get(0), factor);
+            }
+        }
+    }
 }
@@ -45,6 +45,23 @@ public class RatioAccumulator<T> extends FacetFieldAccumulator<T> {
         return null;
     }
 
+    @Override
+    public void merge(FacetField field, FacetField other) {
+        super.merge(field, other);
+        List<Double> aggregationValues = field.getAggregationValues();
+        List<Double> otherAggregationValues = other.getAggregationValues();
+        aggregationValues.set(0, aggregationValues.get(0) + otherAggregationValues.get(0));
+        aggregationValues.set(1, aggregationValues.get(1) + otherAggregationValues.get(1));
+    }
+
+    @Override
+    public void scale(FacetField field, double factor) {
+        super.scale(field, factor);
+        List<Double> aggregationValues = field.getAggregationValues();
+        aggregationValues.set(0, aggregationValues.get(0) * factor);
+        aggregationValues.set(1, aggregationValues.get(1) * factor);
+    }
+
     @Override
     public void evaluate(FacetField field) {
         super.evaluate(field);
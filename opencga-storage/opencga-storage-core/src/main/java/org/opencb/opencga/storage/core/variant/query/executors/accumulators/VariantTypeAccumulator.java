@@ -14,9 +14,7 @@ public class VariantTypeAccumulator<T> extends FacetFieldAccumulator<T> {
     private boolean allTypes;
 
     public VariantTypeAccumulator(Function<T, VariantType> getType) {
-        super(null);
-        this.getType = getType;
-        // TODO: Accept subset of variant type
+        this(getType, null);
     }
 
     public VariantTypeAccumulator(Function<T, VariantType> getType, Collection<VariantType> types) {
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.search.solr;
+
+import org.apache.commons.lang3.time.StopWatch;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.response.UpdateResponse;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.ProgressLogger;
+import org.opencb.opencga.core.common.TimeUtils;
+import org.opencb.opencga.storage.core.exceptions.VariantSearchException;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchModel;
+import org.opencb.opencga.storage.core.variant.search.VariantSearchToVariantConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads variants into a Solr collection, splitting the variant space in regions.
+ *
+ * Each region is read and converted by one of the workers. Converted batches are sent to Solr asynchronously, with a bounded
+ * number of concurrent update requests. Once all the batches of a region are added, the collection is committed and the
+ * region is notified to the {@link RegionListener}, so a failed load can be resumed skipping the completed regions.
+ *
+ * Calls to the {@link VariantSearchLoadListener} are synchronized.
+ */
+public class VariantSearchParallelLoader {
+
+    private final VariantSearchManager searchManager;
+    private final String collection;
+    private int numThreads = 4;
+    private int concurrentUpdates = 4;
+    private ProgressLogger progressLogger;
+    private VariantSearchLoadListener loadListener = VariantSearchLoadListener.empty(false);
+    private RegionListener regionListener = region -> { };
+
+    private final Logger logger = LoggerFactory.getLogger(VariantSearchParallelLoader.class);
+
+    @FunctionalInterface
+    public interface RegionIteratorFactory {
+        VariantDBIterator iterator(String region) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface RegionListener {
+        void regionLoaded(String region) throws Exception;
+    }
+
+    public VariantSearchParallelLoader(VariantSearchManager searchManager, String collection) {
+        this.searchManager = searchManager;
+        this.collection = collection;
+    }
+
+    /**
+     * Load all the given regions.
+     *
+     * @param regions         Regions to load. Largest regions should go first.
+     * @param iteratorFactory Provides the variants to load from each region
+     * @return VariantSearchLoadResult
+     * @throws VariantSearchException if any region fails
+     */
+    public VariantSearchLoadResult load(List<String> regions, RegionIteratorFactory iteratorFactory) throws VariantSearchException {
+        Queue<String> pendingRegions = new ConcurrentLinkedQueue<>(regions);
+        AtomicLong numProcessedVariants = new AtomicLong();
+        AtomicLong numLoadedVariants = new AtomicLong();
+        AtomicReference<Exception> error = new AtomicReference<>();
+
+        int numWorkers = Math.max(1, Math.min(numThreads, regions.size()));
+        ExecutorService workers = Executors.newFixedThreadPool(numWorkers, threadFactory("solr-load-worker"));
+        ExecutorService updaters = Executors.newFixedThreadPool(Math.max(1, concurrentUpdates), threadFactory("solr-load-update"));
+        // Bound the number of converted batches waiting to be sent
+        Semaphore pendingUpdates = new Semaphore(Math.max(1, concurrentUpdates) * 2);
+
+        logger.info("Loading {} regions into Solr collection '{}' with {} workers and {} concurrent update requests",
+                regions.size(), collection, numWorkers, concurrentUpdates);
+        StopWatch stopWatch = StopWatch.createStarted();
+        try {
+            for (int i = 0; i < numWorkers; i++) {
+                workers.submit(() -> {
+                    VariantSearchToVariantConverter converter = new VariantSearchToVariantConverter();
+                    String region;
+                    while (error.get() == null && (region = pendingRegions.poll()) != null) {
+                        try {
+                            loadRegion(region, iteratorFactory, converter, updaters, pendingUpdates,
+                                    numProcessedVariants, numLoadedVariants);
+                        } catch (Exception e) {
+                            logger.error("Error loading region " + region, e);
+                            error.compareAndSet(null, e);
+                        }
+                    }
+                });
+            }
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error.compareAndSet(null, e);
+        } finally {
+            workers.shutdownNow();
+            updaters.shutdownNow();
+        }
+
+        loadListener.close();
+        if (error.get() != null) {
+            throw new VariantSearchException("Error loading secondary index", error.get());
+        }
+
+        logger.info("Variant Search loading done. {} variants indexed in {} ({} docs/s)", numLoadedVariants,
+                TimeUtils.durationToString(stopWatch), docsPerSecond(numLoadedVariants.get(), stopWatch));
+        return new VariantSearchLoadResult(numProcessedVariants.get(), numLoadedVariants.get(), 0);
+    }
+
+    private void loadRegion(String region, RegionIteratorFactory iteratorFactory, VariantSearchToVariantConverter converter,
+                            ExecutorService updaters, Semaphore pendingUpdates,
+                            AtomicLong numProcessedVariants, AtomicLong numLoadedVariants) throws Exception {
+        StopWatch stopWatch = StopWatch.createStarted();
+        SolrClient solrClient = searchManager.getSolrClient();
+        int batchSize = searchManager.getInsertBatchSize();
+        List<Future<?>> updates = new LinkedList<>();
+        long processed = 0;
+        AtomicLong loaded = new AtomicLong();
+
+        try (VariantDBIterator iterator = iteratorFactory.iterator(region)) {
+            while (iterator.hasNext()) {
+                List<Variant> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                processed += batch.size();
+                numProcessedVariants.addAndGet(batch.size());
+                if (progressLogger != null) {
+                    Variant last = batch.get(batch.size() - 1);
+                    progressLogger.increment(batch.size(), () -> "up to position " + last.toString());
+                }
+                synchronized (loadListener) {
+                    loadListener.preLoad(batch);
+                }
+                if (batch.isEmpty()) {
+                    continue;
+                }
+                List<VariantSearchModel> models = converter.convertListToStorageType(batch);
+
+                pendingUpdates.acquire();
+                updates.add(updaters.submit(() -> {
+                    try {
+                        if (!models.isEmpty()) {
+                            UpdateResponse response = solrClient.addBeans(collection, models);
+                            if (response.getStatus() != 0) {
+                                throw new VariantSearchException("Error adding variants to collection '" + collection
+                                        + "'. Status: " + response.getStatus());
+                            }
+                        }
+                        synchronized (loadListener) {
+                            loadListener.postLoad(batch);
+                        }
+                        loaded.addAndGet(batch.size());
+                        numLoadedVariants.addAndGet(batch.size());
+                        return null;
+                    } finally {
+                        pendingUpdates.release();
+                    }
+                }));
+                checkUpdates(updates, false);
+            }
+        }
+        checkUpdates(updates, true);
+
+        solrClient.commit(collection);
+        regionListener.regionLoaded(region);
+        logger.info("Region {} loaded. {} variants processed, {} indexed in {} ({} docs/s)", region, processed, loaded,
+                TimeUtils.durationToString(stopWatch), docsPerSecond(loaded.get(), stopWatch));
+    }
+
+    // Propagate errors from finished updates. Wait for all updates if required
+    private void checkUpdates(List<Future<?>> updates, boolean wait) throws Exception {
+        Iterator<Future<?>> iterator = updates.iterator();
+        while (iterator.hasNext()) {
+            Future<?> future = iterator.next();
+            if (wait || future.isDone()) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof Exception) {
+                        throw (Exception) e.getCause();
+                    }
+                    throw e;
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long docsPerSecond(long docs, StopWatch stopWatch) {
+        long millis = Math.max(1, stopWatch.getTime(TimeUnit.MILLISECONDS));
+        return docs * 1000 / millis;
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public VariantSearchParallelLoader setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+        return this;
+    }
+
+    public int getConcurrentUpdates() {
+        return concurrentUpdates;
+    }
+
+    public VariantSearchParallelLoader setConcurrentUpdates(int concurrentUpdates) {
+        this.concurrentUpdates = concurrentUpdates;
+        return this;
+    }
+
+    public VariantSearchParallelLoader setProgressLogger(ProgressLogger progressLogger) {
+        this.progressLogger = progressLogger;
+        return this;
+    }
+
+    public VariantSearchParallelLoader setLoadListener(VariantSearchLoadListener loadListener) {
+        this.loadListener = loadListener;
+        return this;
+    }
+
+    public VariantSearchParallelLoader setRegionListener(RegionListener regionListener) {
+        this.regionListener = regionListener;
+        return this;
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.apache.commons.lang3.StringUtils;
+import org.opencb.biodata.models.variant.Genotype;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.avro.OriginalCall;
+import org.opencb.biodata.models.variant.avro.SampleEntry;
+import org.opencb.biodata.models.variant.avro.VariantType;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.VariantNormalizer;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
+
+import java.util.*;
+
+/**
+ * Calculates the stats of multiple cohorts of a study, accumulating the genotype counts into primitive arrays.
+ *
+ * Genotypes are indexed in a dictionary that grows as new genotypes are found, so the GT of each sample is read only once
+ * per variant, regardless of the number of cohorts that contain the sample, and no {@link Genotype} is created per sample.
+ * The {@link VariantStats} of each cohort are built at the end, from the non zero counts.
+ *
+ * Not thread safe.
+ */
+public class CohortGenotypeCounter {
+
+    private static final String GT = "GT";
+    private static final int MISSING = -1;
+
+    private final List<String> cohortNames;
+    private final List<Set<String>> cohortSamples;
+
+    // Genotype dictionary
+    private final Map<String, Integer> genotypeIndex = new HashMap<>();
+    private final List<Genotype> genotypes = new ArrayList<>();
+
+    // Cached from the last samplesPosition
+    private Map<String, Integer> samplesPosition;
+    private int[][] cohortPositions;
+    private int[] sampleGenotypes = new int[0];
+    private int[][] counts;
+
+    private VariantNormalizer normalizer;
+
+    public CohortGenotypeCounter(Map<String, Set<String>> cohorts) {
+        cohortNames = new ArrayList<>(cohorts.keySet());
+        cohortSamples = new ArrayList<>(cohorts.values());
+        counts = new int[cohorts.size()][0];
+    }
+
+    /**
+     * Calculate the stats of the cohorts.
+     *
+     * @param variant Variant
+     * @param study   Study entry, with the GT of all the samples from the cohorts
+     * @param include Select the cohorts to calculate by position, in the same order as given in the constructor. Null for all.
+     * @return        Stats of each selected cohort
+     */
+    public List<VariantStats> calculate(Variant variant, StudyEntry study, boolean[] include) {
+        Integer gtIdx = study.getSampleDataKeyPosition(GT);
+        List<VariantStats> stats = new ArrayList<>(cohortNames.size());
+        if (gtIdx == null) {
+            // Nothing to count
+            for (int c = 0; c < cohortNames.size(); c++) {
+                if (include == null || include[c]) {
+                    VariantStats variantStats = VariantStatsCalculator.calculate(variant, study, cohortSamples.get(c));
+                    variantStats.setCohortId(cohortNames.get(c));
+                    stats.add(variantStats);
+                }
+            }
+            return stats;
+        }
+
+        updatePositions(study.getSamplesPosition());
+        readGenotypes(study, gtIdx);
+
+        for (int c = 0; c < cohortNames.size(); c++) {
+            if (include != null && !include[c]) {
+                continue;
+            }
+            int[] cohortCounts = counts[c];
+            Arrays.fill(cohortCounts, 0);
+            for (int position : cohortPositions[c]) {
+                int gt = sampleGenotypes[position];
+                if (gt != MISSING) {
+                    cohortCounts[gt]++;
+                }
+            }
+
+            Map<Genotype, Integer> gtCountMap = new HashMap<>();
+            for (int gt = 0; gt < cohortCounts.length; gt++) {
+                if (cohortCounts[gt] != 0) {
+                    gtCountMap.put(genotypes.get(gt), cohortCounts[gt]);
+                }
+            }
+            VariantStats variantStats = VariantStatsCalculator.calculate(variant, gtCountMap, false);
+            variantStats.setCohortId(cohortNames.get(c));
+            calculateFileStats(variant, study, cohortPositions[c], variantStats);
+            stats.add(variantStats);
+        }
+        return stats;
+    }
+
+    private void readGenotypes(StudyEntry study, int gtIdx) {
+        List<SampleEntry> samples = study.getSamples();
+        if (sampleGenotypes.length < samples.size()) {
+            sampleGenotypes = new int[samples.size()];
+        }
+        for (int i = 0; i < samples.size(); i++) {
+            List<String> data = samples.get(i).getData();
+            String gt = data == null || gtIdx >= data.size() ? null : data.get(gtIdx);
+            sampleGenotypes[i] = gt == null ? MISSING : getGenotypeIndex(gt);
+        }
+        for (int c = 0; c < counts.length; c++) {
+            if (counts[c].length < genotypes.size()) {
+                counts[c] = new int[genotypes.size()];
+            }
+        }
+    }
+
+    private int getGenotypeIndex(String gt) {
+        Integer idx = genotypeIndex.get(gt);
+        if (idx == null) {
+            idx = genotypes.size();
+            genotypes.add(new Genotype(gt));
+            genotypeIndex.put(gt, idx);
+        }
+        return idx;
+    }
+
+    private void updatePositions(Map<String, Integer> samplesPosition) {
+        if (this.samplesPosition == samplesPosition
+                || this.samplesPosition != null && this.samplesPosition.equals(samplesPosition)) {
+            return;
+        }
+        this.samplesPosition = samplesPosition;
+        cohortPositions = new int[cohortSamples.size()][];
+        for (int c = 0; c < cohortSamples.size(); c++) {
+            Set<String> samples = cohortSamples.get(c);
+            int[] positions = new int[samples.size()];
+            int i = 0;
+            for (String sample : samples) {
+                Integer position = samplesPosition.get(sample);
+                // Samples not included in the study entry are not counted, not even as missing
+                if (position != null) {
+                    positions[i++] = position;
+                }
+            }
+            cohortPositions[c] = i == positions.length ? positions : Arrays.copyOf(positions, i);
+        }
+    }
+
+    // Count FILTER and QUAL from the files of the samples of the cohort
+    private void calculateFileStats(Variant variant, StudyEntry study, int[] positions, VariantStats stats) {
+        List<FileEntry> files = study.getFiles();
+        if (files == null || files.isEmpty()) {
+            return;
+        }
+        Set<Integer> fileIndexes = new TreeSet<>();
+        List<SampleEntry> samples = study.getSamples();
+        for (int position : positions) {
+            Integer fileIndex = samples.get(position).getFileIndex();
+            if (fileIndex != null) {
+                fileIndexes.add(fileIndex);
+            }
+        }
+        if (fileIndexes.isEmpty() && positions.length > 0) {
+            // File of each sample not provided. Use all files
+            for (int i = 0; i < files.size(); i++) {
+                fileIndexes.add(i);
+            }
+        }
+
+        int numFiles = 0;
+        int numQualFiles = 0;
+        double qualSum = 0;
+        for (Integer fileIndex : fileIndexes) {
+            FileEntry fileEntry = files.get(fileIndex);
+            if (!isSameVariant(variant, fileEntry.getCall())) {
+                continue;
+            }
+            String filter = fileEntry.getData().get(StudyEntry.FILTER);
+            // Ensure missing filters are counted
+            if (StringUtils.isEmpty(filter)) {
+                filter = ".";
+            }
+            VariantStatsCalculator.addFileFilter(filter, stats.getFilterCount());
+            numFiles++;
+            String qual = fileEntry.getData().get(StudyEntry.QUAL);
+            if (StringUtils.isNotEmpty(qual) && !qual.equals(".")) {
+                numQualFiles++;
+                qualSum += Double.parseDouble(qual);
+            }
+        }
+        VariantStatsCalculator.calculateFilterFreq(stats, numFiles);
+        if (numQualFiles > 0) {
+            stats.setQualityAvg((float) (qualSum / numQualFiles));
+        }
+        stats.setQualityCount(numQualFiles);
+    }
+
+    private boolean isSameVariant(Variant variant, OriginalCall call) {
+        if (call == null) {
+            return true;
+        }
+        Variant callVariant = new Variant(call.getVariantId());
+        if (callVariant.getType().equals(VariantType.NO_VARIATION)) {
+            return false;
+        }
+        if (normalizer == null) {
+            normalizer = new VariantNormalizer();
+        }
+        List<Variant> normalized = normalizer.apply(Collections.singletonList(callVariant));
+        Integer alleleIndex = call.getAlleleIndex();
+        if (alleleIndex == null || alleleIndex >= normalized.size()) {
+            return true;
+        }
+        return normalized.get(alleleIndex).sameGenomicVariant(variant);
+    }
+}
@@ -42,6 +42,7 @@ import org.opencb.opencga.storage.core.io.plain.StringDataWriter;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.CohortMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.utils.ParallelTaskRunnerTuner;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
@@ -172,12 +173,9 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         }
 
         //Parse query options
-        int batchSize = options.getInt(
-                VariantStorageOptions.STATS_CALCULATE_BATCH_SIZE.key(),
-                VariantStorageOptions.STATS_CALCULATE_BATCH_SIZE.defaultValue());
-        int numTasks = options.getInt(
-                VariantStorageOptions.STATS_CALCULATE_THREADS.key(),
-                VariantStorageOptions.STATS_CALCULATE_THREADS.defaultValue());
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.STATS, studyMetadata.getName(), options,
+                VariantStorageOptions.STATS_CALCULATE_THREADS, VariantStorageOptions.STATS_CALCULATE_BATCH_SIZE);
+        int numTasks = tuner.getNumTasks();
         boolean statsMultiAllelic = options.getBoolean(
                 VariantStorageOptions.STATS_MULTI_ALLELIC.key(),
                 VariantStorageOptions.STATS_MULTI_ALLELIC.defaultValue());
@@ -222,13 +220,18 @@ public class DefaultVariantStatisticsManager extends VariantStatisticsManager {
         StringDataWriter writer = buildVariantStatsStringDataWriter(output);
 
         // runner
-        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder().setNumTasks(numTasks).setBatchSize(batchSize).build();
-        ParallelTaskRunner runner = new ParallelTaskRunner<>(reader, tasks, writer, config);
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(numTasks)
+                .setBatchSize(tuner.getBatchSize())
+                .setCapacity(tuner.getCapacity())
+                .build();
+        ParallelTaskRunner runner = new ParallelTaskRunner<>(tuner.reader(reader), tuner.tasks(tasks), tuner.writer(writer), config);
         try {
             logger.info("starting stats creation for cohorts {}", cohorts.keySet());
             long start = System.currentTimeMillis();
             runner.run();
             logger.info("finishing stats creation, time: {}ms", System.currentTimeMillis() - start);
+            tuner.report();
         } catch (ExecutionException e) {
             throw new StorageEngineException("Unable to calculate statistics.", e);
         }
@@ -34,6 +34,8 @@ public class VariantStatisticsCalculator {
     private boolean overwrite;
     private VariantAggregatedStatsCalculator aggregatedCalculator;
     private Aggregation aggregation;
+    private Map<String, Set<String>> counterCohorts;
+    private CohortGenotypeCounter counter;
 
     public VariantStatisticsCalculator() {
         this(false);
@@ -127,15 +129,13 @@ public class VariantStatisticsCalculator {
             }
 
             if (!AggregationUtils.isAggregated(aggregation) && samples != null) {
-                List<VariantStats> stats = new ArrayList<>(samples.size());
-                for (Map.Entry<String, Set<String>> cohort : samples.entrySet()) {
-                    if (overwrite || study.getStats(cohort.getKey()) == null) {
-
-                        VariantStats variantStats = VariantStatsCalculator.calculate(variant, study, cohort.getValue());
-                        variantStats.setCohortId(cohort.getKey());
-                        stats.add(variantStats);
-                    }
+                CohortGenotypeCounter counter = getCounter(samples);
+                boolean[] include = new boolean[samples.size()];
+                int i = 0;
+                for (String cohort : samples.keySet()) {
+                    include[i++] = overwrite || study.getStats(cohort) == null;
                 }
+                List<VariantStats> stats = counter.calculate(variant, study, include);
                 study.setStats(stats);
             } else if (aggregatedCalculator != null) { // another way to say that the study is aggregated (!Aggregation
                 // .NONE.equals(aggregation))
@@ -155,6 +155,15 @@ public class VariantStatisticsCalculator {
         return variantStatsWrappers;
     }
 
+    private CohortGenotypeCounter getCounter(Map<String, Set<String>> samples) {
+        // Reuse the counter, and its genotype dictionary, across batches
+        if (counter == null || counterCohorts != samples) {
+            counter = new CohortGenotypeCounter(samples);
+            counterCohorts = samples;
+        }
+        return counter;
+    }
+
     @Deprecated
     public static Map<String, String> removeAttributePrefix(Map<String, String> attributes)
             throws IllegalArgumentException {
@@ -0,0 +1,274 @@
+package org.opencb.opencga.storage.core.variant.transform;
+
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantFileMetadata;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Reads the variants produced by a transform {@link ParallelTaskRunner} running in a background thread.
+ *
+ * Transformed batches are handed to the consumer (usually, the load step) through a bounded queue. If the load is
+ * slower than the transform, the transform is blocked once the queue is full (back pressure), so the memory usage
+ * is bounded by the queue capacity. Optionally, all the transformed variants can be written to a side output,
+ * e.g. the usual transformed file, so the file can be loaded again without transforming.
+ *
+ * Measures the time that each side spent waiting for the other, to identify the bottleneck.
+ */
+public class VariantTransformStreamReader implements DataReader<Variant> {
+
+    // Compared by identity
+    private static final List<Variant> END_OF_STREAM = new ArrayList<>(0);
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+
+    private final Function<DataWriter<Variant>, ParallelTaskRunner<?, ?>> transformRunnerFactory;
+    private final DataWriter<Variant> sideOutput;
+    private final VariantFileMetadata metadata;
+    private final BlockingQueue<List<Variant>> queue;
+    private final ArrayDeque<Variant> buffer = new ArrayDeque<>();
+
+    private Thread transformThread;
+    private volatile Throwable transformError;
+    private volatile boolean closed;
+    private boolean endOfStream;
+
+    private final AtomicLong transformedVariants = new AtomicLong();
+    private final AtomicLong transformedBatches = new AtomicLong();
+    private final AtomicLong transformBlockedNanos = new AtomicLong();
+    private long loadedVariants;
+    private long loadWaitNanos;
+    private long startNanos;
+    private volatile long transformEndNanos;
+    private long endNanos;
+
+    private final Logger logger = LoggerFactory.getLogger(VariantTransformStreamReader.class);
+
+    /**
+     * Create a new VariantTransformStreamReader.
+     *
+     * @param transformRunnerFactory Function to build the transform ParallelTaskRunner given the DataWriter that should
+     *                               receive the transformed variants. The runner must keep the order of the variants.
+     * @param sideOutput             Optional writer for all the transformed variants. Can be null
+     * @param metadata               VariantFileMetadata filled by the transform. Complete after the end of the stream
+     * @param queueCapacity          Max number of transformed batches waiting to be read
+     */
+    public VariantTransformStreamReader(Function<DataWriter<Variant>, ParallelTaskRunner<?, ?>> transformRunnerFactory,
+                                        DataWriter<Variant> sideOutput, VariantFileMetadata metadata, int queueCapacity) {
+        this.transformRunnerFactory = transformRunnerFactory;
+        this.sideOutput = sideOutput;
+        this.metadata = metadata;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+    }
+
+    @Override
+    public boolean pre() {
+        ParallelTaskRunner<?, ?> runner = transformRunnerFactory.apply(new QueueWriter());
+        startNanos = System.nanoTime();
+        transformThread = new Thread(() -> {
+            try {
+                runner.run();
+            } catch (Exception | Error e) {
+                transformError = e;
+            } finally {
+                transformEndNanos = System.nanoTime();
+                try {
+                    offer(END_OF_STREAM);
+                } catch (IllegalStateException e) {
+                    // The consumer is gone. Nothing to notify
+                    logger.debug("Variant stream closed", e);
+                }
+            }
+        }, "variant-transform-stream");
+        transformThread.start();
+        return true;
+    }
+
+    @Override
+    public List<Variant> read() {
+        return read(1);
+    }
+
+    @Override
+    public List<Variant> read(int batchSize) {
+        List<Variant> batch = new ArrayList<>(batchSize);
+        while (batch.size() < batchSize) {
+            if (buffer.isEmpty()) {
+                if (endOfStream) {
+                    break;
+                }
+                List<Variant> next = take();
+                if (next == END_OF_STREAM) {
+                    endOfStream = true;
+                    checkTransformError();
+                    break;
+                }
+                buffer.addAll(next);
+            }
+            batch.add(buffer.poll());
+        }
+        loadedVariants += batch.size();
+        return batch;
+    }
+
+    @Override
+    public boolean post() {
+        joinTransformThread();
+        checkTransformError();
+        endNanos = System.nanoTime();
+        logger.info("Streaming transform finished. {}", getStats().toJson());
+        return true;
+    }
+
+    @Override
+    public boolean close() {
+        closed = true;
+        if (transformThread != null && transformThread.isAlive()) {
+            // The consumer stopped before the end of the stream. Unblock the transform.
+            queue.clear();
+            transformThread.interrupt();
+            joinTransformThread();
+        }
+        return true;
+    }
+
+    public VariantFileMetadata getVariantFileMetadata() {
+        return metadata;
+    }
+
+    /**
+     * Get the throughput metrics of both sides of the stream.
+     *
+     * The transform is blocked while the queue is full, so a high "transformBlockedMillis" means that the load is the
+     * bottleneck. The load waits while the queue is empty, so a high "loadWaitMillis" means that the transform is the
+     * bottleneck.
+     *
+     * @return Stream stats
+     */
+    public ObjectMap getStats() {
+        long end = endNanos == 0 ? System.nanoTime() : endNanos;
+        long transformEnd = transformEndNanos == 0 ? end : transformEndNanos;
+        long transformMillis = TimeUnit.NANOSECONDS.toMillis(transformEnd - startNanos);
+        long loadMillis = TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        long transformBlockedMillis = TimeUnit.NANOSECONDS.toMillis(transformBlockedNanos.get());
+        long loadWaitMillis = TimeUnit.NANOSECONDS.toMillis(loadWaitNanos);
+        return new ObjectMap()
+                .append("transformedVariants", transformedVariants.get())
+                .append("transformedBatches", transformedBatches.get())
+                .append("transformMillis", transformMillis)
+                .append("transformBlockedMillis", transformBlockedMillis)
+                .append("transformVariantsPerSecond", perSecond(transformedVariants.get(), transformMillis - transformBlockedMillis))
+                .append("loadedVariants", loadedVariants)
+                .append("loadMillis", loadMillis)
+                .append("loadWaitMillis", loadWaitMillis)
+                .append("loadVariantsPerSecond", perSecond(loadedVariants, loadMillis - loadWaitMillis))
+                .append("bottleneck", transformBlockedMillis > loadWaitMillis ? "load" : "transform");
+    }
+
+    private static long perSecond(long count, long millis) {
+        return millis <= 0 ? count : count * 1000 / millis;
+    }
+
+    private List<Variant> take() {
+        long start = System.nanoTime();
+        try {
+            List<Variant> next = null;
+            while (next == null) {
+                next = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (next == null && !transformThread.isAlive() && queue.isEmpty()) {
+                    // Should never happen. The transform thread always adds the END_OF_STREAM mark
+                    next = END_OF_STREAM;
+                }
+            }
+            return next;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for transformed variants", e);
+        } finally {
+            loadWaitNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void offer(List<Variant> batch) {
+        try {
+            while (!queue.offer(batch, POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (closed) {
+                    throw new IllegalStateException("Variant stream closed before the end of the transform");
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the variant stream consumer", e);
+        }
+    }
+
+    private void joinTransformThread() {
+        if (transformThread != null) {
+            try {
+                transformThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    private void checkTransformError() {
+        if (transformError != null) {
+            throw new RuntimeException("Error transforming variants", transformError);
+        }
+    }
+
+    /**
+     * Receives the transformed variants from the ParallelTaskRunner.
+     */
+    private class QueueWriter implements DataWriter<Variant> {
+
+        @Override
+        public boolean open() {
+            return sideOutput == null || sideOutput.open();
+        }
+
+        @Override
+        public boolean pre() {
+            return sideOutput == null || sideOutput.pre();
+        }
+
+        @Override
+        public boolean write(List<Variant> batch) {
+            if (sideOutput != null) {
+                sideOutput.write(batch);
+            }
+            if (!batch.isEmpty()) {
+                long start = System.nanoTime();
+                offer(batch);
+                transformBlockedNanos.addAndGet(System.nanoTime() - start);
+                transformedVariants.addAndGet(batch.size());
+                transformedBatches.incrementAndGet();
+            }
+            return true;
+        }
+
+        @Override
+        public boolean post() {
+            return sideOutput == null || sideOutput.post();
+        }
+
+        @Override
+        public boolean close() {
+            return sideOutput == null || sideOutput.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.opencb.opencga.storage.core.cache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.config.storage.CacheConfiguration;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CacheManagerTest {
+
+    private CacheConfiguration configuration;
+    private LocalCacheStore remoteStore;
+    private CacheManager cacheManager;
+
+    @Before
+    public void setUp() throws Exception {
+        configuration = new CacheConfiguration()
+                .setActive(true)
+                .setSlowThreshold(0)
+                .setMaxResultSize(10)
+                .setMaxEntries(10)
+                .setAllowedTypes("var.count");
+        remoteStore = new LocalCacheStore(100, 0, TimeUnit.SECONDS);
+        cacheManager = new CacheManager(configuration, remoteStore);
+    }
+
+    @Test
+    public void testCreateKey() {
+        Query query1 = new Query("study", "s1").append("gene", "BRCA2,BRCA1");
+        Query query2 = new Query("gene", "BRCA1,BRCA2").append("study", "s1");
+        QueryOptions options = new QueryOptions(QueryOptions.LIMIT, 10);
+
+        String key = cacheManager.createKey("db", "var.get", query1, options);
+
+        assertEquals(key, cacheManager.createKey("db", "var.get", query2, options));
+        assertNotEquals(key, cacheManager.createKey("db", "var.get", query1, null));
+        assertNotEquals(key, cacheManager.createKey("db2", "var.get", query1, options));
+        assertNotEquals(key, cacheManager.createKey("db", "var.count", query1, options));
+    }
+
+    @Test
+    public void testAllowedTypes() {
+        assertTrue(cacheManager.isTypeAllowed("var.count"));
+        assertFalse(cacheManager.isTypeAllowed("var.get"));
+        assertFalse(cacheManager.isTypeAllowed("var"));
+
+        configuration.setAllowedTypes("aln,var");
+        cacheManager = new CacheManager(configuration, remoteStore);
+        assertTrue(cacheManager.isTypeAllowed("var.count"));
+        assertTrue(cacheManager.isTypeAllowed("var.get"));
+        assertFalse(cacheManager.isTypeAllowed("other.get"));
+    }
+
+    @Test
+    public void testGet() {
+        AtomicInteger calls = new AtomicInteger();
+        String key = cacheManager.createKey("db", "var.count", new Query(), new QueryOptions());
+
+        DataResult<Long> result = cacheManager.get(key, () -> newResult(calls.incrementAndGet()));
+        assertEquals(1, result.first().longValue());
+        result = cacheManager.get(key, () -> newResult(calls.incrementAndGet()));
+        assertEquals(1, result.first().longValue());
+        assertEquals(1, calls.get());
+        assertEquals(1L, cacheManager.getStats().getLong("hits"));
+
+        // Values from the remote store are shared between instances
+        CacheManager other = new CacheManager(configuration, remoteStore);
+        result = other.get(key, () -> newResult(calls.incrementAndGet()));
+        assertEquals(1, result.first().longValue());
+        assertEquals(1L, other.getStats().getLong("remoteHits"));
+
+        cacheManager.clear();
+        result = cacheManager.get(key, () -> newResult(calls.incrementAndGet()));
+        assertEquals(2, result.first().longValue());
+    }
+
+    @Test
+    public void testInactive() {
+        configuration.setActive(false);
+        cacheManager = new CacheManager(configuration, remoteStore);
+        AtomicInteger calls = new AtomicInteger();
+        String key = cacheManager.createKey("db", "var.count", new Query(), new QueryOptions());
+
+        cacheManager.get(key, () -> newResult(calls.incrementAndGet()));
+        cacheManager.get(key, () -> newResult(calls.incrementAndGet()));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testSlowThreshold() {
+        configuration.setSlowThreshold(100);
+        cacheManager = new CacheManager(configuration, remoteStore);
+        AtomicInteger calls = new AtomicInteger();
+        String key = cacheManager.createKey("db", "var.count", new Query(), new QueryOptions());
+
+        cacheManager.get(key, () -> newResult(calls.incrementAndGet()));
+        cacheManager.get(key, () -> newResult(calls.incrementAndGet()));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    public void testLocalStoreEviction() {
+        LocalCacheStore store = new LocalCacheStore(2, 0, TimeUnit.SECONDS);
+        store.put("a", 1);
+        store.put("b", 2);
+        store.get("a");
+        store.put("c", 3);
+        assertEquals(1, store.get("a"));
+        assertNull(store.get("b"));
+        assertEquals(3, store.get("c"));
+        assertEquals(1, store.getEvictions());
+    }
+
+    @Test
+    public void testLocalStoreRemoveGlob() {
+        LocalCacheStore store = new LocalCacheStore(10, 0, TimeUnit.SECONDS);
+        store.put("ocga:db.1:var.count:a", 1);
+        store.put("ocga:db.2:var.count:a", 2);
+        store.put("ocga:db:var.count:a", 3);
+        store.put("ocga:db(1)+:var.count:a", 4);
+
+        // Regex special characters are matched literally
+        store.remove("ocga:db(1)+:*");
+        assertNull(store.get("ocga:db(1)+:var.count:a"));
+
+        store.remove("ocga:db.?:*");
+        assertNull(store.get("ocga:db.1:var.count:a"));
+        assertNull(store.get("ocga:db.2:var.count:a"));
+        assertEquals(3, store.get("ocga:db:var.count:a"));
+    }
+
+    private DataResult<Long> newResult(long value) {
+        return new DataResult<>(0, Collections.emptyList(), 1, Collections.singletonList(value), 1);
+    }
+}
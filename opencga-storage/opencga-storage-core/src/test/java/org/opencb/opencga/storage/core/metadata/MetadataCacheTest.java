@@ -4,6 +4,8 @@ import org.junit.Assert;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MetadataCacheTest {
 
@@ -30,4 +32,89 @@ public class MetadataCacheTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testEviction() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<Integer, String> cache = new MetadataCache<>((study, id) -> {
+            calls.incrementAndGet();
+            return study + "_" + id;
+        }, null, 160, 0, TimeUnit.MILLISECONDS);
+
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals("1_" + i, cache.get(1, i));
+        }
+        Assert.assertTrue(cache.size() <= 160);
+        MetadataCache.Stats stats = cache.getStats();
+        Assert.assertEquals(10000, stats.getMisses());
+        Assert.assertEquals(10000 - cache.size(), stats.getEvictions());
+
+        // Recently used value is still in the cache
+        cache.get(1, 9999);
+        Assert.assertEquals(10000, calls.get());
+        Assert.assertEquals(1, cache.getStats().getHits());
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<String, Integer> cache = new MetadataCache<>((study, id) -> calls.incrementAndGet(),
+                null, 100, 50, TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(1, cache.get(1, "a").intValue());
+        Assert.assertEquals(1, cache.get(1, "a").intValue());
+        Thread.sleep(100);
+        Assert.assertEquals(2, cache.get(1, "a").intValue());
+        Assert.assertEquals(1, cache.getStats().getExpirations());
+    }
+
+    @Test
+    public void testInvalidate() {
+        AtomicInteger calls = new AtomicInteger();
+        MetadataCache<String, Integer> cache = new MetadataCache<>((study, id) -> calls.incrementAndGet());
+
+        Assert.assertEquals(1, cache.get(1, "a").intValue());
+        Assert.assertEquals(2, cache.get(2, "a").intValue());
+        cache.invalidate(1, "a");
+        Assert.assertEquals(3, cache.get(1, "a").intValue());
+        Assert.assertEquals(2, cache.get(2, "a").intValue());
+
+        cache.invalidateStudy(2);
+        Assert.assertEquals(3, cache.get(1, "a").intValue());
+        Assert.assertEquals(4, cache.get(2, "a").intValue());
+
+        // Recompute invalid values
+        Assert.assertEquals(5, cache.get(2, "a", 4).intValue());
+    }
+
+    @Test(timeout = 10000)
+    public void testHitsNotBlockedByLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MetadataCache<String, String> cache = new MetadataCache<>((study, id) -> {
+            if (id.equals("slow")) {
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return study + "_" + id;
+        });
+        Assert.assertEquals("1_fast", cache.get(1, "fast"));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> slow = executor.submit(() -> cache.get(1, "slow"));
+            loading.await();
+            // The value is served while the other key is still being loaded
+            Assert.assertEquals("1_fast", cache.get(1, "fast"));
+            Assert.assertEquals("1_other", cache.get(1, "other"));
+            release.countDown();
+            Assert.assertEquals("1_slow", slow.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
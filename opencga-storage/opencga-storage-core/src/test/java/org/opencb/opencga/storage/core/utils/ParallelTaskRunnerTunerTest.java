@@ -0,0 +1,166 @@
+package org.opencb.opencga.storage.core.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.*;
+
+public class ParallelTaskRunnerTunerTest {
+
+    private static final int NUM_ELEMENTS = 20000;
+    private static final String PROJECT_NAME = "project";
+    private static final String STUDY_NAME = "study";
+
+    @Before
+    public void setUp() throws Exception {
+        ParallelTaskRunnerTuner.reset();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ParallelTaskRunnerTuner.reset();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        ObjectMap options = new ObjectMap(ParallelTaskRunnerTuner.PROJECT, PROJECT_NAME)
+                .append(LOAD_THREADS.key(), 3).append(LOAD_BATCH_SIZE.key(), 50);
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.LOAD, STUDY_NAME, options,
+                LOAD_THREADS, LOAD_BATCH_SIZE);
+
+        assertFalse(tuner.isAutoTune());
+        assertEquals(3, tuner.getNumTasks());
+        assertEquals(50, tuner.getBatchSize());
+        assertEquals(6, tuner.getCapacity());
+
+        DataReader<Integer> reader = newReader(new AtomicInteger());
+        Task<Integer, Integer> task = Task.forEach(i -> i);
+        DataWriter<Integer> writer = batch -> true;
+        assertSame(reader, tuner.reader(reader));
+        assertSame(task, tuner.task(task));
+        assertSame(writer, tuner.writer(writer));
+
+        ObjectMap report = tuner.report();
+        assertEquals(3, report.getInt(ParallelTaskRunnerTuner.NUM_TASKS));
+        assertEquals(50, report.getInt(ParallelTaskRunnerTuner.BATCH_SIZE));
+        assertFalse(report.containsKey(ParallelTaskRunnerTuner.NEXT_NUM_TASKS));
+        assertNull(ParallelTaskRunnerTuner.getLastReport(PROJECT_NAME, STUDY_NAME, ParallelTaskRunnerTuner.LOAD));
+    }
+
+    @Test
+    public void testAutoTuneBatchSize() throws Exception {
+        ObjectMap options = new ObjectMap(ParallelTaskRunnerTuner.PROJECT, PROJECT_NAME)
+                .append(PIPELINE_AUTO_TUNE.key(), true)
+                .append(PIPELINE_AUTO_TUNE_MAX_THREADS.key(), 2)
+                .append(PIPELINE_AUTO_TUNE_MAX_BATCH_SIZE.key(), 1000)
+                .append(PIPELINE_AUTO_TUNE_BATCH_MILLIS.key(), 1000)
+                .append(STATS_CALCULATE_THREADS.key(), 8)
+                .append(STATS_CALCULATE_BATCH_SIZE.key(), 20);
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.STATS, STUDY_NAME, options,
+                STATS_CALCULATE_THREADS, STATS_CALCULATE_BATCH_SIZE);
+        // Bounded by maxThreads
+        assertEquals(2, tuner.getNumTasks());
+        assertEquals(20, tuner.getBatchSize());
+
+        List<Integer> readBatchSizes = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> output = Collections.synchronizedList(new ArrayList<>());
+        DataReader<Integer> reader = newReader(new AtomicInteger());
+        DataReader<Integer> measuredReader = batchSize -> {
+            readBatchSizes.add(batchSize);
+            return reader.read(batchSize);
+        };
+
+        run(tuner, measuredReader, Task.forEach(i -> i), output::addAll);
+
+        assertEquals(NUM_ELEMENTS, output.size());
+        // Fast tasks. Batches should grow up to the max batch size
+        assertEquals(20, readBatchSizes.get(0).intValue());
+        assertTrue(readBatchSizes.stream().anyMatch(size -> size > 20));
+        for (Integer size : readBatchSizes) {
+            assertTrue(size >= 10 && size <= 1000);
+        }
+
+        ObjectMap report = tuner.report();
+        assertTrue(report.getBoolean("autoTune"));
+        assertEquals(NUM_ELEMENTS, report.getLong("elements"));
+        assertTrue(report.getInt(ParallelTaskRunnerTuner.FINAL_BATCH_SIZE) > 20);
+        assertSame(report, ParallelTaskRunnerTuner.getLastReport(PROJECT_NAME, STUDY_NAME, ParallelTaskRunnerTuner.STATS));
+
+        // Next run starts from the last tuning
+        ParallelTaskRunnerTuner next = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.STATS, STUDY_NAME, options,
+                STATS_CALCULATE_THREADS, STATS_CALCULATE_BATCH_SIZE);
+        assertEquals(report.getInt(ParallelTaskRunnerTuner.NEXT_NUM_TASKS), next.getNumTasks());
+        assertEquals(report.getInt(ParallelTaskRunnerTuner.FINAL_BATCH_SIZE), next.getBatchSize());
+
+        // Other studies and projects do not reuse the tuning
+        ParallelTaskRunnerTuner otherStudy = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.STATS, "otherStudy", options,
+                STATS_CALCULATE_THREADS, STATS_CALCULATE_BATCH_SIZE);
+        assertEquals(20, otherStudy.getBatchSize());
+        ParallelTaskRunnerTuner otherProject = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.STATS, STUDY_NAME,
+                new ObjectMap(options).append(ParallelTaskRunnerTuner.PROJECT, "otherProject"),
+                STATS_CALCULATE_THREADS, STATS_CALCULATE_BATCH_SIZE);
+        assertEquals(20, otherProject.getBatchSize());
+        assertNull(ParallelTaskRunnerTuner.getLastReport("otherProject", STUDY_NAME, ParallelTaskRunnerTuner.STATS));
+    }
+
+    @Test
+    public void testAutoTuneSlowReader() throws Exception {
+        ObjectMap options = new ObjectMap(ParallelTaskRunnerTuner.PROJECT, PROJECT_NAME)
+                .append(PIPELINE_AUTO_TUNE.key(), true)
+                .append(PIPELINE_AUTO_TUNE_MAX_THREADS.key(), 4)
+                .append(PIPELINE_AUTO_TUNE_MAX_BATCH_SIZE.key(), 100)
+                .append(LOAD_THREADS.key(), 4)
+                .append(LOAD_BATCH_SIZE.key(), 100);
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.LOAD, STUDY_NAME, options,
+                LOAD_THREADS, LOAD_BATCH_SIZE);
+
+        DataReader<Integer> reader = newReader(new AtomicInteger());
+        DataReader<Integer> slowReader = batchSize -> {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            return reader.read(batchSize);
+        };
+        run(tuner, slowReader, Task.forEach(i -> i), batch -> true);
+
+        ObjectMap report = tuner.report();
+        // Tasks are waiting for the reader. Next run should use fewer tasks
+        assertEquals("reader", report.getString("bottleneck"));
+        assertTrue(report.getInt(ParallelTaskRunnerTuner.NEXT_NUM_TASKS) < 4);
+    }
+
+    private void run(ParallelTaskRunnerTuner tuner, DataReader<Integer> reader, Task<Integer, Integer> task,
+                     DataWriter<Integer> writer) throws Exception {
+        ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
+                .setNumTasks(tuner.getNumTasks())
+                .setBatchSize(tuner.getBatchSize())
+                .setCapacity(tuner.getCapacity())
+                .build();
+        new ParallelTaskRunner<>(tuner.reader(reader), tuner.task(task), tuner.writer(writer), config).run();
+    }
+
+    private DataReader<Integer> newReader(AtomicInteger count) {
+        return batchSize -> {
+            List<Integer> batch = new ArrayList<>(batchSize);
+            while (batch.size() < batchSize && count.get() < NUM_ELEMENTS) {
+                batch.add(count.getAndIncrement());
+            }
+            return batch;
+        };
+    }
+}
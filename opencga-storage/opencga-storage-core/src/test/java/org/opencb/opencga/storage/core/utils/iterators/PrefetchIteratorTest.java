@@ -0,0 +1,217 @@
+package org.opencb.opencga.storage.core.utils.iterators;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class PrefetchIteratorTest {
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testSameElements() {
+        List<Integer> expected = IntStream.range(0, 1000).boxed().collect(Collectors.toList());
+        for (int size : new int[]{1, 4, 2000}) {
+            List<Integer> actual = new ArrayList<>();
+            try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(expected.iterator(), size, executorService)) {
+                iterator.forEachRemaining(actual::add);
+                assertFalse(iterator.hasNext());
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(new ArrayList<Integer>().iterator(), 4, executorService)) {
+            assertFalse(iterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testEarlyClose() throws Exception {
+        AtomicInteger produced = new AtomicInteger();
+        AtomicBoolean sourceClosed = new AtomicBoolean(false);
+        AtomicBoolean readAfterClose = new AtomicBoolean(false);
+        Iterator<Integer> source = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (sourceClosed.get()) {
+                    readAfterClose.set(true);
+                }
+                return produced.incrementAndGet();
+            }
+        };
+
+        PrefetchIterator<Integer> iterator = new PrefetchIterator<>(source, 2, executorService);
+        assertEquals(1, iterator.next().intValue());
+        assertEquals(2, iterator.next().intValue());
+        iterator.close();
+        // The producer has finished, so the source can be released
+        sourceClosed.set(true);
+        int producedAtClose = produced.get();
+        Thread.sleep(100);
+
+        assertFalse(readAfterClose.get());
+        assertEquals(producedAtClose, produced.get());
+        // The 2 consumed + the buffer (size + 1) + 1 blocked in put
+        assertTrue(String.valueOf(producedAtClose), producedAtClose <= 6);
+    }
+
+    @Test
+    public void testCloseBeforeStart() throws Exception {
+        ExecutorService singleThread = Executors.newSingleThreadExecutor();
+        try {
+            // Block the only thread, so the producer is never started
+            AtomicBoolean release = new AtomicBoolean(false);
+            singleThread.submit(() -> {
+                while (!release.get()) {
+                    Thread.yield();
+                }
+            });
+            AtomicBoolean read = new AtomicBoolean(false);
+            Iterator<Integer> source = new Iterator<Integer>() {
+                @Override
+                public boolean hasNext() {
+                    read.set(true);
+                    return false;
+                }
+
+                @Override
+                public Integer next() {
+                    throw new IllegalStateException();
+                }
+            };
+            PrefetchIterator<Integer> iterator = new PrefetchIterator<>(source, 2, singleThread);
+            // Must not wait for the producer
+            iterator.close();
+            release.set(true);
+            singleThread.shutdown();
+            singleThread.awaitTermination(10, TimeUnit.SECONDS);
+            assertFalse(read.get());
+        } finally {
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testProducerException() {
+        RuntimeException exception = new IllegalStateException("Error reading");
+        Iterator<Integer> source = new Iterator<Integer>() {
+            private int count = 0;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                if (count == 3) {
+                    throw exception;
+                }
+                return count++;
+            }
+        };
+
+        List<Integer> actual = new ArrayList<>();
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(source, 4, executorService)) {
+            iterator.forEachRemaining(actual::add);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertSame(exception, e);
+        }
+        // Elements produced before the error are not lost
+        assertEquals(3, actual.size());
+    }
+
+    @Test
+    public void testMultipleSourcesOrdered() {
+        List<PrefetchIterator.Source<Integer>> sources = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int first = i * 100;
+            sources.add(sink -> {
+                for (int value = first; value < first + 100; value++) {
+                    sink.put(value);
+                }
+            });
+        }
+        List<Integer> actual = new ArrayList<>();
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(sources, 4, true, 60000, executorService)) {
+            iterator.forEachRemaining(actual::add);
+        }
+        assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), actual);
+    }
+
+    @Test
+    public void testMultipleSourcesUnordered() {
+        List<PrefetchIterator.Source<Integer>> sources = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int first = i * 100;
+            sources.add(sink -> {
+                for (int value = first; value < first + 100; value++) {
+                    sink.put(value);
+                }
+            });
+        }
+        List<Integer> actual = new ArrayList<>();
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(sources, 4, false, 60000, executorService)) {
+            iterator.forEachRemaining(actual::add);
+        }
+        assertEquals(1000, actual.size());
+        assertEquals(1000, new HashSet<>(actual).size());
+    }
+
+    @Test
+    public void testMultipleSourcesException() {
+        RuntimeException exception = new IllegalStateException("Error reading");
+        List<PrefetchIterator.Source<Integer>> sources = new ArrayList<>();
+        sources.add(sink -> sink.put(1));
+        sources.add(sink -> {
+            throw exception;
+        });
+        // Endless source, stopped by the error
+        sources.add(sink -> {
+            while (true) {
+                sink.put(3);
+            }
+        });
+        List<Integer> actual = new ArrayList<>();
+        try (PrefetchIterator<Integer> iterator = new PrefetchIterator<>(sources, 4, true, 60000, executorService)) {
+            iterator.forEachRemaining(actual::add);
+            fail("Expected exception");
+        } catch (IllegalStateException e) {
+            assertSame(exception, e);
+        }
+        assertEquals(1, actual.size());
+    }
+}
@@ -0,0 +1,93 @@
+package org.opencb.opencga.storage.core.variant.query;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.config.storage.CacheConfiguration;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.cache.CacheManager;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class VariantQueryResultCacheTest {
+
+    private VariantStorageMetadataManager metadataManager;
+    private VariantQueryResultCache cache;
+    private int study1;
+
+    @Before
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        metadataManager = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+        study1 = metadataManager.createStudy("s1").getId();
+        metadataManager.createStudy("s2");
+
+        CacheConfiguration configuration = new CacheConfiguration()
+                .setActive(true)
+                .setSlowThreshold(0)
+                .setMaxResultSize(10)
+                .setMaxEntries(10)
+                .setAllowedTypes("var");
+        cache = new VariantQueryResultCache(new CacheManager(configuration, null), metadataManager, "db");
+    }
+
+    @Test
+    public void testCachedResultsAreCopied() {
+        AtomicInteger calls = new AtomicInteger();
+        Query query = new Query(VariantQueryParam.STUDY.key(), "s1");
+
+        VariantQueryResult<Variant> result = cache.get(query, new QueryOptions(), () -> {
+            calls.incrementAndGet();
+            return new VariantQueryResult<>(0, 1, 1, new ArrayList<>(),
+                    new ArrayList<>(Collections.singletonList(new Variant("1:100:A:C"))));
+        });
+        // Modify the returned result
+        result.first().setId("modified");
+        result.getResults().clear();
+
+        result = cache.get(query, new QueryOptions(), () -> {
+            calls.incrementAndGet();
+            return new VariantQueryResult<>(0, 0, 0, new ArrayList<>(), new ArrayList<>());
+        });
+        assertEquals(1, calls.get());
+        assertEquals(1, result.getResults().size());
+        assertEquals("1:100:A:C", result.first().getId());
+
+        // Modify the copy returned from the cache
+        result.first().setId("modified");
+        result = cache.get(query, new QueryOptions(), () -> null);
+        assertEquals("1:100:A:C", result.first().getId());
+    }
+
+    @Test
+    public void testInvalidatePerStudy() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        Query query1 = new Query(VariantQueryParam.STUDY.key(), "s1");
+        Query query2 = new Query(VariantQueryParam.STUDY.key(), "s2");
+
+        assertEquals(1, cache.count(query1, () -> newResult(calls.incrementAndGet())).first().longValue());
+        assertEquals(2, cache.count(query2, () -> newResult(calls.incrementAndGet())).first().longValue());
+        assertEquals(1, cache.count(query1, () -> newResult(calls.incrementAndGet())).first().longValue());
+        assertEquals(2, cache.count(query2, () -> newResult(calls.incrementAndGet())).first().longValue());
+
+        // A new task in the first study only invalidates the results of that study
+        metadataManager.addRunningTask(study1, "load", Collections.singletonList(1));
+        assertEquals(3, cache.count(query1, () -> newResult(calls.incrementAndGet())).first().longValue());
+        assertEquals(2, cache.count(query2, () -> newResult(calls.incrementAndGet())).first().longValue());
+        assertEquals(3, calls.get());
+    }
+
+    private DataResult<Long> newResult(long value) {
+        return new DataResult<>(0, Collections.emptyList(), 1, Collections.singletonList(value), 1);
+    }
+}
@@ -0,0 +1,138 @@
+package org.opencb.opencga.storage.core.variant.query.executors;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.FacetField;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.opencga.core.response.VariantQueryResult;
+import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantIterable;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.core.variant.dummy.DummyVariantStorageMetadataDBAdaptorFactory;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ChromDensityVariantAggregationExecutorTest {
+
+    private static final int STEP = 10000;
+    private VariantStorageMetadataManager metadataManager;
+
+    @Before
+    public void setUp() throws Exception {
+        DummyVariantStorageMetadataDBAdaptorFactory.clear();
+        metadataManager = new VariantStorageMetadataManager(new DummyVariantStorageMetadataDBAdaptorFactory());
+    }
+
+    @Test
+    public void testParallel() {
+        Random random = new Random(1);
+        List<Variant> variants = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int start = 1 + random.nextInt(1000000);
+            if (i % 10 == 0) {
+                // Some deletions overlapping the partition boundaries
+                variants.add(new Variant("1", start, start + 20000, "A", "<DEL>"));
+            } else {
+                variants.add(new Variant("1:" + start + ":A:C"));
+            }
+        }
+        variants.sort(Comparator.comparing(Variant::getStart));
+
+        Map<String, Long> expected = new HashMap<>();
+        Map<String, Long> expectedSnv = new HashMap<>();
+        for (Variant variant : variants) {
+            String bin = String.valueOf((variant.getStart() - 1) / STEP * STEP + 1);
+            expected.merge(bin, 1L, Long::sum);
+            if (variant.getType().name().equals("SNV")) {
+                expectedSnv.merge(bin, 1L, Long::sum);
+            }
+        }
+
+        String facet = "chromDensity[1:1-1000000]:" + STEP + ">>type";
+        for (int numThreads : new int[]{1, 4, 16}) {
+            VariantQueryResult<FacetField> result = aggregation(variants, facet,
+                    new QueryOptions(VariantStorageOptions.AGGREGATION_THREADS.key(), numThreads));
+
+            assertEquals(variants.size(), result.getNumMatches());
+            FacetField regionField = getRegionField(result);
+            assertEquals(variants.size(), regionField.getCount());
+            assertEquals(expected, getCounts(regionField));
+            for (FacetField.Bucket bucket : regionField.getBuckets()) {
+                FacetField.Bucket snv = bucket.getFacetFields().get(0).getBuckets().stream()
+                        .filter(b -> b.getValue().equals("SNV"))
+                        .findFirst()
+                        .orElse(null);
+                assertEquals(expectedSnv.getOrDefault(bucket.getValue(), 0L).longValue(), snv == null ? 0 : snv.getCount());
+            }
+        }
+    }
+
+    @Test
+    public void testApproximate() {
+        // One variant every 100 bases. 100 variants per bin
+        List<Variant> variants = new ArrayList<>();
+        for (int start = 100; start <= 1000000; start += 100) {
+            variants.add(new Variant("1:" + start + ":A:C"));
+        }
+
+        String facet = "chromDensity[1:1-1000000]:" + STEP + ">>type";
+        VariantQueryResult<FacetField> result = aggregation(variants, facet, new QueryOptions()
+                .append(VariantStorageOptions.APPROXIMATE_COUNT.key(), true)
+                .append(VariantStorageOptions.APPROXIMATE_COUNT_SAMPLING_SIZE.key(), 500));
+
+        assertTrue(result.getApproximateCount());
+        // Only the first variants of each partition are read
+        assertTrue(result.getApproximateCountSamplingSize() < variants.size());
+        // The sampling size is divided across the 25 partitions of 4 steps
+        assertEquals(500, result.getApproximateCountSamplingSize().intValue());
+        assertEquals(variants.size(), result.getNumMatches());
+
+        // Uniform density, so the extrapolation is exact, including the nested field
+        FacetField regionField = getRegionField(result);
+        assertEquals(100, regionField.getBuckets().size());
+        for (FacetField.Bucket bucket : regionField.getBuckets()) {
+            assertEquals(bucket.getValue(), 100, bucket.getCount());
+            FacetField typeField = bucket.getFacetFields().get(0);
+            assertEquals(1, typeField.getBuckets().size());
+            assertEquals("SNV", typeField.getBuckets().get(0).getValue());
+            assertEquals(100, typeField.getBuckets().get(0).getCount());
+        }
+    }
+
+    private VariantQueryResult<FacetField> aggregation(List<Variant> variants, String facet, QueryOptions options) {
+        VariantIterable iterable = (query, queryOptions) -> {
+            Region region = new Region(query.getString(VariantQueryParam.REGION.key()));
+            Iterator<Variant> iterator = variants.stream()
+                    .filter(v -> v.getChromosome().equals(region.getChromosome())
+                            && v.getEnd() >= region.getStart()
+                            && v.getStart() <= region.getEnd())
+                    .collect(Collectors.toList())
+                    .iterator();
+            return VariantDBIterator.wrapper(iterator);
+        };
+        return new ChromDensityVariantAggregationExecutor(iterable, metadataManager)
+                .aggregation(new Query(), new QueryOptions(options).append(QueryOptions.FACET, facet));
+    }
+
+    private FacetField getRegionField(VariantQueryResult<FacetField> result) {
+        FacetField field = result.first();
+        assertEquals(1, field.getBuckets().size());
+        return field.getBuckets().get(0).getFacetFields().get(0);
+    }
+
+    private Map<String, Long> getCounts(FacetField field) {
+        Map<String, Long> counts = new HashMap<>();
+        for (FacetField.Bucket bucket : field.getBuckets()) {
+            counts.put(bucket.getValue(), bucket.getCount());
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,85 @@
+package org.opencb.opencga.storage.core.variant.query.executors.accumulators;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.FacetField;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FacetFieldAccumulatorTest {
+
+    private final List<Variant> variants = Arrays.asList(
+            new Variant("1:100:A:C"),
+            new Variant("1:200:A:-"),
+            new Variant("2:100:A:C"),
+            new Variant("2:300:A:T"),
+            new Variant("3:100:-:AAA"),
+            new Variant("3:100:A:G"));
+
+    @Test
+    public void testMerge() {
+        FacetFieldAccumulator<Variant> accumulator = new ChromosomeAccumulator(new VariantTypeAccumulator<>(Variant::getType));
+
+        FacetField expected = accumulator.createField();
+        for (Variant variant : variants) {
+            accumulator.accumulate(expected, variant);
+        }
+
+        // Accumulate in two partitions, in reverse order
+        FacetField field = accumulator.createField();
+        FacetField other = accumulator.createField();
+        for (int i = 0; i < variants.size(); i++) {
+            accumulator.accumulate(i < 3 ? other : field, variants.get(i));
+        }
+        accumulator.merge(field, other);
+
+        accumulator.evaluate(expected);
+        accumulator.evaluate(field);
+        checkEquals(expected, field);
+    }
+
+    @Test
+    public void testScale() {
+        FacetFieldAccumulator<Variant> accumulator = new VariantTypeAccumulator<>(Variant::getType);
+        FacetField field = accumulator.createField();
+        for (Variant variant : variants) {
+            accumulator.accumulate(field, variant);
+        }
+        accumulator.scale(field, 2.5);
+        accumulator.evaluate(field);
+
+        assertEquals(15L, field.getCount());
+        for (FacetField.Bucket bucket : field.getBuckets()) {
+            switch (bucket.getValue()) {
+                case "SNV":
+                    assertEquals(10L, bucket.getCount());
+                    break;
+                case "INDEL":
+                    assertEquals(5L, bucket.getCount());
+                    break;
+                default:
+                    throw new AssertionError("Unexpected bucket " + bucket.getValue());
+            }
+        }
+    }
+
+    private void checkEquals(FacetField expected, FacetField actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getBuckets().size(), actual.getBuckets().size());
+        for (FacetField.Bucket expectedBucket : expected.getBuckets()) {
+            FacetField.Bucket bucket = actual.getBuckets()
+                    .stream()
+                    .filter(b -> b.getValue().equals(expectedBucket.getValue()))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("Missing bucket " + expectedBucket.getValue()));
+            assertEquals(expectedBucket.getCount(), bucket.getCount());
+            if (expectedBucket.getFacetFields() != null) {
+                checkEquals(expectedBucket.getFacetFields().get(0), bucket.getFacetFields().get(0));
+            }
+        }
+    }
+}
@@ -145,6 +145,32 @@ public abstract class VariantSearchIndexTest extends VariantStorageBaseTest {
         }
     }
 
+    @Test
+    public void testParallelIndex() throws Exception {
+        VariantDBAdaptor dbAdaptor = variantStorageEngine.getDBAdaptor();
+        VariantStorageEngine storageEngine = getVariantStorageEngine();
+
+        StudyMetadata studyMetadata = metadataManager.createStudy("S_1");
+        List<URI> inputFiles = new ArrayList<>();
+        for (int fileId = 12877; fileId <= 12877 + 2; fileId++) {
+            inputFiles.add(getResourceUri("platinum/1K.end.platinum-genomes-vcf-NA" + fileId + "_S1.genome.vcf.gz"));
+        }
+        storageEngine.getOptions().put(VariantStorageOptions.STUDY.key(), studyMetadata.getId());
+        storageEngine.index(inputFiles, outputUri, true, true, true);
+
+        long expected = dbAdaptor.count(new Query(VariantQueryParam.STUDY.key(), studyMetadata.getId())).first();
+        VariantSearchLoadResult loadResult = variantStorageEngine.secondaryIndex(new Query(),
+                new QueryOptions(VariantStorageOptions.SEARCH_LOAD_THREADS.key(), 4), false);
+        System.out.println("Load result parallel: = " + loadResult);
+        checkLoadResult(expected, loadResult);
+        checkVariantSearchIndex(dbAdaptor);
+
+        // Nothing to do
+        loadResult = variantStorageEngine.secondaryIndex(new Query(),
+                new QueryOptions(VariantStorageOptions.SEARCH_LOAD_THREADS.key(), 4), false);
+        checkLoadResult(0, loadResult);
+    }
+
     @Test
     public void testSearchIndexRemoveSearchIndex() throws Exception {
         testRemoveFiles(true);
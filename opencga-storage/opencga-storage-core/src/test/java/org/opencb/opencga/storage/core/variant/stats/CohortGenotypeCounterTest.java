@@ -0,0 +1,121 @@
+package org.opencb.opencga.storage.core.variant.stats;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.StudyEntry;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.VariantBuilder;
+import org.opencb.biodata.models.variant.avro.FileEntry;
+import org.opencb.biodata.models.variant.stats.VariantStats;
+import org.opencb.biodata.tools.variant.stats.VariantStatsCalculator;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CohortGenotypeCounterTest {
+
+    private static final String[] GENOTYPES = {"0/0", "0/1", "1/1", "0|1", "./.", "1/2", "0"};
+
+    @Test
+    public void testCalculate() {
+        Random random = new Random(1);
+        int numSamples = 100;
+        Map<String, Set<String>> cohorts = new LinkedHashMap<>();
+        cohorts.put("ALL", new LinkedHashSet<>());
+        cohorts.put("EVEN", new LinkedHashSet<>());
+        cohorts.put("FIRST", new LinkedHashSet<>());
+        for (int i = 0; i < numSamples; i++) {
+            String sample = "S" + i;
+            cohorts.get("ALL").add(sample);
+            if (i % 2 == 0) {
+                cohorts.get("EVEN").add(sample);
+            }
+            if (i < 10) {
+                cohorts.get("FIRST").add(sample);
+            }
+        }
+
+        CohortGenotypeCounter counter = new CohortGenotypeCounter(cohorts);
+        for (int v = 0; v < 20; v++) {
+            VariantBuilder builder = Variant.newBuilder("1:" + (1000 + v) + ":A:C")
+                    .setStudyId("s")
+                    .setSampleDataKeys("GT");
+            for (int i = 0; i < numSamples; i++) {
+                builder.addSample("S" + i, GENOTYPES[random.nextInt(GENOTYPES.length)]);
+            }
+            Variant variant = builder.build();
+            StudyEntry study = variant.getStudies().get(0);
+
+            // Skip the second cohort
+            List<VariantStats> stats = counter.calculate(variant, study, new boolean[]{true, false, true});
+            assertEquals(2, stats.size());
+            checkStats(VariantStatsCalculator.calculate(variant, study, cohorts.get("ALL")), stats.get(0));
+            checkStats(VariantStatsCalculator.calculate(variant, study, cohorts.get("FIRST")), stats.get(1));
+            assertEquals("ALL", stats.get(0).getCohortId());
+            assertEquals("FIRST", stats.get(1).getCohortId());
+        }
+    }
+
+    @Test
+    public void testFileStats() {
+        Variant variant = Variant.newBuilder("1:1000:A:C")
+                .setStudyId("s")
+                .setSampleDataKeys("GT")
+                .addSample("S0", "0/1")
+                .addSample("S1", "1/1")
+                .addSample("S2", "0/1")
+                .addSample("S3", "0/0")
+                .build();
+        StudyEntry study = variant.getStudies().get(0);
+        Map<String, String> file1 = new HashMap<>();
+        file1.put(StudyEntry.FILTER, "PASS");
+        file1.put(StudyEntry.QUAL, "30");
+        Map<String, String> file2 = new HashMap<>();
+        file2.put(StudyEntry.FILTER, "LowQual");
+        file2.put(StudyEntry.QUAL, ".");
+        study.setFiles(Arrays.asList(new FileEntry("f1", null, file1), new FileEntry("f2", null, file2)));
+        study.getSamples().get(0).setFileIndex(0);
+        study.getSamples().get(1).setFileIndex(0);
+        study.getSamples().get(2).setFileIndex(1);
+        study.getSamples().get(3).setFileIndex(1);
+
+        Map<String, Set<String>> cohorts = new LinkedHashMap<>();
+        cohorts.put("A", new LinkedHashSet<>(Arrays.asList("S0", "S1")));
+        cohorts.put("B", new LinkedHashSet<>(Arrays.asList("S2", "S3")));
+        // Samples not in the variant are ignored
+        cohorts.put("C", new LinkedHashSet<>(Arrays.asList("S0", "S2", "notInVariant")));
+
+        List<VariantStats> stats = new CohortGenotypeCounter(cohorts).calculate(variant, study, null);
+
+        assertEquals(Collections.singletonMap("PASS", 1), stats.get(0).getFilterCount());
+        assertEquals(1.0f, stats.get(0).getFilterFreq().get("PASS"), 0.0001);
+        assertEquals(30.0f, stats.get(0).getQualityAvg(), 0.0001);
+        assertEquals(1, stats.get(0).getQualityCount().intValue());
+
+        // No QUAL in any file
+        assertEquals(Collections.singletonMap("LowQual", 1), stats.get(1).getFilterCount());
+        assertEquals(0, stats.get(1).getQualityCount().intValue());
+        assertFalse(Float.isNaN(stats.get(1).getQualityAvg()));
+
+        Map<String, Integer> filterCount = new HashMap<>();
+        filterCount.put("PASS", 1);
+        filterCount.put("LowQual", 1);
+        assertEquals(filterCount, stats.get(2).getFilterCount());
+        assertEquals(0.5f, stats.get(2).getFilterFreq().get("PASS"), 0.0001);
+        assertEquals(30.0f, stats.get(2).getQualityAvg(), 0.0001);
+        assertEquals(1, stats.get(2).getQualityCount().intValue());
+        assertEquals(2, stats.get(2).getGenotypeCount().values().stream().mapToInt(Integer::intValue).sum());
+        assertEquals(2, stats.get(2).getAltAlleleCount().intValue());
+    }
+
+    private void checkStats(VariantStats expected, VariantStats actual) {
+        assertEquals(expected.getGenotypeCount(), actual.getGenotypeCount());
+        assertEquals(expected.getGenotypeFreq(), actual.getGenotypeFreq());
+        assertEquals(expected.getAlleleCount(), actual.getAlleleCount());
+        assertEquals(expected.getAltAlleleCount(), actual.getAltAlleleCount());
+        assertEquals(expected.getMissingGenotypeCount(), actual.getMissingGenotypeCount());
+        assertEquals(expected.getMaf(), actual.getMaf());
+        assertEquals(expected.getMgf(), actual.getMgf());
+    }
+}
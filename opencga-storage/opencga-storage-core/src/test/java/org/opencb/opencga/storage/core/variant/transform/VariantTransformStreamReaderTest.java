@@ -0,0 +1,118 @@
+package org.opencb.opencga.storage.core.variant.transform;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.io.DataWriter;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.commons.run.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VariantTransformStreamReaderTest {
+
+    private static final int NUM_VARIANTS = 1000;
+    private static final Task<String, Variant> PARSER = Task.forEach(Variant::new);
+    private List<String> lines;
+    private ParallelTaskRunner.Config config;
+
+    @Before
+    public void setUp() throws Exception {
+        lines = new ArrayList<>(NUM_VARIANTS);
+        for (int i = 0; i < NUM_VARIANTS; i++) {
+            lines.add("1:" + (i + 1) + ":A:C");
+        }
+        config = ParallelTaskRunner.Config.builder().setNumTasks(4).setBatchSize(10).setSorted(true).build();
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        VariantTransformStreamReader reader = newStreamReader(PARSER, null, 2);
+
+        List<Variant> variants = readAll(reader, 7);
+
+        assertEquals(NUM_VARIANTS, variants.size());
+        for (int i = 0; i < NUM_VARIANTS; i++) {
+            assertEquals(lines.get(i), variants.get(i).toString());
+        }
+        ObjectMap stats = reader.getStats();
+        assertEquals(NUM_VARIANTS, stats.getLong("transformedVariants"));
+        assertEquals(NUM_VARIANTS, stats.getLong("loadedVariants"));
+    }
+
+    @Test
+    public void testSideOutput() throws Exception {
+        List<Variant> sideOutputVariants = Collections.synchronizedList(new ArrayList<>());
+        DataWriter<Variant> sideOutput = batch -> sideOutputVariants.addAll(batch);
+        VariantTransformStreamReader reader = newStreamReader(PARSER, sideOutput, 2);
+
+        List<Variant> variants = readAll(reader, 100);
+
+        assertEquals(variants, sideOutputVariants);
+    }
+
+    @Test(expected = RuntimeException.class)
+    public void testTransformError() throws Exception {
+        Task<String, Variant> task = Task.forEach(line -> {
+            if (line.equals(lines.get(500))) {
+                throw new IllegalArgumentException("Malformed variant " + line);
+            }
+            return new Variant(line);
+        });
+        VariantTransformStreamReader reader = newStreamReader(task, null, 2);
+
+        readAll(reader, 10);
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseBeforeEnd() throws Exception {
+        VariantTransformStreamReader reader = newStreamReader(PARSER, null, 1);
+
+        reader.open();
+        reader.pre();
+        assertEquals(10, reader.read(10).size());
+        // Transform is blocked. Closing should unblock and finish the transform thread
+        reader.close();
+    }
+
+    private VariantTransformStreamReader newStreamReader(Task<String, Variant> task, DataWriter<Variant> sideOutput,
+                                                         int queueCapacity) {
+        return new VariantTransformStreamReader(
+                writer -> new ParallelTaskRunner<>(newLinesReader(), task, writer, config), sideOutput, null, queueCapacity);
+    }
+
+    private List<Variant> readAll(VariantTransformStreamReader reader, int batchSize) {
+        List<Variant> variants = new ArrayList<>();
+        reader.open();
+        reader.pre();
+        try {
+            List<Variant> batch = reader.read(batchSize);
+            while (!batch.isEmpty()) {
+                variants.addAll(batch);
+                batch = reader.read(batchSize);
+            }
+            reader.post();
+        } finally {
+            reader.close();
+        }
+        return variants;
+    }
+
+    private DataReader<String> newLinesReader() {
+        Iterator<String> iterator = lines.iterator();
+        return batchSize -> {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (iterator.hasNext() && batch.size() < batchSize) {
+                batch.add(iterator.next());
+            }
+            return batch;
+        };
+    }
+}
@@ -0,0 +1,250 @@
+package org.opencb.opencga.storage.hadoop.utils;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.opencga.core.common.TimeUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.*;
+
+/**
+ * Writes Puts into sorted HFiles, and bulk loads them into the table at the end.
+ *
+ * Cells are buffered in memory, sorted, and written into a new set of HFiles every time the buffer is full.
+ * Data skips the region servers memstore and WAL, and becomes visible atomically once {@link #load()} is called.
+ *
+ * Each spill uses a higher timestamp than the previous one, so, as with Puts, the last value written for a cell wins.
+ * Only APIs available in all the supported HBase versions are used.
+ */
+public class HBaseBulkLoader implements AutoCloseable {
+
+    // HFile metadata keys, as written by HFileOutputFormat2
+    private static final byte[] BULKLOAD_TIME_KEY = Bytes.toBytes("BULKLOAD_TIMESTAMP");
+    private static final byte[] BULKLOAD_TASK_KEY = Bytes.toBytes("BULKLOAD_SOURCE_TASK");
+    private static final byte[] MAJOR_COMPACTION_KEY = Bytes.toBytes("MAJOR_COMPACTION_KEY");
+    private static final byte[] EXCLUDE_FROM_MINOR_COMPACTION_KEY = Bytes.toBytes("EXCLUDE_FROM_MINOR_COMPACTION");
+
+    // Sort by row, family and qualifier ascending, and by timestamp descending. Values are ignored.
+    private static final Comparator<Cell> CELL_COMPARATOR = (c1, c2) -> {
+        int c = Bytes.compareTo(c1.getRowArray(), c1.getRowOffset(), c1.getRowLength(),
+                c2.getRowArray(), c2.getRowOffset(), c2.getRowLength());
+        if (c != 0) {
+            return c;
+        }
+        c = Bytes.compareTo(c1.getFamilyArray(), c1.getFamilyOffset(), c1.getFamilyLength(),
+                c2.getFamilyArray(), c2.getFamilyOffset(), c2.getFamilyLength());
+        if (c != 0) {
+            return c;
+        }
+        c = Bytes.compareTo(c1.getQualifierArray(), c1.getQualifierOffset(), c1.getQualifierLength(),
+                c2.getQualifierArray(), c2.getQualifierOffset(), c2.getQualifierLength());
+        if (c != 0) {
+            return c;
+        }
+        return Long.compare(c2.getTimestamp(), c1.getTimestamp());
+    };
+
+    private static Method doBulkLoad;
+    private static Constructor<?> loadIncrementalHFiles;
+
+    private final HBaseManager hBaseManager;
+    private final String tableName;
+    private final Path outdir;
+    private final long maxBufferSize;
+    private long timestamp;
+    private final TreeSet<KeyValue> buffer = new TreeSet<>(CELL_COMPARATOR);
+    private long bufferSize = 0;
+    private int numFiles = 0;
+    private HTableDescriptor tableDescriptor;
+    private final Logger logger = LoggerFactory.getLogger(HBaseBulkLoader.class);
+
+    static {
+        // Moved from "mapreduce" to "tool" package in HBase 2
+        Class<?> aClass;
+        try {
+            aClass = Class.forName("org.apache.hadoop.hbase.tool.LoadIncrementalHFiles");
+        } catch (ClassNotFoundException e) {
+            try {
+                aClass = Class.forName("org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles");
+            } catch (ClassNotFoundException e1) {
+                // This should never happen!
+                throw new RuntimeException(e1);
+            }
+        }
+        try {
+            loadIncrementalHFiles = aClass.getConstructor(Configuration.class);
+            doBulkLoad = aClass.getMethod("doBulkLoad", Path.class, Admin.class, Table.class, RegionLocator.class);
+        } catch (NoSuchMethodException e) {
+            // This should never happen!
+            throw new RuntimeException(e);
+        }
+    }
+
+    public HBaseBulkLoader(HBaseManager hBaseManager, String tableName, long maxBufferSize) {
+        this(hBaseManager, tableName, new Path(hBaseManager.getConf().get("hadoop.tmp.dir"),
+                "bulk_load." + tableName + "." + TimeUtils.getTime()), maxBufferSize);
+    }
+
+    public HBaseBulkLoader(HBaseManager hBaseManager, String tableName, Path outdir, long maxBufferSize) {
+        this.hBaseManager = hBaseManager;
+        this.tableName = tableName;
+        this.outdir = outdir;
+        this.maxBufferSize = maxBufferSize;
+        timestamp = System.currentTimeMillis();
+    }
+
+    public synchronized void add(Put put) throws IOException {
+        for (List<Cell> cells : put.getFamilyCellMap().values()) {
+            for (Cell cell : cells) {
+                KeyValue kv = new KeyValue(CellUtil.cloneRow(cell), CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell),
+                        timestamp, CellUtil.cloneValue(cell));
+                // Last value wins, as with Puts
+                if (buffer.remove(kv)) {
+                    bufferSize -= kv.getLength();
+                }
+                buffer.add(kv);
+                bufferSize += kv.getLength();
+            }
+        }
+        if (bufferSize >= maxBufferSize) {
+            spill();
+        }
+    }
+
+    /**
+     * Write the remaining cells and bulk load all the generated HFiles into the table.
+     *
+     * @throws IOException on IOException
+     */
+    public synchronized void load() throws IOException {
+        try {
+            spill();
+            if (numFiles > 0) {
+                logger.info("Bulk load {} HFiles from {} into table {}", numFiles, outdir, tableName);
+                bulkLoad(hBaseManager, tableName, outdir);
+            }
+        } finally {
+            deleteOutdir();
+        }
+    }
+
+    /**
+     * Discard any data not loaded yet, and remove the temporary HFiles.
+     *
+     * @throws IOException on IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.clear();
+        bufferSize = 0;
+        deleteOutdir();
+    }
+
+    private void deleteOutdir() throws IOException {
+        FileSystem fs = outdir.getFileSystem(hBaseManager.getConf());
+        if (fs.exists(outdir)) {
+            fs.delete(outdir, true);
+        }
+    }
+
+    private void spill() throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        if (tableDescriptor == null) {
+            tableDescriptor = hBaseManager.act(tableName, table -> {
+                return table.getTableDescriptor();
+            });
+        }
+        FileSystem fs = outdir.getFileSystem(hBaseManager.getConf());
+        CacheConfig cacheConfig = new CacheConfig(hBaseManager.getConf());
+        // One HFile per family
+        Map<byte[], HFile.Writer> writers = new TreeMap<>(Bytes.BYTES_COMPARATOR);
+        try {
+            for (KeyValue kv : buffer) {
+                byte[] family = CellUtil.cloneFamily(kv);
+                HFile.Writer writer = writers.get(family);
+                if (writer == null) {
+                    HColumnDescriptor familyDescriptor = tableDescriptor.getFamily(family);
+                    HFileContext context = new HFileContextBuilder()
+                            .withCompression(familyDescriptor.getCompressionType())
+                            .withBlockSize(familyDescriptor.getBlocksize())
+                            .withDataBlockEncoding(familyDescriptor.getDataBlockEncoding())
+                            .build();
+                    Path familyDir = new Path(outdir, Bytes.toString(family));
+                    // Bulk load only accepts hexadecimal file names
+                    String fileName = UUID.randomUUID().toString().replace("-", "");
+                    writer = HFile.getWriterFactory(hBaseManager.getConf(), cacheConfig)
+                            .withPath(fs, new Path(familyDir, fileName))
+                            .withFileContext(context)
+                            .create();
+                    writers.put(family, writer);
+                }
+                writer.append(kv);
+            }
+            for (HFile.Writer writer : writers.values()) {
+                writer.appendFileInfo(BULKLOAD_TIME_KEY, Bytes.toBytes(System.currentTimeMillis()));
+                writer.appendFileInfo(BULKLOAD_TASK_KEY, Bytes.toBytes(HBaseBulkLoader.class.getSimpleName()));
+                writer.appendFileInfo(MAJOR_COMPACTION_KEY, Bytes.toBytes(true));
+                writer.appendFileInfo(EXCLUDE_FROM_MINOR_COMPACTION_KEY, Bytes.toBytes(false));
+            }
+        } finally {
+            for (HFile.Writer writer : writers.values()) {
+                writer.close();
+            }
+        }
+        numFiles += writers.size();
+        logger.info("Written {} cells ({} bytes) into {} HFiles", buffer.size(), bufferSize, writers.size());
+        buffer.clear();
+        bufferSize = 0;
+        // Cells from the next spill must override the cells from this one
+        timestamp++;
+    }
+
+    /**
+     * Bulk load a directory of HFiles, generated locally or by HFileOutputFormat2, into a table.
+     *
+     * @param hBaseManager HBaseManager
+     * @param tableName    Table name
+     * @param hfilesDir    Directory with one subdirectory of HFiles per column family
+     * @throws IOException on IOException
+     */
+    public static void bulkLoad(HBaseManager hBaseManager, String tableName, Path hfilesDir) throws IOException {
+        hBaseManager.act(tableName, (table, admin) -> {
+            try (RegionLocator regionLocator = hBaseManager.getConnection().getRegionLocator(table.getName())) {
+                Object loader = loadIncrementalHFiles.newInstance(hBaseManager.getConf());
+                doBulkLoad.invoke(loader, hfilesDir, admin, table, regionLocator);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IOException("Error bulk loading " + hfilesDir + " into table " + tableName, e.getCause());
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Error bulk loading " + hfilesDir + " into table " + tableName, e);
+            }
+            return null;
+        });
+    }
+}
@@ -19,7 +19,6 @@ package org.opencb.opencga.storage.hadoop.variant;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.hadoop.conf.Configuration;
-import org.opencb.biodata.formats.variant.io.VariantReader;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantType;
@@ -39,6 +38,7 @@ import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.SampleMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.utils.ParallelTaskRunnerTuner;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.dedup.AbstractDuplicatedVariantsResolver;
@@ -335,9 +335,8 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
                 .setReadQueuePutTimeout(1000).build();
 
         // Reader
-        boolean stdin = options.getBoolean(STDIN.key(), STDIN.defaultValue());
         int sliceBufferSize = options.getInt(ARCHIVE_SLICE_BUFFER_SIZE.key(), ARCHIVE_SLICE_BUFFER_SIZE.defaultValue());
-        VariantReader variantReader = variantReaderUtils.getVariantReader(input, helper.getStudyMetadata(), stdin);
+        DataReader<Variant> variantReader = newVariantReader(input, outdir, helper.getStudyMetadata());
         AbstractDuplicatedVariantsResolver resolver = new DuplicatedVariantsResolverFactory(getOptions(), ioConnectorProvider)
                 .getResolver(UriUtils.fileName(input), outdir);
         VariantDeduplicationTask dedupTask = new DuplicatedVariantsResolverFactory(getOptions(), ioConnectorProvider)
@@ -368,7 +367,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
             throw new StorageEngineException("Error loading file " + input, e);
         }
 
-        logLoadResults(variantReader.getVariantFileMetadata(), resolver, hadoopDBWriter);
+        logLoadResults(getVariantFileMetadata(variantReader), resolver, hadoopDBWriter);
         if (sampleIndexDBLoader != null) {
             // Update list of loaded genotypes
             this.loadedGenotypes = sampleIndexDBLoader.getLoadedGenotypes();
@@ -384,8 +383,7 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
 
 
         // Reader
-        boolean stdin = options.getBoolean(STDIN.key(), STDIN.defaultValue());
-        VariantReader variantReader = variantReaderUtils.getVariantReader(input, helper.getStudyMetadata(), stdin);
+        DataReader<Variant> variantReader = newVariantReader(input, outdir, helper.getStudyMetadata());
         AbstractDuplicatedVariantsResolver resolver = new DuplicatedVariantsResolverFactory(getOptions(), ioConnectorProvider)
                 .getResolver(UriUtils.fileName(input), outdir);
         VariantDeduplicationTask dedupTask = new DuplicatedVariantsResolverFactory(getOptions(), ioConnectorProvider)
@@ -402,20 +400,24 @@ public class HadoopLocalLoadVariantStoragePipeline extends HadoopVariantStorageP
                 .asTask(variant -> "up to position " + variant.getChromosome() + ":" + variant.getStart());
 
         // Config
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.LOAD, helper.getStudyMetadata().getName(), options,
+                LOAD_THREADS, LOAD_BATCH_SIZE);
         ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
-                .setNumTasks(options.getInt(LOAD_THREADS.key(), LOAD_THREADS.defaultValue()))
-                .setBatchSize(options.getInt(LOAD_BATCH_SIZE.key(), LOAD_BATCH_SIZE.defaultValue()))
+                .setNumTasks(tuner.getNumTasks())
+                .setBatchSize(tuner.getBatchSize())
+                .setCapacity(tuner.getCapacity())
                 .setSorted(sampleIndexDBLoader != null)
                 .setReadQueuePutTimeout(1000).build();
-        ParallelTaskRunner<Variant, Variant> ptr =
-                new ParallelTaskRunner<>(reader, hadoopDBWriter.asTask().then(progressLoggerTask), sampleIndexDBLoader, config);
+        ParallelTaskRunner<Variant, Variant> ptr = new ParallelTaskRunner<>(tuner.reader(reader),
+                tuner.task(hadoopDBWriter.asTask().then(progressLoggerTask)), tuner.writer(sampleIndexDBLoader), config);
         try {
             ptr.run();
         } catch (ExecutionException e) {
             throw new StorageEngineException("Error loading file " + input, e);
         }
+        getLoadStats().put(ParallelTaskRunnerTuner.TUNING, tuner.report());
 
-        logLoadResults(variantReader.getVariantFileMetadata(), resolver, hadoopDBWriter);
+        logLoadResults(getVariantFileMetadata(variantReader), resolver, hadoopDBWriter);
         if (sampleIndexDBLoader != null) {
             // Update list of loaded genotypes
             this.loadedGenotypes = sampleIndexDBLoader.getLoadedGenotypes();
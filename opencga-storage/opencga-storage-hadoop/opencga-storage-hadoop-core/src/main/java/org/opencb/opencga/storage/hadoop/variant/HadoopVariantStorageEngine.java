@@ -79,6 +79,7 @@ import org.opencb.opencga.storage.hadoop.variant.executors.MRExecutor;
 import org.opencb.opencga.storage.hadoop.variant.executors.MRExecutorFactory;
 import org.opencb.opencga.storage.hadoop.variant.gaps.FillGapsDriver;
 import org.opencb.opencga.storage.hadoop.variant.gaps.FillGapsFromArchiveMapper;
+import org.opencb.opencga.storage.hadoop.variant.gaps.FillGapsLocalExecutor;
 import org.opencb.opencga.storage.hadoop.variant.gaps.PrepareFillMissingDriver;
 import org.opencb.opencga.storage.hadoop.variant.gaps.write.FillMissingHBaseWriterDriver;
 import org.opencb.opencga.storage.hadoop.variant.index.SampleIndexCompoundHeterozygousQueryExecutor;
@@ -532,6 +533,12 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
         try {
             Runtime.getRuntime().addShutdownHook(hook);
 
+            if (fillGaps && options.getBoolean(FILL_GAPS_LOCAL.key(), FILL_GAPS_LOCAL.defaultValue())) {
+                new FillGapsLocalExecutor(getDBAdaptor())
+                        .fillGaps(studyMetadata, getArchiveTableName(studyId), sampleIds, fileIds, task.getTimestamp(), options);
+                return;
+            }
+
             options.put(FillGapsFromArchiveMapper.SAMPLES, sampleIds);
             options.put(FillGapsFromArchiveMapper.FILL_GAPS, fillGaps);
             options.put(FillGapsFromArchiveMapper.OVERWRITE, overwrite);
@@ -901,7 +908,7 @@ public class HadoopVariantStorageEngine extends VariantStorageEngine implements
         try {
             executors.add(new SearchIndexVariantAggregationExecutor(getVariantSearchManager(), getDBName()));
             executors.add(new SampleIndexVariantAggregationExecutor(getMetadataManager(), getSampleIndexDBAdaptor()));
-            executors.add(new ChromDensityVariantAggregationExecutor(this, getMetadataManager()));
+            executors.add(new ChromDensityVariantAggregationExecutor(this, getMetadataManager(), getOptions()));
         } catch (Exception e) {
             throw VariantQueryException.internalException(e);
         }
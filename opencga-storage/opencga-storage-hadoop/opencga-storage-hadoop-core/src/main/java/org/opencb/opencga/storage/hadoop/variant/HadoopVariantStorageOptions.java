@@ -11,6 +11,8 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     EXPECTED_FILES_NUMBER("expected_files_number", 5000),
     EXPECTED_SAMPLES_NUMBER("expected_samples_number"),
     DBADAPTOR_PHOENIX_FETCH_SIZE("storage.hadoop.phoenix.fetchSize", -1),
+    DBADAPTOR_SCAN_THREADS("storage.hadoop.scan.numThreads", 4),   // Concurrent scanners for multi-region queries. 1 to scan serially
+    DBADAPTOR_SCAN_PREFETCH("storage.hadoop.scan.prefetch", 500),  // Max results buffered per concurrent scanner
 
     /////////////////////////
     // MapReduce configuration
@@ -79,6 +81,9 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     ARCHIVE_SLICE_BUFFER_SIZE("storage.hadoop.archive.sliceBuffer.size", 5),
 
     ARCHIVE_FIELDS("storage.hadoop.archive.fields"),
+    // Block compression for each archive slice, on top of the table compression. One of: none, gz, snappy, lz4.
+    // Readers detect the format of each slice, so it can be changed at any time.
+    ARCHIVE_SLICE_COMPRESSION("storage.hadoop.archive.slice.compression", Compression.Algorithm.NONE.getName()),
     ARCHIVE_NON_REF_FILTER("storage.hadoop.archive.non-ref.filter"),
 
     /////////////////////////
@@ -88,6 +93,11 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     SAMPLE_INDEX_TABLE_PRESPLIT_SIZE("storage.hadoop.sampleIndex.table.preSplit.samplesPerSplit", 15),
     SAMPLE_INDEX_BUILD_MAX_SAMPLES_PER_MR("storage.hadoop.sampleIndex.build.maxSamplesPerMR", 5000),
     SAMPLE_INDEX_ANNOTATION_MAX_SAMPLES_PER_MR("storage.hadoop.sampleIndex.annotation.maxSamplesPerMR", 5000),
+    // Write the sample index into HFiles and bulk load them, instead of using Puts. Not used when merging with existing data
+    SAMPLE_INDEX_BUILD_BULK_LOAD("storage.hadoop.sampleIndex.build.bulkLoad", false),
+    SAMPLE_INDEX_BUILD_BULK_LOAD_BUFFER_SIZE("storage.hadoop.sampleIndex.build.bulkLoad.bufferSize", 256 * 1024 * 1024),
+    // Rows read ahead per sample on multi-sample queries. 0 to read each sample index on demand
+    SAMPLE_INDEX_QUERY_PREFETCH("storage.hadoop.sampleIndex.query.prefetch", 4),
 
     /////////////////////////
     // Annotation index table  configuration
@@ -101,6 +111,11 @@ public enum HadoopVariantStorageOptions implements ConfigurationOption {
     INTERMEDIATE_HDFS_DIRECTORY("storage.hadoop.intermediate.hdfs.directory"),
     FILL_MISSING_WRITE_MAPPERS_LIMIT_FACTOR("storage.hadoop.fill_missing.write.mappers.limit.factor", 1.5F),
     FILL_MISSING_SIMPLIFIED_MULTIALLELIC_VARIANTS("storage.hadoop.fill_missing.simplifiedMultiAllelicVariants", true),
+    // Fill gaps without MapReduce, reading only the variants from the given files. Useful for small incremental batches
+    FILL_GAPS_LOCAL("storage.hadoop.fill_gaps.local", false),
+    FILL_GAPS_LOCAL_THREADS("storage.hadoop.fill_gaps.local.numThreads", 4),
+    FILL_GAPS_LOCAL_BATCH_SIZE("storage.hadoop.fill_gaps.local.batchSize", 200),
+    FILL_GAPS_LOCAL_SLICE_CACHE_SIZE("storage.hadoop.fill_gaps.local.sliceCacheSize", 10),
     STATS_LOCAL("storage.hadoop.stats.local", false);
 
     private final String key;
@@ -52,6 +52,7 @@ import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.iterators.ParallelScanResultIterator;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.iterators.VariantHBaseResultSetIterator;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.iterators.VariantHBaseScanIterator;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
@@ -105,6 +106,8 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
     private final VariantHBaseQueryParser hbaseQueryParser;
     private final HBaseFileMetadataDBAdaptor variantFileMetadataDBAdaptor;
     private final int phoenixFetchSize;
+    private final int scanThreads;
+    private final int scanPrefetch;
     private boolean clientSideSkip;
     private HBaseManager hBaseManager;
 
@@ -135,6 +138,12 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         phoenixFetchSize = options.getInt(
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.key(),
                 HadoopVariantStorageOptions.DBADAPTOR_PHOENIX_FETCH_SIZE.defaultValue());
+        scanThreads = options.getInt(
+                HadoopVariantStorageOptions.DBADAPTOR_SCAN_THREADS.key(),
+                HadoopVariantStorageOptions.DBADAPTOR_SCAN_THREADS.defaultValue());
+        scanPrefetch = options.getInt(
+                HadoopVariantStorageOptions.DBADAPTOR_SCAN_PREFETCH.key(),
+                HadoopVariantStorageOptions.DBADAPTOR_SCAN_PREFETCH.defaultValue());
 
         phoenixHelper = new PhoenixHelper(this.configuration);
 
@@ -398,16 +407,25 @@ public class VariantHadoopDBAdaptor implements VariantDBAdaptor {
         if (hbaseIterator) {
             logger.debug("Creating " + VariantHBaseScanIterator.class.getSimpleName() + " iterator");
             List<Scan> scans = hbaseQueryParser.parseQueryMultiRegion(variantQuery, options);
-            Iterator<ResultScanner> resScans = scans.stream().map(scan -> {
-                try {
-                    return hBaseManager.getScanner(variantTable, scan);
-                } catch (IOException e) {
-                    throw VariantQueryException.internalException(e);
-                }
-            }).iterator();
-
-            VariantHBaseScanIterator iterator = new VariantHBaseScanIterator(
-                    resScans, metadataManager, converterConfiguration, options);
+            VariantHBaseScanIterator iterator;
+            int numThreads = options.getInt(HadoopVariantStorageOptions.DBADAPTOR_SCAN_THREADS.key(), scanThreads);
+            if (scans.size() > 1 && numThreads > 1) {
+                // Results in table order, unless the caller explicitly allows unsorted results
+                boolean ordered = options.getBoolean(QueryOptions.SORT, true);
+                ParallelScanResultIterator results = new ParallelScanResultIterator(scans,
+                        scan -> hBaseManager.getScanner(variantTable, scan),
+                        numThreads, scanPrefetch, ordered, options.getLong(QueryOptions.TIMEOUT, 0));
+                iterator = new VariantHBaseScanIterator(results, metadataManager, converterConfiguration, options);
+            } else {
+                Iterator<ResultScanner> resScans = scans.stream().map(scan -> {
+                    try {
+                        return hBaseManager.getScanner(variantTable, scan);
+                    } catch (IOException e) {
+                        throw VariantQueryException.internalException(e);
+                    }
+                }).iterator();
+                iterator = new VariantHBaseScanIterator(resScans, metadataManager, converterConfiguration, options);
+            }
 
             // Client side skip!
             int skip = options.getInt(QueryOptions.SKIP, -1);
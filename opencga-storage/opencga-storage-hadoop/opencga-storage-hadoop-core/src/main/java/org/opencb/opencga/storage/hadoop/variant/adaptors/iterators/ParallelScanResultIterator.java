@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.hadoop.variant.adaptors.iterators;
+
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.opencb.opencga.storage.core.utils.iterators.PrefetchIterator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Iterates over the results of multiple scans, opening up to numThreads scanners concurrently.
+ *
+ * Each scanner is drained by its own thread into a bounded buffer of results, using a {@link PrefetchIterator}.
+ * In ordered mode, scans are sorted by start row and returned one after another, so the results are in the same order as
+ * in the table, while the next scans are prefetched. In unordered mode, results are returned as soon as any scanner
+ * produces them.
+ */
+public class ParallelScanResultIterator implements Iterator<Result>, AutoCloseable {
+
+    private final ExecutorService threadPool;
+    private final PrefetchIterator<Result> results;
+
+    @FunctionalInterface
+    public interface ScannerFactory {
+        ResultScanner getScanner(Scan scan) throws IOException;
+    }
+
+    /**
+     * Create and start the parallel iterator.
+     *
+     * @param scans          Scans to execute
+     * @param scannerFactory Opens the scanner of each scan
+     * @param numThreads     Max number of concurrent scanners
+     * @param prefetch       Max number of results buffered per scanner
+     * @param ordered        Return the results in table order
+     * @param timeout        Max time in milliseconds to wait for the next result. 0 or negative for no timeout.
+     */
+    public ParallelScanResultIterator(List<Scan> scans, ScannerFactory scannerFactory, int numThreads, int prefetch,
+                                      boolean ordered, long timeout) {
+        AtomicInteger threadCount = new AtomicInteger();
+        threadPool = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, scans.size())), r -> {
+            Thread thread = new Thread(r, "variant-hbase-scan-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Scan> sortedScans = new ArrayList<>(scans);
+        if (ordered) {
+            sortedScans.sort((s1, s2) -> Bytes.compareTo(s1.getStartRow(), s2.getStartRow()));
+        }
+        List<PrefetchIterator.Source<Result>> sources = new ArrayList<>(sortedScans.size());
+        for (Scan scan : sortedScans) {
+            sources.add(sink -> {
+                try (ResultScanner scanner = scannerFactory.getScanner(scan)) {
+                    for (Result result : scanner) {
+                        sink.put(result);
+                    }
+                }
+            });
+        }
+        // Unordered scans share one buffer
+        results = new PrefetchIterator<>(sources, ordered ? prefetch : prefetch * numThreads, ordered, timeout, threadPool);
+        threadPool.shutdown();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return results.hasNext();
+    }
+
+    @Override
+    public Result next() {
+        return results.next();
+    }
+
+    @Override
+    public void close() {
+        // Stop running scans. Scanners are closed by each task.
+        results.close();
+        threadPool.shutdownNow();
+    }
+}
@@ -45,6 +45,7 @@ public class VariantHBaseScanIterator extends VariantDBIterator {
     private final Logger logger = LoggerFactory.getLogger(VariantHBaseScanIterator.class);
     private final Iterator<ResultScanner> resultScanners;
     private ResultScanner currentResultScanner;
+    private ParallelScanResultIterator parallelResults;
     private Iterator<Result> resultIterator;
     private Iterator<Future<Variant>> buffer = Collections.emptyIterator();
     private final HBaseToVariantConverter<Result> converter;
@@ -65,6 +66,13 @@ public class VariantHBaseScanIterator extends VariantDBIterator {
         threadPool = Executors.newFixedThreadPool(POOL_SIZE);
     }
 
+    public VariantHBaseScanIterator(ParallelScanResultIterator parallelResults, VariantStorageMetadataManager metadataManager,
+                                    HBaseVariantConverterConfiguration configuration, QueryOptions options) {
+        this(Collections.emptyIterator(), metadataManager, configuration, options);
+        this.parallelResults = parallelResults;
+        resultIterator = parallelResults;
+    }
+
     @Override
     public boolean hasNext() {
         if (count >= limit) {
@@ -133,6 +141,9 @@ public class VariantHBaseScanIterator extends VariantDBIterator {
         if (currentResultScanner != null) {
             currentResultScanner.close();
         }
+        if (parallelResults != null) {
+            parallelResults.close();
+        }
     }
 
     @Override
@@ -106,7 +106,7 @@ public class ArchiveResultToVariantConverter {
             VcfSlice vcfSlice;
             try {
                 long startProtoTime = System.nanoTime();
-                vcfSlice = VcfSlice.parseFrom(CellUtil.cloneValue(c));
+                vcfSlice = ArchiveSliceCodec.decode(c.getValueArray(), c.getValueOffset(), c.getValueLength());
                 if (protoTime != null) {
                     protoTime.addAndGet(System.nanoTime() - startProtoTime);
                 }
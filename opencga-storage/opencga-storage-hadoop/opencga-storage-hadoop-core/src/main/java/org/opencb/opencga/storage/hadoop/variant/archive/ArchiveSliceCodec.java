@@ -0,0 +1,140 @@
+package org.opencb.opencga.storage.hadoop.variant.archive;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
+import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.VcfSlice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Serializes the {@link VcfSlice} stored in the archive table.
+ *
+ * The VcfSlice is already dictionary encoded (formats, filters, genotypes and info keys are stored once per slice in
+ * {@link VcfSlice#getFields()}) and the records positions are relative to the slice position. On top of that, the
+ * serialized protobuf can be compressed with a block codec, which helps with the highly repetitive sample data.
+ *
+ * Versions:
+ * <ul>
+ *     <li>v1: Plain protobuf. Written when the compression is "none".</li>
+ *     <li>v2: Header followed by the compressed protobuf.
+ *      Header: [0x00][version][codec][uncompressed length (4 bytes)]</li>
+ * </ul>
+ * A valid protobuf message can not start with 0x00 (field number 0 is not allowed), so the version is detected
+ * from the first byte.
+ */
+public final class ArchiveSliceCodec {
+
+    public static final byte V2_MARKER = 0x00;
+    public static final byte V2 = 2;
+    private static final int V2_HEADER_SIZE = 3 + Bytes.SIZEOF_INT;
+
+    // Stable ids, independent of the Compression.Algorithm enum order
+    private static final Compression.Algorithm[] CODECS = {
+            Compression.Algorithm.NONE,
+            Compression.Algorithm.GZ,
+            Compression.Algorithm.SNAPPY,
+            Compression.Algorithm.LZ4,
+    };
+
+    private ArchiveSliceCodec() {
+    }
+
+    public static Compression.Algorithm parseCompression(String compression) {
+        if (compression == null || compression.isEmpty()) {
+            return Compression.Algorithm.NONE;
+        }
+        Compression.Algorithm algorithm = Compression.getCompressionAlgorithmByName(compression.toLowerCase());
+        // Fail fast on unsupported codecs
+        getCodecId(algorithm);
+        return algorithm;
+    }
+
+    public static byte[] encode(VcfSlice slice, Compression.Algorithm compression) {
+        byte[] data = slice.toByteArray();
+        if (compression == null || compression == Compression.Algorithm.NONE) {
+            return data;
+        }
+        byte codecId = getCodecId(compression);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(V2_HEADER_SIZE + data.length / 2);
+        out.write(V2_MARKER);
+        out.write(V2);
+        out.write(codecId);
+        out.write(Bytes.toBytes(data.length), 0, Bytes.SIZEOF_INT);
+        Compressor compressor = compression.getCompressor();
+        try (OutputStream os = compression.createCompressionStream(out, compressor, 0)) {
+            os.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Error compressing VcfSlice with " + compression.getName(), e);
+        } finally {
+            compression.returnCompressor(compressor);
+        }
+        return out.toByteArray();
+    }
+
+    public static VcfSlice decode(byte[] data) throws InvalidProtocolBufferException {
+        return decode(data, 0, data.length);
+    }
+
+    public static VcfSlice decode(byte[] data, int offset, int length) throws InvalidProtocolBufferException {
+        if (length == 0 || data[offset] != V2_MARKER) {
+            // v1. Plain protobuf
+            if (offset == 0 && length == data.length) {
+                return VcfSlice.parseFrom(data);
+            } else {
+                return VcfSlice.parseFrom(ByteString.copyFrom(data, offset, length));
+            }
+        }
+        if (length < V2_HEADER_SIZE) {
+            throw new InvalidProtocolBufferException("Truncated archive slice header");
+        }
+        byte version = data[offset + 1];
+        if (version != V2) {
+            throw new InvalidProtocolBufferException("Unknown archive slice version " + version);
+        }
+        Compression.Algorithm compression = getCodec(data[offset + 2]);
+        int uncompressedLength = Bytes.toInt(data, offset + 3);
+        byte[] uncompressed = new byte[uncompressedLength];
+        Decompressor decompressor = compression.getDecompressor();
+        try (InputStream is = compression.createDecompressionStream(
+                new ByteArrayInputStream(data, offset + V2_HEADER_SIZE, length - V2_HEADER_SIZE), decompressor, 0)) {
+            IOUtils.readFully(is, uncompressed, 0, uncompressedLength);
+        } catch (IOException e) {
+            InvalidProtocolBufferException exception =
+                    new InvalidProtocolBufferException("Error decompressing archive slice with " + compression.getName());
+            exception.initCause(e);
+            throw exception;
+        } finally {
+            compression.returnDecompressor(decompressor);
+        }
+        return VcfSlice.parseFrom(uncompressed);
+    }
+
+    public static boolean isCompressed(byte[] data) {
+        return data.length > 0 && data[0] == V2_MARKER;
+    }
+
+    private static byte getCodecId(Compression.Algorithm compression) {
+        for (byte i = 0; i < CODECS.length; i++) {
+            if (CODECS[i] == compression) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported archive slice compression " + compression.getName());
+    }
+
+    private static Compression.Algorithm getCodec(byte codecId) throws InvalidProtocolBufferException {
+        if (codecId < 0 || codecId >= CODECS.length) {
+            throw new InvalidProtocolBufferException("Unknown archive slice codec " + codecId);
+        }
+        return CODECS[codecId];
+    }
+}
@@ -62,6 +62,8 @@ public class ArchiveTableHelper extends GenomeHelper {
     private final byte[] refColumn;
 
     private final int fileId;
+    private final Compression.Algorithm sliceCompression = ArchiveSliceCodec.parseCompression(
+            getConf().get(ARCHIVE_SLICE_COMPRESSION.key(), ARCHIVE_SLICE_COMPRESSION.defaultValue()));
 
     @Deprecated
     public ArchiveTableHelper(Configuration conf) throws IOException {
@@ -259,7 +261,10 @@ public class ArchiveTableHelper extends GenomeHelper {
 //        byte[] rowId = generateBlockIdAsBytes(slice.getChromosome(), (long) slice.getPosition() + slice.getRecords(0).getRelativeStart
 // () * 100);
         byte[] rowId = keyFactory.generateBlockIdAsBytes(getFileId(), slice.getChromosome(), slice.getPosition());
-        return wrapAsPut(isRef ? getRefColumnName() : getNonRefColumnName(), rowId, slice);
+        Put put = new Put(rowId);
+        put.addColumn(COLUMN_FAMILY_BYTES, isRef ? getRefColumnName() : getNonRefColumnName(),
+                ArchiveSliceCodec.encode(slice, sliceCompression));
+        return put;
     }
 
 }
@@ -129,13 +129,13 @@ public class VariantHadoopArchiveDBIterator extends VariantDBIterator implements
                 try {
                     byte[] nonRefValue = result.getValue(columnFamily, nonRefColumnBytes);
                     if (nonRefValue != null && nonRefValue.length > 0) {
-                        nonRefVcfSlice = convert(() -> VcfSliceProtos.VcfSlice.parseFrom(nonRefValue));
+                        nonRefVcfSlice = convert(() -> ArchiveSliceCodec.decode(nonRefValue));
                         nonRefVcfRecordIterator = nonRefVcfSlice.getRecordsList().listIterator();
                         nonRefConverter.setFields(nonRefVcfSlice.getFields());
                     }
                     byte[] refValue = result.getValue(columnFamily, refColumnBytes);
                     if (refValue != null && refValue.length > 0) {
-                        refVcfSlice = convert(() -> VcfSliceProtos.VcfSlice.parseFrom(refValue));
+                        refVcfSlice = convert(() -> ArchiveSliceCodec.decode(refValue));
                         refVcfRecordIterator = refVcfSlice.getRecordsList().listIterator();
                         refConverter.setFields(refVcfSlice.getFields());
                     }
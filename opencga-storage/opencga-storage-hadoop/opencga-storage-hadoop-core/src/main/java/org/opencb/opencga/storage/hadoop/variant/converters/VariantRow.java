@@ -25,6 +25,7 @@ import java.nio.ByteBuffer;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -398,6 +399,26 @@ public class VariantRow {
 
         String getSampleData(int idx);
 
+        /**
+         * Get a modifiable list with only the values at the given positions.
+         *
+         * @param positions    Positions of the values to read
+         * @param missingValue Value for negative or out of range positions
+         * @return Selected values
+         */
+        default List<String> getMutableSampleData(int[] positions, String missingValue) {
+            List<String> sampleData = getSampleData();
+            List<String> selected = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                if (position < 0 || position >= sampleData.size()) {
+                    selected.add(missingValue);
+                } else {
+                    selected.add(sampleData.get(position));
+                }
+            }
+            return selected;
+        }
+
         default Float getSampleDataFloat(int idx) {
             return toFloat(getSampleData(idx));
         }
@@ -534,6 +555,28 @@ public class VariantRow {
         public String getSampleData(int idx) {
             return super.getString(idx);
         }
+
+        @Override
+        public List<String> getMutableSampleData(int[] positions, String missingValue) {
+            // Decode only the selected elements, without building the whole PhoenixArray
+            List<String> selected = new ArrayList<>(positions.length);
+            ImmutableBytesWritable ptr = new ImmutableBytesWritable(valueArray, valueOffset, valueLength);
+            // Check the bounds explicitly. Some Phoenix versions do not report out of range positions, and return null instead
+            int arrayLength = valueLength == 0 ? 0 : PArrayDataType.getArrayLength(ptr, PVarchar.INSTANCE, null);
+            for (int position : positions) {
+                if (position < 0 || position >= arrayLength) {
+                    selected.add(missingValue);
+                    continue;
+                }
+                ptr.set(valueArray, valueOffset, valueLength);
+                if (PhoenixHelper.positionAtArrayElement(ptr, position, PVarchar.INSTANCE, null)) {
+                    selected.add((String) PVarchar.INSTANCE.toObject(ptr));
+                } else {
+                    selected.add(missingValue);
+                }
+            }
+            return selected;
+        }
     }
 
     private static class BytesFileColumn extends BytesColumn implements FileColumn {
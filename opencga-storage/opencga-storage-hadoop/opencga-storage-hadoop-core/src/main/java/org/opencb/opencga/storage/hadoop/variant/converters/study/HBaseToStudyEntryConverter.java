@@ -69,6 +69,7 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
     public static final int FILE_FILTER_IDX = 4;
     public static final int FILE_INFO_START_IDX = 5;
     public static final String ALTERNATE_COORDINATE_SEPARATOR = ":";
+    private static final int MAX_INTERNED_GENOTYPES = 1000;
 
     private final VariantStorageMetadataManager metadataManager;
     private final HBaseToVariantStatsConverter statsConverter;
@@ -83,6 +84,8 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
     private final Map<Integer, Set<Integer>> filesFromReturnedSamples = new ConcurrentHashMap<>();
     private final Map<Integer, List<String>> fixedFormatsMap = new ConcurrentHashMap<>();
     private Map<Integer, List<String>> expectedFormatPerStudy = new ConcurrentHashMap<>();
+    // Share the same String instance for repeated genotypes
+    private final Map<String, String> genotypes = new ConcurrentHashMap<>();
 
     protected final Logger logger = LoggerFactory.getLogger(HBaseToStudyEntryConverter.class);
     private HBaseVariantConverterConfiguration configuration;
@@ -301,7 +304,7 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
     protected void addMainSampleDataColumn(StudyMetadata studyMetadata, StudyEntry studyEntry,
                                            int[] sampleDataKeysMap, VariantRow.SampleColumn sampleColumn) {
         int sampleId = sampleColumn.getSampleId();
-        List<String> sampleData = remapSamplesData(sampleColumn.getMutableSampleData(), sampleDataKeysMap);
+        List<String> sampleData = readSampleData(sampleColumn, sampleDataKeysMap);
         Integer gtIdx = studyEntry.getSampleDataKeyPosition("GT");
         // Replace UNKNOWN_GENOTYPE, if any
         if (gtIdx != null) {
@@ -310,6 +313,8 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
                 sampleData.set(gtIdx, NA_GT_VALUE);
             } else if (UNKNOWN_GENOTYPE.equals(gt)) {
                 sampleData.set(gtIdx, configuration.getUnknownGenotype());
+            } else {
+                sampleData.set(gtIdx, internGenotype(gt));
             }
         }
 
@@ -365,25 +370,25 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
         return formatsMap;
     }
 
-    private List<String> remapSamplesData(List<String> sampleData, int[] formatsMap) {
+    private List<String> readSampleData(VariantRow.SampleColumn sampleColumn, int[] formatsMap) {
         if (formatsMap == null) {
             // Nothing to do!
-            return sampleData;
+            return sampleColumn.getMutableSampleData();
         } else {
-            List<String> filteredSampleData = new ArrayList<>(formatsMap.length);
-            for (int i : formatsMap) {
-                if (i < 0) {
-                    filteredSampleData.add(UNKNOWN_SAMPLE_DATA);
-                } else {
-                    if (i < sampleData.size()) {
-                        filteredSampleData.add(sampleData.get(i));
-                    } else {
-                        filteredSampleData.add(UNKNOWN_SAMPLE_DATA);
-                    }
-                }
+            // Only decode the projected fields
+            return sampleColumn.getMutableSampleData(formatsMap, UNKNOWN_SAMPLE_DATA);
+        }
+    }
+
+    private String internGenotype(String gt) {
+        String internedGt = genotypes.putIfAbsent(gt, gt);
+        if (internedGt == null) {
+            if (genotypes.size() > MAX_INTERNED_GENOTYPES) {
+                genotypes.clear();
             }
-            return filteredSampleData;
+            return gt;
         }
+        return internedGt;
     }
 
     private void addFileEntry(StudyMetadata studyMetadata, Variant variant, StudyEntry studyEntry, String fileIdStr,
@@ -1089,5 +1094,10 @@ public class HBaseToStudyEntryConverter extends AbstractPhoenixConverter {
         public String getSampleData(int idx) {
             return sampleColumnWithoutFile.getSampleData(idx);
         }
+
+        @Override
+        public List<String> getMutableSampleData(int[] positions, String missingValue) {
+            return sampleColumnWithoutFile.getMutableSampleData(positions, missingValue);
+        }
     }
 }
@@ -24,6 +24,7 @@ import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
 import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveRowKeyFactory;
+import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveSliceCodec;
 import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveTableHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -281,7 +282,7 @@ public abstract class AbstractFillFromArchiveTask implements Task<Result, Abstra
             if (data != null && data.length != 0) {
                 try {
                     StopWatch stopWatch = new StopWatch().start();
-                    vcfSlice = VcfSlice.parseFrom(data);
+                    vcfSlice = ArchiveSliceCodec.decode(data);
                     increment("PARSE_VCF_SLICE", fileBatch, stopWatch);
                     increment("PARSE_VCF_SLICE", fileBatch, 1);
                 } catch (InvalidProtocolBufferException | RuntimeException e) {
@@ -1,5 +1,6 @@
 package org.opencb.opencga.storage.hadoop.variant.gaps;
 
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.Put;
@@ -22,7 +23,9 @@ import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
 import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveRowKeyFactory;
+import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveSliceCodec;
 import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveTableHelper;
+import org.opencb.opencga.storage.hadoop.variant.gaps.AbstractFillFromArchiveTask.VcfSlicePair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -37,18 +40,26 @@ import java.util.*;
  */
 public class FillGapsFromVariantTask implements Task<Variant, Put> {
 
+    public static final int DEFAULT_SLICE_CACHE_SIZE = 10;
+
     private final HBaseManager hBaseManager;
     private final String archiveTableName;
     private final StudyMetadata studyMetadata;
     private final GenomeHelper helper;
-    private final Integer anyFileId;
     private Table archiveTable;
     private final ArchiveRowKeyFactory archiveRowKeyFactory;
     private final Collection<Integer> samples;
     private final Map<Integer, Integer> samplesFileMap;
     private final Map<Integer, byte[]> fileToNonRefColumnMap = new HashMap<>();
+    private final Map<Integer, byte[]> fileToRefColumnMap = new HashMap<>();
+    private final Map<Integer, List<Integer>> fileBatchToFiles = new HashMap<>();
+    // LRU cache of parsed VcfSlices from the archive table, by archive row key. Consecutive variants usually share slices.
+    private final Map<String, Map<Integer, VcfSlicePair>> sliceCache;
     private final Logger logger = LoggerFactory.getLogger(FillGapsFromVariantTask.class);
     private FillGapsTask fillGapsTask;
+    private long timestamp = HConstants.LATEST_TIMESTAMP;
+    private long cacheHits = 0;
+    private long cacheMisses = 0;
 
     public FillGapsFromVariantTask(HBaseManager hBaseManager,
                                    String archiveTableName,
@@ -56,6 +67,16 @@ public class FillGapsFromVariantTask implements Task<Variant, Put> {
                                    VariantStorageMetadataManager metadataManager,
                                    GenomeHelper helper,
                                    Collection<Integer> samples) {
+        this(hBaseManager, archiveTableName, studyMetadata, metadataManager, helper, samples, DEFAULT_SLICE_CACHE_SIZE);
+    }
+
+    public FillGapsFromVariantTask(HBaseManager hBaseManager,
+                                   String archiveTableName,
+                                   StudyMetadata studyMetadata,
+                                   VariantStorageMetadataManager metadataManager,
+                                   GenomeHelper helper,
+                                   Collection<Integer> samples,
+                                   int sliceCacheSize) {
         this.hBaseManager = hBaseManager;
         this.archiveTableName = archiveTableName;
         this.studyMetadata = studyMetadata;
@@ -67,19 +88,32 @@ public class FillGapsFromVariantTask implements Task<Variant, Put> {
             SampleMetadata sampleMetadata = metadataManager.getSampleMetadata(studyMetadata.getId(), sample);
             for (Integer fileId : sampleMetadata.getFiles()) {
                 samplesFileMap.put(sample, fileId);
-                fileToNonRefColumnMap.put(fileId, Bytes.toBytes(ArchiveTableHelper.getNonRefColumnName(fileId)));
+                if (!fileToNonRefColumnMap.containsKey(fileId)) {
+                    fileToNonRefColumnMap.put(fileId, Bytes.toBytes(ArchiveTableHelper.getNonRefColumnName(fileId)));
+                    fileToRefColumnMap.put(fileId, Bytes.toBytes(ArchiveTableHelper.getRefColumnName(fileId)));
+                    fileBatchToFiles.computeIfAbsent(archiveRowKeyFactory.getFileBatch(fileId), k -> new ArrayList<>()).add(fileId);
+                }
             }
         }
-        anyFileId = fileToNonRefColumnMap.keySet().iterator().next();
-        for (Integer fileId : fileToNonRefColumnMap.keySet()) {
-            // FIXME !!
-            if (archiveRowKeyFactory.getFileBatch(anyFileId) != archiveRowKeyFactory.getFileBatch(fileId)) {
-                throw new IllegalStateException("Unable to fill gaps for files from different batches in archive!");
+        sliceCache = new LinkedHashMap<String, Map<Integer, VcfSlicePair>>(sliceCacheSize + 1, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Map<Integer, VcfSlicePair>> eldest) {
+                return size() > sliceCacheSize;
             }
-        }
+        };
         fillGapsTask = new FillGapsTask(studyMetadata, helper, false, false, metadataManager);
     }
 
+    public FillGapsFromVariantTask setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+        return this;
+    }
+
+    public FillGapsFromVariantTask setQuiet(boolean quiet) {
+        fillGapsTask.setQuiet(quiet);
+        return this;
+    }
+
     @Override
     public void pre() {
         try {
@@ -103,6 +137,8 @@ public class FillGapsFromVariantTask implements Task<Variant, Put> {
 
     @Override
     public void post() {
+        logger.debug("Archive slices cache hits: {}, misses: {}", cacheHits, cacheMisses);
+        sliceCache.clear();
         try {
             archiveTable.close();
         } catch (IOException e) {
@@ -139,28 +175,78 @@ public class FillGapsFromVariantTask implements Task<Variant, Put> {
             return null;
         }
 
-        Set<Integer> fileIds = new HashSet<>();
+        Map<Integer, Set<Integer>> fileToMissingSamples = new HashMap<>();
         for (Integer missingSample : missingSamples) {
-            fileIds.add(samplesFileMap.get(missingSample));
+            Integer fileId = samplesFileMap.get(missingSample);
+            if (fileId != null) {
+                fileToMissingSamples.computeIfAbsent(fileId, k -> new HashSet<>()).add(missingSample);
+            }
+        }
+
+        Put put = new Put(VariantPhoenixKeyFactory.generateVariantRowKey(variant), timestamp);
+        for (Map.Entry<Integer, Set<Integer>> entry : fileToMissingSamples.entrySet()) {
+            Integer fileId = entry.getKey();
+            VcfSlicePair vcfSlicePair = getVcfSlicePair(variant, fileId);
+            if (vcfSlicePair != null) {
+                fillGapsTask.fillGaps(variant, entry.getValue(), put, fileId,
+                        vcfSlicePair.getNonRefVcfSlice(), vcfSlicePair.getRefVcfSlice());
+            } else {
+                logger.debug("Missing fileId " + fileId + " in variant " + variant);
+            }
+        }
+        return put;
+    }
+
+    private VcfSlicePair getVcfSlicePair(Variant variant, Integer fileId) throws IOException {
+        String blockId = archiveRowKeyFactory.generateBlockId(variant, fileId);
+        Map<Integer, VcfSlicePair> slices = sliceCache.get(blockId);
+        if (slices == null) {
+            cacheMisses++;
+            slices = readVcfSlices(blockId, fileBatchToFiles.get(archiveRowKeyFactory.getFileBatch(fileId)));
+            sliceCache.put(blockId, slices);
+        } else {
+            cacheHits++;
         }
-        Get get = new Get(Bytes.toBytes(archiveRowKeyFactory.generateBlockId(variant, anyFileId)));
+        return slices.get(fileId);
+    }
+
+    /**
+     * Read the slices from all the files of the same file batch, so they can be reused by the following variants.
+     *
+     * @param blockId Archive row key
+     * @param fileIds Files from the file batch of the row
+     * @return VcfSlices of each file found in the row
+     * @throws IOException if fails reading from HBase
+     */
+    private Map<Integer, VcfSlicePair> readVcfSlices(String blockId, List<Integer> fileIds) throws IOException {
+        Get get = new Get(Bytes.toBytes(blockId));
         for (Integer fileId : fileIds) {
             get.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, fileToNonRefColumnMap.get(fileId));
+            get.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, fileToRefColumnMap.get(fileId));
         }
-
-        Put put = new Put(VariantPhoenixKeyFactory.generateVariantRowKey(variant));
         Result result = archiveTable.get(get);
+        Map<Integer, VcfSlicePair> slices = new HashMap<>();
+        if (result.isEmpty()) {
+            return slices;
+        }
         for (Integer fileId : fileIds) {
-            byte[] bytes = result.getValue(GenomeHelper.COLUMN_FAMILY_BYTES, fileToNonRefColumnMap.get(fileId));
-            if (bytes != null) {
-                VcfSliceProtos.VcfSlice refVcfSlice = null; // FIXME !!
-                VcfSliceProtos.VcfSlice nonRefVcfSlice = VcfSliceProtos.VcfSlice.parseFrom(bytes);
-                fillGapsTask.fillGaps(variant, missingSamples, put, fileId, nonRefVcfSlice, refVcfSlice);
-            } else {
-                logger.debug("Missing fileId " + fileId + " in variant " + variant);
+            VcfSliceProtos.VcfSlice nonRefVcfSlice = parseVcfSlice(
+                    result.getValue(GenomeHelper.COLUMN_FAMILY_BYTES, fileToNonRefColumnMap.get(fileId)));
+            VcfSliceProtos.VcfSlice refVcfSlice = parseVcfSlice(
+                    result.getValue(GenomeHelper.COLUMN_FAMILY_BYTES, fileToRefColumnMap.get(fileId)));
+            if (nonRefVcfSlice != null || refVcfSlice != null) {
+                slices.put(fileId, new VcfSlicePair(nonRefVcfSlice, refVcfSlice));
             }
         }
-        return put;
+        return slices;
+    }
+
+    private static VcfSliceProtos.VcfSlice parseVcfSlice(byte[] data) throws IOException {
+        if (data == null || data.length == 0) {
+            return null;
+        } else {
+            return ArchiveSliceCodec.decode(data);
+        }
     }
 
     public static Query buildQuery(Object study, Collection<?> sampleIds, Collection<?> fileIds) {
@@ -0,0 +1,146 @@
+package org.opencb.opencga.storage.hadoop.variant.gaps;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.hbase.client.Put;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.io.DataReader;
+import org.opencb.commons.run.ParallelTaskRunner;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.hadoop.utils.HBaseDataWriter;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor;
+import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveRowKeyFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.*;
+
+/**
+ * Fill gaps without MapReduce, for small incremental operations where the job startup dominates.
+ *
+ * Reads only the variants from the given files, in batches aligned to the archive slices, so each archive slice is
+ * read by one single task, and cached while processing its variants.
+ * All tasks write into the variants table through the same buffered mutator.
+ */
+public class FillGapsLocalExecutor {
+
+    private final VariantHadoopDBAdaptor dbAdaptor;
+    private final Logger logger = LoggerFactory.getLogger(FillGapsLocalExecutor.class);
+
+    public FillGapsLocalExecutor(VariantHadoopDBAdaptor dbAdaptor) {
+        this.dbAdaptor = dbAdaptor;
+    }
+
+    public void fillGaps(StudyMetadata studyMetadata, String archiveTableName, Collection<Integer> samples,
+                         Collection<Integer> fileIds, long timestamp, ObjectMap options) throws StorageEngineException {
+        int numThreads = options.getInt(FILL_GAPS_LOCAL_THREADS.key(), FILL_GAPS_LOCAL_THREADS.defaultValue());
+        int batchSize = options.getInt(FILL_GAPS_LOCAL_BATCH_SIZE.key(), FILL_GAPS_LOCAL_BATCH_SIZE.defaultValue());
+        int sliceCacheSize = options.getInt(FILL_GAPS_LOCAL_SLICE_CACHE_SIZE.key(), FILL_GAPS_LOCAL_SLICE_CACHE_SIZE.defaultValue());
+
+        Query query = FillGapsFromVariantTask.buildQuery(studyMetadata.getId(), samples, fileIds);
+        String region = options.getString(VariantQueryParam.REGION.key());
+        if (StringUtils.isNotEmpty(region)) {
+            query.put(VariantQueryParam.REGION.key(), region);
+        }
+        logger.info("Fill gaps locally with {} threads. Query : {}", numThreads, query.toJson());
+
+        ArchiveRowKeyFactory rowKeyFactory = new ArchiveRowKeyFactory(dbAdaptor.getConfiguration());
+        SliceAlignedVariantReader reader = new SliceAlignedVariantReader(
+                dbAdaptor.iterator(query, FillGapsFromVariantTask.buildQueryOptions()), rowKeyFactory);
+        HBaseDataWriter<Put> writer = new HBaseDataWriter<>(dbAdaptor.getHBaseManager(), dbAdaptor.getVariantTable());
+
+        ParallelTaskRunner<Variant, Put> ptr = new ParallelTaskRunner<>(
+                reader,
+                () -> new FillGapsFromVariantTask(dbAdaptor.getHBaseManager(), archiveTableName, studyMetadata,
+                        dbAdaptor.getMetadataManager(), dbAdaptor.getGenomeHelper(), samples, sliceCacheSize)
+                        .setTimestamp(timestamp)
+                        .setQuiet(true),
+                writer,
+                ParallelTaskRunner.Config.builder()
+                        .setNumTasks(numThreads)
+                        .setBatchSize(batchSize)
+                        .setAbortOnFail(true)
+                        .setSorted(false)
+                        .build());
+        try {
+            ptr.run();
+        } catch (ExecutionException e) {
+            throw new StorageEngineException("Error filling gaps of samples " + samples, e);
+        }
+        logger.info("Fill gaps finished. Read {} variants in {} batches", reader.getNumVariants(), reader.getNumBatches());
+    }
+
+    /**
+     * Reads variants in batches that do not split an archive slice between two batches.
+     */
+    private static final class SliceAlignedVariantReader implements DataReader<Variant> {
+        private final VariantDBIterator iterator;
+        private final ArchiveRowKeyFactory rowKeyFactory;
+        private Variant next;
+        private long numVariants = 0;
+        private long numBatches = 0;
+
+        private SliceAlignedVariantReader(VariantDBIterator iterator, ArchiveRowKeyFactory rowKeyFactory) {
+            this.iterator = iterator;
+            this.rowKeyFactory = rowKeyFactory;
+        }
+
+        @Override
+        public List<Variant> read(int batchSize) {
+            List<Variant> variants = new ArrayList<>(batchSize);
+            Variant last = null;
+            while (true) {
+                if (next == null) {
+                    if (!iterator.hasNext()) {
+                        break;
+                    }
+                    next = iterator.next();
+                }
+                // Complete the slice of the last variant before finishing the batch
+                if (variants.size() >= batchSize && !sameSlice(last, next)) {
+                    break;
+                }
+                last = next;
+                variants.add(next);
+                next = null;
+            }
+            numVariants += variants.size();
+            if (!variants.isEmpty()) {
+                numBatches++;
+            }
+            return variants;
+        }
+
+        private boolean sameSlice(Variant v1, Variant v2) {
+            return v1.getChromosome().equals(v2.getChromosome())
+                    && rowKeyFactory.getSliceId(v1.getStart()) == rowKeyFactory.getSliceId(v2.getStart());
+        }
+
+        @Override
+        public boolean close() {
+            try {
+                iterator.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return true;
+        }
+
+        public long getNumVariants() {
+            return numVariants;
+        }
+
+        public long getNumBatches() {
+            return numBatches;
+        }
+    }
+}
@@ -75,8 +75,12 @@ public class FillGapsTask {
                                              Integer fileId,
                                              VcfSliceProtos.VcfSlice nonRefVcfSlice, VcfSliceProtos.VcfSlice refVcfSlice) {
         return fillGaps(variant, missingSamples, put, fileId,
-                nonRefVcfSlice, nonRefVcfSlice.getRecordsList().listIterator(),
-                refVcfSlice, refVcfSlice.getRecordsList().listIterator());
+                nonRefVcfSlice, nonRefVcfSlice == null
+                        ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
+                        : nonRefVcfSlice.getRecordsList().listIterator(),
+                refVcfSlice, refVcfSlice == null
+                        ? Collections.<VcfSliceProtos.VcfRecord>emptyList().listIterator()
+                        : refVcfSlice.getRecordsList().listIterator());
     }
 
     public VariantOverlappingStatus fillGaps(Variant variant, Set<Integer> missingSamples, Put put,
@@ -17,7 +17,7 @@ import static org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndex
  * It has a CountSampleIndexGtEntryIterator for each genotype to keep an updated pointer of to its annotation, as
  * variants from the MendelianError list are not sequential.
  */
-public class MendelianErrorSampleIndexEntryIterator implements SampleIndexEntryIterator {
+public class MendelianErrorSampleIndexEntryIterator implements PositionalSampleIndexEntryIterator {
     private final ListIterator<String> variants;
     private final int size;
     private Variant next;
@@ -96,6 +96,12 @@ public class MendelianErrorSampleIndexEntryIterator implements SampleIndexEntryI
         return nextGt;
     }
 
+    @Override
+    public int nextRelativeStart() {
+        fetchNextIfNeeded();
+        return next.getStart() - SampleIndexSchema.getChunkStart(next.getStart());
+    }
+
     /**
      * @return Gets the mendelian error code of the next variant.
      */
@@ -36,6 +36,7 @@ public abstract class AbstractSampleIndexEntryFilter<T> {
 
     private final SingleSampleIndexQuery query;
     private final List<Region> regionsFilter;
+    private final SampleIndexGenotypeBitmap genotypeBitmap;
     private final Logger logger = LoggerFactory.getLogger(AbstractSampleIndexEntryFilter.class);
     private final List<Integer> annotationIndexPositions;
     private final SampleIndexVariantBiConverter converter;
@@ -63,7 +64,13 @@ public abstract class AbstractSampleIndexEntryFilter<T> {
     }
 
     public AbstractSampleIndexEntryFilter(SingleSampleIndexQuery query, List<Region> regionsFilter) {
+        this(query, regionsFilter, null);
+    }
+
+    public AbstractSampleIndexEntryFilter(SingleSampleIndexQuery query, List<Region> regionsFilter,
+                                          SampleIndexGenotypeBitmap genotypeBitmap) {
         this.query = query;
+        this.genotypeBitmap = genotypeBitmap;
         converter = new SampleIndexVariantBiConverter(query.getSchema());
         this.regionsFilter = regionsFilter == null || regionsFilter.isEmpty() ? null : regionsFilter;
 
@@ -126,20 +133,43 @@ public abstract class AbstractSampleIndexEntryFilter<T> {
     }
 
     private Collection<T> filter(SampleIndexEntry entry, boolean count) {
+        BitSet blocks = null;
+        if (genotypeBitmap != null) {
+            blocks = genotypeBitmap.getBlocks(entry.getChromosome(), entry.getBatchStart());
+            if (blocks == null) {
+                // No candidates in this batch. Skip without reading any variant
+                return Collections.emptyList();
+            }
+        }
         Map<String, SampleIndexGtEntry> gts = entry.getGts();
         List<List<T>> variantsByGt = new ArrayList<>(gts.size());
         int numVariants = 0;
-        // Use countIterator only if don't need to filter by region or by type
+        // Use countIterator only if don't need to filter by region, by type or by position
         boolean countIterator = count
                 && regionsFilter == null
+                && blocks == null
                 && CollectionUtils.isEmpty(query.getVariantTypes())
                 && !query.isMultiFileSample();
         for (SampleIndexGtEntry gtEntry : gts.values()) {
             MutableInt expectedResultsFromAnnotation = new MutableInt(getExpectedResultsFromAnnotation(gtEntry));
 
-            SampleIndexEntryIterator variantIterator = converter.toVariantsIterator(gtEntry, countIterator);
+            SampleIndexEntryIterator variantIterator;
+            PositionalSampleIndexEntryIterator positionalIterator = null;
+            if (blocks != null) {
+                // Filter by position. Never a count iterator
+                positionalIterator = converter.toVariantsIterator(gtEntry);
+                variantIterator = positionalIterator;
+            } else {
+                variantIterator = converter.toVariantsIterator(gtEntry, countIterator);
+            }
             ArrayList<T> variants = new ArrayList<>(variantIterator.getApproxSize());
             while (expectedResultsFromAnnotation.intValue() > 0 && variantIterator.hasNext()) {
+                if (positionalIterator != null
+                        && !blocks.get(SampleIndexSchema.toBitmapBlock(positionalIterator.nextRelativeStart()))) {
+                    // Not a candidate position. Skip before testing any other index
+                    variantIterator.skip();
+                    continue;
+                }
                 T variant = filter(variantIterator, expectedResultsFromAnnotation);
                 if (variant != null) {
                     variants.add(variant);
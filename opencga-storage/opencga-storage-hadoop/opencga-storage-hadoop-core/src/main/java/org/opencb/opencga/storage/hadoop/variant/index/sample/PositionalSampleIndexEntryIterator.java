@@ -0,0 +1,16 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+/**
+ * SampleIndexEntryIterator that decodes the position of the variants, so it can skip variants by position
+ * before reading any other index.
+ *
+ * Count iterators do not decode the variants, so they never implement this interface.
+ */
+public interface PositionalSampleIndexEntryIterator extends SampleIndexEntryIterator {
+
+    /**
+     * @return the start of the next element, relative to the batch start.
+     */
+    int nextRelativeStart();
+
+}
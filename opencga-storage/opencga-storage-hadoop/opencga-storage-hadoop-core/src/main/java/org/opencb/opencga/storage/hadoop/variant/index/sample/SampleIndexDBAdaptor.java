@@ -30,6 +30,7 @@ import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.QueryOperation;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
 import org.opencb.opencga.storage.hadoop.variant.index.core.filters.IndexFieldFilter;
 import org.opencb.opencga.storage.hadoop.variant.index.query.SampleAnnotationIndexQuery.PopulationFrequencyQuery;
@@ -154,11 +155,23 @@ public class SampleIndexDBAdaptor implements VariantIterable {
                 return VariantDBIterator.emptyIterator();
             } else {
                 logger.info("Single sample indexes iterator : " + sample);
-                SingleSampleIndexVariantDBIterator iterator = internalIterator(query.forSample(sample, gts));
+                SingleSampleIndexVariantDBIterator iterator = internalIterator(query.forSample(sample, gts), 0, null);
                 return applyLimitSkip(iterator, options);
             }
         }
 
+        // Read ahead each sample index concurrently, so the merge does not wait for the scanners one by one
+        int prefetch = options.getInt(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH.key(),
+                HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH.defaultValue());
+        SampleIndexGenotypeBitmap genotypeBitmap = null;
+        if (useGenotypeBitmaps(query)) {
+            genotypeBitmap = readGenotypeBitmap(query);
+            logger.info("Genotype bitmaps intersection: " + genotypeBitmap.getNumBlocks() + " candidate blocks of "
+                    + SampleIndexSchema.BITMAP_BLOCK_SIZE + " bases in " + genotypeBitmap.getNumBatches() + " batches");
+            if (genotypeBitmap.isEmpty()) {
+                return VariantDBIterator.emptyIterator();
+            }
+        }
         List<VariantDBIterator> iterators = new ArrayList<>(samples.size());
         List<VariantDBIterator> negatedIterators = new ArrayList<>(samples.size());
 
@@ -168,7 +181,7 @@ public class SampleIndexDBAdaptor implements VariantIterable {
 
             if (query.isNegated(sample)) {
                 if (!gts.isEmpty()) {
-                    negatedIterators.add(internalIterator(query.forSample(sample, gts)));
+                    negatedIterators.add(internalIterator(query.forSample(sample, gts), prefetch, null));
                 }
                 // Skip if GTs to query is empty!
                 // Otherwise, it will return ALL genotypes instead of none
@@ -177,7 +190,7 @@ public class SampleIndexDBAdaptor implements VariantIterable {
                     // If empty, should find none. Add empty iterator for this sample
                     iterators.add(VariantDBIterator.emptyIterator());
                 } else {
-                    iterators.add(internalIterator(query.forSample(sample, gts)));
+                    iterators.add(internalIterator(query.forSample(sample, gts), prefetch, genotypeBitmap));
                 }
             }
         }
@@ -193,6 +206,104 @@ public class SampleIndexDBAdaptor implements VariantIterable {
         return applyLimitSkip(iterator, options);
     }
 
+    /**
+     * Genotype bitmaps are only useful to intersect the genotypes of multiple samples.
+     * Negated samples can not be subtracted, as each bit may represent multiple variants.
+     *
+     * @param query SampleIndexQuery
+     * @return if the genotype bitmaps should be used
+     */
+    private boolean useGenotypeBitmaps(SampleIndexQuery query) {
+        if (!query.getQueryOperation().equals(QueryOperation.AND)
+                || !query.getMendelianErrorSet().isEmpty()
+                || !getSchema(query.getStudy()).getConfiguration().isGenotypeBitmaps()) {
+            return false;
+        }
+        int numSamples = 0;
+        for (Map.Entry<String, List<String>> entry : query.getSamplesMap().entrySet()) {
+            if (!query.isNegated(entry.getKey())) {
+                if (entry.getValue().isEmpty()) {
+                    // Won't return any variant
+                    return false;
+                }
+                numSamples++;
+            }
+        }
+        return numSamples > 1;
+    }
+
+    /**
+     * Read the genotype bitmaps of all the non negated samples, and intersect them.
+     *
+     * @param query SampleIndexQuery
+     * @return Candidate positions
+     */
+    private SampleIndexGenotypeBitmap readGenotypeBitmap(SampleIndexQuery query) {
+        String tableName = getSampleIndexTableName(toStudyId(query.getStudy()));
+        BitSet allBlocks = new BitSet();
+        allBlocks.set(0, SampleIndexSchema.toBitmapBlock(SampleIndexSchema.BATCH_SIZE - 1) + 1);
+        try {
+            return hBaseManager.act(tableName, table -> {
+                SampleIndexGenotypeBitmap genotypeBitmap = null;
+                for (Map.Entry<String, List<String>> entry : query.getSamplesMap().entrySet()) {
+                    if (query.isNegated(entry.getKey())) {
+                        continue;
+                    }
+                    SingleSampleIndexQuery sampleQuery = query.forSample(entry.getKey(), entry.getValue());
+                    SampleIndexGenotypeBitmap sampleBitmap = new SampleIndexGenotypeBitmap();
+                    Collection<List<Region>> regionGroups = CollectionUtils.isEmpty(sampleQuery.getRegionGroups())
+                            ? Collections.singletonList(null)
+                            : sampleQuery.getRegionGroups();
+                    for (List<Region> regions : regionGroups) {
+                        Scan scan = parseCount(sampleQuery, regions);
+                        for (String gt : sampleQuery.getGenotypes()) {
+                            scan.addColumn(family, SampleIndexSchema.toGenotypeBitmapColumn(gt));
+                        }
+                        try (ResultScanner scanner = table.getScanner(scan)) {
+                            for (Result result : scanner) {
+                                BitSet bitmap = readGenotypeBitmap(result, sampleQuery.getGenotypes(), allBlocks);
+                                if (!bitmap.isEmpty()) {
+                                    byte[] row = result.getRow();
+                                    sampleBitmap.or(SampleIndexSchema.chromosomeFromRowKey(row),
+                                            SampleIndexSchema.batchStartFromRowKey(row), bitmap);
+                                }
+                            }
+                        }
+                    }
+                    if (genotypeBitmap == null) {
+                        genotypeBitmap = sampleBitmap;
+                    } else {
+                        genotypeBitmap.and(sampleBitmap);
+                    }
+                    if (genotypeBitmap.isEmpty()) {
+                        // Nothing else to intersect
+                        break;
+                    }
+                }
+                return genotypeBitmap;
+            });
+        } catch (IOException e) {
+            throw VariantQueryException.internalException(e);
+        }
+    }
+
+    private BitSet readGenotypeBitmap(Result result, List<String> gts, BitSet allBlocks) {
+        BitSet bitmap = new BitSet();
+        for (String gt : gts) {
+            byte[] value = result.getValue(family, SampleIndexSchema.toGenotypeBitmapColumn(gt));
+            if (value != null) {
+                bitmap.or(BitSet.valueOf(value));
+            } else {
+                byte[] count = result.getValue(family, SampleIndexSchema.toGenotypeCountColumn(gt));
+                if (count != null && Bytes.toInt(count) > 0) {
+                    // Row written without bitmaps. Any position could be a candidate
+                    bitmap.or(allBlocks);
+                }
+            }
+        }
+        return bitmap;
+    }
+
     protected VariantDBIterator applyLimitSkip(VariantDBIterator iterator, QueryOptions options) {
         int limit = options.getInt(QueryOptions.LIMIT, -1);
         int skip = options.getInt(QueryOptions.SKIP, -1);
@@ -211,15 +322,18 @@ public class SampleIndexDBAdaptor implements VariantIterable {
     /**
      * Partially processed iterator. Internal usage only.
      *
-     * @param query SingleSampleIndexQuery
+     * @param query          SingleSampleIndexQuery
+     * @param prefetch       Number of rows to read ahead. 0 to read on demand
+     * @param genotypeBitmap Candidate positions. Null to read all the variants
      * @return SingleSampleIndexVariantDBIterator
      */
-    private SingleSampleIndexVariantDBIterator internalIterator(SingleSampleIndexQuery query) {
+    private SingleSampleIndexVariantDBIterator internalIterator(SingleSampleIndexQuery query, int prefetch,
+                                                                SampleIndexGenotypeBitmap genotypeBitmap) {
         String tableName = getSampleIndexTableName(toStudyId(query.getStudy()));
 
         try {
             return hBaseManager.act(tableName, table -> {
-                return new SingleSampleIndexVariantDBIterator(table, query, this);
+                return new SingleSampleIndexVariantDBIterator(table, query, this, prefetch, genotypeBitmap);
             });
         } catch (IOException e) {
             throw VariantQueryException.internalException(e);
@@ -551,10 +665,15 @@ public class SampleIndexDBAdaptor implements VariantIterable {
     }
 
     public SampleIndexEntryFilter buildSampleIndexEntryFilter(SingleSampleIndexQuery query, List<Region> regions) {
+        return buildSampleIndexEntryFilter(query, regions, null);
+    }
+
+    public SampleIndexEntryFilter buildSampleIndexEntryFilter(SingleSampleIndexQuery query, List<Region> regions,
+                                                              SampleIndexGenotypeBitmap genotypeBitmap) {
         if (regions == null || regions.size() == 1 && matchesWithBatch(regions.get(0))) {
-            return new SampleIndexEntryFilter(query, null);
+            return new SampleIndexEntryFilter(query, null, genotypeBitmap);
         } else {
-            return new SampleIndexEntryFilter(query, regions);
+            return new SampleIndexEntryFilter(query, regions, genotypeBitmap);
         }
     }
 
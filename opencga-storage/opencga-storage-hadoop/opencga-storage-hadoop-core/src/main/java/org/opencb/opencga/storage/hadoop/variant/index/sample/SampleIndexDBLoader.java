@@ -14,14 +14,19 @@ import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine.SplitData;
 import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.hadoop.utils.AbstractHBaseDataWriter;
+import org.opencb.opencga.storage.hadoop.utils.HBaseBulkLoader;
 import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.*;
 
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.EXCLUDE_GENOTYPES;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_BUILD_BULK_LOAD;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_BUILD_BULK_LOAD_BUFFER_SIZE;
 import static org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema.*;
 
 /**
@@ -46,6 +51,8 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
     private final boolean excludeGenotypes;
     private final SampleIndexSchema schema;
     private final StudyMetadata.SampleIndexConfigurationVersioned sampleIndexConfiguration;
+    private final HBaseBulkLoader bulkLoader;
+    private final Logger logger = LoggerFactory.getLogger(SampleIndexDBLoader.class);
 
     public SampleIndexDBLoader(SampleIndexDBAdaptor dbAdaptor, HBaseManager hBaseManager,
                                VariantStorageMetadataManager metadataManager,
@@ -92,6 +99,18 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
         sampleIndexConfiguration = dbAdaptor.getSampleIndexConfiguration(studyId);
         schema = dbAdaptor.getSchema(studyId);
         variantFileIndexConverter = new VariantFileIndexConverter(schema);
+        if (options.getBoolean(SAMPLE_INDEX_BUILD_BULK_LOAD.key(), SAMPLE_INDEX_BUILD_BULK_LOAD.defaultValue())) {
+            if (rebuildIndex) {
+                // Merging with the existing index requires deleting columns
+                logger.info("Unable to bulk load the sample index while merging with existing data. Use Puts instead.");
+                bulkLoader = null;
+            } else {
+                bulkLoader = new HBaseBulkLoader(this.hBaseManager, tableName, options.getLong(
+                        SAMPLE_INDEX_BUILD_BULK_LOAD_BUFFER_SIZE.key(), SAMPLE_INDEX_BUILD_BULK_LOAD_BUFFER_SIZE.defaultValue()));
+            }
+        } else {
+            bulkLoader = null;
+        }
     }
 
     private class Chunk implements Iterable<SampleIndexEntryPutBuilder> {
@@ -212,7 +231,7 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
             }
         }
 
-        return getMutations();
+        return bulkLoad(getMutations());
     }
 
 
@@ -224,13 +243,56 @@ public class SampleIndexDBLoader extends AbstractHBaseDataWriter<Variant, Mutati
     public boolean post() {
         try {
             // Drain buffer
-            mutate(getMutations(0));
+            mutate(bulkLoad(getMutations(0)));
+            if (bulkLoader != null) {
+                bulkLoader.load();
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
         return super.post();
     }
 
+    @Override
+    public boolean close() {
+        try {
+            if (bulkLoader != null) {
+                // Remove the HFiles, even if the data was never loaded
+                bulkLoader.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            super.close();
+        }
+        return true;
+    }
+
+    /**
+     * Write the Puts into the bulk loader, if any. Other mutations still go through the table.
+     *
+     * @param mutations Mutations
+     * @return Mutations to write into the table
+     */
+    private List<Mutation> bulkLoad(List<Mutation> mutations) {
+        if (bulkLoader == null) {
+            return mutations;
+        }
+        List<Mutation> otherMutations = new LinkedList<>();
+        try {
+            for (Mutation mutation : mutations) {
+                if (mutation instanceof Put) {
+                    bulkLoader.add((Put) mutation);
+                } else {
+                    otherMutations.add(mutation);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return otherMutations;
+    }
+
     protected List<Mutation> getMutations() {
         // Leave 3 chunks in the buffer
         return getMutations(3);
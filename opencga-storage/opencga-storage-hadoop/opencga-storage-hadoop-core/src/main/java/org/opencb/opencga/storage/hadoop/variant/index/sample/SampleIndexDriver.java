@@ -3,6 +3,7 @@ package org.opencb.opencga.storage.hadoop.variant.index.sample;
 import com.google.common.collect.BiMap;
 import htsjdk.variant.vcf.VCFConstants;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.Scan;
@@ -30,6 +31,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.GenotypeClass;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
+import org.opencb.opencga.storage.hadoop.utils.HBaseBulkLoader;
 import org.opencb.opencga.storage.hadoop.variant.AbstractVariantsTableDriver;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
@@ -50,6 +52,7 @@ import java.util.stream.Collectors;
 import static org.apache.hadoop.hbase.filter.CompareFilter.CompareOp.EQUAL;
 import static org.apache.hadoop.hbase.filter.CompareFilter.CompareOp.NOT_EQUAL;
 import static org.apache.phoenix.query.QueryConstants.SEPARATOR_BYTE;
+import static org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions.SAMPLE_INDEX_BUILD_BULK_LOAD;
 
 /**
  * Created on 15/05/18.
@@ -98,6 +101,8 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
     private List<String> fixedFormat;
     private boolean multiScan = false;
     private int maxColumns;
+    private boolean bulkLoad;
+    private Path bulkLoadOutdir;
 
     @Override
     protected String getJobOperationName() {
@@ -154,6 +159,8 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
         // Max number of samples to be processed in each Scan.
         partialScanSize = Integer.valueOf(getParam(PARTIAL_SCAN_SIZE, "1000"));
         maxColumns = Integer.valueOf(getParam(MAX_COLUMNS_PER_SCAN, "4000"));
+        bulkLoad = Boolean.valueOf(getParam(SAMPLE_INDEX_BUILD_BULK_LOAD.key(),
+                SAMPLE_INDEX_BUILD_BULK_LOAD.defaultValue().toString()));
 
         String samplesParam = getParam(SAMPLES);
         String sampleIdsStr = getParam(SAMPLE_IDS);
@@ -303,8 +310,17 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
             throw new RuntimeException(e);
         }
 
-        VariantMapReduceUtil.setOutputHBaseTable(job, outputTable);
-        VariantMapReduceUtil.setNoneReduce(job);
+        if (bulkLoad) {
+            // Table must exist before the job is configured, to partition the HFiles by region
+            ObjectMap options = new ObjectMap();
+            options.putAll(getParams());
+            SampleIndexSchema.createTableIfNeeded(outputTable, getHBaseManager(), options);
+            bulkLoadOutdir = getTempOutdir("opencga_sample_index_hfiles", outputTable);
+            VariantMapReduceUtil.setOutputHFiles(job, outputTable, bulkLoadOutdir);
+        } else {
+            VariantMapReduceUtil.setOutputHBaseTable(job, outputTable);
+            VariantMapReduceUtil.setNoneReduce(job);
+        }
 
 //        job.setSpeculativeExecution(false);
         job.getConfiguration().setInt(MRJobConfig.TASK_TIMEOUT, 20 * 60 * 1000);
@@ -345,6 +361,21 @@ public class SampleIndexDriver extends AbstractVariantsTableDriver {
         SampleIndexSchema.createTableIfNeeded(outputTable, getHBaseManager(), options);
     }
 
+    @Override
+    protected void postExecution(Job job) throws IOException, StorageEngineException {
+        if (bulkLoad) {
+            try {
+                if (job.isSuccessful()) {
+                    LOGGER.info("Bulk load HFiles from {} into table {}", bulkLoadOutdir, outputTable);
+                    HBaseBulkLoader.bulkLoad(getHBaseManager(), outputTable, bulkLoadOutdir);
+                }
+            } finally {
+                deleteTemporaryFile(bulkLoadOutdir);
+            }
+        }
+        super.postExecution(job);
+    }
+
     public static void main(String[] args) throws Exception {
         try {
             System.exit(new SampleIndexDriver().privateMain(args, null));
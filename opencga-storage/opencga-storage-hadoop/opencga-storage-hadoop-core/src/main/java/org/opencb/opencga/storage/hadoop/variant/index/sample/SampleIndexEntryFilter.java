@@ -17,6 +17,10 @@ public class SampleIndexEntryFilter extends AbstractSampleIndexEntryFilter<Varia
         super(query, regions);
     }
 
+    public SampleIndexEntryFilter(SingleSampleIndexQuery query, List<Region> regions, SampleIndexGenotypeBitmap genotypeBitmap) {
+        super(query, regions, genotypeBitmap);
+    }
+
     @Override
     protected Variant getNext(SampleIndexEntryIterator variants) {
         return variants.next();
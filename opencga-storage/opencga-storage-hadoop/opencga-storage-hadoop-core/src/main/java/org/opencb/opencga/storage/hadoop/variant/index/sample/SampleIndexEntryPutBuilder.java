@@ -106,6 +106,13 @@ public class SampleIndexEntryPutBuilder {
             put.addColumn(family, SampleIndexSchema.toGenotypeColumn(gt), variantsBytes);
             put.addColumn(family, SampleIndexSchema.toGenotypeCountColumn(gt), Bytes.toBytes(variants.size()));
             put.addColumn(family, SampleIndexSchema.toFileIndexColumn(gt), fileIndexBuffer.getBuffer());
+            if (schema.getConfiguration().isGenotypeBitmaps()) {
+                BitSet bitmap = new BitSet();
+                for (Variant variant : variants) {
+                    bitmap.set(SampleIndexSchema.toBitmapBlock(variant.getStart() % SampleIndexSchema.BATCH_SIZE));
+                }
+                put.addColumn(family, SampleIndexSchema.toGenotypeBitmapColumn(gt), bitmap.toByteArray());
+            }
         }
         int discrepancies = 0;
 
@@ -0,0 +1,87 @@
+package org.opencb.opencga.storage.hadoop.variant.index.sample;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Candidate positions of a multi-sample query, obtained combining the genotype bitmaps of each sample index row.
+ *
+ * Each bit covers {@link SampleIndexSchema#BITMAP_BLOCK_SIZE} positions of a batch. A set bit means that the block may
+ * contain variants matching the query, so this is a pre-filter, and the variants still need to be compared.
+ */
+public class SampleIndexGenotypeBitmap {
+
+    private final Map<String, BitSet> bitmaps;
+
+    public SampleIndexGenotypeBitmap() {
+        bitmaps = new HashMap<>();
+    }
+
+    /**
+     * Add the bitmap of one row of a sample. Bitmaps of the same row are combined with OR.
+     *
+     * @param chromosome Chromosome
+     * @param batchStart Batch start
+     * @param bitmap     Row bitmap
+     */
+    public void or(String chromosome, int batchStart, BitSet bitmap) {
+        bitmaps.merge(toKey(chromosome, batchStart), bitmap, (b1, b2) -> {
+            b1.or(b2);
+            return b1;
+        });
+    }
+
+    /**
+     * Intersect with the bitmaps of another sample. Rows missing in any of them are removed.
+     *
+     * @param other Bitmaps from another sample
+     */
+    public void and(SampleIndexGenotypeBitmap other) {
+        Iterator<Map.Entry<String, BitSet>> iterator = bitmaps.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, BitSet> entry = iterator.next();
+            BitSet otherBitmap = other.bitmaps.get(entry.getKey());
+            if (otherBitmap == null) {
+                iterator.remove();
+            } else {
+                entry.getValue().and(otherBitmap);
+                if (entry.getValue().isEmpty()) {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the candidate blocks of a row.
+     *
+     * @param chromosome Chromosome
+     * @param batchStart Batch start
+     * @return Candidate blocks, or null if the row has no candidates
+     */
+    public BitSet getBlocks(String chromosome, int batchStart) {
+        return bitmaps.get(toKey(chromosome, batchStart));
+    }
+
+    public boolean isEmpty() {
+        return bitmaps.isEmpty();
+    }
+
+    public int getNumBatches() {
+        return bitmaps.size();
+    }
+
+    public int getNumBlocks() {
+        int numBlocks = 0;
+        for (BitSet bitmap : bitmaps.values()) {
+            numBlocks += bitmap.cardinality();
+        }
+        return numBlocks;
+    }
+
+    private static String toKey(String chromosome, int batchStart) {
+        return chromosome + ':' + batchStart;
+    }
+}
@@ -33,6 +33,8 @@ import static org.apache.hadoop.hbase.util.Bytes.SIZEOF_INT;
 public final class SampleIndexSchema {
 
     public static final int BATCH_SIZE = 1_000_000;
+    // Number of positions covered by each bit of the genotype bitmaps
+    public static final int BITMAP_BLOCK_SIZE = 64;
     public static final Comparator<Variant> INTRA_CHROMOSOME_VARIANT_COMPARATOR =  (o1, o2) -> {
         VariantAvro v1 = o1.getImpl();
         VariantAvro v2 = o2.getImpl();
@@ -75,6 +77,8 @@ public final class SampleIndexSchema {
     static final byte[] FILE_PREFIX_BYTES = Bytes.toBytes(FILE_PREFIX);
     static final String GENOTYPE_COUNT_PREFIX = META_PREFIX + "C_";
     static final byte[] GENOTYPE_COUNT_PREFIX_BYTES = Bytes.toBytes(GENOTYPE_COUNT_PREFIX);
+    static final String GENOTYPE_BITMAP_PREFIX = META_PREFIX + "B_";
+    static final byte[] GENOTYPE_BITMAP_PREFIX_BYTES = Bytes.toBytes(GENOTYPE_BITMAP_PREFIX);
     static final String GENOTYPE_DISCREPANCY_COUNT = META_PREFIX + "DC";
     static final byte[] GENOTYPE_DISCREPANCY_COUNT_BYTES = Bytes.toBytes(GENOTYPE_DISCREPANCY_COUNT);
 
@@ -214,6 +218,14 @@ public final class SampleIndexSchema {
         return Bytes.toBytes(GENOTYPE_COUNT_PREFIX + genotype);
     }
 
+    public static byte[] toGenotypeBitmapColumn(String genotype) {
+        return Bytes.toBytes(GENOTYPE_BITMAP_PREFIX + genotype);
+    }
+
+    public static int toBitmapBlock(int relativeStart) {
+        return relativeStart / BITMAP_BLOCK_SIZE;
+    }
+
     public static byte[] toAnnotationIndexColumn(String genotype) {
         return Bytes.toBytes(ANNOTATION_SUMMARY_PREFIX + genotype);
     }
@@ -171,11 +171,11 @@ public class SampleIndexVariantBiConverter {
         }
     }
 
-    public SampleIndexEntryIterator toVariantsIterator(SampleIndexEntry entry, String gt) {
+    public PositionalSampleIndexEntryIterator toVariantsIterator(SampleIndexEntry entry, String gt) {
         return toVariantsIterator(entry.getGts().get(gt));
     }
 
-    public SampleIndexEntryIterator toVariantsIterator(SampleIndexEntry.SampleIndexGtEntry gtEntry) {
+    public PositionalSampleIndexEntryIterator toVariantsIterator(SampleIndexEntry.SampleIndexGtEntry gtEntry) {
         if (gtEntry == null || gtEntry.getVariantsLength() <= 0) {
             return EmptySampleIndexEntryIterator.emptyIterator();
         } else {
@@ -406,14 +406,14 @@ public class SampleIndexVariantBiConverter {
 
     }
 
-    private static final class EmptySampleIndexEntryIterator implements SampleIndexEntryIterator {
+    private static final class EmptySampleIndexEntryIterator implements PositionalSampleIndexEntryIterator {
 
         private EmptySampleIndexEntryIterator() {
         }
 
         private static final EmptySampleIndexEntryIterator EMPTY_ITERATOR = new EmptySampleIndexEntryIterator();
 
-        public static SampleIndexEntryIterator emptyIterator() {
+        public static PositionalSampleIndexEntryIterator emptyIterator() {
             return EmptySampleIndexEntryIterator.EMPTY_ITERATOR;
         }
 
@@ -437,6 +437,11 @@ public class SampleIndexVariantBiConverter {
             throw new NoSuchElementException("Empty iterator");
         }
 
+        @Override
+        public int nextRelativeStart() {
+            throw new NoSuchElementException("Empty iterator");
+        }
+
         @Override
         public boolean hasNext() {
             return false;
@@ -533,7 +538,7 @@ public class SampleIndexVariantBiConverter {
         }
     }
 
-    private class ByteSampleIndexGtEntryIterator extends SampleIndexGtEntryIterator {
+    private class ByteSampleIndexGtEntryIterator extends SampleIndexGtEntryIterator implements PositionalSampleIndexEntryIterator {
         private final String chromosome;
         private final int batchStart;
         private final byte[] bytes;
@@ -573,6 +578,12 @@ public class SampleIndexVariantBiConverter {
             return hasNext;
         }
 
+        @Override
+        public int nextRelativeStart() {
+            // Ignore the encoded alleles, if any
+            return read24bitInteger(bytes, currentOffset) & 0x0F_FF_FF;
+        }
+
         @Override
         public Variant next() {
             nextAnnotationIndexEntry(); // ensure read annotation
@@ -8,27 +8,71 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.client.Table;
 import org.opencb.biodata.models.core.Region;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.core.utils.iterators.PrefetchIterator;
+import org.opencb.opencga.storage.core.utils.iterators.SkipAheadIterator;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryException;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Created on 03/07/18.
  *
  * @author Jacobo Coll &lt;jacobo167@gmail.com&gt;
  */
-public class SingleSampleIndexVariantDBIterator extends VariantDBIterator {
+public class SingleSampleIndexVariantDBIterator extends VariantDBIterator implements SkipAheadIterator<Variant> {
 
-    private final Iterator<Variant> iterator;
+    // Producers block while their buffer is full, so the pool must not be bounded.
+    private static final ExecutorService PREFETCH_THREAD_POOL = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "sample-index-prefetch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final Logger logger = LoggerFactory.getLogger(SingleSampleIndexVariantDBIterator.class);
+    private final String sample;
+    private final Iterator<List<Variant>> chunks;
+    private Iterator<Variant> chunk = Collections.emptyIterator();
+    private volatile Variant skipTarget;
+    // Scanners might be opened from the prefetch thread
+    private final Queue<ResultScanner> scanners = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
     protected int count = 0;
 
+    // Metrics
+    private final AtomicLong scannedRows = new AtomicLong();
+    private final AtomicLong scannedBytes = new AtomicLong();
+    private final AtomicLong skippedRows = new AtomicLong();
+    private long skippedChunks = 0;
+
     public SingleSampleIndexVariantDBIterator(Table table, SingleSampleIndexQuery query, SampleIndexDBAdaptor dbAdaptor) {
+        this(table, query, dbAdaptor, 0, null);
+    }
+
+    /**
+     * Create the iterator.
+     *
+     * @param table          Sample index table
+     * @param query          Query
+     * @param dbAdaptor      SampleIndexDBAdaptor
+     * @param prefetch       Number of rows (chunks of variants) to read ahead from a background thread. 0 to read on demand.
+     * @param genotypeBitmap Candidate positions from the genotype bitmaps of the query. Null to read all the variants.
+     */
+    public SingleSampleIndexVariantDBIterator(Table table, SingleSampleIndexQuery query, SampleIndexDBAdaptor dbAdaptor,
+                                              int prefetch, SampleIndexGenotypeBitmap genotypeBitmap) {
+        sample = query.getSample();
         Collection<List<Region>> regionGroups;
         if (CollectionUtils.isEmpty(query.getRegionGroups())) {
             // If no regions are defined, get a list of one null element to initialize the stream.
@@ -38,27 +82,65 @@ public class SingleSampleIndexVariantDBIterator extends VariantDBIterator {
         }
 
         SampleIndexSchema schema = dbAdaptor.getSchema(query.getStudy());
-        Iterator<Iterator<Variant>> iterators = regionGroups.stream()
+        Iterator<Iterator<List<Variant>>> iterators = regionGroups.stream()
                 .map(regions -> {
                     // One scan per region group
                     Scan scan = dbAdaptor.parse(query, regions);
                     HBaseToSampleIndexConverter converter = new HBaseToSampleIndexConverter(schema);
-                    SampleIndexEntryFilter filter = dbAdaptor.buildSampleIndexEntryFilter(query, regions);
+                    SampleIndexEntryFilter filter = dbAdaptor.buildSampleIndexEntryFilter(query, regions, genotypeBitmap);
                     try {
                         ResultScanner scanner = table.getScanner(scan);
-                        addCloseable(scanner);
+                        scanners.add(scanner);
+                        if (closed) {
+                            // Closed while opening the scanner
+                            closeScanners();
+                        }
                         Iterator<Result> resultIterator = scanner.iterator();
-                        Iterator<Iterator<Variant>> transform = Iterators.transform(resultIterator,
-                                result -> {
-                                    SampleIndexEntry sampleIndexEntry = converter.convert(result);
-                                    return filter.filter(sampleIndexEntry).iterator();
-                                });
-                        return Iterators.concat(transform);
+                        return Iterators.transform(resultIterator, result -> readChunk(result, converter, filter));
                     } catch (IOException e) {
                         throw VariantQueryException.internalException(e);
                     }
                 }).iterator();
-        iterator = Iterators.concat(iterators);
+        if (prefetch > 0) {
+            PrefetchIterator<List<Variant>> prefetchIterator =
+                    new PrefetchIterator<>(Iterators.concat(iterators), prefetch, PREFETCH_THREAD_POOL);
+            // Stop the prefetch before closing the scanners
+            addCloseable(prefetchIterator);
+            chunks = prefetchIterator;
+        } else {
+            chunks = Iterators.concat(iterators);
+        }
+        addCloseable(this::closeScanners);
+    }
+
+    private void closeScanners() {
+        ResultScanner scanner = scanners.poll();
+        while (scanner != null) {
+            scanner.close();
+            scanner = scanners.poll();
+        }
+    }
+
+    private List<Variant> readChunk(Result result, HBaseToSampleIndexConverter converter, SampleIndexEntryFilter filter) {
+        scannedRows.incrementAndGet();
+        scannedBytes.addAndGet(Result.getTotalSizeOfCells(result));
+        Variant target = skipTarget;
+        if (target != null) {
+            byte[] row = result.getRow();
+            // All the variants from this row are before the target. Skip without decoding.
+            if (SampleIndexSchema.batchStartFromRowKey(row) + SampleIndexSchema.BATCH_SIZE <= target.getStart()
+                    && SampleIndexSchema.chromosomeFromRowKey(row).equals(target.getChromosome())) {
+                skippedRows.incrementAndGet();
+                return Collections.emptyList();
+            }
+        }
+        Collection<Variant> variants = filter.filter(converter.convert(result));
+        return variants instanceof List ? (List<Variant>) variants : new ArrayList<>(variants);
+    }
+
+    @Override
+    public void skipTo(Variant target) {
+        skipTarget = target;
     }
 
     @Override
@@ -68,14 +150,54 @@ public class SingleSampleIndexVariantDBIterator extends VariantDBIterator {
 
     @Override
     public boolean hasNext() {
-        return fetch(iterator::hasNext);
+        return fetch(this::nextChunk);
+    }
+
+    private boolean nextChunk() {
+        while (!chunk.hasNext()) {
+            if (!chunks.hasNext()) {
+                return false;
+            }
+            List<Variant> variants = chunks.next();
+            Variant target = skipTarget;
+            if (target != null && !variants.isEmpty()
+                    && VARIANT_COMPARATOR.compare(variants.get(variants.size() - 1), target) < 0) {
+                // Whole chunk before the target
+                skippedChunks++;
+                continue;
+            }
+            chunk = variants.iterator();
+        }
+        return true;
     }
 
     @Override
     public Variant next() {
-        Variant variant = fetch(iterator::next);
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Variant variant = fetch(chunk::next);
         count++;
         return variant;
     }
 
+    @Override
+    public void close() throws Exception {
+        closed = true;
+        super.close();
+        logger.debug("Sample '{}' index scan: {} rows ({} bytes) scanned, {} rows and {} chunks skipped, {} variants returned",
+                sample, scannedRows.get(), scannedBytes.get(), skippedRows.get(), skippedChunks, count);
+    }
+
+    public long getScannedRows() {
+        return scannedRows.get();
+    }
+
+    public long getScannedBytes() {
+        return scannedBytes.get();
+    }
+
+    public long getSkippedRows() {
+        return skippedRows.get();
+    }
 }
@@ -5,11 +5,19 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Mutation;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.filter.FilterList;
 import org.apache.hadoop.hbase.io.ImmutableBytesWritable;
+import org.apache.hadoop.hbase.mapreduce.HFileOutputFormat2;
 import org.apache.hadoop.hbase.mapreduce.MultiTableOutputFormat;
 import org.apache.hadoop.hbase.mapreduce.TableInputFormat;
 import org.apache.hadoop.hbase.mapreduce.TableMapReduceUtil;
@@ -18,6 +26,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import org.apache.phoenix.mapreduce.util.PhoenixMapReduceUtil;
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.commons.datastore.core.Query;
@@ -401,6 +410,29 @@ public class VariantMapReduceUtil {
                 addDependencyJar);
     }
 
+    /**
+     * Write the output of the job into sorted HFiles, partitioned by the regions of the output table.
+     * The HFiles will need to be bulk loaded into the table once the job finishes.
+     *
+     * @param job       Job
+     * @param outTable  Output table. Must exist.
+     * @param outdir    Directory for the HFiles
+     * @throws IOException on IOException
+     */
+    public static void setOutputHFiles(Job job, String outTable, Path outdir) throws IOException {
+        LOGGER.info("Use HFiles at {} as output for table {}", outdir, outTable);
+        job.setMapOutputKeyClass(ImmutableBytesWritable.class);
+        job.setMapOutputValueClass(Put.class);
+        TableName tableName = TableName.valueOf(outTable);
+        try (Connection connection = ConnectionFactory.createConnection(job.getConfiguration());
+             Table table = connection.getTable(tableName);
+             RegionLocator regionLocator = connection.getRegionLocator(tableName)) {
+            // Sorts the output with one reducer per region
+            HFileOutputFormat2.configureIncrementalLoad(job, table, regionLocator);
+        }
+        FileOutputFormat.setOutputPath(job, outdir);
+    }
+
     public static void setMultiTableOutput(Job job) throws IOException {
         job.setOutputFormatClass(MultiTableOutputFormat.class);
         LOGGER.info("Use multi-table as output");
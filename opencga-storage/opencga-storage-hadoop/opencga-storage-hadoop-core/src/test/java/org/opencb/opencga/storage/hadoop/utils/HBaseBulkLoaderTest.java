@@ -0,0 +1,185 @@
+package org.opencb.opencga.storage.hadoop.utils;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest.HadoopExternalResource;
+import org.opencb.opencga.storage.hadoop.variant.index.sample.SampleIndexSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class HBaseBulkLoaderTest {
+
+    /**
+     * Comma separated list of number of samples for the benchmark. e.g. -Dbenchmark.sampleIndex.numSamples=1000,10000,50000
+     */
+    public static final String BENCHMARK_NUM_SAMPLES = "benchmark.sampleIndex.numSamples";
+
+    @Rule
+    public HadoopExternalResource hadoop = new HadoopExternalResource();
+
+    private HBaseManager hBaseManager;
+    private final byte[] family = Bytes.toBytes("0");
+    private static Logger logger = LoggerFactory.getLogger(HBaseBulkLoaderTest.class);
+
+    @Before
+    public void setUp() throws Exception {
+        hBaseManager = new HBaseManager(hadoop.getConf());
+    }
+
+    @Test
+    public void testBulkLoad() throws Exception {
+        String tableName = "test_bulk_load";
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+
+        // Small buffer to force multiple spills
+        HBaseBulkLoader bulkLoader = new HBaseBulkLoader(hBaseManager, tableName, 1024);
+        for (int i = 999; i >= 0; i--) {
+            bulkLoader.add(new Put(row(i)).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(i)));
+        }
+        // Last value wins
+        bulkLoader.add(new Put(row(0)).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(-1)));
+
+        // Nothing is visible until loaded
+        assertEquals(0, count(tableName));
+        bulkLoader.load();
+
+        List<Result> results = scan(tableName);
+        assertEquals(1000, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            Result result = results.get(i);
+            assertArrayEquals(row(i), result.getRow());
+            assertEquals(i == 0 ? -1 : i, Bytes.toInt(result.getValue(family, Bytes.toBytes("value"))));
+        }
+    }
+
+    @Test
+    public void testBulkLoadEmpty() throws Exception {
+        String tableName = "test_bulk_load_empty";
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+
+        new HBaseBulkLoader(hBaseManager, tableName, 1024).load();
+        assertEquals(0, count(tableName));
+    }
+
+    @Test
+    public void testBulkLoadOverrideAcrossSpills() throws Exception {
+        String tableName = "test_bulk_load_override";
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+
+        // Each put fills the buffer, so every value goes to a different HFile
+        HBaseBulkLoader bulkLoader = new HBaseBulkLoader(hBaseManager, tableName, 1);
+        for (int i = 0; i < 10; i++) {
+            bulkLoader.add(new Put(row(0)).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(i)));
+        }
+        bulkLoader.load();
+
+        List<Result> results = scan(tableName);
+        assertEquals(1, results.size());
+        assertEquals(9, Bytes.toInt(results.get(0).getValue(family, Bytes.toBytes("value"))));
+    }
+
+    @Test
+    public void testCloseWithoutLoad() throws Exception {
+        String tableName = "test_bulk_load_close";
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+        Path outdir = new Path(hadoop.getConf().get("hadoop.tmp.dir"), "test_bulk_load_close");
+        FileSystem fs = outdir.getFileSystem(hadoop.getConf());
+
+        HBaseBulkLoader bulkLoader = new HBaseBulkLoader(hBaseManager, tableName, outdir, 1);
+        bulkLoader.add(new Put(row(0)).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(0)));
+        assertTrue(fs.exists(outdir));
+
+        bulkLoader.close();
+        assertFalse(fs.exists(outdir));
+        assertEquals(0, count(tableName));
+    }
+
+    @Test
+    @Ignore("Benchmark. Run manually with -Dbenchmark.sampleIndex.numSamples")
+    public void benchmarkSampleIndexPutsVsBulkLoad() throws Exception {
+        String[] numSamplesList = System.getProperty(BENCHMARK_NUM_SAMPLES, "100").split(",");
+        for (String numSamplesStr : numSamplesList) {
+            int numSamples = Integer.parseInt(numSamplesStr.trim());
+            String putsTable = "test_sample_index_puts_" + numSamples;
+            String bulkLoadTable = "test_sample_index_bulk_load_" + numSamples;
+            SampleIndexSchema.createTableIfNeeded(putsTable, hBaseManager, new ObjectMap());
+            SampleIndexSchema.createTableIfNeeded(bulkLoadTable, hBaseManager, new ObjectMap());
+
+            long start = System.currentTimeMillis();
+            hBaseManager.act(putsTable, table -> {
+                List<Put> puts = new ArrayList<>();
+                for (int sample = 0; sample < numSamples; sample++) {
+                    puts.addAll(buildSampleIndexPuts(sample));
+                    if (puts.size() > 10000) {
+                        table.put(puts);
+                        puts.clear();
+                    }
+                }
+                table.put(puts);
+            });
+            long putsTime = System.currentTimeMillis() - start;
+
+            start = System.currentTimeMillis();
+            HBaseBulkLoader bulkLoader = new HBaseBulkLoader(hBaseManager, bulkLoadTable, 64 * 1024 * 1024);
+            for (int sample = 0; sample < numSamples; sample++) {
+                for (Put put : buildSampleIndexPuts(sample)) {
+                    bulkLoader.add(put);
+                }
+            }
+            bulkLoader.load();
+            long bulkLoadTime = System.currentTimeMillis() - start;
+
+            logger.info("Sample index of {} samples : Puts = {}s , BulkLoad = {}s", numSamples, putsTime / 1000.0, bulkLoadTime / 1000.0);
+            assertEquals(count(putsTable), count(bulkLoadTable));
+        }
+    }
+
+    private List<Put> buildSampleIndexPuts(int sample) {
+        // One batch per chromosome, with a fake genotype column of 1KB
+        byte[] value = new byte[1024];
+        List<Put> puts = new ArrayList<>();
+        for (int chr = 1; chr <= 22; chr++) {
+            byte[] rowKey = SampleIndexSchema.toRowKey(sample, String.valueOf(chr), 0);
+            puts.add(new Put(rowKey)
+                    .addColumn(family, SampleIndexSchema.toGenotypeColumn("0/1"), value)
+                    .addColumn(family, SampleIndexSchema.toGenotypeColumn("1/1"), value));
+        }
+        return puts;
+    }
+
+    private int count(String tableName) throws Exception {
+        return scan(tableName).size();
+    }
+
+    private List<Result> scan(String tableName) throws Exception {
+        return hBaseManager.act(tableName, table -> {
+            List<Result> results = new ArrayList<>();
+            try (ResultScanner scanner = table.getScanner(new Scan())) {
+                for (Result result : scanner) {
+                    results.add(result);
+                }
+            }
+            return results;
+        });
+    }
+
+    private static byte[] row(int i) {
+        return Bytes.toBytes(String.format("r_%04d", i));
+    }
+}
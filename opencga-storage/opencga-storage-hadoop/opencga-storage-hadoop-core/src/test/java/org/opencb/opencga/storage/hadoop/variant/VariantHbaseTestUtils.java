@@ -53,6 +53,7 @@ import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHadoopDBAdaptor
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.PhoenixHelper;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
+import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveSliceCodec;
 import org.opencb.opencga.storage.hadoop.variant.archive.ArchiveTableHelper;
 import org.opencb.opencga.storage.hadoop.variant.converters.HBaseToVariantConverter;
 import org.opencb.opencga.storage.hadoop.variant.index.IndexUtils;
@@ -291,7 +292,7 @@ public class VariantHbaseTestUtils {
                 os.println("\t" + Bytes.toString(archiveHelper.getNonRefColumnName()));
                 byte[] value = result.getValue(GenomeHelper.COLUMN_FAMILY_BYTES, archiveHelper.getNonRefColumnName());
                 if (value != null) {
-                    VcfSliceProtos.VcfSlice vcfSlice = VcfSliceProtos.VcfSlice.parseFrom(value);
+                    VcfSliceProtos.VcfSlice vcfSlice = ArchiveSliceCodec.decode(value);
                     for (String s : vcfSlice.toString().split("\n")) {
                         os.println("\t\t" + s);
                     }
@@ -302,7 +303,7 @@ public class VariantHbaseTestUtils {
                 os.println("\t" + Bytes.toString(archiveHelper.getRefColumnName()));
                 value = result.getValue(GenomeHelper.COLUMN_FAMILY_BYTES, archiveHelper.getRefColumnName());
                 if (value != null) {
-                    VcfSliceProtos.VcfSlice vcfSlice = VcfSliceProtos.VcfSlice.parseFrom(value);
+                    VcfSliceProtos.VcfSlice vcfSlice = ArchiveSliceCodec.decode(value);
                     for (String s : vcfSlice.toString().split("\n")) {
                         os.println("\t\t" + s);
                     }
@@ -0,0 +1,94 @@
+package org.opencb.opencga.storage.hadoop.variant.adaptors.iterators;
+
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.opencb.opencga.storage.hadoop.utils.HBaseManager;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest.HadoopExternalResource;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+public class ParallelScanResultIteratorTest {
+
+    @Rule
+    public HadoopExternalResource hadoop = new HadoopExternalResource();
+
+    private HBaseManager hBaseManager;
+    private final String tableName = "test_parallel_scan";
+    private final List<Scan> scans = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        hBaseManager = new HBaseManager(hadoop.getConf());
+        byte[] family = Bytes.toBytes("0");
+        hBaseManager.createTableIfNeeded(tableName, family, Compression.Algorithm.NONE);
+        hBaseManager.act(tableName, table -> {
+            for (int i = 0; i < 1000; i++) {
+                table.put(new Put(row(i)).addColumn(family, Bytes.toBytes("value"), Bytes.toBytes(i)));
+            }
+        });
+
+        // 10 scans, in random order, of 50 rows each
+        for (int i = 0; i < 1000; i += 100) {
+            scans.add(new Scan().setStartRow(row(i)).setStopRow(row(i + 50)).setCaching(10));
+        }
+        Collections.shuffle(scans, new Random(1));
+    }
+
+    @Test
+    public void testOrdered() throws Exception {
+        List<String> rows = readRows(true, 4, 5);
+        List<String> expected = new ArrayList<>(rows);
+        expected.sort(String::compareTo);
+        assertEquals(500, rows.size());
+        assertEquals(expected, rows);
+    }
+
+    @Test
+    public void testUnordered() throws Exception {
+        List<String> rows = readRows(false, 4, 5);
+        assertEquals(500, rows.size());
+        assertEquals(500, new HashSet<>(rows).size());
+    }
+
+    @Test
+    public void testSingleThread() throws Exception {
+        assertEquals(500, readRows(true, 1, 1).size());
+    }
+
+    @Test
+    public void testEarlyClose() throws Exception {
+        // Small prefetch, so the scanners are blocked when the iterator is closed
+        ParallelScanResultIterator iterator = new ParallelScanResultIterator(scans,
+                scan -> hBaseManager.getScanner(tableName, scan), 4, 1, true, 60000);
+        for (int i = 0; i < 10; i++) {
+            iterator.next();
+        }
+        iterator.close();
+        // A new iterator is not affected by the closed one
+        assertEquals(500, readRows(true, 4, 1).size());
+    }
+
+    private List<String> readRows(boolean ordered, int numThreads, int prefetch) throws Exception {
+        List<String> rows = new ArrayList<>();
+        try (ParallelScanResultIterator iterator = new ParallelScanResultIterator(scans,
+                scan -> hBaseManager.getScanner(tableName, scan), numThreads, prefetch, ordered, 60000)) {
+            while (iterator.hasNext()) {
+                Result result = iterator.next();
+                rows.add(Bytes.toString(result.getRow()));
+            }
+        }
+        return rows;
+    }
+
+    private static byte[] row(int i) {
+        return Bytes.toBytes(String.format("r_%04d", i));
+    }
+}
@@ -0,0 +1,74 @@
+package org.opencb.opencga.storage.hadoop.variant.archive;
+
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.Fields;
+import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.VcfRecord;
+import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.VcfSample;
+import org.opencb.biodata.models.variant.protobuf.VcfSliceProtos.VcfSlice;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ArchiveSliceCodecTest {
+
+    private VcfSlice slice;
+
+    @Before
+    public void setUp() throws Exception {
+        VcfSlice.Builder builder = VcfSlice.newBuilder()
+                .setChromosome("1")
+                .setPosition(1000)
+                .setFields(Fields.newBuilder().addAllFormats(Arrays.asList("GT:DP", "GT")).addAllGts(Arrays.asList("0/1", "1/1")));
+        for (int i = 0; i < 100; i++) {
+            builder.addRecords(VcfRecord.newBuilder()
+                    .setRelativeStart(i).setRelativeEnd(i)
+                    .setReference("A").setAlternate("C")
+                    .addSamples(VcfSample.newBuilder().setGtIndex(i % 2).addSampleValues("10")));
+        }
+        slice = builder.build();
+    }
+
+    @Test
+    public void testNone() throws Exception {
+        byte[] data = ArchiveSliceCodec.encode(slice, Compression.Algorithm.NONE);
+        assertArrayEquals(slice.toByteArray(), data);
+        assertFalse(ArchiveSliceCodec.isCompressed(data));
+        assertEquals(slice, ArchiveSliceCodec.decode(data));
+    }
+
+    @Test
+    public void testGz() throws Exception {
+        byte[] data = ArchiveSliceCodec.encode(slice, Compression.Algorithm.GZ);
+        assertTrue(ArchiveSliceCodec.isCompressed(data));
+        assertTrue(data.length < slice.getSerializedSize());
+        assertEquals(slice, ArchiveSliceCodec.decode(data));
+    }
+
+    @Test
+    public void testDecodeWithOffset() throws Exception {
+        byte[] data = ArchiveSliceCodec.encode(slice, Compression.Algorithm.GZ);
+        byte[] cell = new byte[data.length + 10];
+        System.arraycopy(data, 0, cell, 5, data.length);
+        assertEquals(slice, ArchiveSliceCodec.decode(cell, 5, data.length));
+
+        data = ArchiveSliceCodec.encode(slice, Compression.Algorithm.NONE);
+        cell = new byte[data.length + 10];
+        System.arraycopy(data, 0, cell, 5, data.length);
+        assertEquals(slice, ArchiveSliceCodec.decode(cell, 5, data.length));
+    }
+
+    @Test
+    public void testParseCompression() {
+        assertEquals(Compression.Algorithm.NONE, ArchiveSliceCodec.parseCompression(null));
+        assertEquals(Compression.Algorithm.GZ, ArchiveSliceCodec.parseCompression("gz"));
+        assertEquals(Compression.Algorithm.LZ4, ArchiveSliceCodec.parseCompression("LZ4"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedCompression() {
+        ArchiveSliceCodec.parseCompression("lzo");
+    }
+}
@@ -0,0 +1,89 @@
+package org.opencb.opencga.storage.hadoop.variant.converters;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.phoenix.schema.types.PVarchar;
+import org.apache.phoenix.schema.types.PVarcharArray;
+import org.apache.phoenix.schema.types.PhoenixArray;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixKeyFactory;
+import org.opencb.opencga.storage.hadoop.variant.adaptors.phoenix.VariantPhoenixSchema;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+public class VariantRowTest {
+
+    @Test
+    public void testGetMutableSampleDataPositions() {
+        VariantRow.SampleColumn sampleColumn = getSampleColumn("0/1", "10,20", "30");
+        int[] positions = {2, 0, -1, 3, 100};
+
+        List<String> selected = sampleColumn.getMutableSampleData(positions, ".");
+        assertEquals(Arrays.asList("30", "0/1", ".", ".", "."), selected);
+        // Same as decoding the whole array
+        assertEquals(getMutableSampleDataFromList(sampleColumn.getSampleData(), positions), selected);
+        // Modifiable
+        selected.set(0, "x");
+    }
+
+    @Test
+    public void testGetMutableSampleDataPositionsSingleElement() {
+        VariantRow.SampleColumn sampleColumn = getSampleColumn("1/1");
+        assertEquals(Arrays.asList("1/1", ".", "."), sampleColumn.getMutableSampleData(new int[]{0, 1, 2}, "."));
+    }
+
+    private VariantRow.SampleColumn getSampleColumn(String... sampleData) {
+        byte[] value = PVarcharArray.INSTANCE.toBytes(new PhoenixArray(PVarchar.INSTANCE, sampleData));
+        Put put = new Put(VariantPhoenixKeyFactory.generateVariantRowKey(new Variant("1:1000:A:C")));
+        put.addColumn(GenomeHelper.COLUMN_FAMILY_BYTES, VariantPhoenixSchema.buildSampleColumnKey(1, 5), value);
+        List<Cell> cells = put.getFamilyCellMap().values().stream().flatMap(Collection::stream).collect(Collectors.toList());
+
+        List<VariantRow.SampleColumn> sampleColumns = new ArrayList<>();
+        new VariantRow(Result.create(cells)).forEachSample(sampleColumns::add);
+        assertEquals(1, sampleColumns.size());
+        assertEquals(5, sampleColumns.get(0).getSampleId());
+        return sampleColumns.get(0);
+    }
+
+    private List<String> getMutableSampleDataFromList(List<String> sampleData, int[] positions) {
+        // Default implementation of SampleColumn
+        VariantRow.SampleColumn listColumn = new VariantRow.SampleColumn() {
+            @Override
+            public int getStudyId() {
+                return 1;
+            }
+
+            @Override
+            public int getSampleId() {
+                return 5;
+            }
+
+            @Override
+            public Integer getFileId() {
+                return null;
+            }
+
+            @Override
+            public List<String> getSampleData() {
+                return sampleData;
+            }
+
+            @Override
+            public List<String> getMutableSampleData() {
+                return new ArrayList<>(sampleData);
+            }
+
+            @Override
+            public String getSampleData(int idx) {
+                return sampleData.get(idx);
+            }
+        };
+        return listColumn.getMutableSampleData(positions, ".");
+    }
+}
@@ -92,6 +92,27 @@ public class HBaseToStudyEntryConverterTest {
         Assert.assertEquals(s.toString(), expected, s);
     }
 
+    @Test
+    public void testConvertProjectedFormat() throws Exception {
+        mm.updateStudyMetadata(sm.getId(), s -> {
+            s.getAttributes().put(VariantStorageOptions.EXTRA_FORMAT_FIELDS.key(), "AD,DP");
+            return s;
+        });
+        converter.configure(HBaseVariantConverterConfiguration.builder()
+                .setSampleDataKeys(listOf("DP", "GT", "XX"))
+                .build());
+
+        List<VariantRow.SampleColumn> fixedValues = new ArrayList<>();
+        fixedValues.add(getSampleColumn(1, listOf("0/0", "1,2", "10")));
+        fixedValues.add(getSampleColumn(3, listOf("0/1", "3,4")));
+
+        StudyEntry s = converter.convert(fixedValues, Collections.emptyList(), new Variant("1:1000:A:C"), 1);
+
+        Assert.assertEquals(listOf("DP", "GT", "XX"), s.getSampleDataKeys());
+        Assert.assertEquals(listOf("10", "0/0", "."), s.getSamples().get(s.getSamplesPosition().get("S1")).getData());
+        Assert.assertEquals(listOf(".", "0/1", "."), s.getSamples().get(s.getSamplesPosition().get("S3")).getData());
+    }
+
 //    @Test
 //    public void testConvertExtendedFormatFileEntryData() throws Exception {
 //        sc.getAttributes().put(VariantStorageEngine.Options.EXTRA_FORMAT_FIELDS.key(), "AD,DP");
@@ -77,6 +77,18 @@ public class FillGapsTest extends VariantStorageBaseTest implements HadoopVarian
         testFillGapsPlatinumFiles(new ObjectMap(HadoopVariantStorageOptions.ARCHIVE_FILE_BATCH_SIZE.key(), 2));
     }
 
+    @Test
+    public void testFillGapsPlatinumFilesLocal() throws Exception {
+        testFillGapsPlatinumFiles(new ObjectMap(HadoopVariantStorageOptions.FILL_GAPS_LOCAL.key(), true));
+    }
+
+    @Test
+    public void testFillGapsPlatinumFilesLocalMultiFileBatch() throws Exception {
+        testFillGapsPlatinumFiles(new ObjectMap(HadoopVariantStorageOptions.FILL_GAPS_LOCAL.key(), true)
+                .append(HadoopVariantStorageOptions.ARCHIVE_FILE_BATCH_SIZE.key(), 2)
+                .append(HadoopVariantStorageOptions.FILL_GAPS_LOCAL_SLICE_CACHE_SIZE.key(), 1));
+    }
+
     public void testFillGapsPlatinumFiles(ObjectMap options) throws Exception {
         StudyMetadata studyMetadata = loadPlatinum(options
                 .append(VariantStorageOptions.MERGE_MODE.key(), VariantStorageEngine.MergeMode.BASIC), 12877, 12880);
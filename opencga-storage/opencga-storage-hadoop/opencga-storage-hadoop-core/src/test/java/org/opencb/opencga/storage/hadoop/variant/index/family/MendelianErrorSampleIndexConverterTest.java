@@ -98,6 +98,8 @@ public class MendelianErrorSampleIndexConverterTest {
             } else {
                 assertEquals(-1, iterator.nextNonIntergenicIndex());
             }
+            Variant expected = gt.equals("0/1") ? variants01.get(idx) : variants11.get(idx);
+            assertEquals(expected.getStart() - entry.getBatchStart(), iterator.nextRelativeStart());
             if (c % 2 == 0) {
                 iterator.skip();
             } else {
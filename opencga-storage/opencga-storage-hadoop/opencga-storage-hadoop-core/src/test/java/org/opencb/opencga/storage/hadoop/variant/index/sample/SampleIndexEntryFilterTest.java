@@ -25,6 +25,7 @@ import org.opencb.opencga.storage.hadoop.variant.index.query.SingleSampleIndexQu
 import org.opencb.opencga.core.config.storage.SampleIndexConfiguration.PopulationFrequencyRange;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -136,6 +137,33 @@ public class SampleIndexEntryFilterTest {
         Assert.assertEquals(Arrays.asList("1:10:A:T", "1:20:A:T"), result);
     }
 
+    @Test
+    public void testGenotypeBitmapFilter() {
+        SingleSampleIndexQuery query = getSingleSampleIndexQuery(VariantQueryUtils.QueryOperation.OR, true);
+        SampleIndexEntry entry = new SampleIndexEntry(0, "1", 0);
+        entry.getGtEntry("0/1")
+                .setCount(3)
+                .setVariants(toBytes(
+                        "1:10:A:T",
+                        "1:100:A:T",
+                        "1:200:A:T"
+                ));
+
+        SampleIndexGenotypeBitmap genotypeBitmap = new SampleIndexGenotypeBitmap();
+        BitSet bitmap = new BitSet();
+        bitmap.set(SampleIndexSchema.toBitmapBlock(100));
+        genotypeBitmap.or("1", 0, bitmap);
+        List<String> result = new SampleIndexEntryFilter(query, null, genotypeBitmap).filter(entry)
+                .stream().map(Variant::toString).collect(Collectors.toList());
+        Assert.assertEquals(Collections.singletonList("1:100:A:T"), result);
+        Assert.assertEquals(1, new SampleIndexEntryFilter(query, null, genotypeBitmap).filterAndCount(entry));
+
+        // Batch without candidates
+        genotypeBitmap.and(new SampleIndexGenotypeBitmap());
+        Assert.assertTrue(genotypeBitmap.isEmpty());
+        Assert.assertEquals(0, new SampleIndexEntryFilter(query, null, genotypeBitmap).filter(entry).size());
+    }
+
     private SampleIndexEntry getSampleIndexEntry1() {
         byte[] pf = new AnnotationIndexPutBuilder()                                                      // s1 s2 s3 s4 s5
                 .add(new AnnotationIndexEntry((byte) 0, false, (short) 0, (byte) 0, new byte[0], new byte[]{ 0, 0, 0, 0, 3 }, false, (byte) 0))  // 1:10:A:T
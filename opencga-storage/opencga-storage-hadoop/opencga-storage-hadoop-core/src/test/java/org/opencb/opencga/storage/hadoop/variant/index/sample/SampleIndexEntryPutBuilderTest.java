@@ -1,13 +1,18 @@
 package org.opencb.opencga.storage.hadoop.variant.index.sample;
 
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.Test;
 import org.opencb.biodata.models.variant.Variant;
+import org.opencb.opencga.core.config.storage.SampleIndexConfiguration;
 import org.opencb.opencga.storage.core.io.bit.BitBuffer;
+import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 
+import java.util.BitSet;
 import java.util.Collections;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.opencb.biodata.models.variant.avro.VariantType.INDEL;
@@ -58,6 +63,27 @@ public class SampleIndexEntryPutBuilderTest {
 
 
         Put build = builder.build();
+        assertFalse(build.has(GenomeHelper.COLUMN_FAMILY_BYTES, SampleIndexSchema.toGenotypeBitmapColumn("0/1")));
+    }
+
+    @Test
+    public void testBuildGenotypeBitmaps() {
+        SampleIndexSchema schema = new SampleIndexSchema(SampleIndexConfiguration.defaultConfiguration().setGenotypeBitmaps(true));
+        VariantFileIndexConverter c = new VariantFileIndexConverter(schema);
+
+        SampleIndexEntryPutBuilder builder = new SampleIndexEntryPutBuilder(1, "1", 0, schema);
+        builder.add("0/1", new SampleVariantIndexEntry(new Variant("1:100:A:C"), c.createFileIndexValue(SNV, 0, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList())));
+        builder.add("0/1", new SampleVariantIndexEntry(new Variant("1:1000:A:C"), c.createFileIndexValue(SNV, 0, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList())));
+        builder.add("1/1", new SampleVariantIndexEntry(new Variant("1:300:A:C"), c.createFileIndexValue(SNV, 0, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList())));
+
+        Put put = builder.build();
+        BitSet bitmap = BitSet.valueOf(CellUtil.cloneValue(
+                put.get(GenomeHelper.COLUMN_FAMILY_BYTES, SampleIndexSchema.toGenotypeBitmapColumn("0/1")).get(0)));
+        BitSet expected = new BitSet();
+        expected.set(SampleIndexSchema.toBitmapBlock(100));
+        expected.set(SampleIndexSchema.toBitmapBlock(1000));
+        assertEquals(expected, bitmap);
+        assertTrue(put.has(GenomeHelper.COLUMN_FAMILY_BYTES, SampleIndexSchema.toGenotypeBitmapColumn("1/1")));
     }
 
 
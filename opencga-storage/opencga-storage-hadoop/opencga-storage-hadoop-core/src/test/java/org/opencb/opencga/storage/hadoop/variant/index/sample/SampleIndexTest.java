@@ -37,6 +37,7 @@ import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationConst
 import org.opencb.opencga.storage.core.variant.query.VariantQueryUtils;
 import org.opencb.opencga.storage.hadoop.variant.GenomeHelper;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageEngine;
+import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageOptions;
 import org.opencb.opencga.storage.hadoop.variant.HadoopVariantStorageTest;
 import org.opencb.opencga.storage.hadoop.variant.VariantHbaseTestUtils;
 import org.opencb.opencga.storage.hadoop.variant.adaptors.VariantHBaseQueryParser;
@@ -565,6 +566,31 @@ public class SampleIndexTest extends VariantStorageBaseTest implements HadoopVar
         }
     }
 
+    @Test
+    public void testPrefetch() throws Exception {
+        SampleIndexDBAdaptor sampleIndexDBAdaptor = ((HadoopVariantStorageEngine) variantStorageEngine).getSampleIndexDBAdaptor();
+        List<Query> queries = Arrays.asList(
+                new Query(GENOTYPE.key(), "NA19600:0/1,1/1;NA19660:0/1,1/1"),
+                new Query(GENOTYPE.key(), "NA19600:0/1,1/1,NA19660:0/1,1/1,NA19661:0/1"),
+                new Query(GENOTYPE.key(), "NA19600:0/1,1/1;NA19685:0/1")
+                        .append(REGION.key(), Arrays.asList(new Region("22", 36591300, 46000000), new Region("1", 1000, 16400000))));
+        for (String study : Arrays.asList(STUDY_NAME, STUDY_NAME_2)) {
+            for (Query baseQuery : queries) {
+                Query query = new Query(baseQuery).append(STUDY.key(), study);
+                List<Variant> expected = sampleIndexDBAdaptor.iterator(sampleIndexDBAdaptor.parseSampleIndexQuery(new Query(query)),
+                        new QueryOptions(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH.key(), 0)).toDataResult().getResults();
+                for (int prefetch : new int[]{1, 4}) {
+                    List<Variant> actual = sampleIndexDBAdaptor.iterator(sampleIndexDBAdaptor.parseSampleIndexQuery(new Query(query)),
+                            new QueryOptions(HadoopVariantStorageOptions.SAMPLE_INDEX_QUERY_PREFETCH.key(), prefetch))
+                            .toDataResult().getResults();
+                    assertEquals(query.toJson() + " prefetch " + prefetch,
+                            expected.stream().map(Variant::toString).collect(toList()),
+                            actual.stream().map(Variant::toString).collect(toList()));
+                }
+            }
+        }
+    }
+
     @Test
     public void testAggregation() throws Exception {
         SampleIndexVariantAggregationExecutor executor = new SampleIndexVariantAggregationExecutor(metadataManager, ((HadoopVariantStorageEngine) variantStorageEngine).getSampleIndexDBAdaptor());
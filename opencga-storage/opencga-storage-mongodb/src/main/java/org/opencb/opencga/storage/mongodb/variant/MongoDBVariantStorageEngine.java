@@ -52,6 +52,7 @@ import org.opencb.opencga.storage.mongodb.annotation.MongoDBVariantAnnotationMan
 import org.opencb.opencga.storage.mongodb.auth.MongoCredentials;
 import org.opencb.opencga.storage.mongodb.metadata.MongoDBVariantStorageMetadataDBAdaptorFactory;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
+import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBCompactIdsMigration;
 import org.opencb.opencga.storage.mongodb.variant.load.MongoVariantImporter;
 import org.opencb.opencga.storage.mongodb.variant.query.RegionVariantQueryExecutor;
 import org.opencb.opencga.storage.mongodb.variant.stats.MongoDBVariantStatisticsManager;
@@ -244,6 +245,18 @@ public class MongoDBVariantStorageEngine extends VariantStorageEngine {
         }
     }
 
+    /**
+     * Rewrite the variants collection using fixed width binary ids. See {@link MongoDBVariantStorageOptions#COMPACT_IDS}.
+     * No other operation should run over this project during the migration. If the migration fails, it can be executed
+     * again to resume it. The original collections are kept as backup.
+     *
+     * @return Number of migrated documents
+     * @throws StorageEngineException if the migration fails
+     */
+    public long migrateToCompactIds() throws StorageEngineException {
+        return new VariantMongoDBCompactIdsMigration(getDBAdaptor(), 1000).migrate();
+    }
+
     @Override
     public void loadVariantScore(URI scoreFile, String study, String scoreName, String cohort1, String cohort2,
                                  VariantScoreFormatDescriptor descriptor, ObjectMap options) {
@@ -2,6 +2,7 @@ package org.opencb.opencga.storage.mongodb.variant;
 
 import org.opencb.commons.datastore.core.ObjectMap;
 import org.opencb.opencga.core.config.ConfigurationOption;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 
 import java.util.Arrays;
@@ -36,6 +37,19 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
     MERGE_IGNORE_OVERLAPPING_VARIANTS("storage.mongodb.merge.ignoreOverlappingVariants", false),   //Do not look for overlapping variants
     MERGE_PARALLEL_WRITE("storage.mongodb.merge.parallelWrite", false),
     MERGE_BATCH_SIZE("storage.mongodb.merge.batchSize", 10),          //Number of files to merge directly from first to second collection
+    MERGE_BULK_MAX_BYTES("storage.mongodb.merge.bulk.maxBytes", 8 * 1024 * 1024),  // Max size of each bulk write to the variants collection
+    MERGE_BULK_TARGET_LATENCY("storage.mongodb.merge.bulk.targetLatencyMs", 1000), // Bulk writes grow while faster than this
+    MERGE_BULK_MAX_IN_FLIGHT("storage.mongodb.merge.bulk.maxInFlight", 2),         // Concurrent bulk writes, shared by all merge threads
+
+    // Concurrent cursors for multi-region queries. 1 for one cursor. Unsorted results are returned in region order,
+    // which might differ from the order of the single cursor.
+    QUERY_REGION_THREADS("storage.mongodb.query.region.numThreads", 1),
+    QUERY_REGION_PREFETCH("storage.mongodb.query.region.prefetch", 500),  // Max variants buffered per concurrent cursor
+
+    // Use fixed width binary _id in the variants collection. Only applied to new projects, stored in the ProjectMetadata
+    COMPACT_IDS("storage.mongodb.variants.compactIds", false),
+    // Internal. Stored in the ProjectMetadata while migrating the variants collection to compact ids
+    COMPACT_IDS_MIGRATING("storage.mongodb.variants.compactIds.migrating", false),
 
 
     EXTRA_GENOTYPE_FIELDS_COMPRESS("extra-fields.compress", true),    //Compress with gzip other sample information
@@ -73,6 +87,10 @@ public enum MongoDBVariantStorageOptions implements ConfigurationOption {
         return isParallelWrite(MERGE_PARALLEL_WRITE, options);
     }
 
+    public static boolean isCompactIds(ProjectMetadata projectMetadata) {
+        return projectMetadata != null && projectMetadata.getAttributes().getBoolean(COMPACT_IDS.key(), false);
+    }
+
     private static boolean isParallelWrite(MongoDBVariantStorageOptions option, ObjectMap options) {
         return options.getBoolean(PARALLEL_WRITE.key(), PARALLEL_WRITE.defaultValue())
                 || options.getBoolean(option.key(), option.defaultValue());
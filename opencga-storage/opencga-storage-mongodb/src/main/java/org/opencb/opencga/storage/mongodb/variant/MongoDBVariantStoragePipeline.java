@@ -20,7 +20,6 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.BiMap;
 import org.apache.commons.lang3.time.StopWatch;
 import org.bson.Document;
-import org.opencb.biodata.formats.variant.io.VariantReader;
 import org.opencb.biodata.models.variant.Variant;
 import org.opencb.biodata.models.variant.VariantFileMetadata;
 import org.opencb.biodata.models.variant.avro.VariantType;
@@ -39,8 +38,10 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.io.managers.IOConnectorProvider;
 import org.opencb.opencga.storage.core.metadata.VariantStorageMetadataManager;
 import org.opencb.opencga.storage.core.metadata.models.FileMetadata;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
 import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
 import org.opencb.opencga.storage.core.metadata.models.TaskMetadata;
+import org.opencb.opencga.storage.core.utils.ParallelTaskRunnerTuner;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine;
 import org.opencb.opencga.storage.core.variant.VariantStorageEngine.MergeMode;
 import org.opencb.opencga.storage.core.variant.VariantStoragePipeline;
@@ -58,6 +59,7 @@ import org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStage
 import org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageLoader;
 import org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageReader;
 import org.opencb.opencga.storage.mongodb.variant.load.variants.MongoDBOperations;
+import org.opencb.opencga.storage.mongodb.variant.load.variants.MongoDBAdaptiveBulkWriter;
 import org.opencb.opencga.storage.mongodb.variant.load.variants.MongoDBVariantMergeLoader;
 import org.opencb.opencga.storage.mongodb.variant.load.variants.MongoDBVariantMerger;
 import org.slf4j.Logger;
@@ -114,9 +116,37 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             logger.info("Resume stage load.");
             // Clean stage collection?
         }
+        checkCompactIds();
         return uri;
     }
 
+    /**
+     * Decide the layout of the variants collection on the first load of the project, and store it in the ProjectMetadata.
+     * Projects with variants loaded with string ids keep them, even if {@link MongoDBVariantStorageOptions#COMPACT_IDS} is set.
+     *
+     * @throws StorageEngineException if the ProjectMetadata can not be updated, or there is an unfinished migration
+     */
+    private void checkCompactIds() throws StorageEngineException {
+        boolean compactIds = options.getBoolean(COMPACT_IDS.key(), COMPACT_IDS.defaultValue());
+        ProjectMetadata projectMetadata = getMetadataManager().updateProjectMetadata(pm -> {
+            if (pm == null) {
+                pm = new ProjectMetadata();
+            }
+            if (!pm.getAttributes().containsKey(COMPACT_IDS.key())) {
+                boolean emptyCollection = dbAdaptor.getVariantsCollection().count().getNumMatches() == 0;
+                pm.getAttributes().put(COMPACT_IDS.key(), compactIds && emptyCollection);
+            }
+            return pm;
+        });
+        if (projectMetadata.getAttributes().getBoolean(COMPACT_IDS_MIGRATING.key(), false)) {
+            throw new StorageEngineException("Unable to load variants. Unfinished migration to compact ids. "
+                    + "Resume the migration before loading new files.");
+        }
+        if (compactIds && !isCompactIds(projectMetadata)) {
+            logger.warn("Ignore '{}'. The variants collection already uses string ids", COMPACT_IDS.key());
+        }
+    }
+
     @Override
     protected void securePreLoad(StudyMetadata studyMetadata, VariantFileMetadata source) throws StorageEngineException {
         super.securePreLoad(studyMetadata, source);
@@ -283,12 +313,12 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         VariantFileMetadata fileMetadata = readVariantFileMetadata(inputUri);
         VariantStudyMetadata metadata = fileMetadata.toVariantStudyMetadata(String.valueOf(studyId));
         long numRecords = fileMetadata.getStats().getVariantCount();
-        int batchSize = options.getInt(VariantStorageOptions.LOAD_BATCH_SIZE.key(), VariantStorageOptions.LOAD_BATCH_SIZE.defaultValue());
-        int loadThreads = options.getInt(VariantStorageOptions.LOAD_THREADS.key(), VariantStorageOptions.LOAD_THREADS.defaultValue());
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.LOAD, getStudyMetadata().getName(), options,
+                VariantStorageOptions.LOAD_THREADS, VariantStorageOptions.LOAD_BATCH_SIZE);
+        int loadThreads = tuner.getNumTasks();
         final int numReaders = 1;
         boolean resume = isResume(options);
         StudyMetadata studyMetadata = getStudyMetadata();
-        boolean stdin = options.getBoolean(STDIN.key(), STDIN.defaultValue());
 
         try {
             //Dedup task
@@ -300,7 +330,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             org.opencb.commons.run.Task remapIdsTask = new RemapVariantIdsTask(studyMetadata.getId(), fileId);
 
             // File reader
-            DataReader<Variant> variantReader = variantReaderUtils.getVariantReader(inputUri, metadata, stdin)
+            DataReader<Variant> variantReader = newVariantReader(inputUri, outdirUri, metadata)
                     .then(duplicatedVariantsDetector)
                     .then(remapIdsTask);
 
@@ -333,14 +363,15 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
                     .setReadQueuePutTimeout(20 * 60)
                     .setNumTasks(loadThreads)
-                    .setBatchSize(batchSize)
+                    .setBatchSize(tuner.getBatchSize())
+                    .setCapacity(tuner.getCapacity())
                     .setAbortOnFail(true).build();
             if (isDirectLoadParallelWrite(options)) {
                 logger.info("Multi thread direct load... [{} readerThreads, {} writerThreads]", numReaders, loadThreads);
-                ptr = new ParallelTaskRunner<>(stageReader, variantMerger.then(loader), null, config);
+                ptr = new ParallelTaskRunner<>(tuner.reader(stageReader), tuner.task(variantMerger.then(loader)), null, config);
             } else {
                 logger.info("Multi thread direct load... [{} readerThreads, {} tasks, {} writerThreads]", numReaders, loadThreads, 1);
-                ptr = new ParallelTaskRunner<>(stageReader, variantMerger, loader, config);
+                ptr = new ParallelTaskRunner<>(tuner.reader(stageReader), tuner.task(variantMerger), tuner.writer(loader), config);
             }
 
             // Run
@@ -360,6 +391,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             loadStats.put("duplicatedLocus", resolver.getDuplicatedLocus());
             loadStats.put("discardedVariants", resolver.getDiscardedVariants());
             loadStats.append("directLoad", true);
+            loadStats.put(ParallelTaskRunnerTuner.TUNING, tuner.report());
             loadStats.append("writeResult", writeResult);
 
             fileMetadata.setId(String.valueOf(fileId));
@@ -389,11 +421,11 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         VariantFileMetadata fileMetadata = readVariantFileMetadata(input);
         VariantStudyMetadata metadata = fileMetadata.toVariantStudyMetadata(String.valueOf(getStudyId()));
         long numRecords = fileMetadata.getStats().getVariantCount();
-        int batchSize = options.getInt(VariantStorageOptions.LOAD_BATCH_SIZE.key(), VariantStorageOptions.LOAD_BATCH_SIZE.defaultValue());
-        int loadThreads = options.getInt(VariantStorageOptions.LOAD_THREADS.key(), VariantStorageOptions.LOAD_THREADS.defaultValue());
+        ParallelTaskRunnerTuner tuner = new ParallelTaskRunnerTuner(ParallelTaskRunnerTuner.LOAD, getStudyMetadata().getName(), options,
+                VariantStorageOptions.LOAD_THREADS, VariantStorageOptions.LOAD_BATCH_SIZE);
+        int loadThreads = tuner.getNumTasks();
         final int numReaders = 1;
 //        final int numTasks = loadThreads == 1 ? 1 : loadThreads - numReaders; //Subtract the reader thread
-        boolean stdin = options.getBoolean(STDIN.key(), STDIN.defaultValue());
 
 
         try {
@@ -401,7 +433,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             MongoDBCollection stageCollection = dbAdaptor.getStageCollection(studyMetadata.getId());
 
             //Reader
-            VariantReader variantReader = variantReaderUtils.getVariantReader(input, metadata, stdin);
+            DataReader<Variant> variantReader = newVariantReader(input, outdir, metadata);
 
             DuplicatedVariantsResolverFactory dedupFactory = new DuplicatedVariantsResolverFactory(getOptions(), ioConnectorProvider);
             AbstractDuplicatedVariantsResolver resolver = dedupFactory.getResolver(UriUtils.fileName(input), outdir);
@@ -421,16 +453,18 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
                     .setReadQueuePutTimeout(20 * 60)
                     .setNumTasks(loadThreads)
-                    .setBatchSize(batchSize)
+                    .setBatchSize(tuner.getBatchSize())
+                    .setCapacity(tuner.getCapacity())
                     .setAbortOnFail(true).build();
+            DataReader<Variant> reader = tuner.reader(variantReader.then(duplicatedVariantsDetector));
             if (isStageParallelWrite(options)) {
                 logger.info("Multi thread stage load... [{} readerThreads, {} writerThreads]", numReaders, loadThreads);
-                ptr = new ParallelTaskRunner<>(variantReader.then(duplicatedVariantsDetector),
-                        remapIdsTask.then(converterTask).then(stageLoader), null, config);
+                ptr = new ParallelTaskRunner<>(reader,
+                        tuner.task(remapIdsTask.then(converterTask).then(stageLoader)), null, config);
             } else {
                 logger.info("Multi thread stage load... [{} readerThreads, {} tasks, {} writerThreads]", numReaders, loadThreads, 1);
-                ptr = new ParallelTaskRunner<>(variantReader.then(duplicatedVariantsDetector),
-                        remapIdsTask.then(converterTask), stageLoader, config);
+                ptr = new ParallelTaskRunner<>(reader,
+                        tuner.task(remapIdsTask.then(converterTask)), tuner.writer(stageLoader), config);
             }
 
             Thread hook = new Thread(() -> {
@@ -457,6 +491,7 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
             loadStats.put("duplicatedVariants", resolver.getDuplicatedVariants());
             loadStats.put("duplicatedLocus", resolver.getDuplicatedLocus());
             loadStats.put("discardedVariants", resolver.getDiscardedVariants());
+            loadStats.put(ParallelTaskRunnerTuner.TUNING, tuner.report());
             options.put("skippedVariants", skippedVariants);
             logger.info("Stage Write result: {}", skippedVariants);
         } catch (ExecutionException | RuntimeException e) {
@@ -671,9 +706,13 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         int release = options.getInt(VariantStorageOptions.RELEASE.key(), VariantStorageOptions.RELEASE.defaultValue());
         MongoDBVariantMerger variantMerger = new MongoDBVariantMerger(dbAdaptor, studyMetadata, fileIds, resume,
                 ignoreOverlapping, release);
+        MongoDBAdaptiveBulkWriter bulkWriter = new MongoDBAdaptiveBulkWriter(
+                options.getInt(MERGE_BULK_MAX_BYTES.key(), MERGE_BULK_MAX_BYTES.defaultValue()),
+                options.getLong(MERGE_BULK_TARGET_LATENCY.key(), MERGE_BULK_TARGET_LATENCY.<Integer>defaultValue()),
+                options.getInt(MERGE_BULK_MAX_IN_FLIGHT.key(), MERGE_BULK_MAX_IN_FLIGHT.defaultValue()));
         MongoDBVariantMergeLoader variantLoader = new MongoDBVariantMergeLoader(
                 dbAdaptor.getVariantsCollection(), stageCollection, dbAdaptor.getStudiesCollection(),
-                studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger);
+                studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger, bulkWriter);
 
         ParallelTaskRunner<Document, MongoDBOperations> ptrMerge;
         ParallelTaskRunner.Config config = ParallelTaskRunner.Config.builder()
@@ -697,6 +736,8 @@ public class MongoDBVariantStoragePipeline extends VariantStoragePipeline {
         } catch (ExecutionException e) {
             logger.info("Write result: {}", variantLoader.getResult());
             throw new StorageEngineException("Error while executing LoadVariants in ParallelTaskRunner", e);
+        } finally {
+            bulkWriter.close();
         }
         return variantLoader.getResult();
     }
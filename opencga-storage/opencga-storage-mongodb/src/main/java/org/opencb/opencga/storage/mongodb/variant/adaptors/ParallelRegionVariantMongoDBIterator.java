@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.adaptors;
+
+import org.bson.Document;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.mongodb.MongoDBIterator;
+import org.opencb.opencga.storage.core.utils.iterators.PrefetchIterator;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantBinaryIdConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantStringIdConverter;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Iterates over the variants of a multi-region query, opening one cursor per region, up to numThreads concurrently.
+ *
+ * Each cursor is drained by its own thread, which converts the documents into variants and puts them into a bounded buffer,
+ * using a {@link PrefetchIterator}.
+ * Regions are consumed one after another in the same order as the variant ids, so the results are in the same order as
+ * in the collection, while the cursors of the next regions are prefetched. On sharded collections, each region cursor is
+ * routed only to the shards owning that range of ids.
+ *
+ * Regions must not overlap. See {@link #mergeRegions}.
+ */
+public class ParallelRegionVariantMongoDBIterator extends VariantDBIterator {
+
+    private final ExecutorService threadPool;
+    private final PrefetchIterator<Variant> variants;
+    private final int limit;
+    private final AtomicLong timeConvertingNanos = new AtomicLong();
+    private int count = 0;
+
+    /**
+     * Create and start the parallel iterator.
+     *
+     * @param regionQueries    Query of each region, sorted by region
+     * @param cursorFactory    Opens the cursor of each region query
+     * @param converterFactory Creates a converter for each region. Converters are not thread safe
+     * @param numThreads       Max number of concurrent cursors
+     * @param prefetch         Max number of variants buffered per cursor
+     * @param limit            Max number of variants to return. 0 or negative for no limit.
+     * @param timeout          Max time in milliseconds to wait for the next variant. 0 or negative for no timeout.
+     */
+    ParallelRegionVariantMongoDBIterator(List<Document> regionQueries, Function<Document, MongoDBIterator<Document>> cursorFactory,
+                                         Supplier<DocumentToVariantConverter> converterFactory,
+                                         int numThreads, int prefetch, int limit, long timeout) {
+        this.limit = limit > 0 ? limit : Integer.MAX_VALUE;
+        AtomicInteger threadCount = new AtomicInteger();
+        threadPool = Executors.newFixedThreadPool(Math.max(1, Math.min(numThreads, regionQueries.size())), r -> {
+            Thread thread = new Thread(r, "variant-mongodb-region-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<PrefetchIterator.Source<Variant>> sources = new ArrayList<>(regionQueries.size());
+        for (Document regionQuery : regionQueries) {
+            sources.add(sink -> read(regionQuery, cursorFactory, converterFactory, sink));
+        }
+        variants = new PrefetchIterator<>(sources, prefetch, true, timeout, threadPool);
+        threadPool.shutdown();
+    }
+
+    /**
+     * Sort the regions in the same order as the variant ids, and merge the overlapping ones.
+     *
+     * @param regions    Regions to merge
+     * @param compactIds If the variants collection uses binary ids. See {@link VariantBinaryIdConverter}
+     * @return Sorted list of non overlapping regions
+     */
+    public static List<Region> mergeRegions(List<Region> regions, boolean compactIds) {
+        Comparator<Region> comparator;
+        if (compactIds) {
+            // Contigs sharing the same hashed code are sorted by name
+            comparator = Comparator.comparingInt((Region r) -> VariantBinaryIdConverter.getChromosomeCode(r.getChromosome()))
+                    .thenComparing(Region::getChromosome)
+                    .thenComparingInt(Region::getStart);
+        } else {
+            comparator = Comparator.comparing((Region r) -> VariantStringIdConverter.buildId(r.getChromosome(), r.getStart()));
+        }
+        List<Region> sorted = new ArrayList<>(regions);
+        sorted.sort(comparator.thenComparingInt(Region::getEnd));
+        LinkedList<Region> merged = new LinkedList<>();
+        for (Region region : sorted) {
+            Region last = merged.peekLast();
+            if (last != null && last.getChromosome().equals(region.getChromosome())
+                    && region.getStart() <= ((long) last.getEnd()) + 1) {
+                last.setEnd(Math.max(last.getEnd(), region.getEnd()));
+            } else {
+                merged.add(new Region(region.getChromosome(), region.getStart(), region.getEnd()));
+            }
+        }
+        return new ArrayList<>(merged);
+    }
+
+    private void read(Document regionQuery, Function<Document, MongoDBIterator<Document>> cursorFactory,
+                      Supplier<DocumentToVariantConverter> converterFactory, PrefetchIterator.Sink<Variant> sink)
+            throws Exception {
+        DocumentToVariantConverter converter = converterFactory.get();
+        try (MongoDBIterator<Document> cursor = cursorFactory.apply(regionQuery)) {
+            while (cursor.hasNext()) {
+                Document document = cursor.next();
+                long start = System.nanoTime();
+                Variant variant = converter.convertToDataModelType(document);
+                timeConvertingNanos.addAndGet(System.nanoTime() - start);
+                sink.put(variant);
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return count < limit && fetch(variants::hasNext);
+    }
+
+    @Override
+    public Variant next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        count++;
+        return variants.next();
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public long getTimeConverting() {
+        return timeConverting + timeConvertingNanos.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        super.close();
+        // Stop running cursors. Cursors are closed by each task.
+        variants.close();
+        threadPool.shutdownNow();
+    }
+}
@@ -45,6 +45,7 @@ import org.opencb.opencga.storage.core.variant.adaptors.*;
 import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.core.variant.annotation.VariantAnnotationManager;
 import org.opencb.opencga.storage.core.variant.query.ParsedVariantQuery;
+import org.opencb.opencga.storage.core.variant.query.VariantQueryParser;
 import org.opencb.opencga.storage.core.variant.query.projection.VariantQueryProjection;
 import org.opencb.opencga.storage.core.variant.query.projection.VariantQueryProjectionParser;
 import org.opencb.opencga.storage.core.variant.stats.VariantStatsWrapper;
@@ -135,6 +136,10 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         return variantsCollection;
     }
 
+    public String getVariantsCollectionName() {
+        return collectionName;
+    }
+
     public MongoDBCollection getStageCollection(int studyId) {
         String stageCollectionName = configuration.getString(COLLECTION_STAGE.key(), COLLECTION_STAGE.defaultValue());
         // Ensure retro-compatibility.
@@ -235,13 +240,26 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         logger.info("Remove files from stage collection - step 1/3"); // Remove study if only contains removed files
         MongoDBCollection stageCollection = getStageCollection(studyId);
         int updatedStageDocuments = 0;
+        // The stage collection always uses string ids. With compact ids, rebuild them from the variant
+        boolean compactIds = isCompactIds(metadataManager.getProjectMetadata());
+        Bson projection = compactIds
+                ? Projections.include(DocumentToVariantConverter.CHROMOSOME_FIELD, DocumentToVariantConverter.START_FIELD,
+                        DocumentToVariantConverter.END_FIELD, DocumentToVariantConverter.REFERENCE_FIELD,
+                        DocumentToVariantConverter.ALTERNATE_FIELD, DocumentToVariantConverter.SV_FIELD)
+                : Projections.include("_id");
+        DocumentToVariantConverter variantConverter = new DocumentToVariantConverter();
         try (MongoDBIterator<Document> cursor = getVariantsCollection()
                 .nativeQuery()
-                .find(studiesToRemoveQuery, Projections.include("_id"), new QueryOptions(MongoDBCollection.BATCH_SIZE, batchSize))) {
+                .find(studiesToRemoveQuery, projection, new QueryOptions(MongoDBCollection.BATCH_SIZE, batchSize))) {
             List<String> ids = new ArrayList<>(batchSize);
             int i = 0;
             while (cursor.hasNext()) {
-                ids.add(cursor.next().getString("_id"));
+                Document document = cursor.next();
+                if (compactIds) {
+                    ids.add(VariantMongoDBQueryParser.STRING_ID_CONVERTER.buildId(variantConverter.convertToDataModelType(document)));
+                } else {
+                    ids.add(document.getString("_id"));
+                }
                 Bson updateStage = combine(
                         pull(StageDocumentToVariantConverter.STUDY_FILE_FIELD, studyId.toString()),
                         unset(studyId.toString()));
@@ -403,12 +421,12 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
 
         long deletedDocuments = 0;
         int deleteBatchSize = 1000;
-        List<String> documentsToDelete = new ArrayList<>(deleteBatchSize);
+        List<Object> documentsToDelete = new ArrayList<>(deleteBatchSize);
         List<Document> documentsToInsert = new ArrayList<>(deleteBatchSize);
 
         while (iterator.hasNext()) {
             Document next = iterator.next();
-            documentsToDelete.add(next.getString("_id"));
+            documentsToDelete.add(next.get("_id"));
             next.append(DocumentToTrashVariantConverter.TIMESTAMP_FIELD, ts);
             documentsToInsert.add(next);
             if (documentsToDelete.size() == deleteBatchSize || !iterator.hasNext()) {
@@ -634,9 +652,32 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         options.putIfAbsent(MongoDBCollection.BATCH_SIZE, 100);
 
         // Short unsorted queries with timeout or limit don't need the persistent cursor.
-        if (options.containsKey(QueryOptions.TIMEOUT)
+        boolean persistent = !(options.containsKey(QueryOptions.TIMEOUT)
                 || options.containsKey(QueryOptions.LIMIT)
-                || !options.getBoolean(QueryOptions.SORT, false)) {
+                || !options.getBoolean(QueryOptions.SORT, false));
+
+        int regionThreads = options.getInt(QUERY_REGION_THREADS.key(),
+                configuration.getInt(QUERY_REGION_THREADS.key(), QUERY_REGION_THREADS.defaultValue()));
+        List<Region> regions = regionThreads > 1 ? getParallelQueryRegions(variantQuery, options) : Collections.emptyList();
+        if (regions.size() > 1) {
+            List<Document> regionQueries = new ArrayList<>(regions.size());
+            for (Region region : regions) {
+                regionQueries.add(queryParser.parseQuery(variantQuery, region));
+            }
+            logger.debug("Using {} parallel region cursors", regions.size());
+            return new ParallelRegionVariantMongoDBIterator(regionQueries,
+                    regionQuery -> persistent
+                            ? new MongoDBIterator<>(new MongoPersistentCursor(variantsCollection, regionQuery, projection, options), -1)
+                            : variantsCollection.nativeQuery().find(regionQuery, projection, options),
+                    () -> getDocumentToVariantConverter(variantQuery.getQuery(), variantQueryProjection),
+                    regionThreads,
+                    options.getInt(QUERY_REGION_PREFETCH.key(), configuration.getInt(QUERY_REGION_PREFETCH.key(),
+                            QUERY_REGION_PREFETCH.defaultValue())),
+                    options.getInt(QueryOptions.LIMIT, -1),
+                    options.getLong(QueryOptions.TIMEOUT, 0));
+        }
+
+        if (!persistent) {
             StopWatch stopWatch = StopWatch.createStarted();
             VariantMongoDBIterator dbIterator = new VariantMongoDBIterator(
                     () -> variantsCollection.nativeQuery().find(mongoQuery, projection, options), converter);
@@ -648,6 +689,30 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         }
     }
 
+    /**
+     * Get the regions to query with one cursor each, if the query can be split by region.
+     *
+     * Only queries with a REGION filter, and no other positional filters (ids, genes or xrefs) that are combined
+     * with the regions in the same OR clause, can be split. Client side skip is not supported.
+     *
+     * @param variantQuery Variant query
+     * @param options      Query options
+     * @return Sorted non overlapping regions, or an empty list if the query should use one single cursor
+     */
+    private List<Region> getParallelQueryRegions(ParsedVariantQuery variantQuery, QueryOptions options) {
+        Query query = variantQuery.getInputQuery();
+        if (options.getInt(QueryOptions.SKIP, 0) > 0 || !isValidParam(query, REGION)) {
+            return Collections.emptyList();
+        }
+        ParsedVariantQuery.VariantQueryXref xrefs = VariantQueryParser.parseXrefs(query);
+        if (!xrefs.getIds().isEmpty() || !xrefs.getGenes().isEmpty()
+                || !xrefs.getVariants().isEmpty() || !xrefs.getOtherXrefs().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return ParallelRegionVariantMongoDBIterator.mergeRegions(Region.parseRegions(query.getString(REGION.key()), true),
+                isCompactIds(metadataManager.getProjectMetadata()));
+    }
+
     public MongoDBIterator<Document> nativeIterator(Query query, QueryOptions options, boolean persistent) {
         if (query == null) {
             query = new Query();
@@ -951,7 +1016,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
             // )
 
             if (!cohorts.isEmpty()) {
-                String id = variantConverter.buildStorageId(new Variant(wrapper.getChromosome(), wrapper.getStart(), wrapper.getEnd(),
+                Object id = variantConverter.buildStorageId(new Variant(wrapper.getChromosome(), wrapper.getStart(), wrapper.getEnd(),
                         wrapper.getReference(), wrapper.getAlternate()).setSv(wrapper.getSv()));
 
                 Document find = new Document("_id", id);
@@ -1022,7 +1087,7 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
         StopWatch watch = StopWatch.createStarted();
         DocumentToVariantConverter variantConverter = getDocumentToVariantConverter(new Query(), queryOptions);
         for (VariantAnnotation variantAnnotation : variantAnnotations) {
-            String id;
+            Object id;
             if (variantAnnotation.getAdditionalAttributes() != null
                     && variantAnnotation.getAdditionalAttributes().containsKey(GROUP_NAME.key())) {
                 String variantString = variantAnnotation.getAdditionalAttributes()
@@ -1111,7 +1176,8 @@ public class VariantMongoDBAdaptor implements VariantDBAdaptor {
             annotationIds = Collections.emptyMap();
         }
         return new DocumentToVariantConverter(studyEntryConverter,
-                new DocumentToVariantStatsConverter(metadataManager), returnedStudies, annotationIds);
+                new DocumentToVariantStatsConverter(metadataManager), returnedStudies, annotationIds)
+                .setCompactIds(isCompactIds(projectMetadata));
     }
 
     public void createIndexes(QueryOptions options) {
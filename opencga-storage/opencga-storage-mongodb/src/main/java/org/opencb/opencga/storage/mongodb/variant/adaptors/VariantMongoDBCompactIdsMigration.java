@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.adaptors;
+
+import com.mongodb.MongoNamespace;
+import org.apache.commons.lang3.time.StopWatch;
+import org.bson.Document;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+import org.opencb.commons.datastore.mongodb.MongoDBIterator;
+import org.opencb.commons.datastore.mongodb.MongoDataStore;
+import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
+import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantBinaryIdConverter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.COMPACT_IDS;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.COMPACT_IDS_MIGRATING;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.isCompactIds;
+
+/**
+ * Rewrites the variants collection, and the saved annotation collections, replacing the string ids with the binary ids
+ * from {@link VariantBinaryIdConverter}.
+ *
+ * The migration is split in phases, so it can be safely executed again after a failure:
+ * <ol>
+ *     <li>Mark the migration as started in the ProjectMetadata ({@link MongoDBVariantStorageOptions#COMPACT_IDS_MIGRATING}).
+ *     If a previous migration did not finish, its changes are rolled back first.</li>
+ *     <li>Copy every collection into a new temporary collection with the new ids. The original collections are not modified.</li>
+ *     <li>Rename every original collection as a backup, and every temporary collection as the original.</li>
+ *     <li>Mark the ProjectMetadata with {@link MongoDBVariantStorageOptions#COMPACT_IDS}.</li>
+ * </ol>
+ * The backup collections, with suffix {@value #BACKUP_SUFFIX}, are not removed, and can be dropped once the migrated data
+ * has been checked. The stage collections are not modified, as they always use string ids.
+ * Must not run concurrently with any other operation over the variants collection.
+ */
+public class VariantMongoDBCompactIdsMigration {
+
+    public static final String BACKUP_SUFFIX = "_string_ids_backup";
+    private static final String TMP_SUFFIX = "_compact_ids";
+    // Fields required to build the variant id
+    private static final List<String> ID_FIELDS = Arrays.asList(
+            DocumentToVariantConverter.CHROMOSOME_FIELD,
+            DocumentToVariantConverter.START_FIELD,
+            DocumentToVariantConverter.END_FIELD,
+            DocumentToVariantConverter.REFERENCE_FIELD,
+            DocumentToVariantConverter.ALTERNATE_FIELD,
+            DocumentToVariantConverter.SV_FIELD);
+
+    private final VariantMongoDBAdaptor dbAdaptor;
+    private final int batchSize;
+    private final Logger logger = LoggerFactory.getLogger(VariantMongoDBCompactIdsMigration.class);
+
+    public VariantMongoDBCompactIdsMigration(VariantMongoDBAdaptor dbAdaptor, int batchSize) {
+        this.dbAdaptor = dbAdaptor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Migrate the variants collection and the saved annotations.
+     *
+     * @return Number of migrated documents
+     * @throws StorageEngineException if the number of copied documents does not match, or the ProjectMetadata can not be updated
+     */
+    public long migrate() throws StorageEngineException {
+        ProjectMetadata projectMetadata = dbAdaptor.getMetadataManager().getProjectMetadata();
+        if (isCompactIds(projectMetadata)) {
+            logger.info("Variants collection already uses compact ids");
+            return 0;
+        }
+
+        List<String> collectionNames = new ArrayList<>();
+        collectionNames.add(dbAdaptor.getVariantsCollectionName());
+        if (projectMetadata != null) {
+            for (ProjectMetadata.VariantAnnotationMetadata annotation : projectMetadata.getAnnotation().getSaved()) {
+                collectionNames.add(dbAdaptor.getAnnotationCollectionName(annotation.getName()));
+            }
+        }
+
+        if (projectMetadata != null && projectMetadata.getAttributes().getBoolean(COMPACT_IDS_MIGRATING.key(), false)) {
+            logger.info("Resume unfinished migration to compact ids");
+            rollback(collectionNames);
+        } else {
+            checkNoBackups(collectionNames);
+        }
+        dbAdaptor.getMetadataManager().updateProjectMetadata(pm -> {
+            if (pm == null) {
+                pm = new ProjectMetadata();
+            }
+            pm.getAttributes().put(COMPACT_IDS_MIGRATING.key(), true);
+            return pm;
+        });
+
+        // Collections never created have nothing to migrate
+        MongoDataStore db = dbAdaptor.getDB();
+        collectionNames.retainAll(db.getCollectionNames());
+
+        // Copy all the collections before modifying any of them
+        long numDocuments = 0;
+        for (String collectionName : collectionNames) {
+            // Only the variants collection has indexes
+            numDocuments += copyCollection(collectionName, collectionName.equals(dbAdaptor.getVariantsCollectionName()));
+        }
+
+        for (String collectionName : collectionNames) {
+            rename(db, collectionName, collectionName + BACKUP_SUFFIX);
+            rename(db, collectionName + TMP_SUFFIX, collectionName);
+        }
+
+        dbAdaptor.getMetadataManager().updateProjectMetadata(pm -> {
+            pm.getAttributes().put(COMPACT_IDS.key(), true);
+            pm.getAttributes().remove(COMPACT_IDS_MIGRATING.key());
+            return pm;
+        });
+        logger.info("Migration to compact ids finished. Original collections kept as backup with suffix '{}'", BACKUP_SUFFIX);
+        return numDocuments;
+    }
+
+    /**
+     * Undo the changes of an unfinished migration, restoring the original collections from the backups, if any.
+     *
+     * @param collectionNames Collections to migrate
+     */
+    private void rollback(List<String> collectionNames) {
+        MongoDataStore db = dbAdaptor.getDB();
+        Set<String> existingCollections = new HashSet<>(db.getCollectionNames());
+        for (String collectionName : collectionNames) {
+            String backupCollectionName = collectionName + BACKUP_SUFFIX;
+            if (existingCollections.contains(backupCollectionName)) {
+                if (existingCollections.contains(collectionName)) {
+                    // Already migrated
+                    logger.info("Drop migrated collection '{}'", collectionName);
+                    db.dropCollection(collectionName);
+                }
+                logger.info("Restore collection '{}' from '{}'", collectionName, backupCollectionName);
+                rename(db, backupCollectionName, collectionName);
+            }
+        }
+    }
+
+    private void checkNoBackups(List<String> collectionNames) throws StorageEngineException {
+        List<String> existingCollections = dbAdaptor.getDB().getCollectionNames();
+        for (String collectionName : collectionNames) {
+            if (existingCollections.contains(collectionName + BACKUP_SUFFIX)) {
+                throw new StorageEngineException("Unable to migrate to compact ids. Backup collection '" + collectionName + BACKUP_SUFFIX
+                        + "' already exists");
+            }
+        }
+    }
+
+    private void rename(MongoDataStore db, String from, String to) {
+        logger.info("Rename collection '{}' to '{}'", from, to);
+        db.getDb().getCollection(from).renameCollection(new MongoNamespace(db.getDb().getName(), to));
+    }
+
+    private long copyCollection(String collectionName, boolean createIndexes) throws StorageEngineException {
+        MongoDataStore db = dbAdaptor.getDB();
+        String tmpCollectionName = collectionName + TMP_SUFFIX;
+        if (db.getCollectionNames().contains(tmpCollectionName)) {
+            logger.info("Drop incomplete collection '{}' from a previous migration", tmpCollectionName);
+            db.dropCollection(tmpCollectionName);
+        }
+        MongoDBCollection source = db.getCollection(collectionName);
+        MongoDBCollection target = db.getCollection(tmpCollectionName);
+        DocumentToVariantConverter converter = new DocumentToVariantConverter();
+        VariantBinaryIdConverter idConverter = new VariantBinaryIdConverter();
+
+        logger.info("Migrate collection '{}' to compact ids", collectionName);
+        StopWatch stopWatch = StopWatch.createStarted();
+        long numDocuments = 0;
+        List<Document> batch = new ArrayList<>(batchSize);
+        try (MongoDBIterator<Document> iterator = source.nativeQuery()
+                .find(new Document(), null, new QueryOptions(MongoDBCollection.BATCH_SIZE, batchSize))) {
+            while (iterator.hasNext()) {
+                Document document = iterator.next();
+                Document idFields = new Document();
+                for (String field : ID_FIELDS) {
+                    if (document.containsKey(field)) {
+                        idFields.put(field, document.get(field));
+                    }
+                }
+                document.put("_id", idConverter.buildId(converter.convertToDataModelType(idFields)));
+                batch.add(document);
+                if (batch.size() == batchSize || !iterator.hasNext()) {
+                    target.insert(batch, QueryOptions.empty());
+                    numDocuments += batch.size();
+                    batch.clear();
+                    if (numDocuments % (batchSize * 100) == 0) {
+                        logger.info("Migrated {} documents from '{}'", numDocuments, collectionName);
+                    }
+                }
+            }
+        }
+
+        long sourceCount = source.count().getNumMatches();
+        long targetCount = target.count().getNumMatches();
+        if (sourceCount != targetCount || targetCount != numDocuments) {
+            throw new StorageEngineException("Error migrating collection '" + collectionName + "'. Expected " + sourceCount
+                    + " documents, found " + targetCount);
+        }
+        if (createIndexes) {
+            VariantMongoDBAdaptor.createIndexes(new QueryOptions(), target);
+        }
+        logger.info("Copied {} documents from '{}' in {}s", numDocuments, collectionName,
+                stopWatch.getTime(TimeUnit.MILLISECONDS) / 1000.0);
+        return numDocuments;
+    }
+}
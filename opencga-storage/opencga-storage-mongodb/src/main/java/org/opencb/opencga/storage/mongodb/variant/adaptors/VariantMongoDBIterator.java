@@ -98,7 +98,7 @@ public class VariantMongoDBIterator extends VariantDBIterator {
             count++;
             return convert(() -> documentToVariantConverter.convertToDataModelType(document));
         } catch (RuntimeException e) {
-            logger.error("Error converting variant " + document.getString("_id"));
+            logger.error("Error converting variant " + document.get("_id"));
             throw e;
         }
     }
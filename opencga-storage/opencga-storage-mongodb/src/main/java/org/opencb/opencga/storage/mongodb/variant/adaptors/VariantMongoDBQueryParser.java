@@ -60,6 +60,7 @@ import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.SEAR
 import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.*;
 import static org.opencb.opencga.storage.core.variant.query.VariantQueryUtils.*;
 import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.DEFAULT_GENOTYPE;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.isCompactIds;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter.INDEX_FIELD;
 
 /**
@@ -71,6 +72,7 @@ public class VariantMongoDBQueryParser {
 
     public static final String OVERLAPPED_FILES_ONLY = "overlappedFilesOnly";
     public static final VariantStringIdConverter STRING_ID_CONVERTER = new VariantStringIdConverter();
+    public static final VariantBinaryIdConverter BINARY_ID_CONVERTER = new VariantBinaryIdConverter();
     protected static Logger logger = LoggerFactory.getLogger(VariantMongoDBQueryParser.class);
     private final VariantStorageMetadataManager metadataManager;
     //    private final CellBaseUtils cellBaseUtils;
@@ -86,18 +88,34 @@ public class VariantMongoDBQueryParser {
     }
 
     protected Document parseQuery(ParsedVariantQuery parsedVariantQuery) {
+        return parseQuery(parsedVariantQuery, null);
+    }
+
+    /**
+     * Parse the query, replacing the REGION filter with the given region, if any.
+     * Used to split multi-region queries into one query per region.
+     *
+     * @param parsedVariantQuery Query to parse
+     * @param region             Region to use instead of the REGION filter. Null to keep the query regions
+     * @return MongoDB query
+     */
+    protected Document parseQuery(ParsedVariantQuery parsedVariantQuery, Region region) {
         QueryBuilder builder = new QueryBuilder();
         if (parsedVariantQuery != null) {
             // Copy given query. It may be modified
             Query query = new Query(parsedVariantQuery.getInputQuery());
+            if (region != null) {
+                query.put(REGION.key(), region.toString());
+            }
             boolean nonGeneRegionFilter = false;
+            boolean compactIds = isCompactIds(metadataManager.getProjectMetadata());
             /* VARIANT PARAMS */
 
             if (isValidParam(query, REGION)) {
                 nonGeneRegionFilter = true;
                 List<Region> regions = Region.parseRegions(query.getString(REGION.key()), true);
                 if (!regions.isEmpty()) {
-                    getRegionFilter(regions, builder);
+                    getRegionFilter(regions, compactIds, builder);
                 }
             }
 
@@ -122,9 +140,13 @@ public class VariantMongoDBQueryParser {
 
             if (!variantQueryXref.getVariants().isEmpty()) {
                 nonGeneRegionFilter = true;
-                List<String> mongoIds = new ArrayList<>(variantQueryXref.getVariants().size());
+                List<Object> mongoIds = new ArrayList<>(variantQueryXref.getVariants().size());
                 for (Variant variant : variantQueryXref.getVariants()) {
-                    mongoIds.add(STRING_ID_CONVERTER.buildId(variant));
+                    if (compactIds) {
+                        mongoIds.add(BINARY_ID_CONVERTER.buildId(variant));
+                    } else {
+                        mongoIds.add(STRING_ID_CONVERTER.buildId(variant));
+                    }
                 }
                 if (mongoIds.size() == 1) {
                     builder.or(new QueryBuilder().and("_id").is(mongoIds.get(0)).get());
@@ -1727,7 +1749,7 @@ public class VariantMongoDBQueryParser {
         return builder;
     }
 
-    private QueryBuilder getRegionFilter(List<Region> regions, QueryBuilder builder) {
+    private QueryBuilder getRegionFilter(List<Region> regions, boolean compactIds, QueryBuilder builder) {
         if (regions != null && !regions.isEmpty()) {
             DBObject[] objects = new DBObject[regions.size()];
             int i = 0;
@@ -1746,9 +1768,19 @@ public class VariantMongoDBQueryParser {
                 if (end < Integer.MAX_VALUE) { // Avoid overflow
                     end++;
                 }
-                regionObject.put("_id", new Document()
-                        .append("$gte", VariantStringIdConverter.buildId(region.getChromosome(), region.getStart()))
-                        .append("$lt", VariantStringIdConverter.buildId(region.getChromosome(), end)));
+                if (compactIds) {
+                    regionObject.put("_id", new Document()
+                            .append("$gte", VariantBinaryIdConverter.buildId(region.getChromosome(), region.getStart()))
+                            .append("$lt", VariantBinaryIdConverter.buildId(region.getChromosome(), end)));
+                    if (VariantBinaryIdConverter.isHashedChromosome(region.getChromosome())) {
+                        // Other contigs may share the same hash
+                        regionObject.put(DocumentToVariantConverter.CHROMOSOME_FIELD, region.getChromosome());
+                    }
+                } else {
+                    regionObject.put("_id", new Document()
+                            .append("$gte", VariantStringIdConverter.buildId(region.getChromosome(), region.getStart()))
+                            .append("$lt", VariantStringIdConverter.buildId(region.getChromosome(), end)));
+                }
 
                 objects[i] = regionObject;
                 i++;
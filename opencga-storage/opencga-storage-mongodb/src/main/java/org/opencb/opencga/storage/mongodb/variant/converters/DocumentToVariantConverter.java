@@ -164,6 +164,8 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
     private DocumentToVariantAnnotationConverter variantAnnotationConverter;
     private DocumentToVariantStatsConverter statsConverter;
     private final VariantStringIdConverter idConverter = new VariantStringIdConverter();
+    // Binary ids for the compact layout. Null if the variants collection uses string ids
+    private VariantBinaryIdConverter binaryIdConverter;
 
     // Add default variant ID if it is missing. Use CHR:POS:REF:ALT
     private boolean addDefaultId;
@@ -436,12 +438,33 @@ public class DocumentToVariantConverter extends AbstractDocumentConverter implem
         return mongoVariant;
     }
 
-    public String buildStorageId(Variant v) {
+    /**
+     * Use fixed width binary ids, as described in {@link VariantBinaryIdConverter}.
+     *
+     * @param compactIds If the variants collection uses binary ids
+     * @return this
+     */
+    public DocumentToVariantConverter setCompactIds(boolean compactIds) {
+        binaryIdConverter = compactIds ? new VariantBinaryIdConverter() : null;
+        return this;
+    }
+
+    public boolean isCompactIds() {
+        return binaryIdConverter != null;
+    }
+
+    public Object buildStorageId(Variant v) {
+        if (binaryIdConverter != null) {
+            return binaryIdConverter.buildId(v);
+        }
         return idConverter.buildId(v);
 //        return buildStorageId(v.getChromosome(), v.getStart(), v.getReference(), v.getAlternate());
     }
 
-    public String buildStorageId(String chromosome, int start, String reference, String alternate) {
+    public Object buildStorageId(String chromosome, int start, String reference, String alternate) {
+        if (binaryIdConverter != null) {
+            return binaryIdConverter.buildId(chromosome, start, reference, alternate);
+        }
         return idConverter.buildId(chromosome, start, reference, alternate);
 //
 //        StringBuilder builder = new StringBuilder(chromosome);
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.bson.types.Binary;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.biodata.models.variant.avro.StructuralVariation;
+import org.opencb.commons.utils.CryptoUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Creates a fixed width binary key for MongoDB, sorted by chromosome and position.
+ *
+ * Format (16 bytes):
+ * CHR POS ALLELES
+ *
+ * Where CHR (2 bytes) is a code for the chromosomes 1-22, X, Y and MT (with or without the "chr" prefix), or a hash of the
+ * chromosome name with the highest bit set for any other contig.
+ * Where POS (4 bytes) is the start position, big endian.
+ * Where ALLELES (10 bytes) is REF:ALT padded with zeros, if it fits. Otherwise, 0xFF followed by the first 9 bytes of the
+ * SHA1 of the {@link VariantStringIdConverter} id. Variants from hashed contigs always use the SHA1, so two contigs with the
+ * same hash never produce the same id.
+ *
+ * All ids have the same length, so MongoDB compares them byte by byte, and the range of ids of a region goes from
+ * {@link #buildId(String, int)} at the start, to {@link #buildId(String, int)} at the end + 1.
+ * Ranges of hashed contigs may contain variants from other contigs, so queries should also filter by chromosome.
+ */
+public class VariantBinaryIdConverter {
+
+    public static final int ID_LENGTH = 16;
+    private static final int ALLELES_LENGTH = 10;
+    private static final byte HASHED_ALLELES = (byte) 0xFF;
+    private static final int HASHED_CHROMOSOME = 0x8000;
+    private static final int CHR_PREFIX = 0x100;
+    private static final Map<String, Integer> CHROMOSOME_CODES;
+
+    static {
+        Map<String, Integer> codes = new HashMap<>();
+        for (int i = 1; i <= 22; i++) {
+            codes.put(String.valueOf(i), i);
+        }
+        codes.put("X", 23);
+        codes.put("Y", 24);
+        codes.put("MT", 25);
+        for (Map.Entry<String, Integer> entry : new HashMap<>(codes).entrySet()) {
+            codes.put("chr" + entry.getKey(), CHR_PREFIX + entry.getValue());
+        }
+        CHROMOSOME_CODES = Collections.unmodifiableMap(codes);
+    }
+
+    private final VariantStringIdConverter stringIdConverter = new VariantStringIdConverter();
+
+    public Binary buildId(Variant variant) {
+        return buildId(variant.getChromosome(), variant.getStart(), variant.getReference(), variant.getAlternate(), variant.getSv(),
+                () -> stringIdConverter.buildId(variant));
+    }
+
+    public Binary buildId(String chromosome, int start, String reference, String alternate) {
+        return buildId(chromosome, start, reference, alternate, null,
+                () -> stringIdConverter.buildId(chromosome, start, reference, alternate));
+    }
+
+    private Binary buildId(String chromosome, int start, String reference, String alternate, StructuralVariation sv,
+                           Supplier<String> stringId) {
+        int chromosomeCode = getChromosomeCode(chromosome);
+        ByteBuffer buffer = ByteBuffer.allocate(ID_LENGTH);
+        buffer.putShort((short) chromosomeCode);
+        buffer.putInt(start);
+
+        byte[] alleles = null;
+        if (chromosomeCode < HASHED_CHROMOSOME && !stringIdConverter.validSV(sv)) {
+            alleles = inlineAlleles(reference, alternate);
+        }
+        if (alleles == null) {
+            buffer.put(HASHED_ALLELES);
+            buffer.put(CryptoUtils.encryptSha1(stringId.get()), 0, ALLELES_LENGTH - 1);
+        } else {
+            buffer.put(alleles);
+        }
+        return new Binary(buffer.array());
+    }
+
+    /**
+     * Build the lowest id for the given position.
+     *
+     * @param chromosome Chromosome
+     * @param start      Position
+     * @return Lowest id at this position
+     */
+    public static Binary buildId(String chromosome, int start) {
+        ByteBuffer buffer = ByteBuffer.allocate(ID_LENGTH);
+        buffer.putShort((short) getChromosomeCode(chromosome));
+        buffer.putInt(start);
+        return new Binary(buffer.array());
+    }
+
+    public static int getChromosomeCode(String chromosome) {
+        Integer code = CHROMOSOME_CODES.get(chromosome);
+        if (code == null) {
+            return HASHED_CHROMOSOME | (chromosome.hashCode() & (HASHED_CHROMOSOME - 1));
+        } else {
+            return code;
+        }
+    }
+
+    public static boolean isHashedChromosome(String chromosome) {
+        return !CHROMOSOME_CODES.containsKey(chromosome);
+    }
+
+    private static byte[] inlineAlleles(String reference, String alternate) {
+        String alleles = (reference.equals("-") ? "" : reference) + VariantStringIdConverter.SEPARATOR_CHAR
+                + (alternate.equals("-") ? "" : alternate);
+        if (alleles.length() > ALLELES_LENGTH) {
+            return null;
+        }
+        for (int i = 0; i < alleles.length(); i++) {
+            char c = alleles.charAt(i);
+            if (c <= ' ' || c >= 0x7F) {
+                return null;
+            }
+        }
+        byte[] bytes = new byte[ALLELES_LENGTH];
+        byte[] allelesBytes = alleles.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(allelesBytes, 0, bytes, 0, allelesBytes.length);
+        return bytes;
+    }
+}
@@ -193,7 +193,7 @@ public class VariantStringIdConverter {
      * @param sv StructuralVariation object
      * @return true if it should be serialized
      */
-    private boolean validSV(StructuralVariation sv) {
+    protected boolean validSV(StructuralVariation sv) {
         if (sv == null) {
             return false;
         } else {
@@ -16,6 +16,7 @@
 
 package org.opencb.opencga.storage.mongodb.variant.load;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -47,6 +48,9 @@ import java.util.Set;
  */
 public class MongoDBVariantWriteResult {
 
+    /** Upper bound, in milliseconds, of each bucket of the bulk write latency histogram. The last bucket is unbounded. */
+    public static final long[] BULK_WRITE_LATENCY_BUCKETS = {10, 50, 100, 250, 500, 1000, 2500, 5000, 10000, Long.MAX_VALUE};
+
     /** Number of new variants inserted in the Database. Variants never seen in any other study */
     private long newVariants;
 //    /** Number of new variants for this study. Variants already seen in other studies, but first time in the current study*/
@@ -76,6 +80,13 @@ public class MongoDBVariantWriteResult {
     /** List of Genotypes seen in all loaded variants. */
     private Set<String> genotypes;
 
+    /** Number of bulk writes for each bucket of {@link #BULK_WRITE_LATENCY_BUCKETS}. */
+    private long[] bulkWriteLatencyHistogram = new long[BULK_WRITE_LATENCY_BUCKETS.length];
+    /** Max latency of a single bulk write, in milliseconds. */
+    private long maxBulkWriteLatencyMillis;
+    /** Number of bulk writes that failed to satisfy the write concern in time, followed by a backoff. */
+    private long writeConcernErrors;
+
     public MongoDBVariantWriteResult() {
         genotypes = new HashSet<>();
     }
@@ -120,6 +131,29 @@ public class MongoDBVariantWriteResult {
             existingVariantsNanoTime += other.existingVariantsNanoTime;
             fillGapsNanoTime += other.fillGapsNanoTime;
             genotypes.addAll(other.genotypes);
+            for (int i = 0; i < bulkWriteLatencyHistogram.length; i++) {
+                bulkWriteLatencyHistogram[i] += other.bulkWriteLatencyHistogram[i];
+            }
+            maxBulkWriteLatencyMillis = Math.max(maxBulkWriteLatencyMillis, other.maxBulkWriteLatencyMillis);
+            writeConcernErrors += other.writeConcernErrors;
+        }
+    }
+
+    /**
+     * Register the latency of one bulk write.
+     *
+     * @param latencyMillis     Latency of the bulk write, in milliseconds
+     * @param writeConcernError If the bulk write failed to satisfy the write concern
+     */
+    public void addBulkWriteLatency(long latencyMillis, boolean writeConcernError) {
+        int bucket = 0;
+        while (latencyMillis > BULK_WRITE_LATENCY_BUCKETS[bucket]) {
+            bucket++;
+        }
+        bulkWriteLatencyHistogram[bucket]++;
+        maxBulkWriteLatencyMillis = Math.max(maxBulkWriteLatencyMillis, latencyMillis);
+        if (writeConcernError) {
+            writeConcernErrors++;
         }
     }
 
@@ -213,6 +247,23 @@ public class MongoDBVariantWriteResult {
         return this;
     }
 
+    public long[] getBulkWriteLatencyHistogram() {
+        return bulkWriteLatencyHistogram;
+    }
+
+    public long getBulkWrites() {
+        return Arrays.stream(bulkWriteLatencyHistogram).sum();
+    }
+
+    public long getMaxBulkWriteLatencyMillis() {
+        return maxBulkWriteLatencyMillis;
+    }
+
+    public long getWriteConcernErrors() {
+        return writeConcernErrors;
+    }
+
+    // Bulk write latencies are not deterministic, so they are not part of the equals
     @Override
     public boolean equals(Object o) {
         if (this == o) {
@@ -261,6 +312,9 @@ public class MongoDBVariantWriteResult {
                 + ", newVariantsTime=" + newVariantsNanoTime / 1000000000.0 + "s"
                 + ", existingVariantsTime=" + existingVariantsNanoTime / 1000000000.0 + "s"
                 + ", fillGapsTime=" + fillGapsNanoTime / 1000000000.0 + "s"
+                + ", bulkWriteLatencyHistogram=" + Arrays.toString(bulkWriteLatencyHistogram)
+                + ", maxBulkWriteLatency=" + maxBulkWriteLatencyMillis + "ms"
+                + ", writeConcernErrors=" + writeConcernErrors
                 + '}';
     }
 
@@ -275,7 +329,10 @@ public class MongoDBVariantWriteResult {
                 + "\tnonInsertedVariants:" + nonInsertedVariants + ",\n"
                 + "\tnewVariantsTime:" + newVariantsNanoTime / 1000000000.0 + ",\n"
                 + "\texistingVariantsTime:" + existingVariantsNanoTime / 1000000000.0 + ",\n"
-                + "\tfillGapsTime:" + fillGapsNanoTime / 1000000000.0 + "\n"
+                + "\tfillGapsTime:" + fillGapsNanoTime / 1000000000.0 + ",\n"
+                + "\tbulkWriteLatencyHistogram:" + Arrays.toString(bulkWriteLatencyHistogram) + ",\n"
+                + "\tmaxBulkWriteLatency:" + maxBulkWriteLatencyMillis / 1000.0 + ",\n"
+                + "\twriteConcernErrors:" + writeConcernErrors + "\n"
                 + '}';
     }
 
@@ -35,6 +35,7 @@ import org.opencb.opencga.storage.core.exceptions.StorageEngineException;
 import org.opencb.opencga.storage.core.metadata.StudyConfiguration;
 import org.opencb.opencga.storage.core.variant.io.VariantImporter;
 import org.opencb.opencga.storage.core.variant.io.avro.VariantAvroReader;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
 import org.opencb.opencga.storage.mongodb.variant.adaptors.VariantMongoDBAdaptor;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToSamplesConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
@@ -57,9 +58,11 @@ import java.util.stream.Collectors;
 public class MongoVariantImporter extends VariantImporter {
 
     private final MongoDBCollection variantsCollection;
+    private final VariantMongoDBAdaptor dbAdaptor;
 
     public MongoVariantImporter(VariantMongoDBAdaptor dbAdaptor) {
         super(dbAdaptor);
+        this.dbAdaptor = dbAdaptor;
         this.variantsCollection = dbAdaptor.getVariantsCollection();
     }
 
@@ -80,7 +83,8 @@ public class MongoVariantImporter extends VariantImporter {
 
         ProgressLogger progressLogger = new ProgressLogger("Loaded variants");
         ParallelTaskRunner.Task<Variant, Document> converterTask =
-                new VariantToDocumentConverter(studyConfigurations, metadata, progressLogger);
+                new VariantToDocumentConverter(studyConfigurations, metadata, progressLogger,
+                        MongoDBVariantStorageOptions.isCompactIds(dbAdaptor.getMetadataManager().getProjectMetadata()));
 
         DataWriter<Document> writer = new MongoDBVariantDocumentDBWriter(variantsCollection);
 
@@ -105,11 +109,12 @@ public class MongoVariantImporter extends VariantImporter {
         private final Map<String, String> fileIdRemap;
         private ProgressLogger progressLogger;
 
-        VariantToDocumentConverter(List<StudyConfiguration> studies, VariantMetadata metadata, ProgressLogger progressLogger) {
+        VariantToDocumentConverter(List<StudyConfiguration> studies, VariantMetadata metadata, ProgressLogger progressLogger,
+                                   boolean compactIds) {
             DocumentToSamplesConverter samplesConverter = new DocumentToSamplesConverter(studies);
             DocumentToStudyVariantEntryConverter studyConverter = new DocumentToStudyVariantEntryConverter(false, samplesConverter);
             DocumentToVariantStatsConverter statsConverter = new DocumentToVariantStatsConverter();
-            variantConverter = new DocumentToVariantConverter(studyConverter, statsConverter);
+            variantConverter = new DocumentToVariantConverter(studyConverter, statsConverter).setCompactIds(compactIds);
             this.studiesIdRemap = new HashMap<>();
             this.fileIdRemap = new HashMap<>();
             VariantMetadataManager metadataManager = new VariantMetadataManager().setVariantMetadata(metadata);
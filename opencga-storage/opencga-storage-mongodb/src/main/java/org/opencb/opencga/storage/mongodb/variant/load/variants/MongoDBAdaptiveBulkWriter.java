@@ -0,0 +1,346 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.load.variants;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClient;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.DocumentCodec;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+import org.opencb.opencga.storage.mongodb.variant.load.MongoDBVariantWriteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Executes the bulk writes of the {@link MongoDBVariantMergeLoader}, split into batches limited by their size in bytes.
+ *
+ * The size limit adapts to the latency of the previous writes: it grows while the writes are faster than the target
+ * latency, and is halved when they are much slower. Up to maxInFlight batches are written concurrently. The limit is
+ * shared by all the threads using the same instance.
+ * Write concern errors (e.g. wtimeout) do not undo the write on the primary, so the batch is not retried. Instead, the
+ * size limit is halved and the next writes are delayed with an exponential backoff.
+ *
+ * Operations are split in batches, but never reordered within a batch, and all the batches of one call are completed
+ * before returning, so operations from different calls are never reordered. Batches of one call are only written
+ * concurrently if each operation targets a different _id. Otherwise, they are written sequentially, in order.
+ * Latencies of each batch are registered in the {@link MongoDBVariantWriteResult}.
+ */
+public class MongoDBAdaptiveBulkWriter implements AutoCloseable {
+
+    static final int MIN_BATCH_BYTES = 64 * 1024;
+    // Max number of operations encoded to estimate the average size of the operations
+    private static final int SAMPLE_SIZE = 16;
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 30000;
+
+    private final Logger logger = LoggerFactory.getLogger(MongoDBAdaptiveBulkWriter.class);
+    private final int maxBatchBytes;
+    private final long targetLatencyMillis;
+    private final ExecutorService executor;
+    private final AtomicInteger batchBytes;
+    private final AtomicLong backoffMillis = new AtomicLong();
+    private final AtomicLong backoffUntil = new AtomicLong();
+
+    /**
+     * Create an adaptive bulk writer.
+     *
+     * @param maxBatchBytes       Max size of each bulk write, in bytes
+     * @param targetLatencyMillis Expected latency of each bulk write
+     * @param maxInFlight         Max number of concurrent bulk writes, shared by all the callers. 1 to write each batch from
+     *                            the caller thread
+     */
+    public MongoDBAdaptiveBulkWriter(int maxBatchBytes, long targetLatencyMillis, int maxInFlight) {
+        this.maxBatchBytes = Math.max(MIN_BATCH_BYTES, maxBatchBytes);
+        this.targetLatencyMillis = targetLatencyMillis;
+        batchBytes = new AtomicInteger(Math.max(MIN_BATCH_BYTES, this.maxBatchBytes / 4));
+        if (maxInFlight > 1) {
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(maxInFlight, r -> {
+                Thread thread = new Thread(r, "variant-mongodb-bulk-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Execute a list of updates.
+     *
+     * @param collection Collection to update
+     * @param ids        _id of the document modified by each query
+     * @param queries    Queries
+     * @param updates    Update for each query
+     * @param options    Update options
+     * @param stats      Where to register the latency of each batch
+     * @return Aggregated result of all the batches
+     * @throws MongoBulkWriteException with the indexes of all the failed operations, relative to the input lists
+     */
+    public DataResult update(MongoDBCollection collection, List<?> ids, List<Bson> queries, List<Bson> updates,
+                             QueryOptions options, MongoDBVariantWriteResult stats) {
+        List<int[]> ranges = split(queries.size(), queries::get, updates::get);
+        return execute(ranges, isUnique(ids), range -> collection.update(queries.subList(range[0], range[1]),
+                updates.subList(range[0], range[1]), options), stats);
+    }
+
+    /**
+     * Insert a list of documents.
+     *
+     * @param collection Collection to insert into
+     * @param documents  Documents to insert
+     * @param options    Insert options
+     * @param stats      Where to register the latency of each batch
+     * @return Aggregated result of all the batches
+     * @throws MongoBulkWriteException with the indexes of all the failed operations, relative to the input list
+     */
+    public DataResult insert(MongoDBCollection collection, List<Document> documents, QueryOptions options,
+                             MongoDBVariantWriteResult stats) {
+        List<int[]> ranges = split(documents.size(), documents::get, null);
+        List<Object> ids = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            ids.add(document.get("_id"));
+        }
+        return execute(ranges, isUnique(ids), range -> collection.insert(documents.subList(range[0], range[1]), options), stats);
+    }
+
+    public int getBatchBytes() {
+        return batchBytes.get();
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Split the operations into ranges of at most {@link #batchBytes}, using the average size of a sample of operations.
+     */
+    private List<int[]> split(int size, Function<Integer, Object> first, Function<Integer, Object> second) {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        long sampleBytes = 0;
+        int sampleSize = Math.min(SAMPLE_SIZE, size);
+        for (int i = 0; i < sampleSize; i++) {
+            int idx = (int) ((long) i * size / sampleSize);
+            sampleBytes += sizeOf(first.apply(idx));
+            if (second != null) {
+                sampleBytes += sizeOf(second.apply(idx));
+            }
+        }
+        long avgBytes = Math.max(1, sampleBytes / sampleSize);
+        int opsPerBatch = (int) Math.max(1, batchBytes.get() / avgBytes);
+
+        List<int[]> ranges = new ArrayList<>(size / opsPerBatch + 1);
+        for (int start = 0; start < size; start += opsPerBatch) {
+            ranges.add(new int[]{start, Math.min(size, start + opsPerBatch)});
+        }
+        return ranges;
+    }
+
+    /**
+     * Concurrent batches could apply two operations over the same _id in any order.
+     */
+    private static boolean isUnique(List<?> ids) {
+        return ids == null || new HashSet<>(ids).size() == ids.size();
+    }
+
+    private DataResult execute(List<int[]> ranges, boolean concurrent, Function<int[], DataResult> write,
+                               MongoDBVariantWriteResult stats) {
+        List<Future<DataResult>> futures = new ArrayList<>(ranges.size());
+        for (int[] range : ranges) {
+            awaitBackoff();
+            if (executor == null || !concurrent) {
+                CompletableFuture<DataResult> future = new CompletableFuture<>();
+                try {
+                    future.complete(writeBatch(range, write, stats));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+                futures.add(future);
+            } else {
+                futures.add(executor.submit(() -> writeBatch(range, write, stats)));
+            }
+        }
+
+        long numMatches = 0;
+        long numUpdated = 0;
+        long numInserted = 0;
+        List<MongoBulkWriteException> errors = new ArrayList<>();
+        List<Integer> errorOffsets = new ArrayList<>();
+        RuntimeException otherError = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                DataResult batchResult = futures.get(i).get();
+                numMatches += batchResult.getNumMatches();
+                numUpdated += batchResult.getNumUpdated();
+                numInserted += batchResult.getNumInserted();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                // Wait for all the batches before throwing any exception
+                if (e.getCause() instanceof MongoBulkWriteException) {
+                    errors.add((MongoBulkWriteException) e.getCause());
+                    errorOffsets.add(ranges.get(i)[0]);
+                } else if (otherError == null) {
+                    otherError = e.getCause() instanceof RuntimeException
+                            ? (RuntimeException) e.getCause()
+                            : new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        if (otherError != null) {
+            throw otherError;
+        }
+        if (!errors.isEmpty()) {
+            throw mergeErrors(errors, errorOffsets, numMatches, numUpdated, numInserted);
+        }
+        DataResult result = new DataResult<>();
+        result.setNumMatches(numMatches);
+        result.setNumUpdated(numUpdated);
+        result.setNumInserted(numInserted);
+        return result;
+    }
+
+    private DataResult writeBatch(int[] range, Function<int[], DataResult> write, MongoDBVariantWriteResult stats) {
+        long start = System.nanoTime();
+        DataResult result;
+        boolean writeConcernError = false;
+        try {
+            result = write.apply(range);
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteConcernError() == null || !e.getWriteErrors().isEmpty()) {
+                throw e;
+            }
+            // The write was applied, but not replicated in time. Do not retry, but slow down.
+            logger.warn("Write concern error writing {} operations: {}", range[1] - range[0], e.getWriteConcernError().getMessage());
+            writeConcernError = true;
+            result = toDataResult(e.getWriteResult());
+        }
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        synchronized (stats) {
+            stats.addBulkWriteLatency(latencyMillis, writeConcernError);
+        }
+        adapt(latencyMillis, writeConcernError);
+        return result;
+    }
+
+    private void adapt(long latencyMillis, boolean writeConcernError) {
+        if (writeConcernError) {
+            batchBytes.updateAndGet(b -> Math.max(MIN_BATCH_BYTES, b / 2));
+            long backoff = backoffMillis.updateAndGet(b -> Math.min(MAX_BACKOFF_MILLIS, Math.max(MIN_BACKOFF_MILLIS, b * 2)));
+            backoffUntil.accumulateAndGet(System.currentTimeMillis() + backoff, Math::max);
+        } else if (latencyMillis > targetLatencyMillis * 2) {
+            batchBytes.updateAndGet(b -> Math.max(MIN_BATCH_BYTES, b / 2));
+        } else if (latencyMillis < targetLatencyMillis) {
+            batchBytes.updateAndGet(b -> Math.min(maxBatchBytes, b + b / 4));
+            backoffMillis.set(0);
+        }
+    }
+
+    private void awaitBackoff() {
+        long wait = backoffUntil.get() - System.currentTimeMillis();
+        if (wait > 0) {
+            logger.info("Backoff {}ms before next bulk write", wait);
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static DataResult toDataResult(BulkWriteResult writeResult) {
+        DataResult result = new DataResult<>();
+        if (writeResult.wasAcknowledged()) {
+            result.setNumMatches(writeResult.getMatchedCount());
+            result.setNumUpdated(writeResult.getModifiedCount());
+            result.setNumInserted(writeResult.getInsertedCount() + writeResult.getUpserts().size());
+        }
+        return result;
+    }
+
+    /**
+     * Merge the errors of each batch into one single exception, with the indexes relative to the whole list of operations.
+     */
+    private static MongoBulkWriteException mergeErrors(List<MongoBulkWriteException> exceptions, List<Integer> offsets,
+                                                       long numMatches, long numUpdated, long numInserted) {
+        if (exceptions.size() == 1 && offsets.get(0) == 0 && numMatches == 0 && numUpdated == 0 && numInserted == 0) {
+            return exceptions.get(0);
+        }
+        List<BulkWriteError> writeErrors = new ArrayList<>();
+        List<BulkWriteUpsert> upserts = new ArrayList<>();
+        int insertedCount = (int) numInserted;
+        int matchedCount = (int) numMatches;
+        int modifiedCount = (int) numUpdated;
+        ServerAddress serverAddress = exceptions.get(0).getServerAddress();
+        for (int i = 0; i < exceptions.size(); i++) {
+            MongoBulkWriteException e = exceptions.get(i);
+            int offset = offsets.get(i);
+            for (BulkWriteError error : e.getWriteErrors()) {
+                writeErrors.add(new BulkWriteError(error.getCode(), error.getMessage(), error.getDetails(), error.getIndex() + offset));
+            }
+            BulkWriteResult writeResult = e.getWriteResult();
+            if (writeResult.wasAcknowledged()) {
+                for (BulkWriteUpsert upsert : writeResult.getUpserts()) {
+                    upserts.add(new BulkWriteUpsert(upsert.getIndex() + offset, upsert.getId()));
+                }
+                insertedCount += writeResult.getInsertedCount();
+                matchedCount += writeResult.getMatchedCount();
+                modifiedCount += writeResult.getModifiedCount();
+            }
+        }
+        // Upserts from the successful batches are only available as a count. Add them to the insertedCount.
+        return new MongoBulkWriteException(BulkWriteResult.acknowledged(insertedCount, matchedCount, 0, modifiedCount, upserts),
+                writeErrors, null, serverAddress);
+    }
+
+    private static long sizeOf(Object operation) {
+        if (operation instanceof Document) {
+            return new RawBsonDocument((Document) operation, new DocumentCodec()).getByteBuffer().remaining();
+        } else if (operation instanceof Bson) {
+            BsonDocument document = ((Bson) operation).toBsonDocument(BsonDocument.class, MongoClient.getDefaultCodecRegistry());
+            return new RawBsonDocument(document, new BsonDocumentCodec()).getByteBuffer().remaining();
+        } else {
+            return 0;
+        }
+    }
+}
@@ -127,14 +127,14 @@ public class MongoDBOperations {
 
     // Document may exist, study does not exist
     public class NewStudy {
-        private final List<String> ids = new LinkedList<>();
+        private final List<Object> ids = new LinkedList<>();
         private final List<Bson> queries = new LinkedList<>();
         private final List<Bson> updates = new LinkedList<>();
         // Used if the document does not exist
         // This collection may be smaller than the previous collections
         private final List<Document> variants = new LinkedList<>();
 
-        public List<String> getIds() {
+        public List<Object> getIds() {
             return ids;
         }
 
@@ -153,11 +153,11 @@ public class MongoDBOperations {
 
     // Document and study exist
     public class ExistingStudy {
-        private final List<String> ids = new LinkedList<>();
+        private final List<Object> ids = new LinkedList<>();
         private final List<Bson> queries = new LinkedList<>();
         private final List<Bson> updates = new LinkedList<>();
 
-        public List<String> getIds() {
+        public List<Object> getIds() {
             return ids;
         }
 
@@ -39,6 +39,8 @@ import java.util.*;
 import static com.mongodb.client.model.Filters.*;
 import static com.mongodb.client.model.Updates.*;
 import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.LOADED_GENOTYPES;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.MERGE_BULK_MAX_BYTES;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.MERGE_BULK_TARGET_LATENCY;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter.FILEID_FIELD;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter.FILES_FIELD;
 import static org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter.STUDIES_FIELD;
@@ -74,6 +76,7 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
     private final ProgressLogger progressLogger;
     private final MongoDBCollection variantsCollection;
     private final MongoDBCollection stageCollection;
+    private final MongoDBAdaptiveBulkWriter bulkWriter;
     private final boolean resume;
     private final boolean cleanWhileLoading;
     private final Integer studyId;
@@ -88,7 +91,16 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
     public MongoDBVariantMergeLoader(MongoDBCollection variantsCollection, MongoDBCollection stageCollection,
                                      MongoDBCollection studiesCollection, StudyMetadata studyMetadata, List<Integer> fileIds,
                                      boolean resume, boolean cleanWhileLoading, ProgressLogger progressLogger) {
+        this(variantsCollection, stageCollection, studiesCollection, studyMetadata, fileIds, resume, cleanWhileLoading, progressLogger,
+                new MongoDBAdaptiveBulkWriter(MERGE_BULK_MAX_BYTES.defaultValue(), MERGE_BULK_TARGET_LATENCY.<Integer>defaultValue(), 1));
+    }
+
+    public MongoDBVariantMergeLoader(MongoDBCollection variantsCollection, MongoDBCollection stageCollection,
+                                     MongoDBCollection studiesCollection, StudyMetadata studyMetadata, List<Integer> fileIds,
+                                     boolean resume, boolean cleanWhileLoading, ProgressLogger progressLogger,
+                                     MongoDBAdaptiveBulkWriter bulkWriter) {
         this.progressLogger = progressLogger;
+        this.bulkWriter = bulkWriter;
         this.variantsCollection = variantsCollection;
         this.stageCollection = stageCollection;
         this.studiesCollection = studiesCollection;
@@ -139,16 +151,18 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
      */
     protected MongoDBVariantWriteResult executeMongoDBOperations(MongoDBOperations mongoDBOps) {
         long newVariantsTime = 0; // Impossible to know how much time spend in insert or update in operation "UPSERT"
+        MongoDBVariantWriteResult bulkWriteStats = new MongoDBVariantWriteResult();
         StopWatch existingVariants = StopWatch.createStarted();
         long newVariants = 0;
         if (!mongoDBOps.getNewStudy().getQueries().isEmpty()) {
-            newVariants = executeMongoDBOperationsNewStudy(mongoDBOps, true);
+            newVariants = executeMongoDBOperationsNewStudy(mongoDBOps, true, bulkWriteStats);
         }
         existingVariants.stop();
         StopWatch fillGapsVariants = StopWatch.createStarted();
         if (!mongoDBOps.getExistingStudy().getQueries().isEmpty()) {
-            DataResult update = variantsCollection.update(mongoDBOps.getExistingStudy().getQueries(),
-                    mongoDBOps.getExistingStudy().getUpdates(), QUERY_OPTIONS);
+            DataResult update = bulkWriter.update(variantsCollection, mongoDBOps.getExistingStudy().getIds(),
+                    mongoDBOps.getExistingStudy().getQueries(), mongoDBOps.getExistingStudy().getUpdates(), QUERY_OPTIONS,
+                    bulkWriteStats);
             if (update.getNumMatches() != mongoDBOps.getExistingStudy().getQueries().size()) {
                 onUpdateError("fill gaps", update, mongoDBOps.getExistingStudy().getQueries(), mongoDBOps.getExistingStudy().getIds());
             }
@@ -163,6 +177,7 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                 updatesNewStudyExistingVariant + updatesWithDataExistingStudy, mongoDBOps.getMissingVariants(),
                 mongoDBOps.getOverlappedVariants(), mongoDBOps.getSkipped(), mongoDBOps.getNonInserted(), newVariantsTime,
                 existingVariants.getNanoTime(), fillGapsVariants.getNanoTime(), mongoDBOps.getGenotypes());
+        writeResult.merge(bulkWriteStats);
 
         boolean updateGenotypes;
         synchronized (result) {
@@ -227,7 +242,7 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         return modifiedCount;
     }
 
-    private int executeMongoDBOperationsNewStudy(MongoDBOperations mongoDBOps, boolean retry) {
+    private int executeMongoDBOperationsNewStudy(MongoDBOperations mongoDBOps, boolean retry, MongoDBVariantWriteResult bulkWriteStats) {
         int newVariants = 0;
         MongoDBOperations.NewStudy newStudy = mongoDBOps.getNewStudy();
         try {
@@ -236,7 +251,7 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                 try {
                     if (!newStudy.getVariants().isEmpty()) {
                         newVariants += newStudy.getVariants().size();
-                        variantsCollection.insert(newStudy.getVariants(), QUERY_OPTIONS);
+                        bulkWriter.insert(variantsCollection, newStudy.getVariants(), QUERY_OPTIONS, bulkWriteStats);
                     }
                 } catch (MongoBulkWriteException e) {
                     for (BulkWriteError writeError : e.getWriteErrors()) {
@@ -255,13 +270,15 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                     queriesExisting.add(and(bson, nin(STUDIES_FIELD + "." + FILES_FIELD + "." + FILEID_FIELD, fileIds)));
                 }
                 // Update those existing variants
-                DataResult update = variantsCollection.update(queriesExisting, newStudy.getUpdates(), QUERY_OPTIONS);
+                DataResult update = bulkWriter.update(variantsCollection, newStudy.getIds(), queriesExisting, newStudy.getUpdates(),
+                        QUERY_OPTIONS, bulkWriteStats);
                 //                if (update.first().getModifiedCount() != mongoDBOps.queriesExisting.size()) {
                 //                    // FIXME: Don't know if there is some error inserting. Query already existing?
                 //                    onUpdateError("existing variants", update, mongoDBOps.queriesExisting, mongoDBOps.queriesExistingId);
                 //                }
             } else {
-                DataResult update = variantsCollection.update(newStudy.getQueries(), newStudy.getUpdates(), UPSERT);
+                DataResult update = bulkWriter.update(variantsCollection, newStudy.getIds(), newStudy.getQueries(),
+                        newStudy.getUpdates(), UPSERT, bulkWriteStats);
 //                if (update.getNumUpdated() + update.first().getUpserts().size() != newStudy.getQueries().size()) {
                 if (update.getNumUpdated() + update.getNumInserted() != newStudy.getQueries().size()) {
                     onUpdateError("existing variants", update, newStudy.getQueries(), newStudy.getIds());
@@ -271,12 +288,12 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                 newVariants += update.getNumInserted();
             }
         } catch (MongoBulkWriteException e) {
-            // Add upserted documents
-            newVariants += e.getWriteResult().getUpserts().size();
-            Set<String> duplicatedNonInsertedId = new HashSet<>();
+            // Add upserted documents. Upserts from other successful bulk writes are only available in the insertedCount
+            newVariants += e.getWriteResult().getUpserts().size() + e.getWriteResult().getInsertedCount();
+            Set<Object> duplicatedNonInsertedId = new HashSet<>();
             for (BulkWriteError writeError : e.getWriteErrors()) {
                 if (ErrorCategory.fromErrorCode(writeError.getCode()).equals(ErrorCategory.DUPLICATE_KEY)) {
-                    String id = newStudy.getIds().get(writeError.getIndex());
+                    Object id = newStudy.getIds().get(writeError.getIndex());
                     duplicatedNonInsertedId.add(id);
                     logger.warn("Catch error : {}. DupKey exception inserting '{}'. Retry!",
                             writeError.toString(), id);
@@ -291,11 +308,11 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                 // Assume unordered bulk
                 // Remove inserted variants
                 logger.warn("Retry! " + e);
-                Iterator<String> iteratorId = newStudy.getIds().iterator();
+                Iterator<Object> iteratorId = newStudy.getIds().iterator();
                 Iterator<?> iteratorQuery = newStudy.getQueries().iterator();
                 Iterator<?> iteratorUpdate = newStudy.getUpdates().iterator();
                 while (iteratorId.hasNext()) {
-                    String id = iteratorId.next();
+                    Object id = iteratorId.next();
                     iteratorQuery.next();
                     iteratorUpdate.next();
                     if (!duplicatedNonInsertedId.contains(id)) {
@@ -304,7 +321,7 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
                         iteratorUpdate.remove();
                     }
                 }
-                newVariants += executeMongoDBOperationsNewStudy(mongoDBOps, false);
+                newVariants += executeMongoDBOperationsNewStudy(mongoDBOps, false, bulkWriteStats);
             } else {
                 throw e;
             }
@@ -312,11 +329,11 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         return newVariants;
     }
 
-    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<String> queryIds) {
+    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<?> queryIds) {
         onUpdateError(updateName, update, queries, queryIds, variantsCollection);
     }
 
-    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<String> queryIds,
+    protected void onUpdateError(String updateName, DataResult update, List<Bson> queries, List<?> queryIds,
                                  MongoDBCollection collection) {
         logger.error("(Updated " + updateName + " variants = " + queries.size() + " ) != "
                 + "(ModifiedCount = " + update.getNumUpdated() + "). MatchedCount:" + update.getNumMatches());
@@ -327,13 +344,13 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         for (DataResult<Document> r : queryResults) {
             logger.info("result: '{}'", r);
             if (!r.getResults().isEmpty()) {
-                String id = r.first().get("_id", String.class);
+                Object id = r.first().get("_id");
                 boolean remove = queryIds.remove(id);
                 logger.info("remove({}): {}", id, remove);
             }
         }
         StringBuilder sb = new StringBuilder("Missing Variant for update : ");
-        for (String id : queryIds) {
+        for (Object id : queryIds) {
             logger.error("Missing Variant '" + id + '\'');
             sb.append('\'').append(id).append("', ");
         }
@@ -352,6 +369,12 @@ public class MongoDBVariantMergeLoader implements DataWriter<MongoDBOperations>
         VariantMongoDBAdaptor.createIndexes(new QueryOptions(), variantsCollection);
         return true;
     }
+
+    @Override
+    public boolean close() {
+        bulkWriter.close();
+        return true;
+    }
 //    protected void onInsertError(MongoDBOperations mongoDBOps, BulkWriteResult writeResult) {
 //        logger.error("(Inserts = " + mongoDBOps.inserts.size() + ") "
 //                + "!= (InsertedCount = " + writeResult.getInsertedCount() + ")");
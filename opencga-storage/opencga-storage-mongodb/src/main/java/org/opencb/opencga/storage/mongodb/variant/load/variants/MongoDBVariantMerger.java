@@ -41,10 +41,12 @@ import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptor;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantField;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStoragePipeline;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToSamplesConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToStudyVariantEntryConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.DocumentToVariantConverter;
+import org.opencb.opencga.storage.mongodb.variant.converters.VariantStringIdConverter;
 import org.opencb.opencga.storage.mongodb.variant.converters.stage.StageDocumentToVariantConverter;
 import org.opencb.opencga.storage.mongodb.variant.load.stage.MongoDBVariantStageLoader;
 import org.opencb.opencga.storage.mongodb.variant.search.MongoDBVariantSearchIndexUtils;
@@ -248,6 +250,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
     private final List<Integer> indexedSamples;
 
 
+    private static final VariantStringIdConverter STRING_ID_CONVERTER = new VariantStringIdConverter();
     private final Logger logger = LoggerFactory.getLogger(MongoDBVariantMerger.class);
     private final VariantMerger variantMerger;
     private final List<String> format;
@@ -272,7 +275,8 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
         checkOverlappings = !ignoreOverlapping && (fileIds.size() > 1 || !indexedFiles.isEmpty());
         DocumentToSamplesConverter samplesConverter = new DocumentToSamplesConverter(dbAdaptor.getMetadataManager(), this.studyMetadata);
         studyConverter = new DocumentToStudyVariantEntryConverter(false, samplesConverter);
-        variantConverter = new DocumentToVariantConverter(studyConverter, null);
+        variantConverter = new DocumentToVariantConverter(studyConverter, null)
+                .setCompactIds(MongoDBVariantStorageOptions.isCompactIds(dbAdaptor.getMetadataManager().getProjectMetadata()));
         samplesPositionMap = new HashMap<>();
         sampleNamesInFile = new HashMap<>();
         fileIdsMap = new HashMap<>();
@@ -1057,7 +1061,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
     protected void updateMongoDBOperations(Variant emptyVar, List<String> ids, List<Document> fileDocuments,
                                            int alternatesFromStage, List<Document> secondaryAlternates, Document gts,
                                            boolean newStudy, boolean newVariant, MongoDBOperations mongoDBOps) {
-        final String id;
+        final Object id;
 
         if (!excludeGenotypes) {
             mongoDBOps.getGenotypes().addAll(gts.keySet());
@@ -1099,7 +1103,7 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
 
 
                     mongoDBOps.getNewStudy().getVariants().add(variantDocument);
-                    id = variantDocument.getString("_id");
+                    id = variantDocument.get("_id");
                 } else {
                     id = variantConverter.buildStorageId(emptyVar);
                 }
@@ -1170,8 +1174,10 @@ public class MongoDBVariantMerger implements ParallelTaskRunner.Task<Document, M
                 filters.add(eq(studyIdStr + '.' + SECONDARY_ALTERNATES_FIELD, secondaryAlternates.subList(0, i)));
             }
 
-            mongoDBOps.getSecondaryAlternates().getIds().add(id);
-            mongoDBOps.getSecondaryAlternates().getQueries().add(and(eq(ID_FIELD, id), or(filters)));
+            // The stage collection always uses string ids
+            String stageId = variantConverter.isCompactIds() ? STRING_ID_CONVERTER.buildId(emptyVar) : (String) id;
+            mongoDBOps.getSecondaryAlternates().getIds().add(stageId);
+            mongoDBOps.getSecondaryAlternates().getQueries().add(and(eq(ID_FIELD, stageId), or(filters)));
             mongoDBOps.getSecondaryAlternates().getUpdates().add(set(studyIdStr + '.' + SECONDARY_ALTERNATES_FIELD, secondaryAlternates));
         }
     }
@@ -2,10 +2,25 @@ package org.opencb.opencga.storage.mongodb.variant.adaptors;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Test;
+import org.opencb.biodata.models.core.Region;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
 import org.opencb.opencga.storage.core.variant.adaptors.VariantDBAdaptorTest;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
 import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
 
 import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam.REGION;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.QUERY_REGION_PREFETCH;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.QUERY_REGION_THREADS;
 
 /**
  * Created on 22/12/17.
@@ -24,6 +39,61 @@ public class VariantMongoDBAdaptorTest extends VariantDBAdaptorTest implements M
         logLevel("info");
     }
 
+    @Test
+    public void testParallelRegionIterator() throws Exception {
+        // Overlapping regions, from multiple chromosomes, not sorted
+        Query query = new Query(REGION.key(), "3:1-200000000,1:10000000-20000000,1:1000000-2000000,1:1500000-12000000,X,20:238441-7980390");
+        for (QueryOptions options : Arrays.asList(
+                new QueryOptions(QueryOptions.SORT, true),
+                new QueryOptions(QueryOptions.SORT, true).append(QueryOptions.LIMIT, 10),
+                new QueryOptions())) {
+            List<String> expected = toIds(dbAdaptor.iterator(query, new QueryOptions(options).append(QUERY_REGION_THREADS.key(), 1)));
+            VariantDBIterator iterator = dbAdaptor.iterator(query, new QueryOptions(options)
+                    .append(QUERY_REGION_THREADS.key(), 2)
+                    .append(QUERY_REGION_PREFETCH.key(), 5));
+            assertThat(iterator, instanceOf(ParallelRegionVariantMongoDBIterator.class));
+            List<String> actual = toIds(iterator);
+
+            assertFalse(expected.isEmpty());
+            // Single cursor by default
+            try (VariantDBIterator defaultIterator = dbAdaptor.iterator(query, new QueryOptions(options))) {
+                assertThat(defaultIterator, not(instanceOf(ParallelRegionVariantMongoDBIterator.class)));
+            }
+            if (options.getBoolean(QueryOptions.SORT)) {
+                assertEquals(expected, actual);
+            } else {
+                assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+                assertEquals(expected.size(), actual.size());
+            }
+        }
+    }
+
+    @Test
+    public void testMergeRegions() {
+        for (boolean compactIds : Arrays.asList(false, true)) {
+            List<Region> regions = ParallelRegionVariantMongoDBIterator.mergeRegions(Arrays.asList(
+                    new Region("X:100-200"),
+                    new Region("2:100-200"),
+                    new Region("1:500-600"),
+                    new Region("1:100-200"),
+                    new Region("1:150-300"),
+                    new Region("1:301-400"),
+                    new Region("10:100-200")), compactIds);
+            assertEquals(Arrays.asList("1:100-400", "1:500-600", "2:100-200", "10:100-200", "X:100-200"),
+                    regions.stream().map(Region::toString).collect(Collectors.toList()));
+        }
+    }
+
+    private List<String> toIds(VariantDBIterator iterator) throws Exception {
+        List<String> ids = new ArrayList<>();
+        while (iterator.hasNext()) {
+            Variant variant = iterator.next();
+            ids.add(variant.toString());
+        }
+        iterator.close();
+        return ids;
+    }
+
     @Override
     public void after() throws IOException {
         super.after();
@@ -0,0 +1,149 @@
+package org.opencb.opencga.storage.mongodb.variant.adaptors;
+
+import com.mongodb.MongoNamespace;
+import org.bson.Document;
+import org.bson.types.Binary;
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+import org.opencb.commons.datastore.core.ObjectMap;
+import org.opencb.commons.datastore.core.Query;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDataStore;
+import org.opencb.opencga.storage.core.metadata.models.ProjectMetadata;
+import org.opencb.opencga.storage.core.variant.VariantStorageBaseTest;
+import org.opencb.opencga.storage.core.variant.VariantStorageOptions;
+import org.opencb.opencga.storage.core.variant.adaptors.VariantQueryParam;
+import org.opencb.opencga.storage.core.variant.adaptors.iterators.VariantDBIterator;
+import org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageTest;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.*;
+import static org.opencb.opencga.storage.mongodb.variant.MongoDBVariantStorageOptions.*;
+
+public class VariantMongoDBCompactIdsMigrationTest extends VariantStorageBaseTest implements MongoDBVariantStorageTest {
+
+    private static final List<Query> QUERIES = Arrays.asList(
+            new Query(),
+            new Query(VariantQueryParam.REGION.key(), "1:1000000-20000000,X,22"),
+            new Query(VariantQueryParam.REGION.key(), "1:14000-15000000").append(VariantQueryParam.TYPE.key(), "SNV"));
+
+    @Test
+    public void testLoadCompactIds() throws Exception {
+        load(false);
+        Map<String, List<String>> expected = query();
+
+        clearDB(DB_NAME);
+        load(true);
+        assertTrue(isCompactIds(metadataManager.getProjectMetadata()));
+        checkCompactIds();
+        assertEquals(expected, query());
+        checkGetById();
+    }
+
+    @Test
+    public void testMigration() throws Exception {
+        load(false);
+        Map<String, List<String>> expected = query();
+        long numVariants = getDBAdaptor().getVariantsCollection().count().getNumMatches();
+
+        assertEquals(numVariants, getVariantStorageEngine().migrateToCompactIds());
+
+        ProjectMetadata projectMetadata = metadataManager.getProjectMetadata();
+        assertTrue(isCompactIds(projectMetadata));
+        assertFalse(projectMetadata.getAttributes().containsKey(COMPACT_IDS_MIGRATING.key()));
+        checkCompactIds();
+        assertEquals(expected, query());
+        checkGetById();
+
+        // Original collection kept as backup
+        MongoDataStore db = getDBAdaptor().getDB();
+        String backup = getDBAdaptor().getVariantsCollectionName() + VariantMongoDBCompactIdsMigration.BACKUP_SUFFIX;
+        assertTrue(db.getCollectionNames().contains(backup));
+        assertEquals(numVariants, db.getCollection(backup).count().getNumMatches());
+
+        // Nothing else to migrate
+        assertEquals(0, getVariantStorageEngine().migrateToCompactIds());
+    }
+
+    @Test
+    public void testResumeMigration() throws Exception {
+        load(false);
+        Map<String, List<String>> expected = query();
+        long numVariants = getDBAdaptor().getVariantsCollection().count().getNumMatches();
+
+        // Simulate a migration interrupted while renaming the collections
+        metadataManager.updateProjectMetadata(pm -> {
+            pm.getAttributes().put(COMPACT_IDS_MIGRATING.key(), true);
+            return pm;
+        });
+        MongoDataStore db = getDBAdaptor().getDB();
+        String variantsCollectionName = getDBAdaptor().getVariantsCollectionName();
+        db.getDb().getCollection(variantsCollectionName).renameCollection(new MongoNamespace(db.getDb().getName(),
+                variantsCollectionName + VariantMongoDBCompactIdsMigration.BACKUP_SUFFIX));
+        assertFalse(db.getCollectionNames().contains(variantsCollectionName));
+
+        try {
+            runDefaultETL(getPlatinumFile(0), variantStorageEngine, null, loadParams());
+            fail("Expected load to fail while migrating");
+        } catch (Exception e) {
+            Throwable cause = e;
+            while (cause.getCause() != null && !String.valueOf(cause.getMessage()).contains("compact ids")) {
+                cause = cause.getCause();
+            }
+            assertTrue(e.getMessage(), String.valueOf(cause.getMessage()).contains("compact ids"));
+        }
+
+        assertEquals(numVariants, getVariantStorageEngine().migrateToCompactIds());
+
+        assertTrue(isCompactIds(metadataManager.getProjectMetadata()));
+        checkCompactIds();
+        assertEquals(expected, query());
+    }
+
+    private void load(boolean compactIds) throws Exception {
+        runDefaultETL(smallInputUri, variantStorageEngine, null, loadParams().append(COMPACT_IDS.key(), compactIds));
+    }
+
+    private ObjectMap loadParams() {
+        return new ObjectMap()
+                .append(VariantStorageOptions.ANNOTATE.key(), false)
+                .append(VariantStorageOptions.STATS_CALCULATE.key(), false);
+    }
+
+    private VariantMongoDBAdaptor getDBAdaptor() throws Exception {
+        return getVariantStorageEngine().getDBAdaptor();
+    }
+
+    private void checkCompactIds() throws Exception {
+        for (Document document : getDBAdaptor().getVariantsCollection().find(new Document(), QueryOptions.empty()).getResults()) {
+            assertThat(document.get("_id"), instanceOf(Binary.class));
+        }
+    }
+
+    private void checkGetById() throws Exception {
+        List<String> variants = query().get(QUERIES.get(0).toJson()).subList(0, 10);
+        Query query = new Query(VariantQueryParam.ID.key(), variants);
+        List<String> actual = new ArrayList<>();
+        for (Variant variant : getDBAdaptor().get(query, new QueryOptions(QueryOptions.SORT, true)).getResults()) {
+            actual.add(variant.toString());
+        }
+        assertEquals(variants, actual);
+    }
+
+    private Map<String, List<String>> query() throws Exception {
+        Map<String, List<String>> results = new HashMap<>();
+        for (Query query : QUERIES) {
+            List<String> variants = new ArrayList<>();
+            try (VariantDBIterator iterator = getDBAdaptor().iterator(new Query(query), new QueryOptions(QueryOptions.SORT, true))) {
+                while (iterator.hasNext()) {
+                    variants.add(iterator.next().toString());
+                }
+            }
+            assertFalse(query.toJson(), variants.isEmpty());
+            results.put(query.toJson(), variants);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,87 @@
+package org.opencb.opencga.storage.mongodb.variant.converters;
+
+import org.junit.Test;
+import org.opencb.biodata.models.variant.Variant;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class VariantBinaryIdConverterTest {
+
+    private final VariantBinaryIdConverter converter = new VariantBinaryIdConverter();
+
+    @Test
+    public void snv() {
+        byte[] id = converter.buildId(new Variant("1", 1000, 1000, "A", "C")).getData();
+        assertEquals(VariantBinaryIdConverter.ID_LENGTH, id.length);
+        assertArrayEquals(new byte[]{0, 1, 0, 0, 0x03, (byte) 0xE8}, Arrays.copyOf(id, 6));
+        assertEquals("A:C", new String(id, 6, 3, StandardCharsets.US_ASCII));
+        assertEquals(0, id[9]);
+    }
+
+    @Test
+    public void indel() {
+        byte[] id = converter.buildId(new Variant("1", 1000, 1002, "", "CA")).getData();
+        assertEquals(":CA", new String(id, 6, 3, StandardCharsets.US_ASCII));
+        assertArrayEquals(id, converter.buildId("1", 1000, "-", "CA").getData());
+    }
+
+    @Test
+    public void hashedAlleles() {
+        String alt = "ACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGTACGT";
+        byte[] id = converter.buildId(new Variant("1", 1000, 1002, "TAG", alt)).getData();
+        assertEquals(VariantBinaryIdConverter.ID_LENGTH, id.length);
+        assertEquals((byte) 0xFF, id[6]);
+        assertArrayEquals(id, converter.buildId(new Variant("1", 1000, 1002, "TAG", alt)).getData());
+        assertFalse(Arrays.equals(id, converter.buildId(new Variant("1", 1000, 1002, "TAG", alt + "A")).getData()));
+
+        byte[] sv = converter.buildId(new Variant("1", 1000, 2000, "A", "<DEL>")).getData();
+        assertEquals((byte) 0xFF, sv[6]);
+    }
+
+    @Test
+    public void hashedChromosome() {
+        assertTrue(VariantBinaryIdConverter.isHashedChromosome("GL000192.1"));
+        assertFalse(VariantBinaryIdConverter.isHashedChromosome("chrX"));
+        int code = VariantBinaryIdConverter.getChromosomeCode("GL000192.1");
+        assertTrue(code > VariantBinaryIdConverter.getChromosomeCode("chrMT"));
+
+        byte[] id = converter.buildId(new Variant("GL000192.1", 1000, 1000, "A", "C")).getData();
+        assertEquals((byte) 0xFF, id[6]);
+        assertFalse(Arrays.equals(id, converter.buildId(new Variant("GL000193.1", 1000, 1000, "A", "C")).getData()));
+    }
+
+    @Test
+    public void order() {
+        List<byte[]> ids = Arrays.asList(
+                VariantBinaryIdConverter.buildId("1", 1000).getData(),
+                converter.buildId(new Variant("1", 1000, 1000, "A", "C")).getData(),
+                converter.buildId(new Variant("1", 1000, 1000, "A", "T")).getData(),
+                VariantBinaryIdConverter.buildId("1", 1001).getData(),
+                converter.buildId(new Variant("1", 100000000, 100000000, "A", "C")).getData(),
+                converter.buildId(new Variant("2", 10, 10, "A", "C")).getData(),
+                converter.buildId(new Variant("10", 10, 10, "A", "C")).getData(),
+                converter.buildId(new Variant("22", 10, 10, "A", "C")).getData(),
+                converter.buildId(new Variant("X", 10, 10, "A", "C")).getData(),
+                converter.buildId(new Variant("Y", 10, 10, "A", "C")).getData(),
+                converter.buildId(new Variant("MT", 10, 10, "A", "C")).getData(),
+                converter.buildId(new Variant("chr1", 10, 10, "A", "C")).getData());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue("Unsorted id " + i, compare(ids.get(i - 1), ids.get(i)) < 0);
+        }
+    }
+
+    // Same order as MongoDB for binary values of the same length and subtype
+    private static int compare(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); i++) {
+            int c = Integer.compare(a[i] & 0xFF, b[i] & 0xFF);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2015-2020 OpenCB
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.opencb.opencga.storage.mongodb.variant.load.variants;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteConcernError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.conversions.Bson;
+import org.junit.Before;
+import org.junit.Test;
+import org.opencb.commons.datastore.core.DataResult;
+import org.opencb.commons.datastore.core.QueryOptions;
+import org.opencb.commons.datastore.mongodb.MongoDBCollection;
+import org.opencb.opencga.storage.core.metadata.models.StudyMetadata;
+import org.opencb.opencga.storage.mongodb.variant.load.MongoDBVariantWriteResult;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static com.mongodb.client.model.Filters.eq;
+import static com.mongodb.client.model.Updates.set;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.opencb.opencga.storage.core.variant.VariantStorageOptions.LOADED_GENOTYPES;
+
+public class MongoDBAdaptiveBulkWriterTest {
+
+    // About 3 operations per batch with the min batch size
+    private static final int OPERATION_SIZE = 20 * 1024;
+    private static final int DUPLICATE_KEY = 11000;
+
+    private MongoDBCollection collection;
+    private List<Object> ids;
+    private List<Bson> queries;
+    private List<Bson> updates;
+    // Offset and size of each written batch, in order of execution
+    private List<int[]> batches;
+    private MongoDBVariantWriteResult stats;
+
+    @Before
+    public void setUp() {
+        collection = mock(MongoDBCollection.class);
+        ids = new ArrayList<>();
+        queries = new ArrayList<>();
+        updates = new ArrayList<>();
+        String value = new String(new char[OPERATION_SIZE]).replace('\0', 'A');
+        for (int i = 0; i < 10; i++) {
+            ids.add("id_" + i);
+            queries.add(eq("_id", "id_" + i));
+            updates.add(set("value", value));
+        }
+        batches = Collections.synchronizedList(new ArrayList<>());
+        stats = new MongoDBVariantWriteResult();
+    }
+
+    @Test
+    public void testSplitBatches() {
+        mockUpdate(batch -> result(batch[1], batch[1], 0));
+
+        try (MongoDBAdaptiveBulkWriter writer = new MongoDBAdaptiveBulkWriter(0, 1000, 4)) {
+            DataResult result = writer.update(collection, ids, queries, updates, QueryOptions.empty(), stats);
+            assertEquals(queries.size(), result.getNumMatches());
+            assertEquals(queries.size(), result.getNumUpdated());
+        }
+
+        assertTrue(batches.size() > 1);
+        int numOperations = 0;
+        for (int[] batch : batches) {
+            assertTrue(batch[1] <= MongoDBAdaptiveBulkWriter.MIN_BATCH_BYTES / OPERATION_SIZE);
+            numOperations += batch[1];
+        }
+        assertEquals(queries.size(), numOperations);
+        assertEquals(batches.size(), stats.getBulkWrites());
+    }
+
+    @Test
+    public void testMergeErrors() {
+        // Operations 4 and 8 fail. Operations 5 and 9 are upserted.
+        mockUpdate(batch -> {
+            List<BulkWriteError> errors = new ArrayList<>();
+            List<BulkWriteUpsert> upserts = new ArrayList<>();
+            for (int i = batch[0]; i < batch[0] + batch[1]; i++) {
+                if (i == 4 || i == 8) {
+                    errors.add(new BulkWriteError(DUPLICATE_KEY, "E11000 duplicate key error", new BsonDocument(), i - batch[0]));
+                } else if (i == 5 || i == 9) {
+                    upserts.add(new BulkWriteUpsert(i - batch[0], new BsonString(ids.get(i).toString())));
+                }
+            }
+            if (errors.isEmpty()) {
+                return result(batch[1] - upserts.size(), batch[1] - upserts.size(), upserts.size());
+            }
+            int matched = batch[1] - errors.size() - upserts.size();
+            throw new MongoBulkWriteException(BulkWriteResult.acknowledged(0, matched, 0, matched, upserts), errors, null,
+                    new ServerAddress());
+        });
+
+        try (MongoDBAdaptiveBulkWriter writer = new MongoDBAdaptiveBulkWriter(0, 1000, 4)) {
+            writer.update(collection, ids, queries, updates, QueryOptions.empty(), stats);
+            fail("Expected MongoBulkWriteException");
+        } catch (MongoBulkWriteException e) {
+            List<Integer> errorIndexes = new ArrayList<>();
+            for (BulkWriteError error : e.getWriteErrors()) {
+                assertEquals(DUPLICATE_KEY, error.getCode());
+                errorIndexes.add(error.getIndex());
+            }
+            Collections.sort(errorIndexes);
+            assertEquals(Arrays.asList(4, 8), errorIndexes);
+
+            // Upserts are only remapped from the failed batches. Upserts from successful batches are added to the insertedCount.
+            int upserts = e.getWriteResult().getUpserts().size() + e.getWriteResult().getInsertedCount();
+            assertEquals(2, upserts);
+            for (BulkWriteUpsert upsert : e.getWriteResult().getUpserts()) {
+                assertEquals(ids.get(upsert.getIndex()), upsert.getId().asString().getValue());
+            }
+            assertEquals(queries.size() - 2 - 2, e.getWriteResult().getMatchedCount());
+        }
+    }
+
+    @Test
+    public void testAdaptBatchSize() {
+        int maxBatchBytes = 1024 * 1024;
+        mockUpdate(batch -> result(batch[1], batch[1], 0));
+        try (MongoDBAdaptiveBulkWriter writer = new MongoDBAdaptiveBulkWriter(maxBatchBytes, 1000, 1)) {
+            assertEquals(maxBatchBytes / 4, writer.getBatchBytes());
+            // Faster than the target latency. Grow 25%
+            writer.update(collection, ids.subList(0, 1), queries.subList(0, 1), updates.subList(0, 1), QueryOptions.empty(), stats);
+            assertEquals(maxBatchBytes / 4 + maxBatchBytes / 16, writer.getBatchBytes());
+            for (int i = 0; i < 20; i++) {
+                writer.update(collection, ids.subList(0, 1), queries.subList(0, 1), updates.subList(0, 1), QueryOptions.empty(), stats);
+            }
+            // Never above the max batch size
+            assertEquals(maxBatchBytes, writer.getBatchBytes());
+        }
+
+        mockUpdate(batch -> {
+            sleep(10);
+            return result(batch[1], batch[1], 0);
+        });
+        try (MongoDBAdaptiveBulkWriter writer = new MongoDBAdaptiveBulkWriter(maxBatchBytes, 1, 1)) {
+            // Slower than twice the target latency. Halve
+            writer.update(collection, ids.subList(0, 1), queries.subList(0, 1), updates.subList(0, 1), QueryOptions.empty(), stats);
+            assertEquals(maxBatchBytes / 8, writer.getBatchBytes());
+            for (int i = 0; i < 10; i++) {
+                writer.update(collection, ids.subList(0, 1), queries.subList(0, 1), updates.subList(0, 1), QueryOptions.empty(), stats);
+            }
+            // Never below the min batch size
+            assertEquals(MongoDBAdaptiveBulkWriter.MIN_BATCH_BYTES, writer.getBatchBytes());
+        }
+    }
+
+    @Test
+    public void testWriteConcernBackoff() {
+        List<Long> timestamps = Collections.synchronizedList(new ArrayList<>());
+        mockUpdate(batch -> {
+            timestamps.add(System.currentTimeMillis());
+            if (timestamps.size() == 1) {
+                // Applied on the primary, but not replicated in time
+                throw new MongoBulkWriteException(BulkWriteResult.acknowledged(0, batch[1], 0, batch[1], Collections.emptyList()),
+                        Collections.emptyList(), new WriteConcernError(64, "waiting for replication timed out", new BsonDocument()),
+                        new ServerAddress());
+            }
+            return result(batch[1], batch[1], 0);
+        });
+
+        try (MongoDBAdaptiveBulkWriter writer = new MongoDBAdaptiveBulkWriter(MongoDBAdaptiveBulkWriter.MIN_BATCH_BYTES * 2, 1000, 1)) {
+            DataResult result = writer.update(collection, ids, queries, updates, QueryOptions.empty(), stats);
+            // The batch is not retried, nor reported as failed
+            assertEquals(queries.size(), result.getNumMatches());
+            assertEquals(batches.size(), timestamps.size());
+            assertEquals(1, stats.getWriteConcernErrors());
+        }
+
+        assertTrue(timestamps.size() > 1);
+        long wait = timestamps.get(1) - timestamps.get(0);
+        // Min backoff is 100ms. Allow some clock imprecision
+        assertTrue("Expected backoff. Waited " + wait + "ms", wait >= 90);
+    }
+
+    @Test
+    public void testDuplicatedIdsNotConcurrent() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        mockUpdate(batch -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(50);
+            running.decrementAndGet();
+            return result(batch[1], batch[1], 0);
+        });
+
+        // Two updates over the same _id in different batches
+        ids.set(ids.size() - 1, ids.get(0));
+        try (MongoDBAdaptiveBulkWriter writer = new MongoDBAdaptiveBulkWriter(0, 1000, 4)) {
+            writer.update(collection, ids, queries, updates, QueryOptions.empty(), stats);
+        }
+
+        assertEquals(1, maxRunning.get());
+        int offset = 0;
+        for (int[] batch : batches) {
+            assertEquals(offset, batch[0]);
+            offset += batch[1];
+        }
+        assertEquals(queries.size(), offset);
+    }
+
+    @Test
+    public void testDuplicatedKeyRetry() {
+        // Operation 4 fails with duplicated key in the first attempt, as the document was inserted by a concurrent upsert.
+        mockUpdate(batch -> {
+            if (batch[0] == 4 && batch[1] == 1) {
+                // Retry
+                return result(1, 1, 0);
+            }
+            if (batch[0] <= 4 && 4 < batch[0] + batch[1]) {
+                List<BulkWriteUpsert> upserts = new ArrayList<>();
+                for (int i = 0; i < batch[1]; i++) {
+                    if (batch[0] + i != 4) {
+                        upserts.add(new BulkWriteUpsert(i, new BsonString(ids.get(batch[0] + i).toString())));
+                    }
+                }
+                throw new MongoBulkWriteException(BulkWriteResult.acknowledged(0, 0, 0, 0, upserts),
+                        Collections.singletonList(new BulkWriteError(DUPLICATE_KEY, "E11000 duplicate key error", new BsonDocument(),
+                                4 - batch[0])), null, new ServerAddress());
+            }
+            return result(batch[1], 0, batch[1]);
+        });
+
+        StudyMetadata studyMetadata = new StudyMetadata(1, "study");
+        studyMetadata.getAttributes().put(LOADED_GENOTYPES.key(), Collections.emptyList());
+        MongoDBVariantMergeLoader loader = new MongoDBVariantMergeLoader(collection, mock(MongoDBCollection.class),
+                mock(MongoDBCollection.class), studyMetadata, Collections.singletonList(1), false, false, null,
+                new MongoDBAdaptiveBulkWriter(0, 1000, 4));
+        MongoDBOperations mongoDBOps = new MongoDBOperations();
+        mongoDBOps.getNewStudy().getIds().addAll(ids);
+        mongoDBOps.getNewStudy().getQueries().addAll(queries);
+        mongoDBOps.getNewStudy().getUpdates().addAll(updates);
+
+        MongoDBVariantWriteResult result = loader.executeMongoDBOperations(mongoDBOps);
+        loader.close();
+
+        // Only the failed operation is retried
+        int[] retry = batches.get(batches.size() - 1);
+        assertArrayEquals(new int[]{4, 1}, retry);
+        assertEquals(queries.size() - 1, result.getNewVariants());
+    }
+
+    /**
+     * Mock the bulk update. The function receives the offset of the batch within {@link #queries}, and the batch size.
+     */
+    private void mockUpdate(Function<int[], DataResult> function) {
+        doAnswer(invocation -> {
+            List<Bson> batchQueries = invocation.getArgument(0);
+            int[] batch = new int[]{queries.indexOf(batchQueries.get(0)), batchQueries.size()};
+            batches.add(batch);
+            return function.apply(batch);
+        }).when(collection).update(anyList(), anyList(), any());
+    }
+
+    private static DataResult result(int numMatches, int numUpdated, int numInserted) {
+        DataResult result = new DataResult<>();
+        result.setNumMatches(numMatches);
+        result.setNumUpdated(numUpdated);
+        result.setNumInserted(numInserted);
+        return result;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}